@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.runtime.io.network.api.reader.MutableRecordReader;
+import org.apache.flink.runtime.io.network.api.writer.RecordWriter;
+import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
+import org.apache.flink.types.LongValue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a {@link SingleInputGate} with many local input channels, which are written to
+ * by several concurrent writer threads.
+ *
+ * <p>Every record is flushed on its own, so that each record makes its channel available at the
+ * gate. The benchmark therefore measures the signalling of available channels between the
+ * writer threads and the consuming thread rather than the serialization of records.
+ */
+@OperationsPerInvocation(InputGateNotificationBenchmark.RECORDS_PER_INVOCATION)
+public class InputGateNotificationBenchmark extends BenchmarkBase {
+
+	public static final int RECORDS_PER_INVOCATION = 200_000;
+
+	private static final int NUM_WRITER_THREADS = 4;
+
+	@Param({"1000", "4000"})
+	public int channels;
+
+	private NetworkBenchmarkEnvironment<LongValue> environment;
+
+	private List<RecordWriter<LongValue>> writers;
+
+	private ExecutorService writerThreads;
+
+	private ReceiverThread receiver;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(".*" + InputGateNotificationBenchmark.class.getSimpleName() + ".*")
+			.build()).run();
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		environment = new NetworkBenchmarkEnvironment<>();
+		environment.setUp(true, false, channels);
+
+		writers = new ArrayList<>(channels);
+		for (int i = 0; i < channels; i++) {
+			writers.add(environment.createRecordWriter(i));
+		}
+
+		writerThreads = Executors.newFixedThreadPool(NUM_WRITER_THREADS);
+
+		receiver = new ReceiverThread(new MutableRecordReader<>(
+			environment.getInputGate(), environment.getTmpDirectories()));
+		receiver.start();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		writerThreads.shutdownNow();
+		environment.finish();
+		receiver.join(TimeUnit.SECONDS.toMillis(10));
+		environment.tearDown();
+	}
+
+	@Benchmark
+	public void writeAndRead() throws Exception {
+		CompletableFuture<?> received = receiver.expectRecords(RECORDS_PER_INVOCATION);
+
+		List<Future<?>> written = new ArrayList<>(NUM_WRITER_THREADS);
+		for (int i = 0; i < NUM_WRITER_THREADS; i++) {
+			final int writerIndex = i;
+			written.add(writerThreads.submit(() -> {
+				write(writerIndex);
+				return null;
+			}));
+		}
+
+		for (Future<?> future : written) {
+			future.get();
+		}
+		received.get();
+	}
+
+	/**
+	 * Writes a share of the records round-robin to every {@link #NUM_WRITER_THREADS}-th channel.
+	 */
+	private void write(int writerIndex) throws Exception {
+		final LongValue value = new LongValue();
+		final int numRecords = RECORDS_PER_INVOCATION / NUM_WRITER_THREADS;
+
+		int channel = writerIndex;
+		for (int i = 0; i < numRecords; i++) {
+			RecordWriter<LongValue> writer = writers.get(channel);
+
+			value.setValue(i);
+			writer.emit(value);
+			writer.flush();
+
+			channel += NUM_WRITER_THREADS;
+			if (channel >= channels) {
+				channel = writerIndex;
+			}
+		}
+	}
+}
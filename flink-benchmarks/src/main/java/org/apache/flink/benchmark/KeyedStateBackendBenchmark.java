@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.contrib.streaming.state.RocksDBStateBackend;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.query.KvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.util.FileUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Access to a {@link ValueState} of the heap keyed state backend and of the RocksDB keyed state
+ * backend.
+ */
+@OperationsPerInvocation(KeyedStateBackendBenchmark.KEYS_PER_INVOCATION)
+public class KeyedStateBackendBenchmark extends BenchmarkBase {
+
+	public static final int KEYS_PER_INVOCATION = 10_000;
+
+	private static final int NUM_KEYS = 100_000;
+
+	private static final int NUMBER_OF_KEY_GROUPS = 128;
+
+	@Param({"heap", "rocksdb"})
+	public String backendType;
+
+	private File rocksDbPath;
+
+	private AbstractKeyedStateBackend<Long> keyedStateBackend;
+
+	private ValueState<Long> valueState;
+
+	private long nextKey;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(".*" + KeyedStateBackendBenchmark.class.getSimpleName() + ".*")
+			.build()).run();
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		AbstractStateBackend backend;
+
+		switch (backendType) {
+			case "heap":
+				backend = new MemoryStateBackend();
+				break;
+			case "rocksdb":
+				rocksDbPath = Files.createTempDirectory("flink-benchmark-rocksdb").toFile();
+				RocksDBStateBackend rocksDbBackend = new RocksDBStateBackend(new MemoryStateBackend());
+				rocksDbBackend.setDbStoragePath(rocksDbPath.getAbsolutePath());
+				backend = rocksDbBackend;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown state backend: " + backendType);
+		}
+
+		JobID jobId = new JobID();
+
+		keyedStateBackend = backend.createKeyedStateBackend(
+			new DummyEnvironment("benchmark", 1, 0),
+			jobId,
+			"benchmark",
+			LongSerializer.INSTANCE,
+			NUMBER_OF_KEY_GROUPS,
+			new KeyGroupRange(0, NUMBER_OF_KEY_GROUPS - 1),
+			new KvStateRegistry().createTaskRegistry(jobId, new JobVertexID()));
+
+		keyedStateBackend.restore(null);
+
+		valueState = keyedStateBackend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new ValueStateDescriptor<>("value", LongSerializer.INSTANCE));
+
+		for (long key = 0; key < NUM_KEYS; key++) {
+			keyedStateBackend.setCurrentKey(key);
+			valueState.update(key);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		keyedStateBackend.dispose();
+
+		if (rocksDbPath != null) {
+			FileUtils.deleteDirectory(rocksDbPath);
+		}
+	}
+
+	@Benchmark
+	public void valueUpdate() throws IOException {
+		for (int i = 0; i < KEYS_PER_INVOCATION; i++) {
+			long key = nextKey();
+			keyedStateBackend.setCurrentKey(key);
+			valueState.update(key);
+		}
+	}
+
+	@Benchmark
+	public long valueGet() throws IOException {
+		long sum = 0;
+		for (int i = 0; i < KEYS_PER_INVOCATION; i++) {
+			keyedStateBackend.setCurrentKey(nextKey());
+			sum += valueState.value();
+		}
+		return sum;
+	}
+
+	private long nextKey() {
+		long key = nextKey;
+		nextKey = key + 1 < NUM_KEYS ? key + 1 : 0;
+		return key;
+	}
+}
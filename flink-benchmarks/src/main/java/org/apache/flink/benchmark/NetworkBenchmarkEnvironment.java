@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.TaskManagerOptions;
+import org.apache.flink.core.io.IOReadableWritable;
+import org.apache.flink.runtime.deployment.InputChannelDeploymentDescriptor;
+import org.apache.flink.runtime.deployment.InputGateDeploymentDescriptor;
+import org.apache.flink.runtime.deployment.ResultPartitionLocation;
+import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.ConnectionID;
+import org.apache.flink.runtime.io.network.NetworkEnvironment;
+import org.apache.flink.runtime.io.network.TaskEventDispatcher;
+import org.apache.flink.runtime.io.network.api.writer.RecordWriter;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.netty.NettyConfig;
+import org.apache.flink.runtime.io.network.netty.NettyConnectionManager;
+import org.apache.flink.runtime.io.network.partition.ResultPartition;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionConsumableNotifier;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
+import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
+import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
+import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
+import org.apache.flink.runtime.query.KvStateRegistry;
+import org.apache.flink.runtime.taskmanager.TaskActions;
+import org.apache.flink.util.NetUtils;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Sets up {@link RecordWriter record writers} writing to a {@link SingleInputGate} via the network
+ * stack of one or two {@link NetworkEnvironment} instances in the same JVM. Each writer writes to
+ * its own result partition, which is consumed by one input channel of the gate.
+ *
+ * <p>In local mode, writers and gate share one environment and the gate consumes the partitions
+ * via local input channels. In remote mode, each side has its own environment and the data is
+ * sent via Netty over the loopback interface.
+ */
+public class NetworkBenchmarkEnvironment<T extends IOReadableWritable> {
+
+	private static final int MIN_NUM_BUFFERS = 2048;
+
+	private static final int MEMORY_SEGMENT_SIZE = TaskManagerOptions.MEMORY_SEGMENT_SIZE.defaultValue();
+
+	private static final int BUFFERS_PER_CHANNEL = TaskManagerOptions.NETWORK_BUFFERS_PER_CHANNEL.defaultValue();
+
+	private static final int EXTRA_BUFFERS_PER_GATE = TaskManagerOptions.NETWORK_EXTRA_BUFFERS_PER_GATE.defaultValue();
+
+	private final JobID jobId = new JobID();
+
+	private final IntermediateDataSetID dataSetId = new IntermediateDataSetID();
+
+	private IOManager ioManager;
+
+	private NetworkEnvironment senderEnv;
+
+	private NetworkEnvironment receiverEnv;
+
+	private ResultPartition[] partitions;
+
+	private SingleInputGate inputGate;
+
+	/**
+	 * Starts the network environments and connects a result partition with a single subpartition
+	 * to an input gate.
+	 *
+	 * @param localMode Whether writer and gate share one network environment.
+	 * @param creditBased Whether the gate uses credit-based flow control (remote mode only).
+	 */
+	public void setUp(boolean localMode, boolean creditBased) throws Exception {
+		setUp(localMode, creditBased, 1);
+	}
+
+	/**
+	 * Starts the network environments and connects the given number of result partitions, each
+	 * with a single subpartition, to an input gate.
+	 *
+	 * @param localMode Whether writers and gate share one network environment.
+	 * @param creditBased Whether the gate uses credit-based flow control (remote mode only).
+	 * @param numChannels The number of partitions and thus input channels of the gate.
+	 */
+	public void setUp(boolean localMode, boolean creditBased, int numChannels) throws Exception {
+		ioManager = new IOManagerAsync();
+
+		// each partition and input channel requires at least one buffer
+		final int numBuffers = Math.max(MIN_NUM_BUFFERS, 4 * numChannels);
+
+		senderEnv = createNetworkEnvironment(false, numBuffers);
+		senderEnv.start();
+
+		if (localMode) {
+			receiverEnv = senderEnv;
+		} else {
+			receiverEnv = createNetworkEnvironment(creditBased, numBuffers);
+			receiverEnv.start();
+		}
+
+		partitions = new ResultPartition[numChannels];
+		for (int i = 0; i < numChannels; i++) {
+			partitions[i] = createResultPartition();
+		}
+		inputGate = createInputGate(localMode);
+	}
+
+	public RecordWriter<T> createRecordWriter() {
+		return createRecordWriter(0);
+	}
+
+	/**
+	 * Creates a writer for the partition consumed by the input channel with the given index.
+	 */
+	public RecordWriter<T> createRecordWriter(int channelIndex) {
+		return new RecordWriter<>(partitions[channelIndex]);
+	}
+
+	public SingleInputGate getInputGate() {
+		return inputGate;
+	}
+
+	public String[] getTmpDirectories() {
+		return ioManager.getSpillingDirectoriesPaths();
+	}
+
+	/**
+	 * Finishes the partitions, which ends the input of the gate's consumer.
+	 */
+	public void finish() throws IOException {
+		for (ResultPartition partition : partitions) {
+			partition.finish();
+		}
+	}
+
+	public void tearDown() throws IOException {
+		if (inputGate != null) {
+			inputGate.releaseAllResources();
+		}
+		if (partitions != null) {
+			for (ResultPartition partition : partitions) {
+				if (partition != null) {
+					partition.release();
+				}
+			}
+		}
+
+		shutdown(senderEnv);
+		if (receiverEnv != senderEnv) {
+			shutdown(receiverEnv);
+		}
+
+		if (ioManager != null) {
+			ioManager.shutdown();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private NetworkEnvironment createNetworkEnvironment(boolean creditBased, int numBuffers) throws Exception {
+		NettyConfig nettyConfig = new NettyConfig(
+			InetAddress.getLoopbackAddress(),
+			NetUtils.getAvailablePort(),
+			MEMORY_SEGMENT_SIZE,
+			1,
+			new Configuration());
+
+		return new NetworkEnvironment(
+			new NetworkBufferPool(numBuffers, MEMORY_SEGMENT_SIZE),
+			new NettyConnectionManager(nettyConfig),
+			new ResultPartitionManager(),
+			new TaskEventDispatcher(),
+			new KvStateRegistry(),
+			null,
+			null,
+			IOManager.IOMode.SYNC,
+			TaskManagerOptions.NETWORK_REQUEST_BACKOFF_INITIAL.defaultValue(),
+			TaskManagerOptions.NETWORK_REQUEST_BACKOFF_MAX.defaultValue(),
+			BUFFERS_PER_CHANNEL,
+			EXTRA_BUFFERS_PER_GATE,
+			creditBased,
+			-1);
+	}
+
+	private ResultPartition createResultPartition() throws Exception {
+		ResultPartitionID partitionId = new ResultPartitionID(
+			new IntermediateResultPartitionID(), new ExecutionAttemptID());
+
+		ResultPartition partition = new ResultPartition(
+			"sender",
+			new NoOpTaskActions(),
+			jobId,
+			partitionId,
+			ResultPartitionType.PIPELINED_BOUNDED,
+			1,
+			1,
+			senderEnv.getResultPartitionManager(),
+			new NoOpResultPartitionConsumableNotifier(),
+			ioManager,
+			false);
+
+		// same as NetworkEnvironment#registerTask() for a produced partition
+		BufferPool bufferPool = senderEnv.getNetworkBufferPool().createBufferPool(
+			partition.getNumberOfSubpartitions(),
+			partition.getNumberOfSubpartitions() * BUFFERS_PER_CHANNEL + EXTRA_BUFFERS_PER_GATE);
+		partition.registerBufferPool(bufferPool);
+
+		senderEnv.getResultPartitionManager().registerResultPartition(partition);
+		senderEnv.getTaskEventDispatcher().registerPartition(partitionId);
+
+		return partition;
+	}
+
+	private SingleInputGate createInputGate(boolean localMode) throws IOException {
+		ResultPartitionLocation location;
+		if (localMode) {
+			location = ResultPartitionLocation.createLocal();
+		} else {
+			InetSocketAddress senderAddress = new InetSocketAddress(
+				InetAddress.getLoopbackAddress(),
+				senderEnv.getConnectionManager().getDataPort());
+			location = ResultPartitionLocation.createRemote(new ConnectionID(senderAddress, 0));
+		}
+
+		InputChannelDeploymentDescriptor[] channelDescriptors = new InputChannelDeploymentDescriptor[partitions.length];
+		for (int i = 0; i < partitions.length; i++) {
+			channelDescriptors[i] = new InputChannelDeploymentDescriptor(partitions[i].getPartitionId(), location);
+		}
+
+		InputGateDeploymentDescriptor gateDescriptor = new InputGateDeploymentDescriptor(
+			dataSetId,
+			ResultPartitionType.PIPELINED_BOUNDED,
+			0,
+			channelDescriptors);
+
+		SingleInputGate gate = SingleInputGate.create(
+			"receiver",
+			jobId,
+			new ExecutionAttemptID(),
+			gateDescriptor,
+			receiverEnv,
+			new NoOpTaskActions(),
+			UnregisteredMetricGroups.createUnregisteredTaskMetricGroup().getIOMetricGroup());
+
+		// same as NetworkEnvironment#registerTask() for a consumed partition
+		NetworkBufferPool networkBufferPool = receiverEnv.getNetworkBufferPool();
+		if (gate.getConsumedPartitionType().isCreditBased()) {
+			gate.setBufferPool(networkBufferPool.createBufferPool(EXTRA_BUFFERS_PER_GATE, EXTRA_BUFFERS_PER_GATE));
+			gate.assignExclusiveSegments(networkBufferPool, BUFFERS_PER_CHANNEL);
+		} else {
+			gate.setBufferPool(networkBufferPool.createBufferPool(
+				gate.getNumberOfInputChannels(),
+				gate.getNumberOfInputChannels() * BUFFERS_PER_CHANNEL + EXTRA_BUFFERS_PER_GATE));
+		}
+
+		return gate;
+	}
+
+	private static void shutdown(NetworkEnvironment environment) {
+		if (environment != null) {
+			environment.shutdown();
+			environment.getNetworkBufferPool().destroyAllBufferPools();
+			environment.getNetworkBufferPool().destroy();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static final class NoOpTaskActions implements TaskActions {
+
+		@Override
+		public void triggerPartitionProducerStateCheck(
+				JobID jobId,
+				IntermediateDataSetID intermediateDataSetId,
+				ResultPartitionID resultPartitionId) {}
+
+		@Override
+		public void failExternally(Throwable cause) {}
+	}
+
+	private static final class NoOpResultPartitionConsumableNotifier implements ResultPartitionConsumableNotifier {
+
+		@Override
+		public void notifyPartitionConsumable(JobID jobId, ResultPartitionID partitionId, TaskActions taskActions) {}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.runtime.io.network.api.reader.MutableRecordReader;
+import org.apache.flink.runtime.io.network.api.writer.RecordWriter;
+import org.apache.flink.types.LongValue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a {@link RecordWriter} writing to a consumer via a local input channel or via a
+ * remote input channel over a Netty connection on the loopback interface.
+ */
+@OperationsPerInvocation(NetworkThroughputBenchmark.RECORDS_PER_INVOCATION)
+public class NetworkThroughputBenchmark extends BenchmarkBase {
+
+	public static final int RECORDS_PER_INVOCATION = 1_000_000;
+
+	@Param({"local", "remote", "remote-credit-based"})
+	public String mode;
+
+	private NetworkBenchmarkEnvironment<LongValue> environment;
+
+	private RecordWriter<LongValue> writer;
+
+	private ReceiverThread receiver;
+
+	private final LongValue value = new LongValue();
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(".*" + NetworkThroughputBenchmark.class.getSimpleName() + ".*")
+			.build()).run();
+	}
+
+	@Setup
+	public void setUp() throws Exception {
+		environment = new NetworkBenchmarkEnvironment<>();
+		environment.setUp(mode.equals("local"), mode.equals("remote-credit-based"));
+
+		writer = environment.createRecordWriter();
+
+		receiver = new ReceiverThread(new MutableRecordReader<>(
+			environment.getInputGate(), environment.getTmpDirectories()));
+		receiver.start();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		environment.finish();
+		receiver.join(TimeUnit.SECONDS.toMillis(10));
+		environment.tearDown();
+	}
+
+	@Benchmark
+	public void writeAndRead() throws Exception {
+		CompletableFuture<?> received = receiver.expectRecords(RECORDS_PER_INVOCATION);
+
+		for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+			value.setValue(i);
+			writer.emit(value);
+		}
+		writer.flush();
+
+		received.get();
+	}
+}
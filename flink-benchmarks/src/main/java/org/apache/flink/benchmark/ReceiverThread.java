@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.runtime.io.network.api.reader.MutableRecordReader;
+import org.apache.flink.types.LongValue;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Consumes the records of the input gate and completes a future after each batch of expected
+ * records.
+ *
+ * <p>A new batch is only expected after the previous one has been received completely, so
+ * the receiver is idle while the expectation is updated.
+ */
+final class ReceiverThread extends Thread {
+
+	private final MutableRecordReader<LongValue> reader;
+
+	private volatile CompletableFuture<?> batchReceived;
+
+	/** The total number of records expected until the end of the current batch. */
+	private volatile long expectedRecords;
+
+	ReceiverThread(MutableRecordReader<LongValue> reader) {
+		super("receiver");
+		setDaemon(true);
+		this.reader = reader;
+	}
+
+	CompletableFuture<?> expectRecords(long numRecords) {
+		CompletableFuture<?> future = new CompletableFuture<>();
+		batchReceived = future;
+		expectedRecords += numRecords;
+		return future;
+	}
+
+	@Override
+	public void run() {
+		final LongValue value = new LongValue();
+		long receivedRecords = 0;
+
+		try {
+			while (reader.next(value)) {
+				if (++receivedRecords == expectedRecords) {
+					batchReceived.complete(null);
+				}
+			}
+		} catch (Throwable t) {
+			CompletableFuture<?> future = batchReceived;
+			if (future != null) {
+				future.completeExceptionally(t);
+			}
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.core.io.IOReadableWritable;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.api.serialization.AdaptiveSpanningRecordDeserializer;
+import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer;
+import org.apache.flink.runtime.io.network.api.serialization.RecordDeserializer.DeserializationResult;
+import org.apache.flink.runtime.io.network.api.serialization.RecordSerializer;
+import org.apache.flink.runtime.io.network.api.serialization.RecordSerializer.SerializationResult;
+import org.apache.flink.runtime.io.network.api.serialization.SpanningRecordSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Round trips of records through the {@link SpanningRecordSerializer} and the
+ * {@link AdaptiveSpanningRecordDeserializer}, i.e. the serialization path of the network stack
+ * without any I/O. Large records span multiple buffers.
+ */
+@OperationsPerInvocation(RecordSerializerBenchmark.RECORDS_PER_INVOCATION)
+public class RecordSerializerBenchmark extends BenchmarkBase {
+
+	public static final int RECORDS_PER_INVOCATION = 10_000;
+
+	/** The default size of network buffers. */
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private static final BufferRecycler NO_OP_RECYCLER = new BufferRecycler() {
+		@Override
+		public void recycle(MemorySegment memorySegment) {
+			// the segment is reused
+		}
+	};
+
+	@Param({"16", "512", "65536"})
+	public int recordSize;
+
+	private final RecordSerializer<ByteArrayRecord> serializer = new SpanningRecordSerializer<>();
+
+	private final RecordDeserializer<ByteArrayRecord> deserializer = new AdaptiveSpanningRecordDeserializer<>();
+
+	/**
+	 * The segment, which is reused for every buffer, since buffers are consumed right away. It is
+	 * off-heap like the segments of the network buffer pool.
+	 */
+	private final MemorySegment segment =
+		MemorySegmentFactory.wrapPooledOffHeapMemory(ByteBuffer.allocateDirect(BUFFER_SIZE), null);
+
+	private ByteArrayRecord record;
+
+	private ByteArrayRecord target;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(".*" + RecordSerializerBenchmark.class.getSimpleName() + ".*")
+			.build()).run();
+	}
+
+	@Setup
+	public void setUp() {
+		byte[] bytes = new byte[recordSize];
+		new Random(42).nextBytes(bytes);
+
+		record = new ByteArrayRecord(bytes);
+		target = new ByteArrayRecord(new byte[recordSize]);
+	}
+
+	@Benchmark
+	public int serializeAndDeserialize() throws IOException {
+		int numRecords = 0;
+
+		for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+			SerializationResult result = serializer.addRecord(record);
+
+			while (result.isFullBuffer()) {
+				Buffer buffer = serializer.getCurrentBuffer();
+
+				if (buffer != null) {
+					serializer.clearCurrentBuffer();
+					numRecords += deserialize(buffer);
+
+					if (result.isFullRecord()) {
+						break;
+					}
+				} else {
+					result = serializer.setNextBuffer(new Buffer(segment, NO_OP_RECYCLER));
+				}
+			}
+		}
+
+		Buffer buffer = serializer.getCurrentBuffer();
+		serializer.clear();
+		if (buffer != null) {
+			numRecords += deserialize(buffer);
+		}
+
+		if (numRecords != RECORDS_PER_INVOCATION) {
+			throw new IllegalStateException("Lost records: " + numRecords);
+		}
+
+		return numRecords;
+	}
+
+	private int deserialize(Buffer buffer) throws IOException {
+		if (buffer.getSize() == 0) {
+			return 0;
+		}
+
+		int numRecords = 0;
+		deserializer.setNextBuffer(buffer);
+
+		DeserializationResult result;
+		do {
+			result = deserializer.getNextRecord(target);
+			if (result.isFullRecord()) {
+				numRecords++;
+			}
+		} while (!result.isBufferConsumed());
+
+		return numRecords;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A record of a fixed number of bytes.
+	 */
+	private static final class ByteArrayRecord implements IOReadableWritable {
+
+		private final byte[] bytes;
+
+		ByteArrayRecord(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		public void write(DataOutputView out) throws IOException {
+			out.write(bytes);
+		}
+
+		@Override
+		public void read(DataInputView in) throws IOException {
+			in.readFully(bytes);
+		}
+	}
+}
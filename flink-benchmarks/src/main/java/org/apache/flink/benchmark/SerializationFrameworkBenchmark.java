@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.PojoTypeInfo;
+import org.apache.flink.api.java.typeutils.runtime.kryo.KryoSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Serialization and deserialization of POJOs with the {@link org.apache.flink.api.java.typeutils.runtime.PojoSerializer}
+ * and with the {@link KryoSerializer}, which is used for types that are not POJOs.
+ */
+@OperationsPerInvocation(SerializationFrameworkBenchmark.RECORDS_PER_INVOCATION)
+public class SerializationFrameworkBenchmark extends BenchmarkBase {
+
+	public static final int RECORDS_PER_INVOCATION = 10_000;
+
+	@Param({"pojo", "kryo"})
+	public String serializerType;
+
+	private TypeSerializer<MyPojo> serializer;
+
+	private final DataOutputSerializer out = new DataOutputSerializer(1024 * 1024);
+
+	private final DataInputDeserializer in = new DataInputDeserializer();
+
+	private MyPojo[] records;
+
+	private MyPojo reuse;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(".*" + SerializationFrameworkBenchmark.class.getSimpleName() + ".*")
+			.build()).run();
+	}
+
+	@Setup
+	public void setUp() {
+		ExecutionConfig config = new ExecutionConfig();
+
+		switch (serializerType) {
+			case "pojo":
+				TypeInformation<MyPojo> typeInfo = TypeInformation.of(MyPojo.class);
+				if (!(typeInfo instanceof PojoTypeInfo)) {
+					throw new IllegalStateException(MyPojo.class + " is not recognized as POJO.");
+				}
+				serializer = typeInfo.createSerializer(config);
+				break;
+			case "kryo":
+				serializer = new KryoSerializer<>(MyPojo.class, config);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown serializer type: " + serializerType);
+		}
+
+		records = new MyPojo[16];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = new MyPojo(i, "name-" + i, i * 0.5, new int[] {i, i + 1, i + 2});
+		}
+
+		reuse = serializer.createInstance();
+	}
+
+	@Benchmark
+	public MyPojo serializeAndDeserialize() throws IOException {
+		out.clear();
+		for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+			serializer.serialize(records[i % records.length], out);
+		}
+
+		in.setBuffer(out.getByteArray(), 0, out.length());
+		for (int i = 0; i < RECORDS_PER_INVOCATION; i++) {
+			reuse = serializer.deserialize(reuse, in);
+		}
+
+		return reuse;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A POJO with fields of common types.
+	 */
+	public static class MyPojo {
+
+		public long id;
+
+		public String name;
+
+		public double value;
+
+		public int[] counts;
+
+		public MyPojo() {}
+
+		public MyPojo(long id, String name, double value, int[] counts) {
+			this.id = id;
+			this.name = name;
+			this.value = value;
+			this.counts = counts;
+		}
+
+		@Override
+		public String toString() {
+			return "MyPojo{id=" + id + ", name='" + name + "', value=" + value + ", counts=" + Arrays.toString(counts) + '}';
+		}
+	}
+}
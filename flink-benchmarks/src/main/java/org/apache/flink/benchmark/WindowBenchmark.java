@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.benchmark;
+
+import org.apache.flink.api.common.functions.ReduceFunction;
+import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.streaming.api.TimeCharacteristic;
+import org.apache.flink.streaming.api.environment.Flip6LocalStreamEnvironment;
+import org.apache.flink.streaming.api.environment.StreamExecutionEnvironment;
+import org.apache.flink.streaming.api.functions.sink.DiscardingSink;
+import org.apache.flink.streaming.api.functions.timestamps.AscendingTimestampExtractor;
+import org.apache.flink.streaming.api.windowing.time.Time;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of a job with an event-time tumbling window, which is evaluated by the
+ * {@link org.apache.flink.streaming.runtime.operators.windowing.WindowOperator}.
+ *
+ * <p>Each invocation runs a complete job on a local environment. The number of records is chosen
+ * large enough for the job startup to be small compared to the processing time.
+ */
+@OperationsPerInvocation(WindowBenchmark.RECORDS_PER_INVOCATION)
+public class WindowBenchmark extends BenchmarkBase {
+
+	public static final int RECORDS_PER_INVOCATION = 5_000_000;
+
+	private static final int NUM_KEYS = 1000;
+
+	@Param({"100", "10000"})
+	public long windowSizeMillis;
+
+	private StreamExecutionEnvironment env;
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder()
+			.include(".*" + WindowBenchmark.class.getSimpleName() + ".*")
+			.build()).run();
+	}
+
+	@Setup
+	public void setUp() {
+		// the FLIP-6 mini cluster does not block dispatcher threads on job submission, which the
+		// legacy local environment does on machines with few cores
+		env = new Flip6LocalStreamEnvironment();
+		env.setParallelism(1);
+		env.setStreamTimeCharacteristic(TimeCharacteristic.EventTime);
+		env.getConfig().disableSysoutLogging();
+
+		env.generateSequence(0, RECORDS_PER_INVOCATION - 1)
+			.assignTimestampsAndWatermarks(new SequenceTimestampExtractor())
+			.keyBy(new ModuloKeySelector())
+			.timeWindow(Time.milliseconds(windowSizeMillis))
+			.reduce(new SumReducer())
+			.addSink(new DiscardingSink<>());
+	}
+
+	@Benchmark
+	public void tumblingWindowReduce() throws Exception {
+		env.execute();
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Uses the sequence number as timestamp, i.e. there is one record per key and millisecond.
+	 */
+	private static final class SequenceTimestampExtractor extends AscendingTimestampExtractor<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public long extractAscendingTimestamp(Long element) {
+			return element / NUM_KEYS;
+		}
+	}
+
+	private static final class ModuloKeySelector implements KeySelector<Long, Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Long getKey(Long value) {
+			return value % NUM_KEYS;
+		}
+	}
+
+	private static final class SumReducer implements ReduceFunction<Long> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Long reduce(Long value1, Long value2) {
+			return value1 + value2;
+		}
+	}
+}
@@ -25,6 +25,7 @@ import org.apache.flink.api.java.tuple.Tuple3;
 import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
 import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
 import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.queryablestate.client.state.serialization.KvStateSerializer;
@@ -36,6 +37,8 @@ import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.WriteOptions;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 /**
@@ -77,6 +80,13 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 
 	private final boolean ambiguousKeyPossible;
 
+	/**
+	 * The cache of the backend, if the values of this state are cached. The cached values are owned by the cache,
+	 * so that the values passed to and returned from user code must be copied.
+	 */
+	@Nullable
+	private final RocksDBWriteBackCache writeBackCache;
+
 	/**
 	 * Creates a new RocksDB backed state.
 	 *  @param namespaceSerializer The serializer for the namespace.
@@ -87,6 +97,23 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 			SD stateDesc,
 			RocksDBKeyedStateBackend<K> backend) {
 
+		this(columnFamily, namespaceSerializer, stateDesc, backend, false);
+	}
+
+	/**
+	 * Creates a new RocksDB backed state.
+	 *  @param namespaceSerializer The serializer for the namespace.
+	 *  @param cacheValues True, if the values of the state may be cached in the write-back cache of the backend.
+	 *                     Such states must access their values only through {@link #getInternal(byte[])},
+	 *                     {@link #putInternal(byte[], Object)} and {@link #removeInternal(byte[])}.
+	 */
+	protected AbstractRocksDBState(
+			ColumnFamilyHandle columnFamily,
+			TypeSerializer<N> namespaceSerializer,
+			SD stateDesc,
+			RocksDBKeyedStateBackend<K> backend,
+			boolean cacheValues) {
+
 		this.namespaceSerializer = namespaceSerializer;
 		this.backend = backend;
 
@@ -100,6 +127,9 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 		this.keySerializationDataOutputView = new DataOutputViewStreamWrapper(keySerializationStream);
 		this.ambiguousKeyPossible = (backend.getKeySerializer().getLength() < 0)
 				&& (namespaceSerializer.getLength() < 0);
+
+		// queryable state is read concurrently from RocksDB, so it must not be cached
+		this.writeBackCache = cacheValues && !stateDesc.isQueryable() ? backend.getWriteBackCache() : null;
 	}
 
 	// ------------------------------------------------------------------------
@@ -109,7 +139,7 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 		try {
 			writeCurrentKeyWithGroupAndNamespace();
 			byte[] key = keySerializationStream.toByteArray();
-			backend.db.remove(columnFamily, writeOptions, key);
+			removeInternal(key);
 		} catch (IOException | RocksDBException e) {
 			throw new RuntimeException("Error while removing entry from RocksDB", e);
 		}
@@ -140,17 +170,114 @@ public abstract class AbstractRocksDBState<K, N, S extends State, SD extends Sta
 
 		writeKeyWithGroupAndNamespace(keyGroup, des.f0, des.f1,
 			tmpKeySerializationStream, tmpKeySerializationDateDataOutputView);
+		byte[] key = tmpKeySerializationStream.toByteArray();
+
+		if (writeBackCache != null) {
+			// only states that are not queryable are cached, so this is not called concurrently
+			RocksDBWriteBackCache.CacheEntry cacheEntry = writeBackCache.get(columnFamily, key);
+			if (cacheEntry != null) {
+				@SuppressWarnings("unchecked")
+				V cachedValue = (V) cacheEntry.getValue();
+				if (cachedValue == null) {
+					return null;
+				}
+				tmpKeySerializationStream.reset();
+				getValueSerializer().serialize(cachedValue, tmpKeySerializationDateDataOutputView);
+				return tmpKeySerializationStream.toByteArray();
+			}
+		}
+
+		return backend.db.get(columnFamily, key);
+	}
+
+	TypeSerializer<V> getValueSerializer() {
+		return stateDesc.getSerializer();
+	}
+
+	/**
+	 * Returns the value of the given serialized key and namespace, or null if there is none. The value may be
+	 * cached and must be copied with {@link #copyIfCached(Object)} before it is handed out to user code.
+	 */
+	@Nullable
+	protected V getInternal(byte[] key) throws IOException, RocksDBException {
+		if (writeBackCache != null) {
+			RocksDBWriteBackCache.CacheEntry cacheEntry = writeBackCache.get(columnFamily, key);
+			if (cacheEntry != null) {
+				@SuppressWarnings("unchecked")
+				V cachedValue = (V) cacheEntry.getValue();
+				return cachedValue;
+			}
+		}
+
+		byte[] valueBytes = backend.db.get(columnFamily, key);
+		V value = valueBytes == null ?
+			null :
+			getValueSerializer().deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(valueBytes)));
+
+		if (writeBackCache != null) {
+			writeBackCache.put(this, key, value, false);
+		}
+		return value;
+	}
+
+	/**
+	 * Sets the value of the given serialized key and namespace. If the value is passed in from user code, it must
+	 * be copied with {@link #copyIfCached(Object)}, because it may be cached.
+	 */
+	protected void putInternal(byte[] key, V value) throws IOException, RocksDBException {
+		if (writeBackCache != null) {
+			writeBackCache.put(this, key, value, true);
+		} else {
+			keySerializationStream.reset();
+			getValueSerializer().serialize(value, keySerializationDataOutputView);
+			backend.db.put(columnFamily, writeOptions, key, keySerializationStream.toByteArray());
+		}
+	}
 
-		return backend.db.get(columnFamily, tmpKeySerializationStream.toByteArray());
+	/**
+	 * Removes the value of the given serialized key and namespace.
+	 */
+	protected void removeInternal(byte[] key) throws IOException, RocksDBException {
+		if (writeBackCache != null) {
+			writeBackCache.put(this, key, null, true);
+		} else {
+			backend.db.remove(columnFamily, writeOptions, key);
+		}
+	}
+
+	/**
+	 * Copies a value that is passed between user code and the write-back cache, so that neither can modify the
+	 * object of the other. Values of states that are not cached are not copied.
+	 */
+	protected V copyIfCached(V value) {
+		TypeSerializer<V> valueSerializer = getValueSerializer();
+		return writeBackCache == null || value == null || valueSerializer.isImmutableType() ?
+			value :
+			valueSerializer.copy(value);
 	}
 
 	protected void writeCurrentKeyWithGroupAndNamespace() throws IOException {
-		writeKeyWithGroupAndNamespace(
-			backend.getCurrentKeyGroupIndex(),
-			backend.getCurrentKey(),
-			currentNamespace,
-			keySerializationStream,
-			keySerializationDataOutputView);
+		writeCurrentKeyWithGroupAndNamespace(currentNamespace);
+	}
+
+	/**
+	 * Writes the key group and the current key, which the backend serializes only once per key, followed by the
+	 * given namespace into the {@link #keySerializationStream}.
+	 */
+	protected void writeCurrentKeyWithGroupAndNamespace(N namespace) throws IOException {
+		byte[] serializedKeyWithGroup = backend.getSerializedCurrentKeyWithGroup();
+
+		keySerializationStream.reset();
+		keySerializationDataOutputView.write(serializedKeyWithGroup);
+
+		if (ambiguousKeyPossible) {
+			//write size of key
+			writeVariableIntBytes(
+				serializedKeyWithGroup.length - backend.getKeyGroupPrefixBytes(),
+				keySerializationDataOutputView);
+		}
+
+		writeNameSpace(namespace, keySerializationStream, keySerializationDataOutputView);
 	}
 
 	protected void writeKeyWithGroupAndNamespace(
@@ -22,14 +22,10 @@ import org.apache.flink.api.common.functions.AggregateFunction;
 import org.apache.flink.api.common.state.AggregatingState;
 import org.apache.flink.api.common.state.AggregatingStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
-import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
-import org.apache.flink.core.memory.DataInputViewStreamWrapper;
-import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.state.internal.InternalAggregatingState;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
-import org.rocksdb.WriteOptions;
 
 import java.io.IOException;
 import java.util.Collection;
@@ -47,18 +43,9 @@ public class RocksDBAggregatingState<K, N, T, ACC, R>
 	extends AbstractRocksDBState<K, N, AggregatingState<T, R>, AggregatingStateDescriptor<T, ACC, R>, ACC>
 	implements InternalAggregatingState<N, T, R> {
 
-	/** Serializer for the values. */
-	private final TypeSerializer<ACC> valueSerializer;
-
 	/** User-specified aggregation function. */
 	private final AggregateFunction<T, ACC, R> aggFunction;
 
-	/**
-	 * We disable writes to the write-ahead-log here. We can't have these in the base class
-	 * because JNI segfaults for some reason if they are.
-	 */
-	private final WriteOptions writeOptions;
-
 	/**
 	 * Creates a new {@code RocksDBFoldingState}.
 	 *
@@ -73,13 +60,9 @@ public class RocksDBAggregatingState<K, N, T, ACC, R>
 			AggregatingStateDescriptor<T, ACC, R> stateDesc,
 			RocksDBKeyedStateBackend<K> backend) {
 
-		super(columnFamily, namespaceSerializer, stateDesc, backend);
+		super(columnFamily, namespaceSerializer, stateDesc, backend, true);
 
-		this.valueSerializer = stateDesc.getSerializer();
 		this.aggFunction = stateDesc.getAggregateFunction();
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
 	}
 
 	@Override
@@ -90,14 +73,14 @@ public class RocksDBAggregatingState<K, N, T, ACC, R>
 			final byte[] key = keySerializationStream.toByteArray();
 
 			// get the current value
-			final byte[] valueBytes = backend.db.get(columnFamily, key);
+			final ACC accumulator = getInternal(key);
 
-			if (valueBytes == null) {
+			if (accumulator == null) {
 				return null;
 			}
 
-			ACC accumulator = valueSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(valueBytes)));
-			return aggFunction.getResult(accumulator);
+			// the result may be the accumulator itself
+			return aggFunction.getResult(copyIfCached(accumulator));
 		}
 		catch (IOException | RocksDBException e) {
 			throw new IOException("Error while retrieving value from RocksDB", e);
@@ -110,25 +93,16 @@ public class RocksDBAggregatingState<K, N, T, ACC, R>
 			// prepare the current key and namespace for RocksDB lookup
 			writeCurrentKeyWithGroupAndNamespace();
 			final byte[] key = keySerializationStream.toByteArray();
-			keySerializationStream.reset();
-
-			// get the current value
-			final byte[] valueBytes = backend.db.get(columnFamily, key);
 
-			// deserialize the current accumulator, or create a blank one
-			ACC accumulator = valueBytes == null ?
-					aggFunction.createAccumulator() :
-					valueSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(valueBytes)));
+			// get the current accumulator, or create a blank one
+			final ACC currentAccumulator = getInternal(key);
+			ACC accumulator = currentAccumulator == null ? aggFunction.createAccumulator() : currentAccumulator;
 
 			// aggregate the value into the accumulator
 			accumulator = aggFunction.add(value, accumulator);
 
-			// serialize the new accumulator
-			final DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(keySerializationStream);
-			valueSerializer.serialize(accumulator, out);
-
-			// write the new value to RocksDB
-			backend.db.put(columnFamily, writeOptions, key, keySerializationStream.toByteArray());
+			// write the new accumulator
+			putInternal(key, accumulator);
 		}
 		catch (IOException | RocksDBException e) {
 			throw new IOException("Error while adding value to RocksDB", e);
@@ -141,28 +115,19 @@ public class RocksDBAggregatingState<K, N, T, ACC, R>
 			return;
 		}
 
-		// cache key and namespace
-		final K key = backend.getCurrentKey();
-		final int keyGroup = backend.getCurrentKeyGroupIndex();
-
 		try {
 			ACC current = null;
 
 			// merge the sources to the target
 			for (N source : sources) {
 				if (source != null) {
-					writeKeyWithGroupAndNamespace(
-							keyGroup, key, source,
-							keySerializationStream, keySerializationDataOutputView);
+					writeCurrentKeyWithGroupAndNamespace(source);
 
 					final byte[] sourceKey = keySerializationStream.toByteArray();
-					final byte[] valueBytes = backend.db.get(columnFamily, sourceKey);
-					backend.db.delete(columnFamily, sourceKey);
-
-					if (valueBytes != null) {
-						ACC value = valueSerializer.deserialize(
-								new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(valueBytes)));
+					final ACC value = getInternal(sourceKey);
+					removeInternal(sourceKey);
 
+					if (value != null) {
 						if (current != null) {
 							current = aggFunction.merge(current, value);
 						}
@@ -176,27 +141,18 @@ public class RocksDBAggregatingState<K, N, T, ACC, R>
 			// if something came out of merging the sources, merge it or write it to the target
 			if (current != null) {
 				// create the target full-binary-key
-				writeKeyWithGroupAndNamespace(
-						keyGroup, key, target,
-						keySerializationStream, keySerializationDataOutputView);
+				writeCurrentKeyWithGroupAndNamespace(target);
 
 				final byte[] targetKey = keySerializationStream.toByteArray();
-				final byte[] targetValueBytes = backend.db.get(columnFamily, targetKey);
+				final ACC targetValue = getInternal(targetKey);
 
-				if (targetValueBytes != null) {
+				if (targetValue != null) {
 					// target also had a value, merge
-					ACC value = valueSerializer.deserialize(
-							new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(targetValueBytes)));
-
-					current = aggFunction.merge(current, value);
+					current = aggFunction.merge(current, targetValue);
 				}
 
-				// serialize the resulting value
-				keySerializationStream.reset();
-				valueSerializer.serialize(current, keySerializationDataOutputView);
-
 				// write the resulting value
-				backend.db.put(columnFamily, writeOptions, targetKey, keySerializationStream.toByteArray());
+				putInternal(targetKey, current);
 			}
 		}
 		catch (Exception e) {
@@ -0,0 +1,405 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.operators.KeyContext;
+import org.apache.flink.streaming.api.operators.ManagedInternalTimerService;
+import org.apache.flink.streaming.api.operators.Triggerable;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.InstantiationUtil;
+import org.apache.flink.util.Preconditions;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+
+import java.io.IOException;
+import java.util.concurrent.ScheduledFuture;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * {@link ManagedInternalTimerService} that stores timers in the {@link RocksDBKeyedStateBackend}.
+ *
+ * <p>The processing time and event time timers are stored in two column families of the backend, in which each
+ * key-group holds its timers ordered by time, see {@link RocksDBTimerQueue}. As the column families are registered
+ * like the column families of keyed state, the timers are part of the full and incremental snapshots of the backend
+ * and are redistributed with the key-groups when rescaling. Only the earliest timers of each key-group are cached on
+ * the heap, so that the number of timers is not limited by the heap size.
+ *
+ * @param <K> The type of the keys to which timers are scoped.
+ * @param <N> The type of the namespace to which timers are scoped.
+ */
+public class RocksDBInternalTimerService<K, N> implements ManagedInternalTimerService<K, N>, ProcessingTimeCallback {
+
+	/** The prefix of the names of the column families that hold processing time timers. */
+	static final String PROCESSING_TIME_TIMERS_PREFIX = "_timer_state/processing_";
+
+	/** The prefix of the names of the column families that hold event time timers. */
+	static final String EVENT_TIME_TIMERS_PREFIX = "_timer_state/event_";
+
+	private final String name;
+
+	private final RocksDBKeyedStateBackend<K> backend;
+
+	private final KeyContext keyContext;
+
+	private final ProcessingTimeService processingTimeService;
+
+	private final int keyGroupPrefixBytes;
+
+	private final ByteArrayOutputStreamWithPos timerSerializationStream;
+
+	private final DataOutputView timerSerializationView;
+
+	private final DataInputDeserializer timerDeserializationView;
+
+	/** The queues of the timers, which are created once the namespace serializer is known. */
+	private RocksDBTimerQueue processingTimeTimers;
+
+	private RocksDBTimerQueue eventTimeTimers;
+
+	/**
+	 * The local event time, as denoted by the last received
+	 * {@link org.apache.flink.streaming.api.watermark.Watermark Watermark}.
+	 */
+	private long currentWatermark = Long.MIN_VALUE;
+
+	/**
+	 * The one and only Future (if any) registered to execute the
+	 * next {@link Triggerable} action, when its (processing) time arrives.
+	 */
+	private ScheduledFuture<?> nextTimer;
+
+	// Variables to be set when the service is started or timers are restored.
+
+	private TypeSerializer<K> keySerializer;
+
+	private TypeSerializer<N> namespaceSerializer;
+
+	private Triggerable<K, N> triggerTarget;
+
+	private boolean isInitialized;
+
+	public RocksDBInternalTimerService(
+			String name,
+			RocksDBKeyedStateBackend<K> backend,
+			KeyContext keyContext,
+			ProcessingTimeService processingTimeService) {
+
+		this.name = checkNotNull(name);
+		this.backend = checkNotNull(backend);
+		this.keyContext = checkNotNull(keyContext);
+		this.processingTimeService = checkNotNull(processingTimeService);
+		this.keyGroupPrefixBytes = backend.getKeyGroupPrefixBytes();
+
+		this.timerSerializationStream = new ByteArrayOutputStreamWithPos(128);
+		this.timerSerializationView = new DataOutputViewStreamWrapper(timerSerializationStream);
+		this.timerDeserializationView = new DataInputDeserializer();
+	}
+
+	@Override
+	public void startTimerService(
+			TypeSerializer<K> keySerializer,
+			TypeSerializer<N> namespaceSerializer,
+			Triggerable<K, N> triggerTarget) {
+
+		if (!isInitialized) {
+
+			if (keySerializer == null || namespaceSerializer == null) {
+				throw new IllegalArgumentException("The TimersService serializers cannot be null.");
+			}
+
+			if (this.triggerTarget != null) {
+				throw new IllegalStateException("The TimerService has already been initialized.");
+			}
+
+			// the following is the case where we restored timers from raw keyed state
+			if ((this.keySerializer != null && !this.keySerializer.equals(keySerializer)) ||
+				(this.namespaceSerializer != null && !this.namespaceSerializer.equals(namespaceSerializer))) {
+				throw new IllegalStateException("Tried to initialize restored TimerService " +
+					"with different serializers than those used to snapshot its state.");
+			}
+
+			this.keySerializer = keySerializer;
+			this.triggerTarget = Preconditions.checkNotNull(triggerTarget);
+
+			if (this.namespaceSerializer == null) {
+				createQueues(namespaceSerializer);
+			}
+
+			// schedule the restored processing time timers (if any)
+			byte[] head = processingTimeTimers.peek();
+			if (head != null) {
+				nextTimer = processingTimeService.registerTimer(
+					RocksDBTimerQueue.readTimestamp(head, keyGroupPrefixBytes), this);
+			}
+			this.isInitialized = true;
+		} else {
+			if (!(this.keySerializer.equals(keySerializer) && this.namespaceSerializer.equals(namespaceSerializer))) {
+				throw new IllegalArgumentException("Already initialized Timer Service " +
+					"tried to be initialized with different key and namespace serializers.");
+			}
+		}
+	}
+
+	/**
+	 * Registers the column families of the timers with the backend, which returns the restored column families if
+	 * the backend was restored, and creates the queues of the timers.
+	 */
+	private void createQueues(TypeSerializer<N> namespaceSerializer) {
+		this.namespaceSerializer = namespaceSerializer;
+
+		try {
+			ColumnFamilyHandle processingTimeColumnFamily = backend.getColumnFamily(
+				new ValueStateDescriptor<>(PROCESSING_TIME_TIMERS_PREFIX + name, VoidSerializer.INSTANCE),
+				namespaceSerializer);
+			ColumnFamilyHandle eventTimeColumnFamily = backend.getColumnFamily(
+				new ValueStateDescriptor<>(EVENT_TIME_TIMERS_PREFIX + name, VoidSerializer.INSTANCE),
+				namespaceSerializer);
+
+			this.processingTimeTimers = new RocksDBTimerQueue(backend, processingTimeColumnFamily);
+			this.eventTimeTimers = new RocksDBTimerQueue(backend, eventTimeColumnFamily);
+		} catch (Exception e) {
+			throw new FlinkRuntimeException("Could not create the timers of timer service " + name + '.', e);
+		}
+	}
+
+	@Override
+	public long currentProcessingTime() {
+		return processingTimeService.getCurrentProcessingTime();
+	}
+
+	@Override
+	public long currentWatermark() {
+		return currentWatermark;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void registerProcessingTimeTimer(N namespace, long time) {
+		final long nextTriggerTime = processingTimeTimers.peekTimestamp();
+		addTimer(processingTimeTimers, (K) keyContext.getCurrentKey(), namespace, time);
+
+		// check if we need to re-schedule our timer to earlier
+		if (time < nextTriggerTime) {
+			if (nextTimer != null) {
+				nextTimer.cancel(false);
+			}
+			nextTimer = processingTimeService.registerTimer(time, this);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void registerEventTimeTimer(N namespace, long time) {
+		addTimer(eventTimeTimers, (K) keyContext.getCurrentKey(), namespace, time);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void deleteProcessingTimeTimer(N namespace, long time) {
+		removeTimer(processingTimeTimers, (K) keyContext.getCurrentKey(), namespace, time);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void deleteEventTimeTimer(N namespace, long time) {
+		removeTimer(eventTimeTimers, (K) keyContext.getCurrentKey(), namespace, time);
+	}
+
+	@Override
+	public void onProcessingTime(long time) throws Exception {
+		// null out the timer in case the Triggerable calls registerProcessingTimeTimer()
+		// inside the callback.
+		nextTimer = null;
+
+		byte[] head;
+
+		while ((head = processingTimeTimers.peek()) != null &&
+				RocksDBTimerQueue.readTimestamp(head, keyGroupPrefixBytes) <= time) {
+
+			processingTimeTimers.poll();
+
+			InternalTimer<K, N> timer = deserializeTimer(head);
+			keyContext.setCurrentKey(timer.getKey());
+			triggerTarget.onProcessingTime(timer);
+		}
+
+		if (head != null) {
+			if (nextTimer == null) {
+				nextTimer = processingTimeService.registerTimer(
+					RocksDBTimerQueue.readTimestamp(head, keyGroupPrefixBytes), this);
+			}
+		}
+	}
+
+	@Override
+	public void advanceWatermark(long time) throws Exception {
+		currentWatermark = time;
+
+		if (eventTimeTimers == null) {
+			// the service has not been started yet
+			return;
+		}
+
+		byte[] head;
+
+		while ((head = eventTimeTimers.peek()) != null &&
+				RocksDBTimerQueue.readTimestamp(head, keyGroupPrefixBytes) <= time) {
+
+			eventTimeTimers.poll();
+
+			InternalTimer<K, N> timer = deserializeTimer(head);
+			keyContext.setCurrentKey(timer.getKey());
+			triggerTarget.onEventTime(timer);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Fault tolerance
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean isStoredInKeyedStateBackend() {
+		return true;
+	}
+
+	/**
+	 * Writes an empty timer section in the format of the
+	 * {@link org.apache.flink.streaming.api.operators.HeapInternalTimerService}, because the timers are part of the
+	 * snapshots of the RocksDB keyed state backend.
+	 */
+	@Override
+	public void snapshotTimersForKeyGroup(DataOutputViewStreamWrapper stream, int keyGroupIdx) throws IOException {
+		InstantiationUtil.serializeObject(stream, keySerializer);
+		InstantiationUtil.serializeObject(stream, namespaceSerializer);
+
+		// no event time timers
+		stream.writeInt(0);
+
+		// no processing time timers
+		stream.writeInt(0);
+	}
+
+	/**
+	 * Restores the timers of a given {@code keyGroupIdx} that were snapshotted by a
+	 * {@link org.apache.flink.streaming.api.operators.HeapInternalTimerService}. This allows to restore the timers
+	 * of jobs that stored their timers on the heap.
+	 */
+	@Override
+	public void restoreTimersForKeyGroup(
+			DataInputViewStreamWrapper stream,
+			int keyGroupIdx,
+			ClassLoader userCodeClassLoader) throws IOException, ClassNotFoundException {
+
+		TypeSerializer<K> tmpKeyDeserializer = InstantiationUtil.deserializeObject(stream, userCodeClassLoader);
+		TypeSerializer<N> tmpNamespaceDeserializer = InstantiationUtil.deserializeObject(stream, userCodeClassLoader);
+
+		if ((this.keySerializer != null && !this.keySerializer.equals(tmpKeyDeserializer)) ||
+			(this.namespaceSerializer != null && !this.namespaceSerializer.equals(tmpNamespaceDeserializer))) {
+
+			throw new IllegalArgumentException("Tried to restore timers " +
+				"for the same service with different serializers.");
+		}
+
+		checkArgument(backend.getKeyGroupRange().contains(keyGroupIdx),
+			"Key Group " + keyGroupIdx + " does not belong to the local range.");
+
+		this.keySerializer = tmpKeyDeserializer;
+		if (this.namespaceSerializer == null) {
+			createQueues(tmpNamespaceDeserializer);
+		}
+
+		// read the event time timers
+		int sizeOfEventTimeTimers = stream.readInt();
+		for (int i = 0; i < sizeOfEventTimeTimers; i++) {
+			K key = tmpKeyDeserializer.deserialize(stream);
+			N namespace = tmpNamespaceDeserializer.deserialize(stream);
+			addTimer(eventTimeTimers, key, namespace, stream.readLong());
+		}
+
+		// read the processing time timers
+		int sizeOfProcessingTimeTimers = stream.readInt();
+		for (int i = 0; i < sizeOfProcessingTimeTimers; i++) {
+			K key = tmpKeyDeserializer.deserialize(stream);
+			N namespace = tmpNamespaceDeserializer.deserialize(stream);
+			addTimer(processingTimeTimers, key, namespace, stream.readLong());
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void addTimer(RocksDBTimerQueue queue, K key, N namespace, long time) {
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups());
+		try {
+			queue.add(keyGroup, serializeTimer(keyGroup, time, key, namespace));
+		} catch (IOException | RocksDBException e) {
+			throw new FlinkRuntimeException("Error while adding timer to RocksDB.", e);
+		}
+	}
+
+	private void removeTimer(RocksDBTimerQueue queue, K key, N namespace, long time) {
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups());
+		try {
+			queue.remove(keyGroup, serializeTimer(keyGroup, time, key, namespace));
+		} catch (IOException | RocksDBException e) {
+			throw new FlinkRuntimeException("Error while removing timer from RocksDB.", e);
+		}
+	}
+
+	private byte[] serializeTimer(int keyGroup, long time, K key, N namespace) throws IOException {
+		timerSerializationStream.reset();
+		RocksDBTimerQueue.writeKeyGroupAndTimestamp(keyGroup, time, keyGroupPrefixBytes, timerSerializationView);
+		backend.getKeySerializer().serialize(key, timerSerializationView);
+		namespaceSerializer.serialize(namespace, timerSerializationView);
+		return timerSerializationStream.toByteArray();
+	}
+
+	private InternalTimer<K, N> deserializeTimer(byte[] timer) throws IOException {
+		final int prefixLength = keyGroupPrefixBytes + Long.BYTES;
+		timerDeserializationView.setBuffer(timer, prefixLength, timer.length - prefixLength);
+
+		K key = backend.getKeySerializer().deserialize(timerDeserializationView);
+		N namespace = namespaceSerializer.deserialize(timerDeserializationView);
+		return new InternalTimer<>(RocksDBTimerQueue.readTimestamp(timer, keyGroupPrefixBytes), key, namespace);
+	}
+
+	@Override
+	public int numProcessingTimeTimers() {
+		return processingTimeTimers == null ? 0 : processingTimeTimers.size();
+	}
+
+	@Override
+	public int numEventTimeTimers() {
+		return eventTimeTimers == null ? 0 : eventTimeTimers.size();
+	}
+}
@@ -35,15 +35,16 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
-import org.apache.flink.core.fs.FSDataOutputStream;
 import org.apache.flink.core.fs.FileStatus;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
 import org.apache.flink.core.memory.DataInputView;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.io.async.AbstractAsyncCallableWithResources;
 import org.apache.flink.runtime.io.async.AsyncStoppableTaskWithCallback;
@@ -54,6 +55,7 @@ import org.apache.flink.runtime.state.DoneFuture;
 import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupsList;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
 import org.apache.flink.runtime.state.KeyedStateHandle;
@@ -62,6 +64,8 @@ import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
 import org.apache.flink.runtime.state.SnappyStreamCompressionDecorator;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StateObject;
+import org.apache.flink.runtime.state.StateSnapshotTransformFactory;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
 import org.apache.flink.runtime.state.StateUtil;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.StreamStateHandle;
@@ -72,6 +76,11 @@ import org.apache.flink.runtime.state.internal.InternalListState;
 import org.apache.flink.runtime.state.internal.InternalMapState;
 import org.apache.flink.runtime.state.internal.InternalReducingState;
 import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.streaming.api.operators.HeapInternalTimerService;
+import org.apache.flink.streaming.api.operators.InternalTimerServiceFactory;
+import org.apache.flink.streaming.api.operators.KeyContext;
+import org.apache.flink.streaming.api.operators.ManagedInternalTimerService;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.util.FileUtils;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.IOUtils;
@@ -84,14 +93,22 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
 import org.rocksdb.Snapshot;
+import org.rocksdb.SstFileWriter;
+import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -129,7 +146,7 @@ import java.util.stream.StreamSupport;
  + <a href="https://github.com/facebook/rocksdb/wiki/RocksJava-Basics#opening-a-database-with-column-families">
  * this document</a>.
  */
-public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
+public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> implements InternalTimerServiceFactory<K> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(RocksDBKeyedStateBackend.class);
 
@@ -151,6 +168,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/** The DB options from the options factory. */
 	private final DBOptions dbOptions;
 
+	/** The write options for the state that is not written through the states, like the timers. */
+	private final WriteOptions writeOptions;
+
 	/** Path where this configured instance stores its data directory. */
 	private final File instanceBasePath;
 
@@ -193,9 +213,42 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/** Number of bytes required to prefix the key groups. */
 	private final int keyGroupPrefixBytes;
 
+	/**
+	 * The serialized key group and current key, which prefix the keys of all states for the current key. Null if
+	 * the current key has not been serialized yet.
+	 */
+	@Nullable
+	private byte[] serializedCurrentKeyWithGroup;
+
+	/** The stream to serialize the current key into. */
+	private final ByteArrayOutputStreamWithPos currentKeySerializationStream;
+
+	private final DataOutputView currentKeySerializationView;
+
 	/** True if incremental checkpointing is enabled. */
 	private final boolean enableIncrementalCheckpointing;
 
+	/** True if the timers of the operators are stored in RocksDB, rather than on the heap. */
+	private final boolean timersInRocksDB;
+
+	/** The number of threads that transfer the files of incremental snapshots to and from the checkpoint file system. */
+	private final int numberOfTransferingThreads;
+
+	/** The cache of values in front of RocksDB, or null if values are not cached. */
+	@Nullable
+	private final RocksDBWriteBackCache writeBackCache;
+
+	/** The native metrics of RocksDB that are reported. */
+	private final RocksDBNativeMetricOptions nativeMetricOptions;
+
+	/** The metric group of the operator that owns this backend, or null if no native metrics are reported. */
+	@Nullable
+	private final MetricGroup metricGroup;
+
+	/** Reports the native metrics of RocksDB. Null if no native metrics are reported or the DB is not open. */
+	@Nullable
+	private RocksDBNativeMetricMonitor nativeMetricMonitor;
+
 	/** The state handle ids of all sst files materialized in snapshots for previous checkpoints. */
 	private final SortedMap<Long, Set<StateHandleID>> materializedSstFiles;
 
@@ -219,11 +272,59 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		boolean enableIncrementalCheckpointing
 	) throws IOException {
 
+		this(
+			operatorIdentifier,
+			userCodeClassLoader,
+			instanceBasePath,
+			dbOptions,
+			columnFamilyOptions,
+			kvStateRegistry,
+			keySerializer,
+			numberOfKeyGroups,
+			keyGroupRange,
+			executionConfig,
+			enableIncrementalCheckpointing,
+			false,
+			RocksDBStateBackend.DEFAULT_NUMBER_OF_TRANSFERING_THREADS,
+			0,
+			new RocksDBNativeMetricOptions(),
+			null);
+	}
+
+	public RocksDBKeyedStateBackend(
+		String operatorIdentifier,
+		ClassLoader userCodeClassLoader,
+		File instanceBasePath,
+		DBOptions dbOptions,
+		ColumnFamilyOptions columnFamilyOptions,
+		TaskKvStateRegistry kvStateRegistry,
+		TypeSerializer<K> keySerializer,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		ExecutionConfig executionConfig,
+		boolean enableIncrementalCheckpointing,
+		boolean timersInRocksDB,
+		int numberOfTransferingThreads,
+		int writeBackCacheSize,
+		RocksDBNativeMetricOptions nativeMetricOptions,
+		@Nullable MetricGroup metricGroup
+	) throws IOException {
+
 		super(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange, executionConfig);
 
 		this.operatorIdentifier = Preconditions.checkNotNull(operatorIdentifier);
 
 		this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
+		this.timersInRocksDB = timersInRocksDB;
+		Preconditions.checkArgument(numberOfTransferingThreads > 0,
+			"The number of threads for transferring state files must be positive.");
+		this.numberOfTransferingThreads = numberOfTransferingThreads;
+		Preconditions.checkArgument(writeBackCacheSize >= 0, "The size of the write-back cache must not be negative.");
+		this.writeBackCache = writeBackCacheSize > 0 ? new RocksDBWriteBackCache(this, writeBackCacheSize) : null;
+		this.nativeMetricOptions = Preconditions.checkNotNull(nativeMetricOptions);
+		Preconditions.checkArgument(metricGroup != null || !nativeMetricOptions.isEnabled(),
+			"A metric group is required to report the native metrics of RocksDB.");
+		this.metricGroup = metricGroup;
 		this.rocksDBResourceGuard = new ResourceGuard();
 
 		// ensure that we use the right merge operator, because other code relies on this
@@ -232,6 +333,12 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		this.dbOptions = Preconditions.checkNotNull(dbOptions);
 
+		// we disable writes to the write-ahead-log, like for all state in RocksDB
+		this.writeOptions = new WriteOptions().setDisableWAL(true);
+		if (!nativeMetricOptions.getTickers().isEmpty()) {
+			this.dbOptions.createStatistics();
+		}
+
 		this.instanceBasePath = Preconditions.checkNotNull(instanceBasePath);
 		this.instanceRocksDBPath = new File(instanceBasePath, "db");
 
@@ -246,6 +353,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 
 		this.keyGroupPrefixBytes = getNumberOfKeyGroups() > (Byte.MAX_VALUE + 1) ? 2 : 1;
+		this.currentKeySerializationStream = new ByteArrayOutputStreamWithPos(32);
+		this.currentKeySerializationView = new DataOutputViewStreamWrapper(currentKeySerializationStream);
 		this.kvStateInformation = new HashMap<>();
 		this.restoredKvStateMetaInfos = new HashMap<>();
 		this.materializedSstFiles = new TreeMap<>();
@@ -260,6 +369,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			return Stream.empty();
 		}
 
+		flushWriteBackCache();
+
 		RocksIterator iterator = db.newIterator(columnInfo.f0);
 		iterator.seekToFirst();
 
@@ -268,6 +379,19 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return targetStream.onClose(iterator::close);
 	}
 
+	@Override
+	public <N> ManagedInternalTimerService<K, N> createInternalTimerService(
+			String name,
+			int totalKeyGroups,
+			KeyGroupsList localKeyGroupRange,
+			KeyContext keyContext,
+			ProcessingTimeService processingTimeService) {
+
+		return timersInRocksDB ?
+			new RocksDBInternalTimerService<>(name, this, keyContext, processingTimeService) :
+			new HeapInternalTimerService<>(totalKeyGroups, localKeyGroupRange, keyContext, processingTimeService);
+	}
+
 	/**
 	 * Should only be called by one thread, and only after all accesses to the DB happened.
 	 */
@@ -279,10 +403,19 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		// so that we cannot release the native resources while clients are still working with it in parallel.
 		rocksDBResourceGuard.close();
 
+		// the cached values are not needed anymore
+		if (writeBackCache != null) {
+			writeBackCache.dispose();
+		}
+
 		// IMPORTANT: null reference to signal potential async checkpoint workers that the db was disposed, as
 		// working on the disposed object results in SEGFAULTS.
 		if (db != null) {
 
+			// the metric monitor samples the column families, so it must be closed first
+			IOUtils.closeQuietly(nativeMetricMonitor);
+			nativeMetricMonitor = null;
+
 			// RocksDB's native memory management requires that *all* CFs (including default) are closed before the
 			// DB is closed. So we start with the ones created by Flink...
 			for (Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>> columnMetaData :
@@ -305,6 +438,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		IOUtils.closeQuietly(dbOptions);
 		IOUtils.closeQuietly(columnOptions);
+		IOUtils.closeQuietly(writeOptions);
 
 		cleanInstanceBasePath();
 	}
@@ -323,6 +457,37 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return keyGroupPrefixBytes;
 	}
 
+	WriteOptions getWriteOptions() {
+		return writeOptions;
+	}
+
+	@Override
+	public void setCurrentKey(K newKey) {
+		super.setCurrentKey(newKey);
+		serializedCurrentKeyWithGroup = null;
+	}
+
+	/**
+	 * Returns the serialized key group and current key, which is the common prefix of the keys of all states for
+	 * the current key. The current key is serialized at most once, no matter how many states are accessed.
+	 *
+	 * <p>The returned array must not be modified.
+	 */
+	byte[] getSerializedCurrentKeyWithGroup() throws IOException {
+		if (serializedCurrentKeyWithGroup == null) {
+			Preconditions.checkNotNull(currentKey, "No key set. This method should not be called outside of a keyed context.");
+
+			currentKeySerializationStream.reset();
+			for (int i = keyGroupPrefixBytes; --i >= 0;) {
+				currentKeySerializationView.writeByte(getCurrentKeyGroupIndex() >>> (i << 3));
+			}
+			keySerializer.serialize(currentKey, currentKeySerializationView);
+
+			serializedCurrentKeyWithGroup = currentKeySerializationStream.toByteArray();
+		}
+		return serializedCurrentKeyWithGroup;
+	}
+
 	/**
 	 * Triggers an asynchronous snapshot of the keyed state backend from RocksDB. This snapshot can be canceled and
 	 * is also stopped when the backend is closed through {@link #dispose()}. For each backend, this method must always
@@ -342,6 +507,11 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		final CheckpointStreamFactory streamFactory,
 		CheckpointOptions checkpointOptions) throws Exception {
 
+		// the snapshot reads the state from RocksDB
+		if (db != null) {
+			flushWriteBackCache();
+		}
+
 		if (checkpointOptions.getCheckpointType() != CheckpointOptions.CheckpointType.SAVEPOINT &&
 			enableIncrementalCheckpointing) {
 			return snapshotIncrementally(checkpointId, timestamp, streamFactory);
@@ -499,6 +669,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		private ReadOptions readOptions;
 		private List<Tuple2<RocksIterator, Integer>> kvStateIterators;
 
+		/** The transformers of the stored values of each k/v-state, by k/v-state id; null if written as they are. */
+		private StateSnapshotTransformer<byte[]>[] kvStateTransformers;
+
 		private CheckpointStreamFactory.CheckpointStateOutputStream outStream;
 		private DataOutputView outputView;
 
@@ -605,17 +778,28 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			this.dbLease.close();
 		}
 
+		@SuppressWarnings("unchecked")
 		private void writeKVStateMetaData() throws IOException {
 
 			List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> metaInfoSnapshots =
 				new ArrayList<>(stateBackend.kvStateInformation.size());
 
+			kvStateTransformers = (StateSnapshotTransformer<byte[]>[])
+				new StateSnapshotTransformer[stateBackend.kvStateInformation.size()];
+
 			int kvStateId = 0;
 			for (Map.Entry<String, Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>>> column :
 				stateBackend.kvStateInformation.entrySet()) {
 
 				metaInfoSnapshots.add(column.getValue().f1.snapshot());
 
+				StateSnapshotTransformFactory<?> transformFactory =
+					stateBackend.getSnapshotTransformFactory(column.getKey());
+				if (transformFactory != null) {
+					kvStateTransformers[kvStateId] = RocksDBSnapshotTransformers.createForStoredValues(
+						column.getValue().f1, transformFactory.createForSerializedState());
+				}
+
 				//retrieve iterator for this k/v states
 				readOptions = new ReadOptions();
 				readOptions.setSnapshot(snapshot);
@@ -639,6 +823,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 			byte[] previousKey = null;
 			byte[] previousValue = null;
+			int previousKeyGroup = -1;
+			int previousKvStateId = -1;
 			OutputStream kgOutStream = null;
 			DataOutputView kgOutView = null;
 
@@ -650,59 +836,73 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					// handover complete, null out to prevent double close
 					kvStateIterators = null;
 
-					//preamble: setup with first key-group as our lookahead
-					if (mergeIterator.isValid()) {
-						//begin first key-group by recording the offset
-						keyGroupRangeOffsets.setKeyGroupOffset(mergeIterator.keyGroup(), outStream.getPos());
-						//write the k/v-state id as metadata
-						kgOutStream = stateBackend.keyGroupCompressionDecorator.decorateWithCompression(outStream);
-						kgOutView = new DataOutputViewStreamWrapper(kgOutStream);
-						//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
-						kgOutView.writeShort(mergeIterator.kvStateId());
-						previousKey = mergeIterator.key();
-						previousValue = mergeIterator.value();
-						mergeIterator.next();
-					}
-
 					//main loop: write k/v pairs ordered by (key-group, kv-state), thereby tracking key-group offsets.
-					while (mergeIterator.isValid()) {
-
-						assert (!hasMetaDataFollowsFlag(previousKey));
-
-						//set signal in first key byte that meta data will follow in the stream after this k/v pair
-						if (mergeIterator.isNewKeyGroup() || mergeIterator.isNewKeyValueState()) {
-
-							//be cooperative and check for interruption from time to time in the hot loop
-							checkInterrupted();
-
-							setMetaDataFollowsFlagInKey(previousKey);
+					//each pair is written once the next pair is known, because its key carries the flag that meta
+					//data follows. Pairs that are dropped by the snapshot transformers do not count.
+					for (; mergeIterator.isValid(); mergeIterator.next()) {
+
+						final int kvStateId = mergeIterator.kvStateId();
+						byte[] value = mergeIterator.value();
+
+						final StateSnapshotTransformer<byte[]> transformer = kvStateTransformers[kvStateId];
+						if (transformer != null) {
+							value = transformer.filterOrTransform(value);
+							if (value == null) {
+								continue;
+							}
 						}
 
-						writeKeyValuePair(previousKey, previousValue, kgOutView);
+						final int keyGroup = mergeIterator.keyGroup();
 
-						//write meta data if we have to
-						if (mergeIterator.isNewKeyGroup()) {
-							//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
-							kgOutView.writeShort(END_OF_KEY_GROUP_MARK);
-							// this will just close the outer stream
-							kgOutStream.close();
-							//begin new key-group
-							keyGroupRangeOffsets.setKeyGroupOffset(mergeIterator.keyGroup(), outStream.getPos());
-							//write the kev-state
-							//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
+						if (previousKey == null) {
+							//preamble: begin first key-group by recording the offset
+							keyGroupRangeOffsets.setKeyGroupOffset(keyGroup, outStream.getPos());
+							//write the k/v-state id as metadata
 							kgOutStream = stateBackend.keyGroupCompressionDecorator.decorateWithCompression(outStream);
 							kgOutView = new DataOutputViewStreamWrapper(kgOutStream);
-							kgOutView.writeShort(mergeIterator.kvStateId());
-						} else if (mergeIterator.isNewKeyValueState()) {
-							//write the k/v-state
 							//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
-							kgOutView.writeShort(mergeIterator.kvStateId());
+							kgOutView.writeShort(kvStateId);
+						} else {
+							assert (!hasMetaDataFollowsFlag(previousKey));
+
+							final boolean isNewKeyGroup = keyGroup != previousKeyGroup;
+							final boolean isNewKeyValueState = isNewKeyGroup || kvStateId != previousKvStateId;
+
+							//set signal in first key byte that meta data will follow in the stream after this k/v pair
+							if (isNewKeyValueState) {
+
+								//be cooperative and check for interruption from time to time in the hot loop
+								checkInterrupted();
+
+								setMetaDataFollowsFlagInKey(previousKey);
+							}
+
+							writeKeyValuePair(previousKey, previousValue, kgOutView);
+
+							//write meta data if we have to
+							if (isNewKeyGroup) {
+								//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
+								kgOutView.writeShort(END_OF_KEY_GROUP_MARK);
+								// this will just close the outer stream
+								kgOutStream.close();
+								//begin new key-group
+								keyGroupRangeOffsets.setKeyGroupOffset(keyGroup, outStream.getPos());
+								//write the kev-state
+								//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
+								kgOutStream = stateBackend.keyGroupCompressionDecorator.decorateWithCompression(outStream);
+								kgOutView = new DataOutputViewStreamWrapper(kgOutStream);
+								kgOutView.writeShort(kvStateId);
+							} else if (isNewKeyValueState) {
+								//write the k/v-state
+								//TODO this could be aware of keyGroupPrefixBytes and write only one byte if possible
+								kgOutView.writeShort(kvStateId);
+							}
 						}
 
-						//request next k/v pair
 						previousKey = mergeIterator.key();
-						previousValue = mergeIterator.value();
-						mergeIterator.next();
+						previousValue = value;
+						previousKeyGroup = keyGroup;
+						previousKvStateId = kvStateId;
 					}
 				}
 
@@ -785,6 +985,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		private StreamStateHandle metaStateHandle = null;
 
+		// set once all files have been uploaded, the uploaded state is discarded if this is not the case
+		private boolean isMaterialized = false;
+
 		private RocksDBIncrementalSnapshotOperation(
 			RocksDBKeyedStateBackend<K> stateBackend,
 			CheckpointStreamFactory checkpointStreamFactory,
@@ -798,49 +1001,6 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			this.dbLease = this.stateBackend.rocksDBResourceGuard.acquireResource();
 		}
 
-		private StreamStateHandle materializeStateData(Path filePath) throws Exception {
-			FSDataInputStream inputStream = null;
-			CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
-
-			try {
-				final byte[] buffer = new byte[8 * 1024];
-
-				FileSystem backupFileSystem = backupPath.getFileSystem();
-				inputStream = backupFileSystem.open(filePath);
-				closeableRegistry.registerCloseable(inputStream);
-
-				outputStream = checkpointStreamFactory
-					.createCheckpointStateOutputStream(checkpointId, checkpointTimestamp);
-				closeableRegistry.registerCloseable(outputStream);
-
-				while (true) {
-					int numBytes = inputStream.read(buffer);
-
-					if (numBytes == -1) {
-						break;
-					}
-
-					outputStream.write(buffer, 0, numBytes);
-				}
-
-				StreamStateHandle result = null;
-				if (closeableRegistry.unregisterCloseable(outputStream)) {
-					result = outputStream.closeAndGetHandle();
-					outputStream = null;
-				}
-				return result;
-
-			} finally {
-				if (inputStream != null && closeableRegistry.unregisterCloseable(inputStream)) {
-					inputStream.close();
-				}
-
-				if (outputStream != null && closeableRegistry.unregisterCloseable(outputStream)) {
-					outputStream.close();
-				}
-			}
-		}
-
 		private StreamStateHandle materializeMetaData() throws Exception {
 			CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
 
@@ -875,6 +1035,18 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			}
 		}
 
+		private Map<StateHandleID, StreamStateHandle> uploadFilesToCheckpointFs(
+			Map<StateHandleID, Path> files) throws Exception {
+
+			return RocksDBStateDataTransfer.uploadFilesToCheckpointFs(
+				files,
+				stateBackend.numberOfTransferingThreads,
+				checkpointStreamFactory,
+				checkpointId,
+				checkpointTimestamp,
+				closeableRegistry);
+		}
+
 		void takeSnapshot() throws Exception {
 
 			final long lastCompletedCheckpoint;
@@ -919,6 +1091,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			// write state data
 			Preconditions.checkState(backupFileSystem.exists(backupPath));
 
+			final Map<StateHandleID, Path> sstFilePaths = new HashMap<>();
+			final Map<StateHandleID, Path> miscFilePaths = new HashMap<>();
+
 			FileStatus[] fileStatuses = backupFileSystem.listStatus(backupPath);
 			if (fileStatuses != null) {
 				for (FileStatus fileStatus : fileStatuses) {
@@ -937,19 +1112,23 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 								stateHandleID,
 								new PlaceholderStreamStateHandle());
 						} else {
-							sstFiles.put(stateHandleID, materializeStateData(filePath));
+							sstFilePaths.put(stateHandleID, filePath);
 						}
 					} else {
-						StreamStateHandle fileHandle = materializeStateData(filePath);
-						miscFiles.put(stateHandleID, fileHandle);
+						miscFilePaths.put(stateHandleID, filePath);
 					}
 				}
 			}
 
+			sstFiles.putAll(uploadFilesToCheckpointFs(sstFilePaths));
+			miscFiles.putAll(uploadFilesToCheckpointFs(miscFilePaths));
+
 			synchronized (stateBackend.materializedSstFiles) {
 				stateBackend.materializedSstFiles.put(checkpointId, sstFiles.keySet());
 			}
 
+			isMaterialized = true;
+
 			return new IncrementalKeyedStateHandle(
 				stateBackend.backendUID,
 				stateBackend.keyGroupRange,
@@ -994,7 +1173,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				}
 			}
 
-			if (canceled) {
+			if (canceled || !isMaterialized) {
 				Collection<StateObject> statesToDiscard =
 					new ArrayList<>(1 + miscFiles.size() + sstFiles.size());
 
@@ -1022,6 +1201,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		// clear all meta data
 		kvStateInformation.clear();
 		restoredKvStateMetaInfos.clear();
+		if (writeBackCache != null) {
+			writeBackCache.clear();
+		}
 
 		try {
 			if (restoreState == null || restoreState.isEmpty()) {
@@ -1033,6 +1215,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				RocksDBFullRestoreOperation<K> restoreOperation = new RocksDBFullRestoreOperation<>(this);
 				restoreOperation.doRestore(restoreState);
 			}
+
+			if (nativeMetricOptions.isEnabled()) {
+				createNativeMetricMonitor();
+			}
 		} catch (Exception ex) {
 			dispose();
 			throw ex;
@@ -1052,6 +1238,20 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	private void createNativeMetricMonitor() {
+		nativeMetricMonitor = new RocksDBNativeMetricMonitor(
+			nativeMetricOptions,
+			metricGroup,
+			db,
+			nativeMetricOptions.getTickers().isEmpty() ? null : dbOptions.statisticsPtr());
+
+		// the column families of restored states, further ones are registered when they are created
+		for (Map.Entry<String, Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>>> entry :
+			kvStateInformation.entrySet()) {
+			nativeMetricMonitor.registerColumnFamily(entry.getKey(), entry.getValue().f0);
+		}
+	}
+
 	private void createDB() throws IOException {
 		List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(1);
 		this.db = openDB(instanceRocksDBPath.getAbsolutePath(), Collections.emptyList(), columnFamilyHandles);
@@ -1324,47 +1524,86 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			}
 		}
 
-		private void readStateData(
-			Path restoreFilePath,
-			StreamStateHandle remoteFileHandle) throws IOException {
+		/**
+		 * Restores the backend from a single state handle with the same key-group range. The files of the
+		 * snapshot become the files of the backend's instance, and the backend continues the chain of
+		 * incremental checkpoints of the snapshot.
+		 */
+		private void restoreWithoutRescaling(IncrementalKeyedStateHandle restoreStateHandle) throws Exception {
+
+			// pick up again the old backend id, so the we can reference existing state
+			stateBackend.backendUID = restoreStateHandle.getBackendIdentifier();
 
-			FileSystem restoreFileSystem = restoreFilePath.getFileSystem();
+			LOG.debug("Restoring keyed backend uid in operator {} from incremental snapshot to {}.",
+				stateBackend.operatorIdentifier, stateBackend.backendUID);
 
-			FSDataInputStream inputStream = null;
-			FSDataOutputStream outputStream = null;
+			restoreInstanceAsDB(restoreStateHandle);
 
-			try {
-				inputStream = remoteFileHandle.openInputStream();
-				stateBackend.cancelStreamRegistry.registerCloseable(inputStream);
+			// use the restore sst files as the base for succeeding checkpoints
+			synchronized (stateBackend.materializedSstFiles) {
+				stateBackend.materializedSstFiles.put(
+					restoreStateHandle.getCheckpointId(),
+					restoreStateHandle.getSharedState().keySet());
+			}
 
-				outputStream = restoreFileSystem.create(restoreFilePath, FileSystem.WriteMode.OVERWRITE);
-				stateBackend.cancelStreamRegistry.registerCloseable(outputStream);
+			stateBackend.lastCompletedCheckpointId = restoreStateHandle.getCheckpointId();
+		}
 
-				byte[] buffer = new byte[8 * 1024];
-				while (true) {
-					int numBytes = inputStream.read(buffer);
-					if (numBytes == -1) {
-						break;
-					}
+		/**
+		 * Restores the backend from state handles whose key-group ranges differ from the backend's range.
+		 *
+		 * <p>Instead of inserting every restored record into a new instance, the handle that overlaps most
+		 * with the backend's key-group range becomes the initial instance, and the key-groups outside of
+		 * the range are removed from it with range deletes. The key-groups of the other handles are written
+		 * into sst files, which are ingested into the instance. All records are already sorted, because
+		 * they are read from RocksDB.
+		 */
+		private void restoreWithRescaling(Collection<KeyedStateHandle> restoreStateHandles) throws Exception {
 
-					outputStream.write(buffer, 0, numBytes);
-				}
-			} finally {
-				if (inputStream != null && stateBackend.cancelStreamRegistry.unregisterCloseable(inputStream)) {
-					inputStream.close();
+			final IncrementalKeyedStateHandle initialHandle = chooseInitialStateHandle(restoreStateHandles);
+
+			if (initialHandle != null) {
+				restoreInstanceAsDB(initialHandle);
+				clipDBToKeyGroupRange();
+			} else {
+				stateBackend.createDB();
+			}
+
+			for (KeyedStateHandle rawStateHandle : restoreStateHandles) {
+				if (rawStateHandle != initialHandle) {
+					ingestKeyGroupRange(checkIncrementalStateHandle(rawStateHandle));
 				}
+			}
+		}
+
+		/**
+		 * Returns the state handle whose key-group range overlaps most with the backend's range, or null if
+		 * no handle overlaps with it.
+		 */
+		private IncrementalKeyedStateHandle chooseInitialStateHandle(Collection<KeyedStateHandle> restoreStateHandles) {
+			IncrementalKeyedStateHandle bestHandle = null;
+			int bestOverlap = 0;
 
-				if (outputStream != null && stateBackend.cancelStreamRegistry.unregisterCloseable(outputStream)) {
-					outputStream.close();
+			for (KeyedStateHandle rawStateHandle : restoreStateHandles) {
+				IncrementalKeyedStateHandle stateHandle = checkIncrementalStateHandle(rawStateHandle);
+				int overlap = stateHandle.getKeyGroupRange()
+					.getIntersection(stateBackend.keyGroupRange)
+					.getNumberOfKeyGroups();
+
+				if (overlap > bestOverlap) {
+					bestHandle = stateHandle;
+					bestOverlap = overlap;
 				}
 			}
+
+			return bestHandle;
 		}
 
-		private void restoreInstance(
-			IncrementalKeyedStateHandle restoreStateHandle,
-			boolean hasExtraKeys) throws Exception {
+		/**
+		 * Downloads the files of the given state handle and opens them as the backend's instance.
+		 */
+		private void restoreInstanceAsDB(IncrementalKeyedStateHandle restoreStateHandle) throws Exception {
 
-			// read state data
 			Path restoreInstancePath = new Path(
 				stateBackend.instanceBasePath.getAbsolutePath(),
 				UUID.randomUUID().toString());
@@ -1382,158 +1621,245 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> stateMetaInfoSnapshots =
 					readMetaData(restoreStateHandle.getMetaStateHandle());
 
-				List<ColumnFamilyDescriptor> columnFamilyDescriptors =
-					new ArrayList<>(1 + stateMetaInfoSnapshots.size());
+				List<ColumnFamilyDescriptor> columnFamilyDescriptors = createColumnFamilyDescriptors(stateMetaInfoSnapshots);
 
-				for (RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot : stateMetaInfoSnapshots) {
+				// create hard links in the instance directory
+				if (!stateBackend.instanceRocksDBPath.mkdirs()) {
+					throw new IOException("Could not create RocksDB data directory.");
+				}
 
-					ColumnFamilyDescriptor columnFamilyDescriptor = new ColumnFamilyDescriptor(
-						stateMetaInfoSnapshot.getName().getBytes(ConfigConstants.DEFAULT_CHARSET),
-						stateBackend.columnOptions);
+				createFileHardLinksInRestorePath(sstFiles, restoreInstancePath);
+				createFileHardLinksInRestorePath(miscFiles, restoreInstancePath);
 
-					columnFamilyDescriptors.add(columnFamilyDescriptor);
-					stateBackend.restoredKvStateMetaInfos.put(stateMetaInfoSnapshot.getName(), stateMetaInfoSnapshot);
+				List<ColumnFamilyHandle> columnFamilyHandles =
+					new ArrayList<>(1 + columnFamilyDescriptors.size());
+
+				stateBackend.db = stateBackend.openDB(
+					stateBackend.instanceRocksDBPath.getAbsolutePath(),
+					columnFamilyDescriptors, columnFamilyHandles);
+
+				// extract and store the default column family which is located at the last index
+				stateBackend.defaultColumnFamily = columnFamilyHandles.remove(columnFamilyHandles.size() - 1);
+
+				for (int i = 0; i < columnFamilyDescriptors.size(); ++i) {
+					RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot = stateMetaInfoSnapshots.get(i);
+
+					stateBackend.kvStateInformation.put(
+						stateMetaInfoSnapshot.getName(),
+						new Tuple2<>(columnFamilyHandles.get(i), createStateMetaInfo(stateMetaInfoSnapshot)));
 				}
+			} finally {
+				deleteRestoreInstancePath(restoreInstancePath);
+			}
+		}
+
+		/**
+		 * Removes all key-groups outside of the backend's key-group range from the backend's instance.
+		 */
+		private void clipDBToKeyGroupRange() throws RocksDBException {
+			final int prefixBytes = stateBackend.keyGroupPrefixBytes;
+			final int startKeyGroup = stateBackend.keyGroupRange.getStartKeyGroup();
+			final int endKeyGroup = stateBackend.keyGroupRange.getEndKeyGroup();
 
-				if (hasExtraKeys) {
+			// the key-groups are smaller than 2^(8 * prefixBytes - 1), so all keys sort between these bounds
+			final byte[] minKey = new byte[prefixBytes];
+			final byte[] maxKey = new byte[prefixBytes];
+			Arrays.fill(maxKey, (byte) 0xFF);
 
-					List<ColumnFamilyHandle> columnFamilyHandles =
-						new ArrayList<>(1 + columnFamilyDescriptors.size());
+			for (Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>> columnFamily
+				: stateBackend.kvStateInformation.values()) {
 
-					try (RocksDB restoreDb = stateBackend.openDB(
-						restoreInstancePath.getPath(),
-						columnFamilyDescriptors,
-						columnFamilyHandles)) {
+				if (startKeyGroup > 0) {
+					stateBackend.db.deleteRange(columnFamily.f0, minKey, keyGroupPrefix(startKeyGroup));
+				}
 
-						try {
-							// iterating only the requested descriptors automatically skips the default column family handle
-							for (int i = 0; i < columnFamilyDescriptors.size(); ++i) {
-								ColumnFamilyHandle columnFamilyHandle = columnFamilyHandles.get(i);
-								ColumnFamilyDescriptor columnFamilyDescriptor = columnFamilyDescriptors.get(i);
-								RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot = stateMetaInfoSnapshots.get(i);
-
-								Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>> registeredStateMetaInfoEntry =
-									stateBackend.kvStateInformation.get(stateMetaInfoSnapshot.getName());
-
-								if (null == registeredStateMetaInfoEntry) {
-
-									RegisteredKeyedBackendStateMetaInfo<?, ?> stateMetaInfo =
-										new RegisteredKeyedBackendStateMetaInfo<>(
-											stateMetaInfoSnapshot.getStateType(),
-											stateMetaInfoSnapshot.getName(),
-											stateMetaInfoSnapshot.getNamespaceSerializer(),
-											stateMetaInfoSnapshot.getStateSerializer());
-
-									registeredStateMetaInfoEntry =
-										new Tuple2<>(
-											stateBackend.db.createColumnFamily(columnFamilyDescriptor),
-											stateMetaInfo);
-
-									stateBackend.kvStateInformation.put(
-										stateMetaInfoSnapshot.getName(),
-										registeredStateMetaInfoEntry);
-								}
+				if (endKeyGroup + 1 < stateBackend.getNumberOfKeyGroups()) {
+					stateBackend.db.deleteRange(columnFamily.f0, keyGroupPrefix(endKeyGroup + 1), maxKey);
+				}
+			}
+		}
 
-								ColumnFamilyHandle targetColumnFamilyHandle = registeredStateMetaInfoEntry.f0;
+		/**
+		 * Downloads the files of the given state handle into a temporary instance, and ingests the
+		 * key-groups of the backend's range into the backend's instance.
+		 */
+		private void ingestKeyGroupRange(IncrementalKeyedStateHandle restoreStateHandle) throws Exception {
+
+			Path restoreInstancePath = new Path(
+				stateBackend.instanceBasePath.getAbsolutePath(),
+				UUID.randomUUID().toString());
 
-								try (RocksIterator iterator = restoreDb.newIterator(columnFamilyHandle)) {
+			try {
+				readAllStateData(restoreStateHandle.getSharedState(), restoreInstancePath);
+				readAllStateData(restoreStateHandle.getPrivateState(), restoreInstancePath);
 
-									int startKeyGroup = stateBackend.getKeyGroupRange().getStartKeyGroup();
-									byte[] startKeyGroupPrefixBytes = new byte[stateBackend.keyGroupPrefixBytes];
-									for (int j = 0; j < stateBackend.keyGroupPrefixBytes; ++j) {
-										startKeyGroupPrefixBytes[j] = (byte) (startKeyGroup >>> ((stateBackend.keyGroupPrefixBytes - j - 1) * Byte.SIZE));
-									}
+				// read meta data
+				List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> stateMetaInfoSnapshots =
+					readMetaData(restoreStateHandle.getMetaStateHandle());
 
-									iterator.seek(startKeyGroupPrefixBytes);
+				List<ColumnFamilyDescriptor> columnFamilyDescriptors = createColumnFamilyDescriptors(stateMetaInfoSnapshots);
 
-									while (iterator.isValid()) {
+				List<ColumnFamilyHandle> columnFamilyHandles =
+					new ArrayList<>(1 + columnFamilyDescriptors.size());
 
-										int keyGroup = 0;
-										for (int j = 0; j < stateBackend.keyGroupPrefixBytes; ++j) {
-											keyGroup = (keyGroup << Byte.SIZE) + iterator.key()[j];
-										}
+				try (RocksDB restoreDb = stateBackend.openDB(
+					restoreInstancePath.getPath(),
+					columnFamilyDescriptors,
+					columnFamilyHandles)) {
 
-										if (stateBackend.keyGroupRange.contains(keyGroup)) {
-											stateBackend.db.put(targetColumnFamilyHandle,
-												iterator.key(), iterator.value());
-										}
+					try {
+						// iterating only the requested descriptors automatically skips the default column family handle
+						for (int i = 0; i < columnFamilyDescriptors.size(); ++i) {
+							RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot = stateMetaInfoSnapshots.get(i);
 
-										iterator.next();
-									}
-								} // releases native iterator resources
-							}
-						} finally {
-							//release native tmp db column family resources
-							for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
-								IOUtils.closeQuietly(columnFamilyHandle);
-							}
-						}
-					} // releases native tmp db resources
-				} else {
-					// pick up again the old backend id, so the we can reference existing state
-					stateBackend.backendUID = restoreStateHandle.getBackendIdentifier();
+							Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>> registeredStateMetaInfoEntry =
+								stateBackend.kvStateInformation.get(stateMetaInfoSnapshot.getName());
 
-					LOG.debug("Restoring keyed backend uid in operator {} from incremental snapshot to {}.",
-						stateBackend.operatorIdentifier, stateBackend.backendUID);
+							if (null == registeredStateMetaInfoEntry) {
+								registeredStateMetaInfoEntry =
+									new Tuple2<>(
+										stateBackend.db.createColumnFamily(columnFamilyDescriptors.get(i)),
+										createStateMetaInfo(stateMetaInfoSnapshot));
 
-					// create hard links in the instance directory
-					if (!stateBackend.instanceRocksDBPath.mkdirs()) {
-						throw new IOException("Could not create RocksDB data directory.");
-					}
+								stateBackend.kvStateInformation.put(
+									stateMetaInfoSnapshot.getName(),
+									registeredStateMetaInfoEntry);
+							}
 
-					createFileHardLinksInRestorePath(sstFiles, restoreInstancePath);
-					createFileHardLinksInRestorePath(miscFiles, restoreInstancePath);
+							ingestKeyGroupRange(
+								restoreDb,
+								columnFamilyHandles.get(i),
+								registeredStateMetaInfoEntry.f0,
+								new File(restoreInstancePath.getPath(), "ingest-" + i + SST_FILE_SUFFIX));
+						}
+					} finally {
+						//release native tmp db column family resources
+						for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
+							IOUtils.closeQuietly(columnFamilyHandle);
+						}
+					}
+				} // releases native tmp db resources
+			} finally {
+				deleteRestoreInstancePath(restoreInstancePath);
+			}
+		}
 
-					List<ColumnFamilyHandle> columnFamilyHandles =
-						new ArrayList<>(1 + columnFamilyDescriptors.size());
+		/**
+		 * Writes the key-groups of the backend's range in the given column family of the temporary instance
+		 * into an sst file, and ingests the file into the given column family of the backend's instance.
+		 */
+		private void ingestKeyGroupRange(
+			RocksDB restoreDb,
+			ColumnFamilyHandle sourceColumnFamily,
+			ColumnFamilyHandle targetColumnFamily,
+			File sstFile) throws RocksDBException {
 
-					stateBackend.db = stateBackend.openDB(
-						stateBackend.instanceRocksDBPath.getAbsolutePath(),
-						columnFamilyDescriptors, columnFamilyHandles);
+			final byte[] startKeyGroupPrefix = keyGroupPrefix(stateBackend.keyGroupRange.getStartKeyGroup());
+			final byte[] stopKeyGroupPrefix = keyGroupPrefix(stateBackend.keyGroupRange.getEndKeyGroup() + 1);
 
-					// extract and store the default column family which is located at the last index
-					stateBackend.defaultColumnFamily = columnFamilyHandles.remove(columnFamilyHandles.size() - 1);
+			boolean hasEntries = false;
 
-					for (int i = 0; i < columnFamilyDescriptors.size(); ++i) {
-						RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot = stateMetaInfoSnapshots.get(i);
+			try (EnvOptions envOptions = new EnvOptions();
+				Options options = new Options(stateBackend.dbOptions, stateBackend.columnOptions);
+				SstFileWriter sstFileWriter = new SstFileWriter(envOptions, options);
+				RocksIterator iterator = restoreDb.newIterator(sourceColumnFamily)) {
 
-						ColumnFamilyHandle columnFamilyHandle = columnFamilyHandles.get(i);
-						RegisteredKeyedBackendStateMetaInfo<?, ?> stateMetaInfo =
-							new RegisteredKeyedBackendStateMetaInfo<>(
-								stateMetaInfoSnapshot.getStateType(),
-								stateMetaInfoSnapshot.getName(),
-								stateMetaInfoSnapshot.getNamespaceSerializer(),
-								stateMetaInfoSnapshot.getStateSerializer());
+				for (iterator.seek(startKeyGroupPrefix); iterator.isValid(); iterator.next()) {
+					byte[] key = iterator.key();
+					if (compareKeyGroupPrefix(key, stopKeyGroupPrefix) >= 0) {
+						break;
+					}
 
-						stateBackend.kvStateInformation.put(
-							stateMetaInfoSnapshot.getName(),
-							new Tuple2<>(columnFamilyHandle, stateMetaInfo));
+					if (!hasEntries) {
+						sstFileWriter.open(sstFile.getAbsolutePath());
+						hasEntries = true;
 					}
 
-					// use the restore sst files as the base for succeeding checkpoints
-					synchronized (stateBackend.materializedSstFiles) {
-						stateBackend.materializedSstFiles.put(restoreStateHandle.getCheckpointId(), sstFiles.keySet());
+					try (Slice keySlice = new Slice(key); Slice valueSlice = new Slice(iterator.value())) {
+						sstFileWriter.put(keySlice, valueSlice);
 					}
+				}
 
-					stateBackend.lastCompletedCheckpointId = restoreStateHandle.getCheckpointId();
+				if (hasEntries) {
+					sstFileWriter.finish();
 				}
-			} finally {
-				FileSystem restoreFileSystem = restoreInstancePath.getFileSystem();
-				if (restoreFileSystem.exists(restoreInstancePath)) {
-					restoreFileSystem.delete(restoreInstancePath, true);
+			}
+
+			if (hasEntries) {
+				try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+					ingestOptions.setMoveFiles(true);
+					stateBackend.db.ingestExternalFile(
+						targetColumnFamily,
+						Collections.singletonList(sstFile.getAbsolutePath()),
+						ingestOptions);
 				}
 			}
 		}
 
+		private List<ColumnFamilyDescriptor> createColumnFamilyDescriptors(
+			List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> stateMetaInfoSnapshots) {
+
+			List<ColumnFamilyDescriptor> columnFamilyDescriptors =
+				new ArrayList<>(1 + stateMetaInfoSnapshots.size());
+
+			for (RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot : stateMetaInfoSnapshots) {
+
+				ColumnFamilyDescriptor columnFamilyDescriptor = new ColumnFamilyDescriptor(
+					stateMetaInfoSnapshot.getName().getBytes(ConfigConstants.DEFAULT_CHARSET),
+					stateBackend.columnOptions);
+
+				columnFamilyDescriptors.add(columnFamilyDescriptor);
+				stateBackend.restoredKvStateMetaInfos.put(stateMetaInfoSnapshot.getName(), stateMetaInfoSnapshot);
+			}
+
+			return columnFamilyDescriptors;
+		}
+
+		private RegisteredKeyedBackendStateMetaInfo<?, ?> createStateMetaInfo(
+			RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> stateMetaInfoSnapshot) {
+
+			return new RegisteredKeyedBackendStateMetaInfo<>(
+				stateMetaInfoSnapshot.getStateType(),
+				stateMetaInfoSnapshot.getName(),
+				stateMetaInfoSnapshot.getNamespaceSerializer(),
+				stateMetaInfoSnapshot.getStateSerializer());
+		}
+
+		private byte[] keyGroupPrefix(int keyGroup) {
+			final int prefixBytes = stateBackend.keyGroupPrefixBytes;
+			final byte[] prefix = new byte[prefixBytes];
+			for (int j = 0; j < prefixBytes; ++j) {
+				prefix[j] = (byte) (keyGroup >>> ((prefixBytes - j - 1) * Byte.SIZE));
+			}
+			return prefix;
+		}
+
+		private int compareKeyGroupPrefix(byte[] key, byte[] keyGroupPrefix) {
+			for (int j = 0; j < keyGroupPrefix.length; ++j) {
+				int cmp = (key[j] & 0xFF) - (keyGroupPrefix[j] & 0xFF);
+				if (cmp != 0) {
+					return cmp;
+				}
+			}
+			return 0;
+		}
+
+		private void deleteRestoreInstancePath(Path restoreInstancePath) throws IOException {
+			FileSystem restoreFileSystem = restoreInstancePath.getFileSystem();
+			if (restoreFileSystem.exists(restoreInstancePath)) {
+				restoreFileSystem.delete(restoreInstancePath, true);
+			}
+		}
+
 		private void readAllStateData(
 			Map<StateHandleID, StreamStateHandle> stateHandleMap,
-			Path restoreInstancePath) throws IOException {
+			Path restoreInstancePath) throws Exception {
 
-			for (Map.Entry<StateHandleID, StreamStateHandle> entry : stateHandleMap.entrySet()) {
-				StateHandleID stateHandleID = entry.getKey();
-				StreamStateHandle remoteFileHandle = entry.getValue();
-				readStateData(new Path(restoreInstancePath, stateHandleID.toString()), remoteFileHandle);
-			}
+			RocksDBStateDataTransfer.transferAllStateDataToDirectory(
+				stateHandleMap,
+				restoreInstancePath,
+				stateBackend.numberOfTransferingThreads,
+				stateBackend.cancelStreamRegistry);
 		}
 
 		private void createFileHardLinksInRestorePath(
@@ -1548,26 +1874,25 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			}
 		}
 
+		private IncrementalKeyedStateHandle checkIncrementalStateHandle(KeyedStateHandle rawStateHandle) {
+			if (!(rawStateHandle instanceof IncrementalKeyedStateHandle)) {
+				throw new IllegalStateException("Unexpected state handle type, " +
+					"expected " + IncrementalKeyedStateHandle.class +
+					", but found " + rawStateHandle.getClass());
+			}
+
+			return (IncrementalKeyedStateHandle) rawStateHandle;
+		}
+
 		void restore(Collection<KeyedStateHandle> restoreStateHandles) throws Exception {
 
 			boolean hasExtraKeys = (restoreStateHandles.size() > 1 ||
 				!Objects.equals(restoreStateHandles.iterator().next().getKeyGroupRange(), stateBackend.keyGroupRange));
 
 			if (hasExtraKeys) {
-				stateBackend.createDB();
-			}
-
-			for (KeyedStateHandle rawStateHandle : restoreStateHandles) {
-
-				if (!(rawStateHandle instanceof IncrementalKeyedStateHandle)) {
-					throw new IllegalStateException("Unexpected state handle type, " +
-						"expected " + IncrementalKeyedStateHandle.class +
-						", but found " + rawStateHandle.getClass());
-				}
-
-				IncrementalKeyedStateHandle keyedStateHandle = (IncrementalKeyedStateHandle) rawStateHandle;
-
-				restoreInstance(keyedStateHandle, hasExtraKeys);
+				restoreWithRescaling(restoreStateHandles);
+			} else {
+				restoreWithoutRescaling(checkIncrementalStateHandle(restoreStateHandles.iterator().next()));
 			}
 		}
 	}
@@ -1660,6 +1985,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			new Tuple2<>(columnFamily, newMetaInfo);
 		Map rawAccess = kvStateInformation;
 		rawAccess.put(descriptor.getName(), tuple);
+
+		if (nativeMetricMonitor != null) {
+			nativeMetricMonitor.registerColumnFamily(descriptor.getName(), columnFamily);
+		}
 		return columnFamily;
 	}
 
@@ -1952,6 +2281,28 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	/**
+	 * Returns the cache of values in front of RocksDB, or null if values are not cached.
+	 */
+	@Nullable
+	RocksDBWriteBackCache getWriteBackCache() {
+		return writeBackCache;
+	}
+
+	/**
+	 * Writes the dirty values of the write-back cache to RocksDB. This must happen before RocksDB is read by
+	 * anything other than the cached states.
+	 */
+	private void flushWriteBackCache() {
+		if (writeBackCache != null) {
+			try {
+				writeBackCache.flush();
+			} catch (IOException | RocksDBException e) {
+				throw new FlinkRuntimeException("Could not write the cached values to RocksDB.", e);
+			}
+		}
+	}
+
 	/**
 	 * Only visible for testing, DO NOT USE.
 	 */
@@ -1968,6 +2319,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	@SuppressWarnings("unchecked")
 	@Override
 	public int numStateEntries() {
+		flushWriteBackCache();
+
 		int count = 0;
 
 		for (Tuple2<ColumnFamilyHandle, RegisteredKeyedBackendStateMetaInfo<?, ?>> column : kvStateInformation.values()) {
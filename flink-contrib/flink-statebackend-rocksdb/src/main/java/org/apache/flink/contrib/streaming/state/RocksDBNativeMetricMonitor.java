@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.Statistics;
+import org.rocksdb.TickerType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Reports the native metrics of a RocksDB instance, as selected by the {@link RocksDBNativeMetricOptions}, as
+ * gauges of a {@link MetricGroup}.
+ *
+ * <p>The gauges return cached values, which a background thread samples periodically from RocksDB. Reading a
+ * property of RocksDB takes a lock inside the database, so that sampling it in the task thread, or in the thread
+ * of a metric reporter, could block the processing of records.
+ *
+ * <p>The monitor must be closed before the column families and the database are closed. Closing waits for a
+ * running sample to finish.
+ */
+class RocksDBNativeMetricMonitor implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RocksDBNativeMetricMonitor.class);
+
+	private final RocksDBNativeMetricOptions options;
+
+	private final MetricGroup metricGroup;
+
+	private final RocksDB db;
+
+	/** The statistics of the database, or null if no ticker is reported. */
+	@Nullable
+	private final Statistics statistics;
+
+	/** All registered gauges. Column families are registered by the task thread while the gauges are sampled. */
+	private final List<NativeMetricGauge> gauges;
+
+	private final ScheduledExecutorService samplingExecutor;
+
+	/** Guards the access to the database against closing the monitor. */
+	private final Object lock;
+
+	/** Set when the monitor is closed, after which the database is not accessed anymore. */
+	private boolean closed;
+
+	RocksDBNativeMetricMonitor(
+			RocksDBNativeMetricOptions options,
+			MetricGroup metricGroup,
+			RocksDB db,
+			@Nullable Statistics statistics) {
+
+		this.options = checkNotNull(options);
+		this.metricGroup = checkNotNull(metricGroup).addGroup("rocksdb");
+		this.db = checkNotNull(db);
+		checkArgument(statistics != null || options.getTickers().isEmpty(),
+			"The statistics of the database are required to report tickers.");
+		this.statistics = statistics;
+		this.gauges = new CopyOnWriteArrayList<>();
+		this.lock = new Object();
+
+		for (TickerType ticker : options.getTickers()) {
+			NativeMetricGauge gauge = new TickerGauge(ticker);
+			this.metricGroup.gauge(ticker.name().toLowerCase(), gauge);
+			gauges.add(gauge);
+		}
+
+		this.samplingExecutor = Executors.newSingleThreadScheduledExecutor(
+			new ExecutorThreadFactory("Flink-RocksDB-native-metrics"));
+		this.samplingExecutor.scheduleWithFixedDelay(
+			this::sample, 0L, options.getSamplingInterval(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Registers the gauges of the enabled properties for the column family of the given state.
+	 */
+	void registerColumnFamily(String stateName, ColumnFamilyHandle handle) {
+		if (options.getProperties().isEmpty()) {
+			return;
+		}
+
+		MetricGroup columnFamilyGroup = metricGroup.addGroup(stateName);
+		for (String property : options.getProperties()) {
+			NativeMetricGauge gauge = new PropertyGauge(handle, property);
+			// the "rocksdb." prefix of the property is already the name of the parent group
+			columnFamilyGroup.gauge(property.substring(property.indexOf('.') + 1), gauge);
+			gauges.add(gauge);
+		}
+	}
+
+	/**
+	 * Updates the values of all gauges.
+	 */
+	@VisibleForTesting
+	void sample() {
+		synchronized (lock) {
+			if (closed) {
+				return;
+			}
+
+			for (NativeMetricGauge gauge : gauges) {
+				try {
+					gauge.update();
+				} catch (Exception e) {
+					LOG.debug("Could not sample the native RocksDB metric {}.", gauge, e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		synchronized (lock) {
+			closed = true;
+		}
+		samplingExecutor.shutdownNow();
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A gauge that returns the last sampled value of a native metric.
+	 */
+	private abstract static class NativeMetricGauge implements Gauge<Long> {
+
+		private volatile long value;
+
+		abstract long sampleValue() throws RocksDBException;
+
+		void update() throws RocksDBException {
+			value = sampleValue();
+		}
+
+		@Override
+		public Long getValue() {
+			return value;
+		}
+	}
+
+	private final class PropertyGauge extends NativeMetricGauge {
+
+		private final ColumnFamilyHandle handle;
+
+		private final String property;
+
+		PropertyGauge(ColumnFamilyHandle handle, String property) {
+			this.handle = handle;
+			this.property = property;
+		}
+
+		@Override
+		long sampleValue() throws RocksDBException {
+			return db.getLongProperty(handle, property);
+		}
+
+		@Override
+		public String toString() {
+			return property;
+		}
+	}
+
+	private final class TickerGauge extends NativeMetricGauge {
+
+		private final TickerType ticker;
+
+		TickerGauge(TickerType ticker) {
+			this.ticker = ticker;
+		}
+
+		@Override
+		long sampleValue() {
+			return statistics.getTickerCount(ticker);
+		}
+
+		@Override
+		public String toString() {
+			return ticker.name();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.rocksdb.TickerType;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Selects the native metrics of RocksDB that are reported as Flink metrics by the {@link RocksDBStateBackend}.
+ * No native metrics are reported by default, because sampling them has a cost and the statistics of RocksDB
+ * slow down every access to the database.
+ *
+ * <p>There are two kinds of native metrics:
+ * <ul>
+ *     <li>Properties, like {@code rocksdb.estimate-num-keys}, are reported per column family, that is per
+ *     state, under {@code rocksdb.<state name>.<property>}.</li>
+ *     <li>Tickers of the RocksDB statistics, like {@link TickerType#BLOCK_CACHE_MISS}, are counted for the
+ *     whole database of a keyed state backend and are reported under {@code rocksdb.<ticker>}.</li>
+ * </ul>
+ *
+ * <p>All metrics are gauges that return the value of the last sample. The values are sampled periodically by a
+ * background thread, so that accesses to the state never wait for the metrics.
+ */
+public class RocksDBNativeMetricOptions implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The default interval between two samples of the native metrics, in milliseconds. */
+	public static final long DEFAULT_SAMPLING_INTERVAL_MILLIS = 10_000L;
+
+	/** The numeric properties of a column family that can be reported. */
+	public static final Set<String> SUPPORTED_PROPERTIES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+		"rocksdb.num-immutable-mem-table",
+		"rocksdb.mem-table-flush-pending",
+		"rocksdb.compaction-pending",
+		"rocksdb.background-errors",
+		"rocksdb.cur-size-active-mem-table",
+		"rocksdb.cur-size-all-mem-tables",
+		"rocksdb.size-all-mem-tables",
+		"rocksdb.num-entries-active-mem-table",
+		"rocksdb.num-entries-imm-mem-tables",
+		"rocksdb.num-deletes-active-mem-table",
+		"rocksdb.num-deletes-imm-mem-tables",
+		"rocksdb.estimate-num-keys",
+		"rocksdb.estimate-table-readers-mem",
+		"rocksdb.num-snapshots",
+		"rocksdb.num-live-versions",
+		"rocksdb.estimate-live-data-size",
+		"rocksdb.total-sst-files-size",
+		"rocksdb.estimate-pending-compaction-bytes",
+		"rocksdb.num-running-compactions",
+		"rocksdb.num-running-flushes",
+		"rocksdb.actual-delayed-write-rate",
+		"rocksdb.is-write-stopped")));
+
+	private final Set<String> properties = new LinkedHashSet<>();
+
+	private final EnumSet<TickerType> tickers = EnumSet.noneOf(TickerType.class);
+
+	private long samplingIntervalMillis = DEFAULT_SAMPLING_INTERVAL_MILLIS;
+
+	/**
+	 * Reports the given numeric property of each column family, for example
+	 * {@code rocksdb.estimate-num-keys}.
+	 *
+	 * @see #SUPPORTED_PROPERTIES
+	 */
+	public RocksDBNativeMetricOptions enableProperty(String property) {
+		checkArgument(SUPPORTED_PROPERTIES.contains(checkNotNull(property)),
+			"Unsupported RocksDB property: " + property);
+		properties.add(property);
+		return this;
+	}
+
+	/**
+	 * Reports the sizes of the mem tables, the estimated number of keys and the estimated size of the live data
+	 * of each column family.
+	 */
+	public RocksDBNativeMetricOptions enableSizeProperties() {
+		enableProperty("rocksdb.cur-size-all-mem-tables");
+		enableProperty("rocksdb.estimate-num-keys");
+		enableProperty("rocksdb.estimate-live-data-size");
+		enableProperty("rocksdb.total-sst-files-size");
+		return this;
+	}
+
+	/**
+	 * Reports the pending and running flushes and compactions, and whether writes are delayed or stopped, for each
+	 * column family.
+	 */
+	public RocksDBNativeMetricOptions enableBackgroundWorkProperties() {
+		enableProperty("rocksdb.mem-table-flush-pending");
+		enableProperty("rocksdb.num-running-flushes");
+		enableProperty("rocksdb.compaction-pending");
+		enableProperty("rocksdb.num-running-compactions");
+		enableProperty("rocksdb.estimate-pending-compaction-bytes");
+		enableProperty("rocksdb.actual-delayed-write-rate");
+		enableProperty("rocksdb.is-write-stopped");
+		return this;
+	}
+
+	/**
+	 * Reports the given ticker of the RocksDB statistics. Enabling any ticker enables the statistics of the
+	 * database, which adds a small overhead to every access.
+	 */
+	public RocksDBNativeMetricOptions enableTicker(TickerType ticker) {
+		tickers.add(checkNotNull(ticker));
+		return this;
+	}
+
+	/**
+	 * Sets the interval between two samples of the native metrics.
+	 *
+	 * @param samplingIntervalMillis The interval in milliseconds, which must be positive.
+	 */
+	public RocksDBNativeMetricOptions setSamplingInterval(long samplingIntervalMillis) {
+		checkArgument(samplingIntervalMillis > 0, "The sampling interval must be positive.");
+		this.samplingIntervalMillis = samplingIntervalMillis;
+		return this;
+	}
+
+	public Collection<String> getProperties() {
+		return Collections.unmodifiableSet(properties);
+	}
+
+	public Collection<TickerType> getTickers() {
+		return Collections.unmodifiableSet(tickers);
+	}
+
+	public long getSamplingInterval() {
+		return samplingIntervalMillis;
+	}
+
+	/**
+	 * Returns whether any native metric is reported.
+	 */
+	public boolean isEnabled() {
+		return !properties.isEmpty() || !tickers.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return "RocksDBNativeMetricOptions{" +
+			"properties=" + properties +
+			", tickers=" + tickers +
+			", samplingIntervalMillis=" + samplingIntervalMillis +
+			'}';
+	}
+}
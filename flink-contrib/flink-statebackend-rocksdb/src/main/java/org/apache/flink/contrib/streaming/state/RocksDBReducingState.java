@@ -22,16 +22,11 @@ import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
-import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
-import org.apache.flink.core.memory.DataInputViewStreamWrapper;
-import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
 import org.apache.flink.runtime.state.internal.InternalReducingState;
 
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
-import org.rocksdb.WriteOptions;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Collection;
 
@@ -46,18 +41,9 @@ public class RocksDBReducingState<K, N, V>
 	extends AbstractRocksDBState<K, N, ReducingState<V>, ReducingStateDescriptor<V>, V>
 	implements InternalReducingState<N, V> {
 
-	/** Serializer for the values. */
-	private final TypeSerializer<V> valueSerializer;
-
 	/** User-specified reduce function. */
 	private final ReduceFunction<V> reduceFunction;
 
-	/**
-	 * We disable writes to the write-ahead-log here. We can't have these in the base class
-	 * because JNI segfaults for some reason if they are.
-	 */
-	private final WriteOptions writeOptions;
-
 	/**
 	 * Creates a new {@code RocksDBReducingState}.
 	 *
@@ -70,12 +56,8 @@ public class RocksDBReducingState<K, N, V>
 			ReducingStateDescriptor<V> stateDesc,
 			RocksDBKeyedStateBackend<K> backend) {
 
-		super(columnFamily, namespaceSerializer, stateDesc, backend);
-		this.valueSerializer = stateDesc.getSerializer();
+		super(columnFamily, namespaceSerializer, stateDesc, backend, true);
 		this.reduceFunction = stateDesc.getReduceFunction();
-
-		writeOptions = new WriteOptions();
-		writeOptions.setDisableWAL(true);
 	}
 
 	@Override
@@ -83,11 +65,7 @@ public class RocksDBReducingState<K, N, V>
 		try {
 			writeCurrentKeyWithGroupAndNamespace();
 			byte[] key = keySerializationStream.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
-			if (valueBytes == null) {
-				return null;
-			}
-			return valueSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStream(valueBytes)));
+			return copyIfCached(getInternal(key));
 		} catch (IOException | RocksDBException e) {
 			throw new RuntimeException("Error while retrieving data from RocksDB", e);
 		}
@@ -98,19 +76,14 @@ public class RocksDBReducingState<K, N, V>
 		try {
 			writeCurrentKeyWithGroupAndNamespace();
 			byte[] key = keySerializationStream.toByteArray();
-			byte[] valueBytes = backend.db.get(columnFamily, key);
+			V oldValue = getInternal(key);
 
-			DataOutputViewStreamWrapper out = new DataOutputViewStreamWrapper(keySerializationStream);
-			if (valueBytes == null) {
-				keySerializationStream.reset();
-				valueSerializer.serialize(value, out);
-				backend.db.put(columnFamily, writeOptions, key, keySerializationStream.toByteArray());
+			if (oldValue == null) {
+				putInternal(key, copyIfCached(value));
 			} else {
-				V oldValue = valueSerializer.deserialize(new DataInputViewStreamWrapper(new ByteArrayInputStream(valueBytes)));
 				V newValue = reduceFunction.reduce(oldValue, value);
-				keySerializationStream.reset();
-				valueSerializer.serialize(newValue, out);
-				backend.db.put(columnFamily, writeOptions, key, keySerializationStream.toByteArray());
+				// the reduce function may return the value of the user
+				putInternal(key, newValue == value ? copyIfCached(newValue) : newValue);
 			}
 		} catch (Exception e) {
 			throw new RuntimeException("Error while adding data to RocksDB", e);
@@ -123,10 +96,6 @@ public class RocksDBReducingState<K, N, V>
 			return;
 		}
 
-		// cache key and namespace
-		final K key = backend.getCurrentKey();
-		final int keyGroup = backend.getCurrentKeyGroupIndex();
-
 		try {
 			V current = null;
 
@@ -134,18 +103,13 @@ public class RocksDBReducingState<K, N, V>
 			for (N source : sources) {
 				if (source != null) {
 
-					writeKeyWithGroupAndNamespace(
-							keyGroup, key, source,
-							keySerializationStream, keySerializationDataOutputView);
+					writeCurrentKeyWithGroupAndNamespace(source);
 
 					final byte[] sourceKey = keySerializationStream.toByteArray();
-					final byte[] valueBytes = backend.db.get(columnFamily, sourceKey);
-					backend.db.delete(columnFamily, sourceKey);
-
-					if (valueBytes != null) {
-						V value = valueSerializer.deserialize(
-								new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(valueBytes)));
+					final V value = getInternal(sourceKey);
+					removeInternal(sourceKey);
 
+					if (value != null) {
 						if (current != null) {
 							current = reduceFunction.reduce(current, value);
 						}
@@ -159,27 +123,18 @@ public class RocksDBReducingState<K, N, V>
 			// if something came out of merging the sources, merge it or write it to the target
 			if (current != null) {
 				// create the target full-binary-key
-				writeKeyWithGroupAndNamespace(
-						keyGroup, key, target,
-						keySerializationStream, keySerializationDataOutputView);
+				writeCurrentKeyWithGroupAndNamespace(target);
 
 				final byte[] targetKey = keySerializationStream.toByteArray();
-				final byte[] targetValueBytes = backend.db.get(columnFamily, targetKey);
+				final V targetValue = getInternal(targetKey);
 
-				if (targetValueBytes != null) {
+				if (targetValue != null) {
 					// target also had a value, merge
-					V value = valueSerializer.deserialize(
-							new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(targetValueBytes)));
-
-					current = reduceFunction.reduce(current, value);
+					current = reduceFunction.reduce(current, targetValue);
 				}
 
-				// serialize the resulting value
-				keySerializationStream.reset();
-				valueSerializer.serialize(current, keySerializationDataOutputView);
-
 				// write the resulting value
-				backend.db.put(columnFamily, writeOptions, targetKey, keySerializationStream.toByteArray());
+				putInternal(targetKey, current);
 			}
 		}
 		catch (Exception e) {
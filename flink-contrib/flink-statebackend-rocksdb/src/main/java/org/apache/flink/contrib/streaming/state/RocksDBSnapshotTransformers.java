@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.ListSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+
+import javax.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Applies {@link StateSnapshotTransformer StateSnapshotTransformers} of serialized values to the values of RocksDB
+ * states in full snapshots. The values of value states are transformed as they are, while the values of map states
+ * and the elements of list states are taken out of the format in which RocksDB stores them.
+ */
+final class RocksDBSnapshotTransformers {
+
+	/** The delimiter between the elements of list states, as written by the string append merge operator. */
+	private static final byte LIST_DELIMITER = ',';
+
+	private RocksDBSnapshotTransformers() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Creates the transformer for the stored values of the given state.
+	 *
+	 * @param metaInfo the meta information of the state.
+	 * @param valueTransformer the transformer of single serialized values.
+	 * @return the transformer of the values as stored in RocksDB.
+	 */
+	static StateSnapshotTransformer<byte[]> createForStoredValues(
+			RegisteredKeyedBackendStateMetaInfo<?, ?> metaInfo,
+			StateSnapshotTransformer<byte[]> valueTransformer) {
+
+		switch (metaInfo.getStateType()) {
+			case LIST:
+				TypeSerializer<?> elementSerializer =
+					((ListSerializer<?>) metaInfo.getStateSerializer()).getElementSerializer().duplicate();
+				return new ListElementsTransformer(elementSerializer, valueTransformer);
+			case MAP:
+				return new MapValueTransformer(valueTransformer);
+			default:
+				return valueTransformer;
+		}
+	}
+
+	/**
+	 * Transforms the values of map entries, which are stored after a flag that marks null values.
+	 */
+	private static final class MapValueTransformer implements StateSnapshotTransformer<byte[]> {
+
+		private final StateSnapshotTransformer<byte[]> valueTransformer;
+
+		MapValueTransformer(StateSnapshotTransformer<byte[]> valueTransformer) {
+			this.valueTransformer = valueTransformer;
+		}
+
+		@Nullable
+		@Override
+		public byte[] filterOrTransform(@Nullable byte[] storedValue) {
+			if (storedValue == null || storedValue.length <= 1) {
+				// null values are kept as they are
+				return storedValue;
+			}
+
+			byte[] value = Arrays.copyOfRange(storedValue, 1, storedValue.length);
+			byte[] transformedValue = valueTransformer.filterOrTransform(value);
+
+			if (transformedValue == null) {
+				return null;
+			} else if (transformedValue == value) {
+				return storedValue;
+			} else {
+				byte[] result = new byte[transformedValue.length + 1];
+				result[0] = storedValue[0];
+				System.arraycopy(transformedValue, 0, result, 1, transformedValue.length);
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Transforms each element of lists, which are stored as delimited serialized elements. The serializer of the
+	 * elements is used to find their boundaries. Lists without any remaining elements are dropped.
+	 */
+	private static final class ListElementsTransformer implements StateSnapshotTransformer<byte[]> {
+
+		private final TypeSerializer<?> elementSerializer;
+
+		private final StateSnapshotTransformer<byte[]> elementTransformer;
+
+		private final DataInputDeserializer in = new DataInputDeserializer();
+
+		ListElementsTransformer(
+				TypeSerializer<?> elementSerializer,
+				StateSnapshotTransformer<byte[]> elementTransformer) {
+
+			this.elementSerializer = elementSerializer;
+			this.elementTransformer = elementTransformer;
+		}
+
+		@Nullable
+		@Override
+		public byte[] filterOrTransform(@Nullable byte[] storedList) {
+			if (storedList == null) {
+				return null;
+			}
+
+			try {
+				in.setBuffer(storedList, 0, storedList.length);
+
+				ByteArrayOutputStream result = new ByteArrayOutputStream(storedList.length);
+				boolean modified = false;
+				int start = 0;
+
+				while (in.available() > 0) {
+					elementSerializer.deserialize(in);
+					int end = storedList.length - in.available();
+
+					byte[] element = Arrays.copyOfRange(storedList, start, end);
+					byte[] transformedElement = elementTransformer.filterOrTransform(element);
+
+					if (transformedElement == null) {
+						modified = true;
+					} else {
+						modified |= transformedElement != element;
+						if (result.size() > 0) {
+							result.write(LIST_DELIMITER);
+						}
+						result.write(transformedElement);
+					}
+
+					if (in.available() > 0) {
+						in.readByte();
+					}
+					start = storedList.length - in.available();
+				}
+
+				if (result.size() == 0) {
+					return null;
+				}
+				return modified ? result.toByteArray() : storedList;
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not read the elements of a list state for the snapshot.", e);
+			}
+		}
+	}
+}
@@ -21,6 +21,7 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
@@ -50,6 +51,8 @@ import java.util.Random;
 import java.util.UUID;
 
 import static java.util.Objects.requireNonNull;
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
  * A State Backend that stores its state in {@code RocksDB}. This state backend can
@@ -73,6 +76,9 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	/** The number of (re)tries for loading the RocksDB JNI library. */
 	private static final int ROCKSDB_LIB_LOADING_ATTEMPTS = 3;
 
+	/** The default number of threads that transfer the files of incremental snapshots. */
+	public static final int DEFAULT_NUMBER_OF_TRANSFERING_THREADS = 1;
+
 	private static boolean rocksDbInitialized = false;
 
 	// ------------------------------------------------------------------------
@@ -112,6 +118,18 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 	/** True if incremental checkpointing is enabled. */
 	private boolean enableIncrementalCheckpointing;
 
+	/** True if the timers of the operators are stored in RocksDB, rather than on the heap. */
+	private boolean timersInRocksDB = true;
+
+	/** The number of threads that transfer the files of incremental snapshots to and from the checkpoint file system. */
+	private int numberOfTransferingThreads = DEFAULT_NUMBER_OF_TRANSFERING_THREADS;
+
+	/** The maximum number of values in the write-back cache of a keyed backend, 0 if values are not cached. */
+	private int writeBackCacheSize = 0;
+
+	/** The native metrics of RocksDB that are reported, none by default. */
+	private RocksDBNativeMetricOptions nativeMetricOptions = new RocksDBNativeMetricOptions();
+
 
 	/**
 	 * Creates a new {@code RocksDBStateBackend} that stores its checkpoint data in the
@@ -292,6 +310,28 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 			KeyGroupRange keyGroupRange,
 			TaskKvStateRegistry kvStateRegistry) throws IOException {
 
+		return createKeyedStateBackend(
+			env,
+			jobID,
+			operatorIdentifier,
+			keySerializer,
+			numberOfKeyGroups,
+			keyGroupRange,
+			kvStateRegistry,
+			env.getMetricGroup());
+	}
+
+	@Override
+	public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+			Environment env,
+			JobID jobID,
+			String operatorIdentifier,
+			TypeSerializer<K> keySerializer,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			TaskKvStateRegistry kvStateRegistry,
+			MetricGroup metricGroup) throws IOException {
+
 		// first, make sure that the RocksDB JNI library is loaded
 		// we do this explicitly here to have better error handling
 		String tempDir = env.getTaskManagerInfo().getTmpDirectories()[0];
@@ -313,7 +353,12 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 				numberOfKeyGroups,
 				keyGroupRange,
 				env.getExecutionConfig(),
-				enableIncrementalCheckpointing);
+				enableIncrementalCheckpointing,
+				timersInRocksDB,
+				numberOfTransferingThreads,
+				writeBackCacheSize,
+				nativeMetricOptions,
+				metricGroup);
 	}
 
 	// ------------------------------------------------------------------------
@@ -389,6 +434,94 @@ public class RocksDBStateBackend extends AbstractStateBackend {
 		}
 	}
 
+	/**
+	 * Sets whether the timers of the operators are stored in RocksDB. By default, the timers are
+	 * stored in RocksDB, next to the keyed state, and are part of its (incremental) snapshots.
+	 * Otherwise, the timers are stored on the heap and are written completely in each snapshot.
+	 *
+	 * <p>Timers that were snapshotted on the heap are restored into RocksDB, but timers that were
+	 * stored in RocksDB cannot be restored onto the heap.
+	 *
+	 * @param timersInRocksDB True, if the timers are stored in RocksDB.
+	 */
+	public void setTimersInRocksDB(boolean timersInRocksDB) {
+		this.timersInRocksDB = timersInRocksDB;
+	}
+
+	/**
+	 * Gets whether the timers of the operators are stored in RocksDB.
+	 *
+	 * @see #setTimersInRocksDB(boolean)
+	 */
+	public boolean isTimersInRocksDB() {
+		return timersInRocksDB;
+	}
+
+	/**
+	 * Sets the number of threads that concurrently upload the files of an incremental snapshot to the
+	 * checkpoint file system, and download them again on restore. With a single thread (the default),
+	 * the files are transferred one after another.
+	 *
+	 * @param numberOfTransferingThreads The number of threads, which must be positive.
+	 */
+	public void setNumberOfTransferingThreads(int numberOfTransferingThreads) {
+		checkArgument(numberOfTransferingThreads > 0,
+			"The number of threads for transferring state files must be positive.");
+		this.numberOfTransferingThreads = numberOfTransferingThreads;
+	}
+
+	/**
+	 * Gets the number of threads that transfer the files of incremental snapshots.
+	 *
+	 * @see #setNumberOfTransferingThreads(int)
+	 */
+	public int getNumberOfTransferingThreads() {
+		return numberOfTransferingThreads;
+	}
+
+	/**
+	 * Sets the maximum number of values that each keyed state backend caches in front of RocksDB. The values of
+	 * value, reducing and aggregating states are cached as objects, so that repeated reads and writes of the same
+	 * keys neither access RocksDB nor (de)serialize the values. Modified values are written to RocksDB when they
+	 * are evicted from the cache and before each snapshot. By default, no values are cached.
+	 *
+	 * <p>The cached values take up JVM heap memory. Values of queryable states are never cached.
+	 *
+	 * @param writeBackCacheSize The maximum number of cached values, or 0 to disable the cache.
+	 */
+	public void setWriteBackCacheSize(int writeBackCacheSize) {
+		checkArgument(writeBackCacheSize >= 0, "The size of the write-back cache must not be negative.");
+		this.writeBackCacheSize = writeBackCacheSize;
+	}
+
+	/**
+	 * Gets the maximum number of values that each keyed state backend caches in front of RocksDB.
+	 *
+	 * @see #setWriteBackCacheSize(int)
+	 */
+	public int getWriteBackCacheSize() {
+		return writeBackCacheSize;
+	}
+
+	/**
+	 * Sets the native metrics of RocksDB that are reported as gauges, under the metric group of the operator
+	 * that owns the keyed state. By default, no native metrics are reported.
+	 *
+	 * @param nativeMetricOptions The native metrics to report.
+	 */
+	public void setNativeMetricOptions(RocksDBNativeMetricOptions nativeMetricOptions) {
+		this.nativeMetricOptions = checkNotNull(nativeMetricOptions);
+	}
+
+	/**
+	 * Gets the native metrics of RocksDB that are reported.
+	 *
+	 * @see #setNativeMetricOptions(RocksDBNativeMetricOptions)
+	 */
+	public RocksDBNativeMetricOptions getNativeMetricOptions() {
+		return nativeMetricOptions;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Parametrize with RocksDB Options
 	// ------------------------------------------------------------------------
@@ -43,6 +43,8 @@ public class RocksDBStateBackendFactory implements StateBackendFactory<RocksDBSt
 	public static final String CHECKPOINT_DIRECTORY_URI_CONF_KEY = "state.backend.fs.checkpointdir";
 	/** The key under which the config stores the directory where RocksDB should be stored. */
 	public static final String ROCKSDB_CHECKPOINT_DIRECTORY_URI_CONF_KEY = "state.backend.rocksdb.checkpointdir";
+	/** The key under which the config stores the number of threads that transfer the files of incremental snapshots. */
+	public static final String ROCKSDB_CHECKPOINT_TRANSFER_THREADS_CONF_KEY = "state.backend.rocksdb.checkpoint.transfer.thread.num";
 
 	@Override
 	public RocksDBStateBackend createFromConfig(Configuration config)
@@ -50,6 +52,8 @@ public class RocksDBStateBackendFactory implements StateBackendFactory<RocksDBSt
 
 		final String checkpointDirURI = config.getString(CHECKPOINT_DIRECTORY_URI_CONF_KEY, null);
 		final String rocksdbLocalPath = config.getString(ROCKSDB_CHECKPOINT_DIRECTORY_URI_CONF_KEY, null);
+		final int numberOfTransferingThreads = config.getInteger(
+			ROCKSDB_CHECKPOINT_TRANSFER_THREADS_CONF_KEY, RocksDBStateBackend.DEFAULT_NUMBER_OF_TRANSFERING_THREADS);
 
 		if (checkpointDirURI == null) {
 			throw new IllegalConfigurationException(
@@ -57,6 +61,12 @@ public class RocksDBStateBackendFactory implements StateBackendFactory<RocksDBSt
 				"checkpoint directory '" + CHECKPOINT_DIRECTORY_URI_CONF_KEY + '\'');
 		}
 
+		if (numberOfTransferingThreads <= 0) {
+			throw new IllegalConfigurationException(
+				"Cannot create the RocksDB state backend: The number of threads for transferring state files '" +
+				ROCKSDB_CHECKPOINT_TRANSFER_THREADS_CONF_KEY + "' must be positive.");
+		}
+
 		try {
 			Path path = new Path(checkpointDirURI);
 			RocksDBStateBackend backend = new RocksDBStateBackend(path.toUri());
@@ -64,6 +74,7 @@ public class RocksDBStateBackendFactory implements StateBackendFactory<RocksDBSt
 				String[] directories = rocksdbLocalPath.split(",|" + File.pathSeparator);
 				backend.setDbStoragePaths(directories);
 			}
+			backend.setNumberOfTransferingThreads(numberOfTransferingThreads);
 			LOG.info("State backend is set to RocksDB (configured DB storage paths {}, checkpoints to filesystem {} ) ",
 					backend.getDbStoragePaths(), path);
 
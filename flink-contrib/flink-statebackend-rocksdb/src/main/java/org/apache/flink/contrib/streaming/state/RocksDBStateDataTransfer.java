@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateObject;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.LambdaUtil;
+import org.apache.flink.util.ThrowingConsumer;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers the files of incremental RocksDB snapshots between the local file system and the checkpoint
+ * file system.
+ *
+ * <p>The files of one snapshot or restore are transferred by a bounded number of threads. With a
+ * single thread, the files are transferred one after another in the calling thread.
+ */
+final class RocksDBStateDataTransfer {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private RocksDBStateDataTransfer() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Uploads the given local files to the checkpoint file system.
+	 *
+	 * @param files the files to upload, by their state handle id.
+	 * @param numberOfTransferingThreads the maximum number of concurrent uploads.
+	 * @param checkpointStreamFactory the factory for the streams to the checkpoint file system.
+	 * @param checkpointId the id of the checkpoint.
+	 * @param checkpointTimestamp the timestamp of the checkpoint.
+	 * @param closeableRegistry the registry for the opened streams, which is closed on cancellation.
+	 * @return the handles of the uploaded files, by their state handle id. A handle is null if the upload
+	 *         was canceled.
+	 * @throws Exception if an upload failed. The files that have already been uploaded are discarded then.
+	 */
+	static Map<StateHandleID, StreamStateHandle> uploadFilesToCheckpointFs(
+			Map<StateHandleID, Path> files,
+			int numberOfTransferingThreads,
+			CheckpointStreamFactory checkpointStreamFactory,
+			long checkpointId,
+			long checkpointTimestamp,
+			CloseableRegistry closeableRegistry) throws Exception {
+
+		final Map<StateHandleID, Callable<StreamStateHandle>> uploads = new HashMap<>(files.size());
+		for (Map.Entry<StateHandleID, Path> entry : files.entrySet()) {
+			final Path filePath = entry.getValue();
+			uploads.put(
+				entry.getKey(),
+				() -> uploadLocalFileToCheckpointFs(
+					filePath, checkpointStreamFactory, checkpointId, checkpointTimestamp, closeableRegistry));
+		}
+
+		return transfer(uploads, numberOfTransferingThreads, StateObject::discardState);
+	}
+
+	/**
+	 * Downloads the given remote files into the given local directory. Each file is named after its
+	 * state handle id.
+	 *
+	 * @param stateHandles the files to download, by their state handle id.
+	 * @param destination the local directory.
+	 * @param numberOfTransferingThreads the maximum number of concurrent downloads.
+	 * @param closeableRegistry the registry for the opened streams, which is closed on cancellation.
+	 */
+	static void transferAllStateDataToDirectory(
+			Map<StateHandleID, StreamStateHandle> stateHandles,
+			Path destination,
+			int numberOfTransferingThreads,
+			CloseableRegistry closeableRegistry) throws Exception {
+
+		// create the directory up front, rather than concurrently with the files
+		destination.getFileSystem().mkdirs(destination);
+
+		final Map<StateHandleID, Callable<Void>> downloads = new HashMap<>(stateHandles.size());
+		for (Map.Entry<StateHandleID, StreamStateHandle> entry : stateHandles.entrySet()) {
+			final Path restoreFilePath = new Path(destination, entry.getKey().toString());
+			final StreamStateHandle remoteFileHandle = entry.getValue();
+			downloads.put(
+				entry.getKey(),
+				() -> {
+					downloadDataForStateHandle(restoreFilePath, remoteFileHandle, closeableRegistry);
+					return null;
+				});
+		}
+
+		// the restore cleans up the directory if it fails
+		transfer(downloads, numberOfTransferingThreads, null);
+	}
+
+	/**
+	 * Runs the given transfers with at most the given number of threads and waits for all of them. If a
+	 * transfer fails or the calling thread is interrupted, the transfers that did not start yet are
+	 * skipped and the running ones are interrupted. Once none of them is running anymore, the results of
+	 * the completed transfers are discarded and the failure is rethrown.
+	 *
+	 * @param resultDiscarder discards the result of a completed transfer on failure, or null.
+	 */
+	private static <T> Map<StateHandleID, T> transfer(
+			Map<StateHandleID, Callable<T>> transfers,
+			int numberOfTransferingThreads,
+			@Nullable ThrowingConsumer<T> resultDiscarder) throws Exception {
+
+		final Map<StateHandleID, T> results = new HashMap<>(transfers.size());
+
+		if (numberOfTransferingThreads <= 1 || transfers.size() <= 1) {
+			try {
+				for (Map.Entry<StateHandleID, Callable<T>> entry : transfers.entrySet()) {
+					results.put(entry.getKey(), entry.getValue().call());
+				}
+				return results;
+			} catch (Throwable t) {
+				discardResults(results.values(), resultDiscarder, t);
+				throw t;
+			}
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(
+			Math.min(numberOfTransferingThreads, transfers.size()),
+			new ExecutorThreadFactory("Flink-RocksDB-state-transfer"));
+
+		final Map<StateHandleID, Future<T>> futures = new HashMap<>(transfers.size());
+
+		try {
+			for (Map.Entry<StateHandleID, Callable<T>> entry : transfers.entrySet()) {
+				futures.put(entry.getKey(), executorService.submit(entry.getValue()));
+			}
+
+			for (Map.Entry<StateHandleID, Future<T>> entry : futures.entrySet()) {
+				try {
+					results.put(entry.getKey(), entry.getValue().get());
+				} catch (ExecutionException e) {
+					ExceptionUtils.rethrowException(e.getCause(), "Could not transfer state file " + entry.getKey() + '.');
+				}
+			}
+			return results;
+		} catch (Throwable t) {
+			// the futures are not canceled, because a canceled future drops the result of a transfer,
+			// which is still running, and the result could not be discarded anymore
+			executorService.shutdownNow();
+			awaitTerminationUninterruptibly(executorService);
+
+			for (Map.Entry<StateHandleID, Future<T>> entry : futures.entrySet()) {
+				final Future<T> future = entry.getValue();
+				if (!results.containsKey(entry.getKey()) && future.isDone()) {
+					try {
+						results.put(entry.getKey(), future.get());
+					} catch (ExecutionException ignored) {
+						// the transfer failed and has nothing to discard
+					}
+				}
+			}
+
+			discardResults(results.values(), resultDiscarder, t);
+			throw t;
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static void awaitTerminationUninterruptibly(ExecutorService executorService) {
+		boolean interrupted = false;
+
+		while (true) {
+			try {
+				if (executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+					break;
+				}
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static <T> void discardResults(
+			Collection<T> results,
+			@Nullable ThrowingConsumer<T> resultDiscarder,
+			Throwable cause) {
+
+		if (resultDiscarder != null) {
+			try {
+				LambdaUtil.applyToAllWhileSuppressingExceptions(results, resultDiscarder);
+			} catch (Exception e) {
+				cause.addSuppressed(e);
+			}
+		}
+	}
+
+	private static StreamStateHandle uploadLocalFileToCheckpointFs(
+			Path filePath,
+			CheckpointStreamFactory checkpointStreamFactory,
+			long checkpointId,
+			long checkpointTimestamp,
+			CloseableRegistry closeableRegistry) throws Exception {
+
+		FSDataInputStream inputStream = null;
+		CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
+
+		try {
+			final byte[] buffer = new byte[BUFFER_SIZE];
+
+			inputStream = filePath.getFileSystem().open(filePath);
+			closeableRegistry.registerCloseable(inputStream);
+
+			outputStream = checkpointStreamFactory
+				.createCheckpointStateOutputStream(checkpointId, checkpointTimestamp);
+			closeableRegistry.registerCloseable(outputStream);
+
+			while (true) {
+				int numBytes = inputStream.read(buffer);
+
+				if (numBytes == -1) {
+					break;
+				}
+
+				outputStream.write(buffer, 0, numBytes);
+			}
+
+			StreamStateHandle result = null;
+			if (closeableRegistry.unregisterCloseable(outputStream)) {
+				result = outputStream.closeAndGetHandle();
+				outputStream = null;
+			}
+			return result;
+
+		} finally {
+			if (inputStream != null && closeableRegistry.unregisterCloseable(inputStream)) {
+				inputStream.close();
+			}
+
+			if (outputStream != null && closeableRegistry.unregisterCloseable(outputStream)) {
+				outputStream.close();
+			}
+		}
+	}
+
+	private static void downloadDataForStateHandle(
+			Path restoreFilePath,
+			StreamStateHandle remoteFileHandle,
+			CloseableRegistry closeableRegistry) throws IOException {
+
+		FileSystem restoreFileSystem = restoreFilePath.getFileSystem();
+
+		FSDataInputStream inputStream = null;
+		FSDataOutputStream outputStream = null;
+
+		try {
+			inputStream = remoteFileHandle.openInputStream();
+			closeableRegistry.registerCloseable(inputStream);
+
+			outputStream = restoreFileSystem.create(restoreFilePath, FileSystem.WriteMode.OVERWRITE);
+			closeableRegistry.registerCloseable(outputStream);
+
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while (true) {
+				int numBytes = inputStream.read(buffer);
+				if (numBytes == -1) {
+					break;
+				}
+
+				outputStream.write(buffer, 0, numBytes);
+			}
+		} finally {
+			if (inputStream != null && closeableRegistry.unregisterCloseable(inputStream)) {
+				inputStream.close();
+			}
+
+			if (outputStream != null && closeableRegistry.unregisterCloseable(outputStream)) {
+				outputStream.close();
+			}
+		}
+	}
+}
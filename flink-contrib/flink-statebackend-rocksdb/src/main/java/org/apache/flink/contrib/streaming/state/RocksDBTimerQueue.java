@@ -0,0 +1,345 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRange;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.WriteOptions;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * A queue of timers of one time domain, which is stored in a column family of a {@link RocksDBKeyedStateBackend}.
+ *
+ * <p>The timers are stored under keys of the form {@code <key-group><timestamp><key><namespace>} with empty values.
+ * The key-group prefix lets the timers take part in the snapshots and in the rescaling of the backend like any other
+ * keyed state, and the timestamp is written such that the timers of each key-group are sorted by time.
+ *
+ * <p>The queue caches the earliest timers of each key-group on the heap and orders the key-groups by their earliest
+ * timer in an indexed binary heap. The earliest timer is thus found without accessing RocksDB, and the cache of a
+ * key-group is only reloaded from RocksDB once all its cached timers have been removed.
+ */
+final class RocksDBTimerQueue {
+
+	/** The number of timers that are cached on the heap, over all key-groups. */
+	private static final int TOTAL_CACHE_CAPACITY = 16 * 1024;
+
+	/** The maximum number of timers that are cached per key-group. */
+	private static final int MAX_CACHE_CAPACITY_PER_KEY_GROUP = 128;
+
+	private static final byte[] EMPTY_VALUE = new byte[0];
+
+	/** Orders byte arrays like the default comparator of RocksDB. */
+	private static final Comparator<byte[]> LEXICOGRAPHIC_ORDER = (a, b) -> {
+		final int length = Math.min(a.length, b.length);
+		for (int i = 0; i < length; i++) {
+			int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return a.length - b.length;
+	};
+
+	private final RocksDBKeyedStateBackend<?> backend;
+
+	private final ColumnFamilyHandle columnFamily;
+
+	/** The write options of the backend, which disable writes to the write-ahead-log. */
+	private final WriteOptions writeOptions;
+
+	private final int keyGroupPrefixBytes;
+
+	/** The offset to the contiguous key-groups. */
+	private final int keyGroupOffset;
+
+	/** The maximum number of cached timers per key-group. */
+	private final int cacheCapacity;
+
+	/**
+	 * The earliest timers of each key-group, indexed by key-group position. The cache of a key-group is only empty
+	 * if the key-group has no timers.
+	 */
+	private final TreeSet<byte[]>[] caches;
+
+	/** Whether the cache of a key-group holds all timers of the key-group, indexed by key-group position. */
+	private final boolean[] completelyCached;
+
+	/** The key-group positions, ordered by the timestamp of their earliest timer as a binary min-heap. */
+	private final int[] keyGroupHeap;
+
+	/** The index of each key-group position in {@link #keyGroupHeap}. */
+	private final int[] heapIndexes;
+
+	@SuppressWarnings("unchecked")
+	RocksDBTimerQueue(RocksDBKeyedStateBackend<?> backend, ColumnFamilyHandle columnFamily) {
+		this.backend = backend;
+		this.columnFamily = columnFamily;
+		this.writeOptions = backend.getWriteOptions();
+		this.keyGroupPrefixBytes = backend.getKeyGroupPrefixBytes();
+
+		final KeyGroupRange keyGroupRange = backend.getKeyGroupRange();
+		final int numberOfKeyGroups = keyGroupRange.getNumberOfKeyGroups();
+		this.keyGroupOffset = keyGroupRange.getStartKeyGroup();
+		this.cacheCapacity = Math.max(1, Math.min(MAX_CACHE_CAPACITY_PER_KEY_GROUP, TOTAL_CACHE_CAPACITY / numberOfKeyGroups));
+
+		this.caches = (TreeSet<byte[]>[]) new TreeSet[numberOfKeyGroups];
+		this.completelyCached = new boolean[numberOfKeyGroups];
+		this.keyGroupHeap = new int[numberOfKeyGroups];
+		this.heapIndexes = new int[numberOfKeyGroups];
+
+		// load the timers that were restored with the backend
+		for (int pos = 0; pos < numberOfKeyGroups; pos++) {
+			caches[pos] = new TreeSet<>(LEXICOGRAPHIC_ORDER);
+			loadCache(pos);
+
+			keyGroupHeap[pos] = pos;
+			heapIndexes[pos] = pos;
+		}
+
+		for (int i = numberOfKeyGroups / 2 - 1; i >= 0; i--) {
+			siftDown(i);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Adds the given timer of the given key-group. Adding a timer that is already in the queue has no effect.
+	 */
+	void add(int keyGroup, byte[] timer) throws RocksDBException {
+		backend.db.put(columnFamily, writeOptions, timer, EMPTY_VALUE);
+
+		final int pos = keyGroup - keyGroupOffset;
+		final TreeSet<byte[]> cache = caches[pos];
+
+		// the cache holds the earliest timers, so later timers are only cached if the cache holds all timers
+		if (completelyCached[pos] || LEXICOGRAPHIC_ORDER.compare(timer, cache.last()) < 0) {
+			final boolean isNewHead = cache.isEmpty() || LEXICOGRAPHIC_ORDER.compare(timer, cache.first()) < 0;
+
+			if (cache.add(timer) && cache.size() > cacheCapacity) {
+				cache.pollLast();
+				completelyCached[pos] = false;
+			}
+
+			if (isNewHead) {
+				siftUp(heapIndexes[pos]);
+			}
+		}
+	}
+
+	/**
+	 * Removes the given timer of the given key-group, if it is in the queue.
+	 */
+	void remove(int keyGroup, byte[] timer) throws RocksDBException {
+		backend.db.remove(columnFamily, writeOptions, timer);
+
+		final int pos = keyGroup - keyGroupOffset;
+		final TreeSet<byte[]> cache = caches[pos];
+
+		if (!cache.isEmpty()) {
+			final boolean isHead = LEXICOGRAPHIC_ORDER.compare(timer, cache.first()) == 0;
+
+			if (cache.remove(timer)) {
+				if (cache.isEmpty() && !completelyCached[pos]) {
+					loadCache(pos);
+				}
+
+				if (isHead) {
+					siftDown(heapIndexes[pos]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the earliest timer, or null if the queue is empty.
+	 */
+	byte[] peek() {
+		final TreeSet<byte[]> cache = caches[keyGroupHeap[0]];
+		return cache.isEmpty() ? null : cache.first();
+	}
+
+	/**
+	 * Removes and returns the earliest timer, or null if the queue is empty.
+	 */
+	byte[] poll() throws RocksDBException {
+		final int pos = keyGroupHeap[0];
+		final TreeSet<byte[]> cache = caches[pos];
+		if (cache.isEmpty()) {
+			return null;
+		}
+
+		final byte[] head = cache.first();
+		remove(pos + keyGroupOffset, head);
+		return head;
+	}
+
+	/**
+	 * Returns the timestamp of the earliest timer, or {@link Long#MAX_VALUE} if the queue is empty.
+	 */
+	long peekTimestamp() {
+		return headTimestamp(keyGroupHeap[0]);
+	}
+
+	/**
+	 * Returns the number of timers in the queue. This iterates over all timers in RocksDB.
+	 */
+	int size() {
+		int count = 0;
+		try (RocksIterator iterator = backend.db.newIterator(columnFamily)) {
+			for (iterator.seekToFirst(); iterator.isValid(); iterator.next()) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Loads the earliest timers of the key-group at the given position into its empty cache.
+	 */
+	private void loadCache(int pos) {
+		final TreeSet<byte[]> cache = caches[pos];
+		final byte[] prefix = new byte[keyGroupPrefixBytes];
+		writeKeyGroup(pos + keyGroupOffset, prefix);
+
+		try (RocksIterator iterator = backend.db.newIterator(columnFamily)) {
+			iterator.seek(prefix);
+			while (cache.size() < cacheCapacity && isInKeyGroup(iterator, prefix)) {
+				cache.add(iterator.key());
+				iterator.next();
+			}
+			completelyCached[pos] = !isInKeyGroup(iterator, prefix);
+		}
+	}
+
+	private boolean isInKeyGroup(RocksIterator iterator, byte[] prefix) {
+		if (!iterator.isValid()) {
+			return false;
+		}
+
+		final byte[] key = iterator.key();
+		for (int i = 0; i < prefix.length; i++) {
+			if (key[i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long headTimestamp(int pos) {
+		final TreeSet<byte[]> cache = caches[pos];
+		return cache.isEmpty() ? Long.MAX_VALUE : readTimestamp(cache.first(), keyGroupPrefixBytes);
+	}
+
+	private void siftUp(int index) {
+		final int pos = keyGroupHeap[index];
+		final long timestamp = headTimestamp(pos);
+
+		while (index > 0) {
+			int parentIndex = (index - 1) >>> 1;
+			int parentPos = keyGroupHeap[parentIndex];
+			if (headTimestamp(parentPos) <= timestamp) {
+				break;
+			}
+			moveInHeap(parentPos, index);
+			index = parentIndex;
+		}
+		moveInHeap(pos, index);
+	}
+
+	private void siftDown(int index) {
+		final int pos = keyGroupHeap[index];
+		final long timestamp = headTimestamp(pos);
+		final int size = keyGroupHeap.length;
+
+		while (true) {
+			int childIndex = (index << 1) + 1;
+			if (childIndex >= size) {
+				break;
+			}
+
+			long childTimestamp = headTimestamp(keyGroupHeap[childIndex]);
+			if (childIndex + 1 < size) {
+				long rightTimestamp = headTimestamp(keyGroupHeap[childIndex + 1]);
+				if (rightTimestamp < childTimestamp) {
+					++childIndex;
+					childTimestamp = rightTimestamp;
+				}
+			}
+
+			if (timestamp <= childTimestamp) {
+				break;
+			}
+			moveInHeap(keyGroupHeap[childIndex], index);
+			index = childIndex;
+		}
+		moveInHeap(pos, index);
+	}
+
+	private void moveInHeap(int pos, int index) {
+		keyGroupHeap[index] = pos;
+		heapIndexes[pos] = index;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Timer layout
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Writes the key-group and timestamp prefix of a timer. The sign bit of the timestamp is flipped, so that the
+	 * byte-wise order of the timers is the order of their timestamps.
+	 */
+	static void writeKeyGroupAndTimestamp(
+			int keyGroup,
+			long timestamp,
+			int keyGroupPrefixBytes,
+			DataOutputView out) throws IOException {
+
+		for (int i = keyGroupPrefixBytes; --i >= 0;) {
+			out.writeByte(keyGroup >>> (i << 3));
+		}
+		out.writeLong(timestamp ^ Long.MIN_VALUE);
+	}
+
+	/**
+	 * Reads the timestamp of the given timer.
+	 */
+	static long readTimestamp(byte[] timer, int keyGroupPrefixBytes) {
+		long value = 0L;
+		for (int i = keyGroupPrefixBytes; i < keyGroupPrefixBytes + Long.BYTES; i++) {
+			value = (value << 8) | (timer[i] & 0xFF);
+		}
+		return value ^ Long.MIN_VALUE;
+	}
+
+	private void writeKeyGroup(int keyGroup, byte[] prefix) {
+		for (int i = 0; i < prefix.length; i++) {
+			prefix[i] = (byte) (keyGroup >>> ((prefix.length - 1 - i) << 3));
+		}
+	}
+}
@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A bounded cache of deserialized state values in front of RocksDB, shared by the value, reducing and aggregating
+ * states of one {@link RocksDBKeyedStateBackend}. Reads of cached values and all writes are absorbed by the cache,
+ * so that repeated accesses to hot keys neither cross JNI nor (de)serialize the values.
+ *
+ * <p>Values are keyed by their column family and their serialized key and namespace. A cached value can be null,
+ * which means that RocksDB holds no value for the key. Written values are marked as dirty and are written back to
+ * RocksDB, in a {@link WriteBatch}, when they are evicted and when the cache is flushed. The cache must be flushed
+ * before RocksDB is read by anything other than the cached states, most importantly before snapshots.
+ *
+ * <p>The least recently used values are evicted when the cache is full. To write evicted values in batches, a
+ * fraction of the cache is evicted at once.
+ *
+ * <p>The cached objects are owned by the cache. The states must copy values that they hand out to, or receive from,
+ * user code. The cache is not thread-safe and must only be accessed by the task thread.
+ */
+final class RocksDBWriteBackCache {
+
+	/** The fraction of the cache that is evicted at once. */
+	private static final int EVICTION_FRACTION = 16;
+
+	private final RocksDBKeyedStateBackend<?> backend;
+
+	private final int maxSize;
+
+	private final int evictionBatchSize;
+
+	/** The cached values in the order of their last access. */
+	private final LinkedHashMap<CacheKey, CacheEntry> entries;
+
+	/** We disable writes to the write-ahead-log, like the states. */
+	private final WriteOptions writeOptions;
+
+	private final ByteArrayOutputStreamWithPos valueSerializationStream;
+
+	private final DataOutputViewStreamWrapper valueSerializationView;
+
+	RocksDBWriteBackCache(RocksDBKeyedStateBackend<?> backend, int maxSize) {
+		checkArgument(maxSize > 0, "The size of the write-back cache must be positive.");
+
+		this.backend = backend;
+		this.maxSize = maxSize;
+		this.evictionBatchSize = Math.max(1, maxSize / EVICTION_FRACTION);
+		this.entries = new LinkedHashMap<>(16, 0.75f, true);
+		this.writeOptions = new WriteOptions().setDisableWAL(true);
+		this.valueSerializationStream = new ByteArrayOutputStreamWithPos(128);
+		this.valueSerializationView = new DataOutputViewStreamWrapper(valueSerializationStream);
+	}
+
+	/**
+	 * Returns the cache entry of the given key, or null if the key is not cached.
+	 */
+	@Nullable
+	CacheEntry get(ColumnFamilyHandle columnFamily, byte[] key) {
+		return entries.get(new CacheKey(columnFamily, key));
+	}
+
+	/**
+	 * Caches the given value of the given key, which may be null if RocksDB should hold no value for the key.
+	 *
+	 * @param state The state that the key belongs to, which serializes the value when it is written back.
+	 * @param key The serialized key and namespace, which must not be modified afterwards.
+	 * @param value The value, which must not be modified by anyone else afterwards.
+	 * @param dirty True, if the value differs from the one in RocksDB and must be written back.
+	 */
+	<V> void put(
+			AbstractRocksDBState<?, ?, ?, ?, V> state,
+			byte[] key,
+			@Nullable V value,
+			boolean dirty) throws RocksDBException, IOException {
+		CacheKey cacheKey = new CacheKey(state.columnFamily, key);
+		CacheEntry entry = entries.get(cacheKey);
+
+		if (entry == null) {
+			if (entries.size() >= maxSize) {
+				evict();
+			}
+			entries.put(cacheKey, new CacheEntry(state, value, dirty));
+		} else {
+			entry.value = value;
+			entry.dirty |= dirty;
+		}
+	}
+
+	/**
+	 * Writes all dirty values back to RocksDB. The values stay cached.
+	 */
+	void flush() throws RocksDBException, IOException {
+		try (WriteBatch writeBatch = new WriteBatch()) {
+			for (Map.Entry<CacheKey, CacheEntry> entry : entries.entrySet()) {
+				CacheEntry cacheEntry = entry.getValue();
+				if (cacheEntry.dirty) {
+					addToBatch(writeBatch, entry.getKey(), cacheEntry);
+					cacheEntry.dirty = false;
+				}
+			}
+			writeBatch(writeBatch);
+		}
+	}
+
+	/**
+	 * Drops all cached values, without writing them back.
+	 */
+	void clear() {
+		entries.clear();
+	}
+
+	void dispose() {
+		entries.clear();
+		writeOptions.close();
+	}
+
+	@VisibleForTesting
+	int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Evicts the least recently used values and writes the dirty ones back to RocksDB.
+	 */
+	private void evict() throws RocksDBException, IOException {
+		try (WriteBatch writeBatch = new WriteBatch()) {
+			Iterator<Map.Entry<CacheKey, CacheEntry>> iterator = entries.entrySet().iterator();
+			for (int i = 0; i < evictionBatchSize && iterator.hasNext(); i++) {
+				Map.Entry<CacheKey, CacheEntry> entry = iterator.next();
+				if (entry.getValue().dirty) {
+					addToBatch(writeBatch, entry.getKey(), entry.getValue());
+				}
+				iterator.remove();
+			}
+			writeBatch(writeBatch);
+		}
+	}
+
+	private void addToBatch(WriteBatch writeBatch, CacheKey cacheKey, CacheEntry entry) throws IOException {
+		if (entry.value == null) {
+			writeBatch.remove(cacheKey.columnFamily, cacheKey.key);
+		} else {
+			valueSerializationStream.reset();
+			entry.serializeValue(valueSerializationView);
+			writeBatch.put(cacheKey.columnFamily, cacheKey.key, valueSerializationStream.toByteArray());
+		}
+	}
+
+	private void writeBatch(WriteBatch writeBatch) throws RocksDBException {
+		if (writeBatch.count() > 0) {
+			backend.db.write(writeOptions, writeBatch);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A cached value.
+	 */
+	static final class CacheEntry {
+
+		private final AbstractRocksDBState<?, ?, ?, ?, ?> state;
+
+		@Nullable
+		private Object value;
+
+		private boolean dirty;
+
+		CacheEntry(AbstractRocksDBState<?, ?, ?, ?, ?> state, @Nullable Object value, boolean dirty) {
+			this.state = state;
+			this.value = value;
+			this.dirty = dirty;
+		}
+
+		/**
+		 * Returns the cached value, or null if RocksDB holds no value for the key.
+		 */
+		@Nullable
+		Object getValue() {
+			return value;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void serializeValue(DataOutputViewStreamWrapper out) throws IOException {
+			((TypeSerializer<Object>) state.getValueSerializer()).serialize(value, out);
+		}
+	}
+
+	/**
+	 * The key of a cached value, which compares the column family by identity and the serialized key by content.
+	 */
+	private static final class CacheKey {
+
+		private final ColumnFamilyHandle columnFamily;
+
+		private final byte[] key;
+
+		private final int hashCode;
+
+		CacheKey(ColumnFamilyHandle columnFamily, byte[] key) {
+			this.columnFamily = columnFamily;
+			this.key = key;
+			this.hashCode = 31 * System.identityHashCode(columnFamily) + Arrays.hashCode(key);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			CacheKey that = (CacheKey) o;
+			return columnFamily == that.columnFamily && Arrays.equals(key, that.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
@@ -0,0 +1,428 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.streaming.api.operators.HeapInternalTimerService;
+import org.apache.flink.streaming.api.operators.InternalTimer;
+import org.apache.flink.streaming.api.operators.KeyContext;
+import org.apache.flink.streaming.api.operators.ManagedInternalTimerService;
+import org.apache.flink.streaming.api.operators.Triggerable;
+import org.apache.flink.streaming.runtime.tasks.TestProcessingTimeService;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for {@link RocksDBInternalTimerService}.
+ */
+@RunWith(Parameterized.class)
+public class RocksDBInternalTimerServiceTest extends TestLogger {
+
+	private static final int MAX_PARALLELISM = 128;
+
+	@Parameterized.Parameters(name = "Incremental checkpointing: {0}")
+	public static Collection<Boolean> parameters() {
+		return Arrays.asList(false, true);
+	}
+
+	@Parameterized.Parameter
+	public boolean enableIncrementalCheckpointing;
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private final List<RocksDBKeyedStateBackend<Integer>> backends = new ArrayList<>();
+
+	@After
+	public void disposeBackends() {
+		for (RocksDBKeyedStateBackend<Integer> backend : backends) {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testFiresEventTimeTimersInOrder() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(new KeyGroupRange(0, MAX_PARALLELISM - 1), null);
+		TestKeyContext keyContext = new TestKeyContext(backend);
+		RecordingTriggerable triggerable = new RecordingTriggerable(keyContext);
+		ManagedInternalTimerService<Integer, String> timerService =
+			createTimerService(backend, keyContext, new TestProcessingTimeService(), triggerable);
+
+		// more timers per key-group than are cached, registered in random order and with duplicates
+		Random random = new Random(42L);
+		PriorityQueue<Long> expectedTimestamps = new PriorityQueue<>();
+		for (int i = 0; i < 2000; i++) {
+			int key = random.nextInt(20);
+			long timestamp = random.nextInt(10000) - 5000;
+
+			keyContext.setCurrentKey(key);
+			timerService.registerEventTimeTimer("ns", timestamp);
+			timerService.registerEventTimeTimer("ns", timestamp);
+			expectedTimestamps.add(timestamp);
+		}
+
+		// delete some timers
+		for (int i = 0; i < 500; i++) {
+			int key = random.nextInt(20);
+			long timestamp = random.nextInt(10000) - 5000;
+
+			keyContext.setCurrentKey(key);
+			timerService.registerEventTimeTimer("ns", timestamp);
+			timerService.deleteEventTimeTimer("ns", timestamp);
+		}
+
+		int numTimers = timerService.numEventTimeTimers();
+		assertTrue(numTimers > 0 && numTimers <= expectedTimestamps.size());
+
+		timerService.advanceWatermark(0L);
+		timerService.advanceWatermark(Long.MAX_VALUE);
+
+		assertEquals(numTimers, triggerable.eventTimeTimers.size());
+		assertEquals(0, timerService.numEventTimeTimers());
+
+		long lastTimestamp = Long.MIN_VALUE;
+		for (InternalTimer<Integer, String> timer : triggerable.eventTimeTimers) {
+			assertTrue(timer.getTimestamp() >= lastTimestamp);
+			lastTimestamp = timer.getTimestamp();
+		}
+	}
+
+	@Test
+	public void testRegisterAndDeleteInTrigger() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(new KeyGroupRange(0, MAX_PARALLELISM - 1), null);
+		TestKeyContext keyContext = new TestKeyContext(backend);
+		List<Long> firedTimestamps = new ArrayList<>();
+
+		@SuppressWarnings("unchecked")
+		ManagedInternalTimerService<Integer, String>[] service = new ManagedInternalTimerService[1];
+		service[0] = createTimerService(backend, keyContext, new TestProcessingTimeService(), new Triggerable<Integer, String>() {
+			@Override
+			public void onEventTime(InternalTimer<Integer, String> timer) {
+				firedTimestamps.add(timer.getTimestamp());
+				assertEquals(timer.getKey(), keyContext.getCurrentKey());
+
+				// re-register the timer later and delete a timer of the same key
+				if (timer.getTimestamp() < 30L) {
+					service[0].registerEventTimeTimer(timer.getNamespace(), timer.getTimestamp() + 10L);
+				}
+				service[0].deleteEventTimeTimer(timer.getNamespace(), 100L);
+			}
+
+			@Override
+			public void onProcessingTime(InternalTimer<Integer, String> timer) {
+				throw new UnsupportedOperationException();
+			}
+		});
+
+		keyContext.setCurrentKey(1);
+		service[0].registerEventTimeTimer("ns", 10L);
+		service[0].registerEventTimeTimer("ns", 100L);
+
+		service[0].advanceWatermark(1000L);
+
+		assertEquals(Arrays.asList(10L, 20L, 30L), firedTimestamps);
+		assertEquals(0, service[0].numEventTimeTimers());
+	}
+
+	@Test
+	public void testProcessingTimeTimers() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(new KeyGroupRange(0, MAX_PARALLELISM - 1), null);
+		TestKeyContext keyContext = new TestKeyContext(backend);
+		TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+		RecordingTriggerable triggerable = new RecordingTriggerable(keyContext);
+		ManagedInternalTimerService<Integer, String> timerService =
+			createTimerService(backend, keyContext, processingTimeService, triggerable);
+
+		keyContext.setCurrentKey(1);
+		timerService.registerProcessingTimeTimer("ns", 20L);
+		keyContext.setCurrentKey(2);
+		timerService.registerProcessingTimeTimer("ns", 20L);
+		timerService.registerProcessingTimeTimer("ns", 10L);
+		keyContext.setCurrentKey(3);
+		timerService.registerProcessingTimeTimer("ns", 30L);
+
+		// only the earliest timer is scheduled
+		assertEquals(1, processingTimeService.getNumActiveTimers());
+		assertEquals(Collections.singleton(10L), processingTimeService.getActiveTimerTimestamps());
+
+		processingTimeService.setCurrentTime(20L);
+
+		assertEquals(3, triggerable.processingTimeTimers.size());
+		assertEquals(1, timerService.numProcessingTimeTimers());
+		assertEquals(Collections.singleton(30L), processingTimeService.getActiveTimerTimestamps());
+	}
+
+	@Test
+	public void testSnapshotAndRescalingRestore() throws Exception {
+		KeyGroupRange keyGroupRange = new KeyGroupRange(0, MAX_PARALLELISM - 1);
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(keyGroupRange, null);
+		TestKeyContext keyContext = new TestKeyContext(backend);
+		ManagedInternalTimerService<Integer, String> timerService = createTimerService(
+			backend, keyContext, new TestProcessingTimeService(), new RecordingTriggerable(keyContext));
+
+		int numKeys = 100;
+		for (int key = 0; key < numKeys; key++) {
+			keyContext.setCurrentKey(key);
+			timerService.registerEventTimeTimer("event", key);
+			timerService.registerProcessingTimeTimer("processing", key);
+		}
+
+		CheckpointStreamFactory streamFactory = getStateBackend().createStreamFactory(new JobID(), "test_op");
+		RunnableFuture<KeyedStateHandle> snapshot =
+			backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpoint());
+		snapshot.run();
+		KeyedStateHandle stateHandle = snapshot.get();
+
+		// timers registered after the snapshot are not restored
+		keyContext.setCurrentKey(0);
+		timerService.registerEventTimeTimer("event", -1L);
+
+		KeyGroupRange[] restoredRanges = {
+			new KeyGroupRange(0, MAX_PARALLELISM / 2 - 1),
+			new KeyGroupRange(MAX_PARALLELISM / 2, MAX_PARALLELISM - 1)
+		};
+
+		int numRestoredTimers = 0;
+		for (KeyGroupRange restoredRange : restoredRanges) {
+			RocksDBKeyedStateBackend<Integer> restoredBackend =
+				createBackend(restoredRange, stateHandle.getIntersection(restoredRange));
+			TestKeyContext restoredKeyContext = new TestKeyContext(restoredBackend);
+			RecordingTriggerable triggerable = new RecordingTriggerable(restoredKeyContext);
+			TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+			ManagedInternalTimerService<Integer, String> restoredTimerService =
+				createTimerService(restoredBackend, restoredKeyContext, processingTimeService, triggerable);
+
+			restoredTimerService.advanceWatermark(numKeys);
+			processingTimeService.setCurrentTime(numKeys);
+
+			assertEquals(triggerable.eventTimeTimers.size(), triggerable.processingTimeTimers.size());
+			for (InternalTimer<Integer, String> timer : triggerable.eventTimeTimers) {
+				assertEquals((long) timer.getKey(), timer.getTimestamp());
+				assertTrue(restoredRange.contains(
+					KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), MAX_PARALLELISM)));
+			}
+			numRestoredTimers += triggerable.eventTimeTimers.size();
+		}
+
+		assertEquals(numKeys, numRestoredTimers);
+	}
+
+	@Test
+	public void testRestoreTimersOfHeapTimerService() throws Exception {
+		KeyGroupRange keyGroupRange = new KeyGroupRange(0, MAX_PARALLELISM - 1);
+		TestKeyContext heapKeyContext = new TestKeyContext(null);
+		HeapInternalTimerService<Integer, String> heapTimerService = new HeapInternalTimerService<>(
+			MAX_PARALLELISM, keyGroupRange, heapKeyContext, new TestProcessingTimeService());
+		heapTimerService.startTimerService(
+			IntSerializer.INSTANCE, StringSerializer.INSTANCE, new RecordingTriggerable(heapKeyContext));
+
+		int numKeys = 50;
+		for (int key = 0; key < numKeys; key++) {
+			heapKeyContext.setCurrentKey(key);
+			heapTimerService.registerEventTimeTimer("event", key);
+		}
+
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(keyGroupRange, null);
+		TestKeyContext keyContext = new TestKeyContext(backend);
+		RocksDBInternalTimerService<Integer, String> timerService = new RocksDBInternalTimerService<>(
+			"test-timers", backend, keyContext, new TestProcessingTimeService());
+
+		for (int keyGroup = 0; keyGroup < MAX_PARALLELISM; keyGroup++) {
+			ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos();
+			heapTimerService.snapshotTimersForKeyGroup(new DataOutputViewStreamWrapper(out), keyGroup);
+			timerService.restoreTimersForKeyGroup(
+				new DataInputViewStreamWrapper(new ByteArrayInputStream(out.getBuf(), 0, out.getPosition())),
+				keyGroup,
+				getClass().getClassLoader());
+		}
+
+		RecordingTriggerable triggerable = new RecordingTriggerable(keyContext);
+		timerService.startTimerService(IntSerializer.INSTANCE, StringSerializer.INSTANCE, triggerable);
+		assertEquals(numKeys, timerService.numEventTimeTimers());
+
+		timerService.advanceWatermark(numKeys);
+		assertEquals(numKeys, triggerable.eventTimeTimers.size());
+	}
+
+	/**
+	 * Tests that the timer section of a key-group is empty, because the timers are part of the snapshots of the
+	 * backend, and that it can be restored by the heap timer service.
+	 */
+	@Test
+	public void testSnapshotTimersForKeyGroupWritesEmptySection() throws Exception {
+		KeyGroupRange keyGroupRange = new KeyGroupRange(0, MAX_PARALLELISM - 1);
+		RocksDBKeyedStateBackend<Integer> backend = createBackend(keyGroupRange, null);
+		TestKeyContext keyContext = new TestKeyContext(backend);
+		RocksDBInternalTimerService<Integer, String> timerService = new RocksDBInternalTimerService<>(
+			"test-timers", backend, keyContext, new TestProcessingTimeService());
+		timerService.startTimerService(
+			IntSerializer.INSTANCE, StringSerializer.INSTANCE, new RecordingTriggerable(keyContext));
+
+		keyContext.setCurrentKey(0);
+		timerService.registerEventTimeTimer("event", 1L);
+		timerService.registerProcessingTimeTimer("processing", 1L);
+
+		TestKeyContext heapKeyContext = new TestKeyContext(null);
+		HeapInternalTimerService<Integer, String> heapTimerService = new HeapInternalTimerService<>(
+			MAX_PARALLELISM, keyGroupRange, heapKeyContext, new TestProcessingTimeService());
+
+		for (int keyGroup = 0; keyGroup < MAX_PARALLELISM; keyGroup++) {
+			ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos();
+			timerService.snapshotTimersForKeyGroup(new DataOutputViewStreamWrapper(out), keyGroup);
+			heapTimerService.restoreTimersForKeyGroup(
+				new DataInputViewStreamWrapper(new ByteArrayInputStream(out.getBuf(), 0, out.getPosition())),
+				keyGroup,
+				getClass().getClassLoader());
+		}
+
+		heapTimerService.startTimerService(
+			IntSerializer.INSTANCE, StringSerializer.INSTANCE, new RecordingTriggerable(heapKeyContext));
+		assertEquals(0, heapTimerService.numEventTimeTimers());
+		assertEquals(0, heapTimerService.numProcessingTimeTimers());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private RocksDBStateBackend getStateBackend() throws Exception {
+		String checkpointPath = tempFolder.newFolder().toURI().toString();
+		RocksDBStateBackend backend =
+			new RocksDBStateBackend(new FsStateBackend(checkpointPath), enableIncrementalCheckpointing);
+		backend.setDbStoragePath(tempFolder.newFolder().getAbsolutePath());
+		return backend;
+	}
+
+	private RocksDBKeyedStateBackend<Integer> createBackend(
+			KeyGroupRange keyGroupRange,
+			KeyedStateHandle restoreState) throws Exception {
+
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) getStateBackend().createKeyedStateBackend(
+				new DummyEnvironment("test", 1, 0),
+				new JobID(),
+				"test_op",
+				IntSerializer.INSTANCE,
+				MAX_PARALLELISM,
+				keyGroupRange,
+				mock(TaskKvStateRegistry.class));
+		backends.add(backend);
+
+		backend.restore(restoreState == null ? null : Collections.singletonList(restoreState));
+		return backend;
+	}
+
+	private static ManagedInternalTimerService<Integer, String> createTimerService(
+			RocksDBKeyedStateBackend<Integer> backend,
+			KeyContext keyContext,
+			TestProcessingTimeService processingTimeService,
+			Triggerable<Integer, String> triggerable) {
+
+		ManagedInternalTimerService<Integer, String> timerService = backend.createInternalTimerService(
+			"test-timers",
+			MAX_PARALLELISM,
+			backend.getKeyGroupRange(),
+			keyContext,
+			processingTimeService);
+
+		assertTrue(timerService instanceof RocksDBInternalTimerService);
+		timerService.startTimerService(IntSerializer.INSTANCE, StringSerializer.INSTANCE, triggerable);
+		return timerService;
+	}
+
+	private static class TestKeyContext implements KeyContext {
+
+		private final RocksDBKeyedStateBackend<Integer> backend;
+
+		private Object key;
+
+		TestKeyContext(RocksDBKeyedStateBackend<Integer> backend) {
+			this.backend = backend;
+		}
+
+		@Override
+		public void setCurrentKey(Object key) {
+			this.key = key;
+			if (backend != null) {
+				backend.setCurrentKey((Integer) key);
+			}
+		}
+
+		@Override
+		public Object getCurrentKey() {
+			return key;
+		}
+	}
+
+	private static class RecordingTriggerable implements Triggerable<Integer, String> {
+
+		private final KeyContext keyContext;
+
+		final List<InternalTimer<Integer, String>> eventTimeTimers = new ArrayList<>();
+
+		final List<InternalTimer<Integer, String>> processingTimeTimers = new ArrayList<>();
+
+		RecordingTriggerable(KeyContext keyContext) {
+			this.keyContext = keyContext;
+		}
+
+		@Override
+		public void onEventTime(InternalTimer<Integer, String> timer) {
+			assertEquals(timer.getKey(), keyContext.getCurrentKey());
+			eventTimeTimers.add(timer);
+		}
+
+		@Override
+		public void onProcessingTime(InternalTimer<Integer, String> timer) {
+			assertEquals(timer.getKey(), keyContext.getCurrentKey());
+			processingTimeTimers.add(timer);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.RocksDB;
+import org.rocksdb.TickerType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RocksDBNativeMetricMonitor}.
+ */
+public class RocksDBNativeMetricMonitorTest extends TestLogger {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private DBOptions dbOptions;
+
+	private ColumnFamilyOptions columnFamilyOptions;
+
+	private RocksDB db;
+
+	private ColumnFamilyHandle defaultColumnFamily;
+
+	private ColumnFamilyHandle columnFamily;
+
+	@Before
+	public void openDB() throws Exception {
+		RocksDB.loadLibrary();
+
+		dbOptions = new DBOptions().setCreateIfMissing(true).createStatistics();
+		columnFamilyOptions = new ColumnFamilyOptions();
+
+		List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<>(1);
+		db = RocksDB.open(
+			dbOptions,
+			temporaryFolder.newFolder().getAbsolutePath(),
+			Collections.singletonList(
+				new ColumnFamilyDescriptor(RocksDBKeyedStateBackend.DEFAULT_COLUMN_FAMILY_NAME_BYTES, columnFamilyOptions)),
+			columnFamilyHandles);
+		defaultColumnFamily = columnFamilyHandles.get(0);
+		columnFamily = db.createColumnFamily(
+			new ColumnFamilyDescriptor("state".getBytes(StandardCharsets.UTF_8), columnFamilyOptions));
+	}
+
+	@After
+	public void closeDB() {
+		columnFamily.close();
+		defaultColumnFamily.close();
+		db.close();
+		columnFamilyOptions.close();
+		dbOptions.close();
+	}
+
+	@Test
+	public void testReportsPropertiesPerColumnFamilyAndTickers() throws Exception {
+		RocksDBNativeMetricOptions options = new RocksDBNativeMetricOptions()
+			.enableProperty("rocksdb.num-entries-active-mem-table")
+			.enableTicker(TickerType.BYTES_WRITTEN)
+			.setSamplingInterval(Long.MAX_VALUE);
+		RecordingMetricGroup metricGroup = new RecordingMetricGroup("operator", new HashMap<>());
+
+		try (RocksDBNativeMetricMonitor monitor =
+				new RocksDBNativeMetricMonitor(options, metricGroup, db, dbOptions.statisticsPtr())) {
+
+			monitor.registerColumnFamily("state", columnFamily);
+
+			writeEntries(10);
+			monitor.sample();
+
+			assertEquals(10L, metricGroup.getValue("operator.rocksdb.state.num-entries-active-mem-table"));
+			assertTrue(metricGroup.getValue("operator.rocksdb.bytes_written") > 0L);
+		}
+	}
+
+	@Test
+	public void testDoesNotSampleAfterClose() throws Exception {
+		RocksDBNativeMetricOptions options = new RocksDBNativeMetricOptions()
+			.enableProperty("rocksdb.num-entries-active-mem-table")
+			.setSamplingInterval(Long.MAX_VALUE);
+		RecordingMetricGroup metricGroup = new RecordingMetricGroup("operator", new HashMap<>());
+
+		RocksDBNativeMetricMonitor monitor = new RocksDBNativeMetricMonitor(options, metricGroup, db, null);
+		monitor.registerColumnFamily("state", columnFamily);
+
+		writeEntries(5);
+		monitor.sample();
+		monitor.close();
+
+		writeEntries(10);
+		monitor.sample();
+
+		assertEquals(5L, metricGroup.getValue("operator.rocksdb.state.num-entries-active-mem-table"));
+	}
+
+	@Test
+	public void testRegistersStatesOfKeyedBackend() throws Exception {
+		RocksDBStateBackend backend = new RocksDBStateBackend(temporaryFolder.newFolder().toURI().toString());
+		backend.setNativeMetricOptions(new RocksDBNativeMetricOptions().enableSizeProperties());
+		RecordingMetricGroup metricGroup = new RecordingMetricGroup("operator", new HashMap<>());
+
+		Environment env = RocksDBStateBackendConfigTest.getMockEnvironment();
+		AbstractKeyedStateBackend<Integer> keyedBackend = backend.createKeyedStateBackend(
+			env,
+			env.getJobID(),
+			"test_op",
+			IntSerializer.INSTANCE,
+			1,
+			new KeyGroupRange(0, 0),
+			env.getTaskKvStateRegistry(),
+			metricGroup);
+
+		try {
+			keyedBackend.restore(null);
+			keyedBackend.getPartitionedState(
+				VoidNamespace.INSTANCE,
+				VoidNamespaceSerializer.INSTANCE,
+				new ValueStateDescriptor<>("value", IntSerializer.INSTANCE));
+
+			assertTrue(metricGroup.gauges.containsKey("operator.rocksdb.value.estimate-num-keys"));
+			assertTrue(metricGroup.gauges.containsKey("operator.rocksdb.value.cur-size-all-mem-tables"));
+		} finally {
+			keyedBackend.dispose();
+		}
+	}
+
+	@Test
+	public void testNothingEnabledByDefault() {
+		assertFalse(new RocksDBNativeMetricOptions().isEnabled());
+		assertTrue(new RocksDBNativeMetricOptions().enableSizeProperties().isEnabled());
+		assertTrue(new RocksDBNativeMetricOptions().enableTicker(TickerType.BLOCK_CACHE_MISS).isEnabled());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsUnsupportedProperty() {
+		new RocksDBNativeMetricOptions().enableProperty("rocksdb.stats");
+	}
+
+	private void writeEntries(int count) throws Exception {
+		for (int i = 0; i < count; i++) {
+			byte[] key = ("key-" + i).getBytes(StandardCharsets.UTF_8);
+			db.put(columnFamily, key, key);
+		}
+	}
+
+	/**
+	 * Metric group that records its gauges by their full name.
+	 */
+	private static final class RecordingMetricGroup extends UnregisteredMetricsGroup {
+
+		private final String scope;
+
+		private final Map<String, Gauge<?>> gauges;
+
+		RecordingMetricGroup(String scope, Map<String, Gauge<?>> gauges) {
+			this.scope = scope;
+			this.gauges = gauges;
+		}
+
+		@Override
+		public MetricGroup addGroup(String name) {
+			return new RecordingMetricGroup(scope + '.' + name, gauges);
+		}
+
+		@Override
+		public <T, G extends Gauge<T>> G gauge(String name, G gauge) {
+			gauges.put(scope + '.' + name, gauge);
+			return gauge;
+		}
+
+		long getValue(String name) {
+			return (Long) gauges.get(name).getValue();
+		}
+	}
+}
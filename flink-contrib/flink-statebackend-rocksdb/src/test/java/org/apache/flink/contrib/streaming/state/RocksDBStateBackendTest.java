@@ -22,8 +22,13 @@ import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.api.java.typeutils.runtime.kryo.KryoSerializer;
+import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.testutils.OneShotLatch;
+import org.apache.flink.queryablestate.client.state.serialization.KvStateSerializer;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
@@ -31,6 +36,7 @@ import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateBackendTestBase;
@@ -39,6 +45,7 @@ import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.runtime.state.VoidNamespaceSerializer;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.internal.InternalKvState;
 import org.apache.flink.runtime.util.BlockerCheckpointStreamFactory;
 
 import org.apache.commons.io.FileUtils;
@@ -80,6 +87,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
@@ -244,6 +252,56 @@ public class RocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBa
 		}
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testSerializesCurrentKeyOnceForAllStates() throws Exception {
+		final TypeSerializer<String> keySerializer = spy(new KryoSerializer<>(String.class, new ExecutionConfig()));
+
+		RocksDBKeyedStateBackend<String> backend = new RocksDBKeyedStateBackend<>(
+			"test",
+			Thread.currentThread().getContextClassLoader(),
+			tempFolder.newFolder(),
+			new DBOptions().setCreateIfMissing(true),
+			new ColumnFamilyOptions(),
+			mock(TaskKvStateRegistry.class),
+			keySerializer,
+			10,
+			new KeyGroupRange(0, 9),
+			new ExecutionConfig(),
+			enableIncrementalCheckpointing);
+
+		try {
+			backend.restore(null);
+
+			// both the key and the namespace have a variable length, so the length of the key is written as well
+			List<InternalKvState<String>> states = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				ValueState<String> state = backend.getPartitionedState(
+					"namespace", StringSerializer.INSTANCE, new ValueStateDescriptor<>("state-" + i, StringSerializer.INSTANCE));
+				states.add((InternalKvState<String>) state);
+			}
+
+			for (String key : Arrays.asList("a", "bb")) {
+				backend.setCurrentKey(key);
+				for (InternalKvState<String> state : states) {
+					((ValueState<String>) state).update(key);
+					assertEquals(key, ((ValueState<String>) state).value());
+				}
+				verify(keySerializer, times(1)).serialize(eq(key), any(DataOutputView.class));
+			}
+
+			// states that are accessed by an explicit key find the same entries
+			for (InternalKvState<String> state : states) {
+				byte[] serializedKeyAndNamespace = KvStateSerializer.serializeKeyAndNamespace(
+					"bb", keySerializer, "namespace", StringSerializer.INSTANCE);
+				byte[] serializedValue = state.getSerializedValue(serializedKeyAndNamespace);
+				assertEquals("bb", KvStateSerializer.deserializeValue(serializedValue, StringSerializer.INSTANCE));
+			}
+		} finally {
+			backend.dispose();
+		}
+	}
+
 	@Test
 	public void testReleasingSnapshotAfterBackendClosed() throws Exception {
 		setupRocksKeyedStateBackend();
@@ -403,6 +461,82 @@ public class RocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBa
 		assertEquals(1, allFilesInDbDir.size());
 	}
 
+	@Test
+	public void testRescalingRestore() throws Exception {
+		final int maxParallelism = 128;
+		final int numKeys = 1000;
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, null);
+		kvId.initializeSerializerUnlessSet(new ExecutionConfig());
+
+		KeyGroupRange[] snapshotRanges = {
+			new KeyGroupRange(0, maxParallelism / 2 - 1),
+			new KeyGroupRange(maxParallelism / 2, maxParallelism - 1)
+		};
+
+		List<KeyedStateHandle> snapshots = new ArrayList<>();
+		for (KeyGroupRange snapshotRange : snapshotRanges) {
+			AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(
+				IntSerializer.INSTANCE, maxParallelism, snapshotRange, new DummyEnvironment("test", 1, 0));
+			try {
+				ValueState<String> state =
+					backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+				for (int key = 0; key < numKeys; key++) {
+					if (snapshotRange.contains(KeyGroupRangeAssignment.assignToKeyGroup(key, maxParallelism))) {
+						backend.setCurrentKey(key);
+						state.update("value-" + key);
+					}
+				}
+
+				snapshots.add(runSnapshot(backend.snapshot(
+					1L, 1L, createStreamFactory(), CheckpointOptions.forCheckpoint())));
+			} finally {
+				IOUtils.closeQuietly(backend);
+				backend.dispose();
+			}
+		}
+
+		// restore the merged, a split, and an overlapping key-group range
+		KeyGroupRange[] restoreRanges = {
+			new KeyGroupRange(0, maxParallelism - 1),
+			new KeyGroupRange(0, maxParallelism / 4 - 1),
+			new KeyGroupRange(maxParallelism / 4, maxParallelism * 3 / 4 - 1)
+		};
+
+		for (KeyGroupRange restoreRange : restoreRanges) {
+			List<KeyedStateHandle> restoreSnapshots = new ArrayList<>();
+			for (KeyedStateHandle snapshot : snapshots) {
+				KeyedStateHandle intersection = snapshot.getIntersection(restoreRange);
+				if (intersection != null) {
+					restoreSnapshots.add(intersection);
+				}
+			}
+
+			AbstractKeyedStateBackend<Integer> backend = restoreKeyedBackend(
+				IntSerializer.INSTANCE, maxParallelism, restoreRange, restoreSnapshots, new DummyEnvironment("test", 1, 0));
+			try {
+				ValueState<String> state =
+					backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+				int expectedNumKeys = 0;
+				for (int key = 0; key < numKeys; key++) {
+					if (restoreRange.contains(KeyGroupRangeAssignment.assignToKeyGroup(key, maxParallelism))) {
+						backend.setCurrentKey(key);
+						assertEquals("value-" + key, state.value());
+						expectedNumKeys++;
+					}
+				}
+
+				// the key-groups outside of the range have been removed
+				assertEquals(expectedNumKeys, backend.getKeys("id", VoidNamespace.INSTANCE).count());
+			} finally {
+				IOUtils.closeQuietly(backend);
+				backend.dispose();
+			}
+		}
+	}
+
 	@Test
 	public void testSharedIncrementalStateDeRegistration() throws Exception {
 		if (enableIncrementalCheckpointing) {
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.ReducingState;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.array.IntPrimitiveArraySerializer;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the tests of the {@link RocksDBStateBackendTest} with a small write-back cache, so that values are
+ * frequently evicted, and tests the cache specifically.
+ */
+public class RocksDBStateBackendWithWriteBackCacheTest extends RocksDBStateBackendTest {
+
+	private static final int WRITE_BACK_CACHE_SIZE = 4;
+
+	@Override
+	protected RocksDBStateBackend getStateBackend() throws IOException {
+		RocksDBStateBackend backend = super.getStateBackend();
+		backend.setWriteBackCacheSize(WRITE_BACK_CACHE_SIZE);
+		return backend;
+	}
+
+	@Test
+	@Ignore("Cached values are copied, which the custom Kryo serializer of this test does not support.")
+	@Override
+	public void testKryoRegisteringRestoreResilienceWithDefaultSerializer() {}
+
+	@Test
+	@Ignore("Cached values are copied, which the custom Kryo serializer of this test does not support.")
+	@Override
+	public void testKryoRegisteringRestoreResilienceWithRegisteredSerializer() {}
+
+	@Test
+	@Ignore("The cache is not thread-safe. Queryable states, which are accessed concurrently, are not cached.")
+	@Override
+	public void testValueStateRace() {}
+
+	@Test
+	public void testEvictedValuesAreWrittenBack() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			ReducingState<Integer> state = backend.getPartitionedState(
+				VoidNamespace.INSTANCE,
+				VoidNamespaceSerializer.INSTANCE,
+				new ReducingStateDescriptor<>("sum", (a, b) -> a + b, IntSerializer.INSTANCE));
+
+			for (int round = 0; round < 3; round++) {
+				for (int key = 0; key < 20; key++) {
+					backend.setCurrentKey(key);
+					state.add(key);
+				}
+				assertTrue(backend.getWriteBackCache().size() <= WRITE_BACK_CACHE_SIZE);
+			}
+
+			for (int key = 0; key < 20; key++) {
+				backend.setCurrentKey(key);
+				assertEquals(Integer.valueOf(3 * key), state.get());
+			}
+
+			backend.setCurrentKey(0);
+			state.clear();
+			assertNull(state.get());
+
+			// counting the entries flushes the cache first
+			assertEquals(19, backend.numStateEntries());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testCachedValuesAreNotSharedWithUserCode() throws Exception {
+		RocksDBKeyedStateBackend<Integer> backend =
+			(RocksDBKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			ValueState<int[]> state = backend.getPartitionedState(
+				VoidNamespace.INSTANCE,
+				VoidNamespaceSerializer.INSTANCE,
+				new ValueStateDescriptor<>("array", IntPrimitiveArraySerializer.INSTANCE));
+
+			backend.setCurrentKey(1);
+
+			int[] value = {1, 2, 3};
+			state.update(value);
+			value[0] = 42;
+			assertArrayEquals(new int[] {1, 2, 3}, state.value());
+
+			state.value()[1] = 42;
+			assertArrayEquals(new int[] {1, 2, 3}, state.value());
+		} finally {
+			backend.dispose();
+		}
+	}
+}
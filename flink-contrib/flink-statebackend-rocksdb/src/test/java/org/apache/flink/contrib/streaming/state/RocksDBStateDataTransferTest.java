@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link RocksDBStateDataTransfer}.
+ */
+public class RocksDBStateDataTransferTest extends TestLogger {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	@Test
+	public void testSequentialTransfer() throws Exception {
+		testUploadAndDownload(1);
+	}
+
+	@Test
+	public void testConcurrentTransfer() throws Exception {
+		testUploadAndDownload(5);
+	}
+
+	@Test
+	public void testFailedDownloadIsRethrown() throws Exception {
+		final IOException expectedException = new IOException("test exception");
+
+		Map<StateHandleID, StreamStateHandle> stateHandles = new HashMap<>();
+		for (int i = 0; i < 5; i++) {
+			stateHandles.put(new StateHandleID("file-" + i), new FailingStreamStateHandle(expectedException));
+		}
+
+		try {
+			RocksDBStateDataTransfer.transferAllStateDataToDirectory(
+				stateHandles,
+				new Path(temporaryFolder.newFolder().toURI()),
+				5,
+				new CloseableRegistry());
+			fail("The download should have failed.");
+		} catch (IOException e) {
+			assertEquals(expectedException, e);
+		}
+	}
+
+	@Test
+	public void testFailedSequentialUploadDiscardsUploadedFiles() throws Exception {
+		testFailedUploadDiscardsUploadedFiles(1);
+	}
+
+	@Test
+	public void testFailedConcurrentUploadDiscardsUploadedFiles() throws Exception {
+		testFailedUploadDiscardsUploadedFiles(5);
+	}
+
+	private void testFailedUploadDiscardsUploadedFiles(int numberOfTransferingThreads) throws Exception {
+		File localDirectory = temporaryFolder.newFolder();
+
+		Map<StateHandleID, Path> files = new HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			File file = new File(localDirectory, "file-" + i + ".sst");
+			Files.write(file.toPath(), new byte[1024]);
+			files.put(new StateHandleID(file.getName()), new Path(file.toURI()));
+		}
+
+		// the upload of this file fails, because it does not exist
+		files.put(new StateHandleID("missing.sst"), new Path(new File(localDirectory, "missing.sst").toURI()));
+
+		File checkpointDirectory = temporaryFolder.newFolder();
+		FsCheckpointStreamFactory streamFactory =
+			new FsCheckpointStreamFactory(new Path(checkpointDirectory.toURI()), new JobID(), 0);
+
+		try {
+			RocksDBStateDataTransfer.uploadFilesToCheckpointFs(
+				files, numberOfTransferingThreads, streamFactory, 1L, 1L, new CloseableRegistry());
+			fail("The upload should have failed.");
+		} catch (IOException ignored) {
+			// expected
+		}
+
+		try (Stream<java.nio.file.Path> remainingFiles = Files.walk(checkpointDirectory.toPath())) {
+			assertEquals(0L, remainingFiles.filter(Files::isRegularFile).count());
+		}
+	}
+
+	private void testUploadAndDownload(int numberOfTransferingThreads) throws Exception {
+		File localDirectory = temporaryFolder.newFolder();
+		Random random = new Random(42L);
+
+		Map<StateHandleID, byte[]> contents = new HashMap<>();
+		Map<StateHandleID, Path> files = new HashMap<>();
+		for (int i = 0; i < 10; i++) {
+			byte[] content = new byte[random.nextInt(64 * 1024)];
+			random.nextBytes(content);
+
+			File file = new File(localDirectory, "file-" + i + ".sst");
+			Files.write(file.toPath(), content);
+
+			StateHandleID stateHandleID = new StateHandleID(file.getName());
+			contents.put(stateHandleID, content);
+			files.put(stateHandleID, new Path(file.toURI()));
+		}
+
+		FsCheckpointStreamFactory streamFactory =
+			new FsCheckpointStreamFactory(new Path(temporaryFolder.newFolder().toURI()), new JobID(), 0);
+
+		Map<StateHandleID, StreamStateHandle> stateHandles = RocksDBStateDataTransfer.uploadFilesToCheckpointFs(
+			files, numberOfTransferingThreads, streamFactory, 1L, 1L, new CloseableRegistry());
+
+		assertEquals(files.keySet(), stateHandles.keySet());
+
+		File restoreDirectory = new File(temporaryFolder.newFolder(), "restore");
+		RocksDBStateDataTransfer.transferAllStateDataToDirectory(
+			stateHandles, new Path(restoreDirectory.toURI()), numberOfTransferingThreads, new CloseableRegistry());
+
+		for (Map.Entry<StateHandleID, byte[]> entry : contents.entrySet()) {
+			File restoredFile = new File(restoreDirectory, entry.getKey().toString());
+			assertNotNull(stateHandles.get(entry.getKey()));
+			assertArrayEquals(entry.getValue(), Files.readAllBytes(restoredFile.toPath()));
+		}
+	}
+
+	private static class FailingStreamStateHandle implements StreamStateHandle {
+
+		private static final long serialVersionUID = 1L;
+
+		private final IOException exception;
+
+		FailingStreamStateHandle(IOException exception) {
+			this.exception = exception;
+		}
+
+		@Override
+		public FSDataInputStream openInputStream() throws IOException {
+			throw exception;
+		}
+
+		@Override
+		public void discardState() {
+		}
+
+		@Override
+		public long getStateSize() {
+			return 0L;
+		}
+	}
+}
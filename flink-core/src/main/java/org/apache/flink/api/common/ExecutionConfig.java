@@ -26,6 +26,8 @@ import org.apache.flink.configuration.TaskManagerOptions;
 
 import com.esotericsoftware.kryo.Serializer;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.LinkedHashMap;
@@ -172,6 +174,9 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 
 	private LinkedHashSet<Class<?>> registeredPojoTypes = new LinkedHashSet<>();
 
+	/** Types, whose instances are never modified after creation and therefore need not be copied. */
+	private LinkedHashSet<Class<?>> registeredImmutableTypes = new LinkedHashSet<>();
+
 	// --------------------------------------------------------------------------------------------
 
 	/**
@@ -785,6 +790,34 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 		registeredKryoTypes.add(type);
 	}
 
+	/**
+	 * Declares the given type as immutable, i.e., instances of the type are never modified
+	 * after they have been created or deserialized. The serializers of POJO types and of
+	 * {@link org.apache.flink.types.Row} report registered types as immutable, which allows
+	 * the runtime to skip copying their instances, for example between chained operators.
+	 *
+	 * <p><strong>Important:</strong> Instances of registered types must not be modified by user
+	 * functions, as these modifications may otherwise become visible to other functions.
+	 *
+	 * @param type The class of the type to declare immutable.
+	 */
+	@PublicEvolving
+	public void registerImmutableType(Class<?> type) {
+		if (type == null) {
+			throw new NullPointerException("Cannot register null type class.");
+		}
+		registeredImmutableTypes.add(type);
+	}
+
+	/**
+	 * Checks whether the given type has been declared immutable via
+	 * {@link #registerImmutableType(Class)}.
+	 */
+	@PublicEvolving
+	public boolean isRegisteredImmutableType(Class<?> type) {
+		return registeredImmutableTypes != null && registeredImmutableTypes.contains(type);
+	}
+
 	/**
 	 * Returns the registered types with Kryo Serializers.
 	 */
@@ -841,6 +874,14 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 		return registeredPojoTypes;
 	}
 
+	/**
+	 * Returns the types declared immutable.
+	 */
+	@PublicEvolving
+	public LinkedHashSet<Class<?>> getRegisteredImmutableTypes() {
+		return registeredImmutableTypes;
+	}
+
 
 	public boolean isAutoTypeRegistrationDisabled() {
 		return !autoTypeRegistrationEnabled;
@@ -907,6 +948,7 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 				defaultKryoSerializerClasses.equals(other.defaultKryoSerializerClasses) &&
 				registeredKryoTypes.equals(other.registeredKryoTypes) &&
 				registeredPojoTypes.equals(other.registeredPojoTypes) &&
+				registeredImmutableTypes.equals(other.registeredImmutableTypes) &&
 				taskCancellationIntervalMillis == other.taskCancellationIntervalMillis &&
 				useSnapshotCompression == other.useSnapshotCompression;
 
@@ -935,6 +977,7 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 			defaultKryoSerializerClasses,
 			registeredKryoTypes,
 			registeredPojoTypes,
+			registeredImmutableTypes,
 			taskCancellationIntervalMillis,
 			useSnapshotCompression);
 	}
@@ -949,6 +992,15 @@ public class ExecutionConfig implements Serializable, Archiveable<ArchivedExecut
 		return new ArchivedExecutionConfig(this);
 	}
 
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+
+		// configs serialized before immutable types could be registered do not contain the set
+		if (registeredImmutableTypes == null) {
+			registeredImmutableTypes = new LinkedHashSet<>();
+		}
+	}
+
 
 	// ------------------------------ Utilities  ----------------------------------
 
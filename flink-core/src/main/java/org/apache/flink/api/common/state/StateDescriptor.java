@@ -82,6 +82,9 @@ public abstract class StateDescriptor<S extends State, T> implements Serializabl
 	/** Name for queries against state created from this StateDescriptor. */
 	private String queryableStateName;
 
+	/** The time-to-live of the values of state created from this StateDescriptor, or null if disabled. */
+	private StateTtlConfig ttlConfig;
+
 	/** The default value returned by the state when no other value is bound to a key */
 	protected transient T defaultValue;
 
@@ -196,6 +199,9 @@ public abstract class StateDescriptor<S extends State, T> implements Serializabl
 	 * @throws IllegalStateException If queryable state name already set
 	 */
 	public void setQueryable(String queryableStateName) {
+		Preconditions.checkArgument(!getTtlConfig().isEnabled(),
+			"Queryable state is currently not supported with a time-to-live.");
+
 		if (this.queryableStateName == null) {
 			this.queryableStateName = Preconditions.checkNotNull(queryableStateName, "Registration name");
 		} else {
@@ -222,6 +228,30 @@ public abstract class StateDescriptor<S extends State, T> implements Serializabl
 		return queryableStateName != null;
 	}
 
+	/**
+	 * Configures the time-to-live of the values of state created from this descriptor.
+	 *
+	 * <p>State with a time-to-live cannot be queryable.
+	 *
+	 * @param ttlConfig The configuration of the time-to-live.
+	 * @throws IllegalArgumentException If the state is queryable
+	 */
+	public void enableTimeToLive(StateTtlConfig ttlConfig) {
+		Preconditions.checkNotNull(ttlConfig);
+		Preconditions.checkArgument(queryableStateName == null,
+			"Queryable state is currently not supported with a time-to-live.");
+		this.ttlConfig = ttlConfig;
+	}
+
+	/**
+	 * Returns the configuration of the time-to-live of the values of state created from this descriptor.
+	 *
+	 * @return The configuration, which is {@link StateTtlConfig#DISABLED} if no time-to-live was configured.
+	 */
+	public StateTtlConfig getTtlConfig() {
+		return ttlConfig != null ? ttlConfig : StateTtlConfig.DISABLED;
+	}
+
 	/**
 	 * Creates a new {@link State} on the given {@link StateBinder}.
 	 *
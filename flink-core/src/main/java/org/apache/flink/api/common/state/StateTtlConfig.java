@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.api.common.state;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.time.Time;
+
+import java.io.Serializable;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Configuration of the time-to-live of keyed state. A state with a time-to-live stores the time of the last
+ * update (or access) with each value, and treats values as expired once the time-to-live has passed since then.
+ *
+ * <p>Expired values are removed lazily, when they are read, and, if configured, left out of full snapshots of
+ * the state. The time-to-live is based on processing time.
+ *
+ * <p>The time-to-live is configured on the {@link StateDescriptor} with
+ * {@link StateDescriptor#enableTimeToLive(StateTtlConfig)}. It is currently supported for value, list and
+ * map state. For list and map state, each element or entry expires on its own.
+ */
+@PublicEvolving
+public class StateTtlConfig implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The configuration of state without a time-to-live. */
+	public static final StateTtlConfig DISABLED =
+		new StateTtlConfig(UpdateType.Disabled, StateVisibility.ReturnExpiredIfNotCleanedUp, Time.milliseconds(Long.MAX_VALUE), false);
+
+	/**
+	 * Defines which accesses renew the timestamp of a value and thereby restart its time-to-live.
+	 */
+	public enum UpdateType {
+		/** The state has no time-to-live. */
+		Disabled,
+		/** The timestamp is renewed when a value is created or written. */
+		OnCreateAndWrite,
+		/** The timestamp is renewed when a value is created, written or read. */
+		OnReadAndWrite
+	}
+
+	/**
+	 * Defines whether expired values, which have not been removed yet, can be returned on reads.
+	 */
+	public enum StateVisibility {
+		/** Expired values are returned as long as they have not been removed. */
+		ReturnExpiredIfNotCleanedUp,
+		/** Expired values are never returned. */
+		NeverReturnExpired
+	}
+
+	private final UpdateType updateType;
+
+	private final StateVisibility stateVisibility;
+
+	private final Time ttl;
+
+	private final boolean cleanupInFullSnapshot;
+
+	private StateTtlConfig(
+			UpdateType updateType,
+			StateVisibility stateVisibility,
+			Time ttl,
+			boolean cleanupInFullSnapshot) {
+
+		this.updateType = checkNotNull(updateType);
+		this.stateVisibility = checkNotNull(stateVisibility);
+		this.ttl = checkNotNull(ttl);
+		this.cleanupInFullSnapshot = cleanupInFullSnapshot;
+	}
+
+	public UpdateType getUpdateType() {
+		return updateType;
+	}
+
+	public StateVisibility getStateVisibility() {
+		return stateVisibility;
+	}
+
+	public Time getTtl() {
+		return ttl;
+	}
+
+	/**
+	 * Returns whether expired values are left out of full snapshots of the state.
+	 */
+	public boolean isCleanupInFullSnapshot() {
+		return cleanupInFullSnapshot;
+	}
+
+	public boolean isEnabled() {
+		return updateType != UpdateType.Disabled;
+	}
+
+	@Override
+	public String toString() {
+		return "StateTtlConfig{" +
+			"updateType=" + updateType +
+			", stateVisibility=" + stateVisibility +
+			", ttl=" + ttl +
+			", cleanupInFullSnapshot=" + cleanupInFullSnapshot +
+			'}';
+	}
+
+	/**
+	 * Creates a builder for a configuration with the given time-to-live.
+	 */
+	public static Builder newBuilder(Time ttl) {
+		return new Builder(ttl);
+	}
+
+	/**
+	 * Builder for the {@link StateTtlConfig}.
+	 */
+	public static class Builder {
+
+		private UpdateType updateType = UpdateType.OnCreateAndWrite;
+
+		private StateVisibility stateVisibility = StateVisibility.NeverReturnExpired;
+
+		private final Time ttl;
+
+		private boolean cleanupInFullSnapshot = false;
+
+		private Builder(Time ttl) {
+			checkArgument(checkNotNull(ttl).toMilliseconds() > 0, "The time-to-live must be positive.");
+			this.ttl = ttl;
+		}
+
+		/**
+		 * Sets which accesses renew the timestamp of a value. The default is
+		 * {@link UpdateType#OnCreateAndWrite}.
+		 */
+		public Builder setUpdateType(UpdateType updateType) {
+			checkArgument(checkNotNull(updateType) != UpdateType.Disabled,
+				"Use StateTtlConfig#DISABLED to disable the time-to-live.");
+			this.updateType = updateType;
+			return this;
+		}
+
+		/**
+		 * Sets whether expired values can be returned. The default is {@link StateVisibility#NeverReturnExpired}.
+		 */
+		public Builder setStateVisibility(StateVisibility stateVisibility) {
+			this.stateVisibility = checkNotNull(stateVisibility);
+			return this;
+		}
+
+		/**
+		 * Leaves expired values out of full snapshots of the state, which removes them from the state on restore.
+		 * Incremental snapshots are not cleaned up.
+		 */
+		public Builder cleanupFullSnapshot() {
+			this.cleanupInFullSnapshot = true;
+			return this;
+		}
+
+		public StateTtlConfig build() {
+			return new StateTtlConfig(updateType, stateVisibility, ttl, cleanupInFullSnapshot);
+		}
+	}
+}
@@ -239,7 +239,7 @@ public class RowTypeInfo extends TupleTypeInfoBase<Row> {
 		for (int i = 0; i < len; i++) {
 			fieldSerializers[i] = types[i].createSerializer(config);
 		}
-		return new RowSerializer(fieldSerializers);
+		return new RowSerializer(fieldSerializers, config.isRegisteredImmutableType(Row.class));
 	}
 
 	@Override
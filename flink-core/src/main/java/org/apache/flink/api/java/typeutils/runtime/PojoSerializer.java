@@ -163,7 +163,8 @@ public final class PojoSerializer<T> extends TypeSerializer<T> {
 	
 	@Override
 	public boolean isImmutableType() {
-		return false;
+		// serializers created for compatibility checks carry no execution config
+		return executionConfig != null && executionConfig.isRegisteredImmutableType(clazz);
 	}
 
 	@Override
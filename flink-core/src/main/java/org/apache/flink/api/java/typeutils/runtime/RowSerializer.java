@@ -52,18 +52,26 @@ public final class RowSerializer extends TypeSerializer<Row> {
 
 	private final int arity;
 
+	/** Whether rows have been declared immutable via the {@link org.apache.flink.api.common.ExecutionConfig}. */
+	private final boolean isImmutableType;
+
 	private transient boolean[] nullMask;
 
-	@SuppressWarnings("unchecked")
 	public RowSerializer(TypeSerializer<?>[] fieldSerializers) {
+		this(fieldSerializers, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	public RowSerializer(TypeSerializer<?>[] fieldSerializers, boolean isImmutableType) {
 		this.fieldSerializers = (TypeSerializer<Object>[]) checkNotNull(fieldSerializers);
 		this.arity = fieldSerializers.length;
+		this.isImmutableType = isImmutableType;
 		this.nullMask = new boolean[fieldSerializers.length];
 	}
 
 	@Override
 	public boolean isImmutableType() {
-		return false;
+		return isImmutableType;
 	}
 
 	@Override
@@ -72,7 +80,7 @@ public final class RowSerializer extends TypeSerializer<Row> {
 		for (int i = 0; i < fieldSerializers.length; i++) {
 			duplicateFieldSerializers[i] = fieldSerializers[i].duplicate();
 		}
-		return new RowSerializer(duplicateFieldSerializers);
+		return new RowSerializer(duplicateFieldSerializers, isImmutableType);
 	}
 
 	@Override
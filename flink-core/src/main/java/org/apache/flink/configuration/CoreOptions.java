@@ -87,6 +87,14 @@ public class CoreOptions {
 		.key("state.checkpoints.dir")
 		.noDefaultValue();
 
+	/**
+	 * Whether tasks keep a copy of their checkpointed state on the local disk of the TaskManager,
+	 * from which they restore when they are scheduled to the same TaskManager after a failure.
+	 */
+	public static final ConfigOption<Boolean> LOCAL_RECOVERY = ConfigOptions
+		.key("state.backend.local-recovery")
+		.defaultValue(false);
+
 	// ------------------------------------------------------------------------
 	//  file systems
 	// ------------------------------------------------------------------------
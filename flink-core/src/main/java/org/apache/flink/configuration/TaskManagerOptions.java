@@ -160,6 +160,44 @@ public class TaskManagerOptions {
 			key("taskmanager.network.memory.floating-buffers-per-gate")
 			.defaultValue(8);
 
+	/**
+	 * Boolean flag to enable/disable the credit-based flow control for pipelined bounded
+	 * partitions. With credit-based flow control, every remote input channel gets exclusive
+	 * buffers and the producer only sends data for which the consumer announced credit, so
+	 * that a back-pressured channel does not block other channels sharing a TCP connection.
+	 */
+	public static final ConfigOption<Boolean> NETWORK_CREDIT_MODEL =
+			key("taskmanager.network.credit-model")
+			.defaultValue(false);
+
+	/**
+	 * Boolean flag to enable/disable adapting the number of in-flight buffers of credit-based
+	 * input gates to the consumer throughput. If enabled, each gate limits the credit of its
+	 * channels, so that the in-flight data can be processed within
+	 * {@link #NETWORK_BUFFER_DEBLOAT_TARGET}. This bounds checkpoint alignment times under back
+	 * pressure. Requires {@link #NETWORK_CREDIT_MODEL}.
+	 */
+	public static final ConfigOption<Boolean> NETWORK_BUFFER_DEBLOAT_ENABLED =
+			key("taskmanager.network.memory.buffer-debloat.enabled")
+			.defaultValue(false);
+
+	/**
+	 * The target time in milliseconds to process the in-flight data of an input gate, if
+	 * {@link #NETWORK_BUFFER_DEBLOAT_ENABLED} is set.
+	 */
+	public static final ConfigOption<Long> NETWORK_BUFFER_DEBLOAT_TARGET =
+			key("taskmanager.network.memory.buffer-debloat.target")
+			.defaultValue(1000L);
+
+	/**
+	 * The implementation of blocking (batch) data exchanges: "spillable" spills each subpartition
+	 * to its own file if necessary, "sort-merge" writes all subpartitions of a result partition
+	 * into a single data file, which is sorted by subpartition and indexed.
+	 */
+	public static final ConfigOption<String> NETWORK_BLOCKING_SHUFFLE_TYPE =
+			key("taskmanager.network.blocking-shuffle.type")
+			.defaultValue("spillable");
+
 	/**
 	 * Minimum backoff for partition requests of input channels.
 	 */
@@ -217,6 +255,18 @@ public class TaskManagerOptions {
 			key("task.checkpoint.alignment.max-size")
 			.defaultValue(-1L);
 
+	/**
+	 * The number of bytes per input that a checkpoint alignment may buffer in memory. Data
+	 * exceeding this amount is spilled block-compressed to the temp directories. This memory is
+	 * allocated on the heap in addition to the managed and network memory.
+	 *
+	 * <p>The default value of {@code 0} disables the in-memory buffering, and all data is spilled
+	 * uncompressed.
+	 */
+	public static final ConfigOption<Long> TASK_CHECKPOINT_ALIGNMENT_MEMORY =
+			key("task.checkpoint.alignment.memory")
+			.defaultValue(0L);
+
 	// ------------------------------------------------------------------------
 
 	/** Not intended to be instantiated */
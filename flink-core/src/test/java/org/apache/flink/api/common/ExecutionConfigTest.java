@@ -29,11 +29,13 @@ import org.apache.flink.util.TestLogger;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -59,6 +61,42 @@ public class ExecutionConfigTest extends TestLogger {
 		assertEquals(expectedTypes.size(), counter);
 	}
 
+	@Test
+	public void testImmutableTypeRegistration() {
+		ExecutionConfig config = new ExecutionConfig();
+		assertFalse(config.isRegisteredImmutableType(Double.class));
+
+		config.registerImmutableType(Double.class);
+		config.registerImmutableType(Integer.class);
+		config.registerImmutableType(Double.class);
+
+		assertTrue(config.isRegisteredImmutableType(Double.class));
+		assertTrue(config.isRegisteredImmutableType(Integer.class));
+		assertFalse(config.isRegisteredImmutableType(Long.class));
+		assertEquals(2, config.getRegisteredImmutableTypes().size());
+	}
+
+	/**
+	 * Tests that configs, which were serialized before immutable types could be registered, are
+	 * restored with an empty set of immutable types.
+	 */
+	@Test
+	public void testDeserializeConfigWithoutImmutableTypes() throws Exception {
+		ExecutionConfig config = new ExecutionConfig();
+
+		Field immutableTypes = ExecutionConfig.class.getDeclaredField("registeredImmutableTypes");
+		immutableTypes.setAccessible(true);
+		immutableTypes.set(config, null);
+
+		ExecutionConfig copy = CommonTestUtils.createCopySerializable(config);
+
+		assertFalse(copy.isRegisteredImmutableType(Double.class));
+		assertNotNull(copy.getRegisteredImmutableTypes());
+
+		copy.registerImmutableType(Double.class);
+		assertTrue(copy.isRegisteredImmutableType(Double.class));
+	}
+
 	@Test
 	public void testConfigurationOfParallelism() {
 		ExecutionConfig config = new ExecutionConfig();
@@ -281,6 +281,37 @@ public class PojoSerializerTest extends SerializerTestBase<PojoSerializerTest.Te
 		
 	}
 
+	/**
+	 * Verifies that a POJO type is only considered immutable if it has been registered as such.
+	 */
+	@Test
+	public void testImmutableTypeRegistration() {
+		ExecutionConfig config = new ExecutionConfig();
+		assertFalse(type.createSerializer(config).isImmutableType());
+
+		config.registerImmutableType(TestUserClass.class);
+		assertTrue(type.createSerializer(config).isImmutableType());
+		assertTrue(type.createSerializer(config).duplicate().isImmutableType());
+	}
+
+	/**
+	 * Verifies that a serializer without an execution config, as created for compatibility
+	 * checks, is not considered immutable.
+	 */
+	@Test
+	public void testImmutableTypeWithoutExecutionConfig() {
+		@SuppressWarnings("unchecked")
+		PojoSerializer<TestUserClass> serializer = new PojoSerializer<>(
+			TestUserClass.class,
+			new Field[0],
+			new TypeSerializer[0],
+			new LinkedHashMap<Class<?>, Integer>(),
+			new TypeSerializer<?>[0],
+			new HashMap<Class<?>, TypeSerializer<?>>());
+
+		assertFalse(serializer.isImmutableType());
+	}
+
 	// --------------------------------------------------------------------------------------------
 	// Configuration snapshotting & reconfiguring tests
 	// --------------------------------------------------------------------------------------------
@@ -32,6 +32,9 @@ import org.junit.Test;
 import java.io.Serializable;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
 
 public class RowSerializerTest {
 
@@ -53,6 +56,22 @@ public class RowSerializerTest {
 		instance.testAll();
 	}
 
+	@Test
+	public void testImmutableRowSerializer() {
+		TypeInformation<Row> typeInfo = new RowTypeInfo(BasicTypeInfo.INT_TYPE_INFO);
+		Row row = Row.of(1);
+
+		ExecutionConfig config = new ExecutionConfig();
+		TypeSerializer<Row> serializer = typeInfo.createSerializer(config);
+		assertFalse(serializer.isImmutableType());
+		assertNotSame(row, serializer.copy(row));
+
+		config.registerImmutableType(Row.class);
+		serializer = typeInfo.createSerializer(config);
+		assertTrue(serializer.isImmutableType());
+		assertTrue(serializer.duplicate().isImmutableType());
+	}
+
 	@Test
 	public void testLargeRowSerializer() {
 		TypeInformation<Row> typeInfo = new RowTypeInfo(
@@ -50,6 +50,7 @@ import org.apache.flink.optimizer.plan.WorksetIterationPlanNode;
 import org.apache.flink.optimizer.plan.WorksetPlanNode;
 import org.apache.flink.configuration.ConfigConstants;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.optimizer.util.Utils;
 import org.apache.flink.runtime.io.network.DataExchangeMode;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
@@ -130,6 +131,9 @@ public class JobGraphGenerator implements Visitor<PlanNode> {
 	private final float defaultSortSpillingThreshold;
 
 	private final boolean useLargeRecordHandler;
+
+	/** The result partition type of blocking (batch) data exchanges. */
+	private final ResultPartitionType blockingResultType;
 	
 	private int iterationIdEnumerator = 1;
 	
@@ -148,6 +152,7 @@ public class JobGraphGenerator implements Visitor<PlanNode> {
 		this.defaultMaxFan = ConfigConstants.DEFAULT_SPILLING_MAX_FAN;
 		this.defaultSortSpillingThreshold = ConfigConstants.DEFAULT_SORT_SPILLING_THRESHOLD;
 		this.useLargeRecordHandler = ConfigConstants.DEFAULT_USE_LARGE_RECORD_HANDLER;
+		this.blockingResultType = ResultPartitionType.BLOCKING;
 	}
 	
 	public JobGraphGenerator(Configuration config) {
@@ -158,6 +163,10 @@ public class JobGraphGenerator implements Visitor<PlanNode> {
 		this.useLargeRecordHandler = config.getBoolean(
 				ConfigConstants.USE_LARGE_RECORD_HANDLER_KEY,
 				ConfigConstants.DEFAULT_USE_LARGE_RECORD_HANDLER);
+		this.blockingResultType = "sort-merge".equalsIgnoreCase(
+				config.getString(TaskManagerOptions.NETWORK_BLOCKING_SHUFFLE_TYPE))
+			? ResultPartitionType.BLOCKING_SORT_MERGE
+			: ResultPartitionType.BLOCKING;
 	}
 
 	/**
@@ -1129,7 +1138,7 @@ public class JobGraphGenerator implements Visitor<PlanNode> {
 				// See https://issues.apache.org/jira/browse/FLINK-1713 for details
 				resultType = channel.getSource().isOnDynamicPath()
 						? ResultPartitionType.PIPELINED
-						: ResultPartitionType.BLOCKING;
+						: blockingResultType;
 				break;
 
 			case PIPELINE_WITH_BATCH_FALLBACK:
@@ -1202,13 +1202,20 @@ public class Execution implements AccessExecution, Archiveable<ArchivedExecution
 	/**
 	 * Calculates the preferred locations based on the location preference constraint.
 	 *
+	 * <p>If local recovery is enabled, an execution that restores state prefers the location of its
+	 * prior execution, where task-local copies of the state may still exist. Otherwise, the
+	 * locations of its inputs are preferred.
+	 *
 	 * @param locationPreferenceConstraint constraint for the location preference
 	 * @return Future containing the collection of preferred locations. This might not be completed if not all inputs
 	 * 		have been a resource assigned.
 	 */
 	@VisibleForTesting
 	public CompletableFuture<Collection<TaskManagerLocation>> calculatePreferredLocations(LocationPreferenceConstraint locationPreferenceConstraint) {
-		final Collection<CompletableFuture<TaskManagerLocation>> preferredLocationFutures = getVertex().getPreferredLocationsBasedOnInputs();
+		final Collection<CompletableFuture<TaskManagerLocation>> preferredLocationsBasedOnState = getVertex().getPreferredLocationsBasedOnState();
+		final Collection<CompletableFuture<TaskManagerLocation>> preferredLocationFutures =
+			preferredLocationsBasedOnState != null && getVertex().getExecutionGraph().isLocalRecoveryEnabled() ?
+				preferredLocationsBasedOnState : getVertex().getPreferredLocationsBasedOnInputs();
 		final CompletableFuture<Collection<TaskManagerLocation>> preferredLocationsFuture;
 
 		switch(locationPreferenceConstraint) {
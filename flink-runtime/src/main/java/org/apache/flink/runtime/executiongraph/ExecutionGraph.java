@@ -243,6 +243,10 @@ public class ExecutionGraph implements AccessExecutionGraph, Archiveable<Archive
 	 * to deploy them immediately. */
 	private boolean allowQueuedScheduling = false;
 
+	/** Flag to indicate whether tasks keep task-local copies of their state, so that executions
+	 * which restore state are scheduled to the location of their prior execution. */
+	private boolean localRecoveryEnabled = false;
+
 	/** The mode of scheduling. Decides how to select the initial set of tasks to be deployed.
 	 * May indicate to deploy all sources, or to deploy everything, or to deploy via backtracking
 	 * from results than need to be materialized. */
@@ -426,6 +430,14 @@ public class ExecutionGraph implements AccessExecutionGraph, Archiveable<Archive
 		this.allowQueuedScheduling = allowed;
 	}
 
+	public boolean isLocalRecoveryEnabled() {
+		return localRecoveryEnabled;
+	}
+
+	public void setLocalRecoveryEnabled(boolean localRecoveryEnabled) {
+		this.localRecoveryEnabled = localRecoveryEnabled;
+	}
+
 	public void setScheduleMode(ScheduleMode scheduleMode) {
 		this.scheduleMode = scheduleMode;
 	}
@@ -133,6 +133,7 @@ public class ExecutionGraphBuilder {
 
 		executionGraph.setScheduleMode(jobGraph.getScheduleMode());
 		executionGraph.setQueuedSchedulingAllowed(jobGraph.getAllowQueuedScheduling());
+		executionGraph.setLocalRecoveryEnabled(jobManagerConfig.getBoolean(CoreOptions.LOCAL_RECOVERY));
 
 		try {
 			executionGraph.setJsonPlan(JsonPlanGenerator.generatePlan(jobGraph));
@@ -73,6 +73,48 @@ public class SynchronousBufferFileReader extends SynchronousFileIOChannel implem
 		}
 	}
 
+	/**
+	 * Returns the {@link FileSegment} of the next block, if the next block is a data buffer, and
+	 * advances the read position past it without reading the block's contents. This allows
+	 * transferring the contents directly from the file, e.g. via {@link
+	 * java.nio.channels.FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}.
+	 *
+	 * <p>If the next block is an event or the end of the file has been reached, the read position
+	 * is not changed and <tt>null</tt> is returned. Events have to be read via {@link
+	 * #readInto(Buffer)}.
+	 *
+	 * @return the file segment of the next data buffer or <tt>null</tt>
+	 */
+	public FileSegment readNextBufferSegment() throws IOException {
+		final long position = fileChannel.position();
+
+		if (fileChannel.size() - position <= 0) {
+			return null;
+		}
+
+		header.clear();
+		while (header.hasRemaining()) {
+			if (fileChannel.read(header, position + header.position()) < 0) {
+				throw new IOException("Unexpected end of file while reading block header.");
+			}
+		}
+		header.flip();
+
+		final boolean isBuffer = header.getInt() == 1;
+		final int size = header.getInt();
+
+		if (!isBuffer) {
+			return null;
+		}
+
+		final long contentPosition = position + header.capacity();
+		fileChannel.position(contentPosition + size);
+
+		hasReachedEndOfFile = fileChannel.size() - fileChannel.position() == 0;
+
+		return new FileSegment(fileChannel, contentPosition, size, true);
+	}
+
 	@Override
 	public void seekToPosition(long position) throws IOException {
 		fileChannel.position(position);
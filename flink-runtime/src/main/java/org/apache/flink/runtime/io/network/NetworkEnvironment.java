@@ -84,6 +84,15 @@ public class NetworkEnvironment {
 	/** Number of extra network buffers to use for each outgoing/incoming gate (result partition/input gate). */
 	private final int extraNetworkBuffersPerGate;
 
+	/** Whether pipelined bounded partitions are consumed with credit-based flow control. */
+	private final boolean enableCreditBased;
+
+	/**
+	 * Target time to process the in-flight data of a credit-based input gate (ms), or -1 if the
+	 * number of in-flight buffers is not adapted.
+	 */
+	private final long bufferDebloatTarget;
+
 	private boolean isShutdown;
 
 	public NetworkEnvironment(
@@ -100,6 +109,28 @@ public class NetworkEnvironment {
 			int networkBuffersPerChannel,
 			int extraNetworkBuffersPerGate) {
 
+		this(networkBufferPool, connectionManager, resultPartitionManager, taskEventDispatcher,
+			kvStateRegistry, kvStateServer, kvStateClientProxy, defaultIOMode,
+			partitionRequestInitialBackoff, partitionRequestMaxBackoff,
+			networkBuffersPerChannel, extraNetworkBuffersPerGate, false, -1);
+	}
+
+	public NetworkEnvironment(
+			NetworkBufferPool networkBufferPool,
+			ConnectionManager connectionManager,
+			ResultPartitionManager resultPartitionManager,
+			TaskEventDispatcher taskEventDispatcher,
+			KvStateRegistry kvStateRegistry,
+			KvStateServer kvStateServer,
+			KvStateClientProxy kvStateClientProxy,
+			IOMode defaultIOMode,
+			int partitionRequestInitialBackoff,
+			int partitionRequestMaxBackoff,
+			int networkBuffersPerChannel,
+			int extraNetworkBuffersPerGate,
+			boolean enableCreditBased,
+			long bufferDebloatTarget) {
+
 		this.networkBufferPool = checkNotNull(networkBufferPool);
 		this.connectionManager = checkNotNull(connectionManager);
 		this.resultPartitionManager = checkNotNull(resultPartitionManager);
@@ -117,6 +148,8 @@ public class NetworkEnvironment {
 		isShutdown = false;
 		this.networkBuffersPerChannel = networkBuffersPerChannel;
 		this.extraNetworkBuffersPerGate = extraNetworkBuffersPerGate;
+		this.enableCreditBased = enableCreditBased;
+		this.bufferDebloatTarget = bufferDebloatTarget;
 	}
 
 	// --------------------------------------------------------------------------------------------
@@ -151,6 +184,10 @@ public class NetworkEnvironment {
 		return partitionRequestMaxBackoff;
 	}
 
+	public boolean isCreditBased() {
+		return enableCreditBased;
+	}
+
 	public KvStateRegistry getKvStateRegistry() {
 		return kvStateRegistry;
 	}
@@ -229,6 +266,11 @@ public class NetworkEnvironment {
 							maxNumberOfMemorySegments);
 					}
 					gate.setBufferPool(bufferPool);
+
+					if (gate.getConsumedPartitionType().isCreditBased() && bufferDebloatTarget > 0) {
+						gate.enableBufferDebloating(bufferDebloatTarget,
+							networkBuffersPerChannel + extraNetworkBuffersPerGate);
+					}
 				} catch (Throwable t) {
 					if (bufferPool != null) {
 						bufferPool.lazyDestroy();
@@ -38,4 +38,16 @@ public interface ChannelSelector<T extends IOReadableWritable> {
 	 * which the record shall be forwarded
 	 */
 	int[] selectChannels(T record, int numChannels);
+
+	/**
+	 * Returns whether every record is written to all output channels. In that case, the
+	 * {@link RecordWriter} serializes each record only once and shares the resulting buffers
+	 * between all channels.
+	 *
+	 * @return <tt>true</tt> if {@link #selectChannels(IOReadableWritable, int)} always selects all
+	 * channels
+	 */
+	default boolean isBroadcast() {
+		return false;
+	}
 }
@@ -31,6 +31,7 @@ import org.apache.flink.util.XORShiftRandom;
 
 import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static org.apache.flink.runtime.io.network.api.serialization.RecordSerializer.SerializationResult;
 
@@ -45,10 +46,24 @@ import static org.apache.flink.runtime.io.network.api.serialization.RecordSerial
  * ensures that all produced records are written to the output stream (incl.
  * partially filled ones).
  *
+ * <p>If the {@link ChannelSelector} broadcasts all records (see {@link ChannelSelector#isBroadcast()}),
+ * each record is serialized only once into a buffer, which is shared by all channels via
+ * reference counting instead of being serialized and copied per channel.
+ *
+ * <p>Subclasses, which bound the time data may linger in partially filled buffers, are notified
+ * via {@link #notifyDataPending(int)} once a channel has pending data and can flush single
+ * channels via {@link #tryFlush(int)}.
+ *
  * @param <T> the type of the record that can be emitted with this record writer
  */
 public class RecordWriter<T extends IOReadableWritable> {
 
+	/**
+	 * Channel index used by {@link #notifyDataPending(int)} and {@link #tryFlush(int)} for the
+	 * buffer shared by all channels of a broadcasting record writer.
+	 */
+	protected static final int ALL_CHANNELS = -1;
+
 	protected final ResultPartitionWriter targetPartition;
 
 	private final ChannelSelector<T> channelSelector;
@@ -58,6 +73,34 @@ public class RecordWriter<T extends IOReadableWritable> {
 	/** {@link RecordSerializer} per outgoing channel */
 	private final RecordSerializer<T>[] serializers;
 
+	/**
+	 * Lock per outgoing channel, guarding the channel's serializer. These are explicit locks
+	 * instead of monitors, so that flushes can be attempted without blocking (see
+	 * {@link #tryFlush(int)}).
+	 */
+	private final ReentrantLock[] locks;
+
+	/**
+	 * Per outgoing channel: whether {@link #notifyDataPending(int)} has been called and the
+	 * channel has not been flushed since. Guarded by the channel's lock.
+	 */
+	private final boolean[] isDataPendingNotified;
+
+	/** Whether all records go to all channels, see {@link ChannelSelector#isBroadcast()}. */
+	private final boolean isBroadcast;
+
+	/**
+	 * {@link RecordSerializer} shared by all channels, if {@link #isBroadcast} is set. Its buffers
+	 * are written to every channel. Otherwise <tt>null</tt>.
+	 */
+	private final RecordSerializer<T> broadcastSerializer;
+
+	/** Lock guarding the {@link #broadcastSerializer}, if {@link #isBroadcast} is set. */
+	private final ReentrantLock broadcastLock;
+
+	/** Same as {@link #isDataPendingNotified} for the {@link #broadcastSerializer}. */
+	private boolean isBroadcastDataPendingNotified;
+
 	private final Random RNG = new XORShiftRandom();
 
 	private Counter numBytesOut = new SimpleCounter();
@@ -79,12 +122,24 @@ public class RecordWriter<T extends IOReadableWritable> {
 		 * serializer.
 		 */
 		this.serializers = new SpanningRecordSerializer[numChannels];
+		this.locks = new ReentrantLock[numChannels];
 		for (int i = 0; i < numChannels; i++) {
 			serializers[i] = new SpanningRecordSerializer<T>();
+			locks[i] = new ReentrantLock();
 		}
+		this.isDataPendingNotified = new boolean[numChannels];
+
+		this.isBroadcast = channelSelector.isBroadcast();
+		this.broadcastSerializer = isBroadcast ? new SpanningRecordSerializer<T>() : null;
+		this.broadcastLock = isBroadcast ? new ReentrantLock() : null;
 	}
 
 	public void emit(T record) throws IOException, InterruptedException {
+		if (isBroadcast) {
+			sendToAllTargets(record);
+			return;
+		}
+
 		for (int targetChannel : channelSelector.selectChannels(record, numChannels)) {
 			sendToTarget(record, targetChannel);
 		}
@@ -95,6 +150,11 @@ public class RecordWriter<T extends IOReadableWritable> {
 	 * the {@link ChannelSelector}.
 	 */
 	public void broadcastEmit(T record) throws IOException, InterruptedException {
+		if (isBroadcast) {
+			sendToAllTargets(record);
+			return;
+		}
+
 		for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
 			sendToTarget(record, targetChannel);
 		}
@@ -104,13 +164,29 @@ public class RecordWriter<T extends IOReadableWritable> {
 	 * This is used to send LatencyMarks to a random target channel
 	 */
 	public void randomEmit(T record) throws IOException, InterruptedException {
-		sendToTarget(record, RNG.nextInt(numChannels));
+		final int targetChannel = RNG.nextInt(numChannels);
+
+		if (isBroadcast) {
+			// The record must not overtake the data pending in the shared buffer and has to be
+			// written out before further shared buffers follow it.
+			broadcastLock.lock();
+			try {
+				flushBroadcastBuffer();
+				sendToTarget(record, targetChannel);
+				flushChannel(targetChannel);
+			} finally {
+				broadcastLock.unlock();
+			}
+		} else {
+			sendToTarget(record, targetChannel);
+		}
 	}
 
 	private void sendToTarget(T record, int targetChannel) throws IOException, InterruptedException {
 		RecordSerializer<T> serializer = serializers[targetChannel];
 
-		synchronized (serializer) {
+		locks[targetChannel].lock();
+		try {
 			SerializationResult result = serializer.addRecord(record);
 
 			while (result.isFullBuffer()) {
@@ -133,16 +209,149 @@ public class RecordWriter<T extends IOReadableWritable> {
 					result = serializer.setNextBuffer(buffer);
 				}
 			}
+
+			if (!isDataPendingNotified[targetChannel] && serializer.hasData()) {
+				isDataPendingNotified[targetChannel] = true;
+				notifyDataPending(targetChannel);
+			}
+		} finally {
+			locks[targetChannel].unlock();
+		}
+	}
+
+	/**
+	 * Serializes the record once and writes each full buffer to all channels.
+	 */
+	private void sendToAllTargets(T record) throws IOException, InterruptedException {
+		broadcastLock.lock();
+		try {
+			SerializationResult result = broadcastSerializer.addRecord(record);
+
+			while (result.isFullBuffer()) {
+				Buffer buffer = broadcastSerializer.getCurrentBuffer();
+
+				if (buffer != null) {
+					writeToAllChannelsAndClearBuffer(buffer);
+
+					// see sendToTarget()
+					if (result.isFullRecord()) {
+						break;
+					}
+				} else {
+					buffer = targetPartition.getBufferProvider().requestBufferBlocking();
+					result = broadcastSerializer.setNextBuffer(buffer);
+				}
+			}
+
+			if (!isBroadcastDataPendingNotified && broadcastSerializer.hasData()) {
+				isBroadcastDataPendingNotified = true;
+				notifyDataPending(ALL_CHANNELS);
+			}
+		} finally {
+			broadcastLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes the current, possibly partially filled buffer of the {@link #broadcastSerializer}
+	 * to all channels.
+	 *
+	 * Needs to hold the broadcast lock!
+	 */
+	private void flushBroadcastBuffer() throws IOException {
+		Buffer buffer = broadcastSerializer.getCurrentBuffer();
+
+		if (buffer != null) {
+			writeToAllChannelsAndClearBuffer(buffer);
+		} else if (broadcastSerializer.hasData()) {
+			// sanity check
+			throw new IllegalStateException("No buffer, but serializer has buffered data.");
+		}
+	}
+
+	/**
+	 * Writes the buffer to every channel of the {@link ResultPartitionWriter} and removes the
+	 * buffer from the broadcast serializer state.
+	 *
+	 * Needs to hold the broadcast lock!
+	 */
+	private void writeToAllChannelsAndClearBuffer(Buffer buffer) throws IOException {
+		try {
+			for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+				numBytesOut.inc(buffer.getSizeUnsafe());
+
+				// retain the buffer so that it can be recycled by each channel of targetPartition
+				buffer.retain();
+				targetPartition.writeBuffer(buffer, targetChannel);
+			}
+		} finally {
+			// release the reference of the serializer; the buffer is recycled after the
+			// last channel stops using it
+			buffer.recycle();
+			broadcastSerializer.clearCurrentBuffer();
+		}
+	}
+
+	/**
+	 * Writes the current buffer of the given channel's serializer, if any.
+	 */
+	private void flushChannel(int targetChannel) throws IOException {
+		locks[targetChannel].lock();
+		try {
+			flushChannelLocked(targetChannel);
+		} finally {
+			locks[targetChannel].unlock();
+		}
+	}
+
+	/**
+	 * Needs to hold the channel's lock!
+	 */
+	private void flushChannelLocked(int targetChannel) throws IOException {
+		RecordSerializer<T> serializer = serializers[targetChannel];
+
+		try {
+			Buffer buffer = serializer.getCurrentBuffer();
+
+			if (buffer != null) {
+				numBytesOut.inc(buffer.getSizeUnsafe());
+				targetPartition.writeBuffer(buffer, targetChannel);
+			}
+		} finally {
+			serializer.clear();
+			isDataPendingNotified[targetChannel] = false;
+		}
+	}
+
+	/**
+	 * Needs to hold the broadcast lock!
+	 */
+	private void flushAllChannelsLocked() throws IOException {
+		try {
+			flushBroadcastBuffer();
+		} finally {
+			broadcastSerializer.clear();
+			isBroadcastDataPendingNotified = false;
 		}
 	}
 
 	public void broadcastEvent(AbstractEvent event) throws IOException, InterruptedException {
+		if (isBroadcast) {
+			broadcastLock.lock();
+			try {
+				flushBroadcastBuffer();
+			} finally {
+				broadcastLock.unlock();
+			}
+		}
+
 		final Buffer eventBuffer = EventSerializer.toBuffer(event);
 		try {
 			for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
 				RecordSerializer<T> serializer = serializers[targetChannel];
 
-				synchronized (serializer) {
+				locks[targetChannel].lock();
+				try {
 					Buffer buffer = serializer.getCurrentBuffer();
 					if (buffer != null) {
 						numBytesOut.inc(buffer.getSizeUnsafe());
@@ -155,6 +364,8 @@ public class RecordWriter<T extends IOReadableWritable> {
 					// retain the buffer so that it can be recycled by each channel of targetPartition
 					eventBuffer.retain();
 					targetPartition.writeBuffer(eventBuffer, targetChannel);
+				} finally {
+					locks[targetChannel].unlock();
 				}
 			}
 		} finally {
@@ -165,39 +376,92 @@ public class RecordWriter<T extends IOReadableWritable> {
 	}
 
 	public void flush() throws IOException {
+		if (isBroadcast) {
+			broadcastLock.lock();
+			try {
+				flushAllChannelsLocked();
+			} finally {
+				broadcastLock.unlock();
+			}
+		}
+
 		for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
-			RecordSerializer<T> serializer = serializers[targetChannel];
+			flushChannel(targetChannel);
+		}
+	}
 
-			synchronized (serializer) {
-				try {
-					Buffer buffer = serializer.getCurrentBuffer();
+	/**
+	 * Flushes the given channel, or the buffer shared by all channels for {@link #ALL_CHANNELS},
+	 * unless the channel is currently being written to. This never blocks on a concurrent writer,
+	 * which may itself be blocked waiting for a buffer.
+	 *
+	 * @param targetChannel The channel to flush or {@link #ALL_CHANNELS}.
+	 *
+	 * @return <tt>true</tt> if the channel has been flushed, <tt>false</tt> if it is currently
+	 * being written to
+	 */
+	protected boolean tryFlush(int targetChannel) throws IOException {
+		if (targetChannel == ALL_CHANNELS) {
+			if (!broadcastLock.tryLock()) {
+				return false;
+			}
 
-					if (buffer != null) {
-						numBytesOut.inc(buffer.getSizeUnsafe());
-						targetPartition.writeBuffer(buffer, targetChannel);
-					}
-				} finally {
-					serializer.clear();
-				}
+			try {
+				flushAllChannelsLocked();
+			} finally {
+				broadcastLock.unlock();
+			}
+		} else {
+			if (!locks[targetChannel].tryLock()) {
+				return false;
+			}
+
+			try {
+				flushChannelLocked(targetChannel);
+			} finally {
+				locks[targetChannel].unlock();
 			}
 		}
+
+		return true;
+	}
+
+	/**
+	 * Called when the given channel, or all channels for {@link #ALL_CHANNELS}, hold data in a
+	 * partially filled buffer. The call happens once per channel until the channel is flushed
+	 * via {@link #flush()} or {@link #tryFlush(int)}. Note that the pending data may be written
+	 * out earlier, e.g. because the buffer becomes full, without another notification.
+	 *
+	 * <p>This method is called while holding the channel's lock and must not block.
+	 *
+	 * @param targetChannel The channel with pending data or {@link #ALL_CHANNELS}.
+	 */
+	protected void notifyDataPending(int targetChannel) {
 	}
 
 	public void clearBuffers() {
-		for (RecordSerializer<?> serializer : serializers) {
-			synchronized (serializer) {
-				try {
-					Buffer buffer = serializer.getCurrentBuffer();
+		if (isBroadcast) {
+			clearBuffer(broadcastSerializer, broadcastLock);
+		}
 
-					if (buffer != null) {
-						buffer.recycle();
-					}
-				}
-				finally {
-					serializer.clear();
-				}
+		for (int targetChannel = 0; targetChannel < numChannels; targetChannel++) {
+			clearBuffer(serializers[targetChannel], locks[targetChannel]);
+		}
+	}
+
+	private static void clearBuffer(RecordSerializer<?> serializer, ReentrantLock lock) {
+		lock.lock();
+		try {
+			Buffer buffer = serializer.getCurrentBuffer();
+
+			if (buffer != null) {
+				buffer.recycle();
 			}
 		}
+		finally {
+			serializer.clear();
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -212,7 +476,7 @@ public class RecordWriter<T extends IOReadableWritable> {
 	 * Writes the buffer to the {@link ResultPartitionWriter} and removes the
 	 * buffer from the serializer state.
 	 *
-	 * Needs to be synchronized on the serializer!
+	 * Needs to hold the channel's lock!
 	 */
 	private void writeAndClearBuffer(
 			Buffer buffer,
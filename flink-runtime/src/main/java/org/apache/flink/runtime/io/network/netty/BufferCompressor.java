@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Block-level snappy compression of network {@link Buffer} contents, which are sent to remote
+ * consumers. Buffers are compressed as a whole when writing them to Netty's buffer space and
+ * decompressed when copying them from Netty's buffer space into the consumer's buffer.
+ *
+ * <p>Compression works directly on the off-heap memory of the network buffers and Netty's
+ * direct buffers. If either side is not backed by off-heap memory, the buffer is sent
+ * uncompressed.
+ */
+final class BufferCompressor {
+
+	/** Buffers smaller than this are not worth compressing. */
+	static final int MIN_COMPRESSION_SIZE = 1024;
+
+	private BufferCompressor() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Returns the maximum number of bytes the compressed contents of a buffer with the given
+	 * size may occupy.
+	 */
+	static int maxCompressedLength(int size) {
+		return Snappy.maxCompressedLength(size);
+	}
+
+	/**
+	 * Compresses the given contents into the writable bytes of the target buffer, starting at
+	 * its writer index. The writer index is only advanced if the compressed contents are
+	 * smaller than the source.
+	 *
+	 * @param source The buffer contents to compress (position to limit).
+	 * @param target The Netty buffer with at least {@link #maxCompressedLength(int)} writable bytes.
+	 *
+	 * @return The number of compressed bytes written or <tt>-1</tt> if the contents were not
+	 * compressed.
+	 */
+	static int compress(ByteBuffer source, ByteBuf target) throws IOException {
+		final int size = source.remaining();
+		final int maxLength = maxCompressedLength(size);
+
+		if (size < MIN_COMPRESSION_SIZE || !source.isDirect() || target.nioBufferCount() != 1
+				|| target.writableBytes() < maxLength) {
+			return -1;
+		}
+
+		final ByteBuffer compressed = target.nioBuffer(target.writerIndex(), maxLength);
+		if (!compressed.isDirect()) {
+			return -1;
+		}
+
+		final int compressedLength = Snappy.compress(source, compressed);
+
+		if (compressedLength < size) {
+			target.writerIndex(target.writerIndex() + compressedLength);
+			return compressedLength;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * Decompresses the given compressed contents into the given buffer and sets the size of
+	 * the buffer accordingly.
+	 *
+	 * @param source The compressed contents. The reader index is advanced by <tt>length</tt>.
+	 * @param length The number of compressed bytes.
+	 * @param target The buffer to decompress into.
+	 */
+	static void decompress(ByteBuf source, int length, Buffer target) throws IOException {
+		final ByteBuffer compressed = source.nioBuffer(source.readerIndex(), length);
+		final int uncompressedLength = Snappy.uncompressedLength(compressed);
+
+		// expose the whole memory segment, the buffer size is set below
+		target.setSize(uncompressedLength);
+		final ByteBuffer uncompressed = target.getNioBuffer();
+
+		if (compressed.isDirect() && uncompressed.isDirect()) {
+			Snappy.uncompress(compressed, uncompressed);
+		} else {
+			final byte[] compressedBytes = new byte[length];
+			compressed.get(compressedBytes);
+
+			final byte[] uncompressedBytes = new byte[uncompressedLength];
+			Snappy.uncompress(compressedBytes, 0, length, uncompressedBytes, 0);
+			uncompressed.put(uncompressedBytes);
+		}
+
+		source.skipBytes(length);
+	}
+}
@@ -75,6 +75,14 @@ public class NettyConfig {
 			.defaultValue("nio")
 			.withDeprecatedKeys("taskmanager.net.transport");
 
+	public static final ConfigOption<Boolean> COMPRESSION_ENABLED = ConfigOptions
+			.key("taskmanager.network.netty.compression.enabled")
+			.defaultValue(false); // default: send network buffers uncompressed
+
+	public static final ConfigOption<Boolean> ZERO_COPY_ENABLED = ConfigOptions
+			.key("taskmanager.network.netty.zero-copy.enabled")
+			.defaultValue(false); // default: read spilled data into network buffers
+
 	// ------------------------------------------------------------------------
 
 	enum TransportType {
@@ -181,6 +189,18 @@ public class NettyConfig {
 		}
 	}
 
+	public boolean isCompressionEnabled() {
+		return config.getBoolean(COMPRESSION_ENABLED);
+	}
+
+	/**
+	 * Returns whether data buffers residing in files are sent via zero-copy file transfer. This
+	 * is not possible if the data is encrypted or compressed on the way.
+	 */
+	public boolean isZeroCopyEnabled() {
+		return config.getBoolean(ZERO_COPY_ENABLED) && !getSSLEnabled() && !isCompressionEnabled();
+	}
+
 	public SSLContext createClientSSLContext() throws Exception {
 
 		// Create SSL Context from config
@@ -229,7 +249,9 @@ public class NettyConfig {
 				"number of client threads: %d (%s), " +
 				"server connect backlog: %d (%s), " +
 				"client connect timeout (sec): %d, " +
-				"send/receive buffer size (bytes): %d (%s)]";
+				"send/receive buffer size (bytes): %d (%s), " +
+				"compression enabled: %s, " +
+				"zero-copy enabled: %s]";
 
 		String def = "use Netty's default";
 		String man = "manual";
@@ -240,6 +262,7 @@ public class NettyConfig {
 				getClientNumThreads(), getClientNumThreads() == 0 ? def : man,
 				getServerConnectBacklog(), getServerConnectBacklog() == 0 ? def : man,
 				getClientConnectTimeoutSeconds(), getSendAndReceiveBufferSize(),
-				getSendAndReceiveBufferSize() == 0 ? def : man);
+				getSendAndReceiveBufferSize() == 0 ? def : man, isCompressionEnabled(),
+				isZeroCopyEnabled());
 	}
 }
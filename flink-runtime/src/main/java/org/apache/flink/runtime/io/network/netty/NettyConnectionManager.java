@@ -35,7 +35,13 @@ public class NettyConnectionManager implements ConnectionManager {
 
 	private final PartitionRequestClientFactory partitionRequestClientFactory;
 
+	private final boolean compressionEnabled;
+
+	private final boolean zeroCopyEnabled;
+
 	public NettyConnectionManager(NettyConfig nettyConfig) {
+		this.compressionEnabled = nettyConfig.isCompressionEnabled();
+		this.zeroCopyEnabled = nettyConfig.isZeroCopyEnabled();
 		this.server = new NettyServer(nettyConfig);
 		this.client = new NettyClient(nettyConfig);
 		this.bufferPool = new NettyBufferPool(nettyConfig.getNumberOfArenas());
@@ -47,7 +53,8 @@ public class NettyConnectionManager implements ConnectionManager {
 	public void start(ResultPartitionProvider partitionProvider, TaskEventDispatcher taskEventDispatcher)
 			throws IOException {
 		PartitionRequestProtocol partitionRequestProtocol =
-				new PartitionRequestProtocol(partitionProvider, taskEventDispatcher);
+				new PartitionRequestProtocol(
+					partitionProvider, taskEventDispatcher, compressionEnabled, zeroCopyEnabled);
 
 		client.init(partitionRequestProtocol, bufferPool);
 		server.init(partitionRequestProtocol, bufferPool);
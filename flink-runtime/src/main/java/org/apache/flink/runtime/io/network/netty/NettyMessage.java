@@ -22,6 +22,7 @@ import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.partition.ReleasableFileSegment;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -35,6 +36,8 @@ import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelOutboundHandlerAdapter;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelPromise;
+import org.apache.flink.shaded.netty4.io.netty.channel.DefaultFileRegion;
+import org.apache.flink.shaded.netty4.io.netty.channel.FileRegion;
 import org.apache.flink.shaded.netty4.io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import org.apache.flink.shaded.netty4.io.netty.handler.codec.MessageToMessageDecoder;
 
@@ -134,7 +137,23 @@ public abstract class NettyMessage {
 
 		@Override
 		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
-			if (msg instanceof NettyMessage) {
+			if (msg instanceof FileSegmentResponse) {
+				ByteBuf header = null;
+
+				try {
+					header = ((FileSegmentResponse) msg).write(ctx.alloc());
+				}
+				catch (Throwable t) {
+					((FileSegmentResponse) msg).segment.release();
+					throw new IOException("Error while serializing message: " + msg, t);
+				}
+
+				// The header and the file region form one frame. The region releases the
+				// segment once it has been sent or discarded.
+				ctx.write(header);
+				ctx.write(((FileSegmentResponse) msg).createFileRegion(), promise);
+			}
+			else if (msg instanceof NettyMessage) {
 
 				ByteBuf serialized = null;
 
@@ -198,6 +217,9 @@ public abstract class NettyMessage {
 				case CloseRequest.ID:
 					decodedMsg = CloseRequest.readFrom(msg);
 					break;
+				case AddCredit.ID:
+					decodedMsg = AddCredit.readFrom(msg);
+					break;
 				default:
 					throw new ProtocolException("Received unknown message from producer: " + msg);
 			}
@@ -221,36 +243,60 @@ public abstract class NettyMessage {
 
 		final int sequenceNumber;
 
+		final int backlog;
+
+		/** Whether to compress the buffer contents when serializing (data buffers only). */
+		private final boolean compress;
+
 		// ---- Deserialization -----------------------------------------------
 
 		final boolean isBuffer;
 
+		/** Whether the received contents are snappy-compressed. */
+		final boolean isCompressed;
+
 		final int size;
 
 		@Nullable
 		ByteBuf retainedSlice;
 
 		private BufferResponse(
-				ByteBuf retainedSlice, boolean isBuffer, int sequenceNumber,
-				InputChannelID receiverId) {
+				ByteBuf retainedSlice, boolean isBuffer, boolean isCompressed, int sequenceNumber,
+				InputChannelID receiverId, int backlog) {
 			// When deserializing we first have to request a buffer from the respective buffer
 			// provider (at the handler) and copy the buffer from Netty's space to ours. Only
 			// retainedSlice is set in this case.
 			this.buffer = null;
+			this.compress = false;
 			this.retainedSlice = checkNotNull(retainedSlice);
 			this.size = retainedSlice.writerIndex();
 			this.isBuffer = isBuffer;
+			this.isCompressed = isCompressed;
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = checkNotNull(receiverId);
+			this.backlog = backlog;
 		}
 
 		BufferResponse(Buffer buffer, int sequenceNumber, InputChannelID receiverId) {
+			this(buffer, sequenceNumber, receiverId, 0);
+		}
+
+		BufferResponse(Buffer buffer, int sequenceNumber, InputChannelID receiverId, int backlog) {
+			this(buffer, sequenceNumber, receiverId, backlog, false);
+		}
+
+		BufferResponse(
+				Buffer buffer, int sequenceNumber, InputChannelID receiverId, int backlog,
+				boolean compress) {
 			this.buffer = checkNotNull(buffer);
+			this.compress = compress && buffer.isBuffer();
 			this.retainedSlice = null;
 			this.isBuffer = buffer.isBuffer();
+			this.isCompressed = false;
 			this.size = buffer.getSize();
 			this.sequenceNumber = sequenceNumber;
 			this.receiverId = checkNotNull(receiverId);
+			this.backlog = backlog;
 		}
 
 		boolean isBuffer() {
@@ -265,6 +311,21 @@ public abstract class NettyMessage {
 			return retainedSlice;
 		}
 
+		/**
+		 * Copies the received contents from Netty's buffer space into the given buffer, which is
+		 * resized accordingly. Compressed contents are decompressed on the fly.
+		 */
+		void readInto(Buffer target) throws IOException {
+			checkNotNull(retainedSlice, "No received contents to read from.");
+
+			if (isCompressed) {
+				BufferCompressor.decompress(retainedSlice, size, target);
+			} else {
+				target.setSize(size);
+				retainedSlice.readBytes(target.getNioBuffer());
+			}
+		}
+
 		void releaseBuffer() {
 			if (retainedSlice != null) {
 				retainedSlice.release();
@@ -280,7 +341,12 @@ public abstract class NettyMessage {
 		ByteBuf write(ByteBufAllocator allocator) throws IOException {
 			checkNotNull(buffer, "No buffer instance to serialize.");
 
-			int length = 16 + 4 + 1 + 4 + buffer.getSize();
+			final int size = buffer.getSize();
+			final int maxContentLength = compress
+				? Math.max(size, BufferCompressor.maxCompressedLength(size))
+				: size;
+
+			int length = 16 + 4 + 4 + 1 + 1 + 4 + maxContentLength;
 
 			ByteBuf result = null;
 			try {
@@ -288,9 +354,27 @@ public abstract class NettyMessage {
 
 				receiverId.writeTo(result);
 				result.writeInt(sequenceNumber);
+				result.writeInt(backlog);
 				result.writeBoolean(buffer.isBuffer());
-				result.writeInt(buffer.getSize());
-				result.writeBytes(buffer.getNioBuffer());
+
+				final int compressedFlagIndex = result.writerIndex();
+				result.writeBoolean(false);
+				final int sizeIndex = result.writerIndex();
+				result.writeInt(size);
+
+				final int compressedSize = compress
+					? BufferCompressor.compress(buffer.getNioBuffer(), result)
+					: -1;
+
+				if (compressedSize >= 0) {
+					result.setBoolean(compressedFlagIndex, true);
+					result.setInt(sizeIndex, compressedSize);
+				} else {
+					result.writeBytes(buffer.getNioBuffer());
+				}
+
+				// the frame may be shorter than the space reserved for compression
+				result.setInt(0, result.readableBytes());
 
 				return result;
 			}
@@ -309,12 +393,111 @@ public abstract class NettyMessage {
 		static BufferResponse readFrom(ByteBuf buffer) {
 			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
 			int sequenceNumber = buffer.readInt();
+			int backlog = buffer.readInt();
 			boolean isBuffer = buffer.readBoolean();
+			boolean isCompressed = buffer.readBoolean();
 			int size = buffer.readInt();
 
 			ByteBuf retainedSlice = buffer.readSlice(size).retain();
 
-			return new BufferResponse(retainedSlice, isBuffer, sequenceNumber, receiverId);
+			return new BufferResponse(
+				retainedSlice, isBuffer, isCompressed, sequenceNumber, receiverId, backlog);
+		}
+	}
+
+	/**
+	 * A data buffer residing in a file, which is sent as a {@link BufferResponse} without copying
+	 * the contents into Netty's buffer space: the encoder writes the header and then transfers the
+	 * contents directly from the file (zero-copy via <tt>sendfile</tt> where supported by the
+	 * transport).
+	 *
+	 * <p>The receiving side decodes this as a regular {@link BufferResponse}. Contents are never
+	 * compressed and the transfer is not possible with SSL enabled, which requires the contents in
+	 * user space.
+	 */
+	static class FileSegmentResponse extends NettyMessage {
+
+		final ReleasableFileSegment segment;
+
+		final InputChannelID receiverId;
+
+		final int sequenceNumber;
+
+		final int backlog;
+
+		FileSegmentResponse(ReleasableFileSegment segment, int sequenceNumber, InputChannelID receiverId, int backlog) {
+			this.segment = checkNotNull(segment);
+			checkArgument(segment.isBuffer(), "Events must be sent as BufferResponse.");
+			this.sequenceNumber = sequenceNumber;
+			this.receiverId = checkNotNull(receiverId);
+			this.backlog = backlog;
+		}
+
+		/**
+		 * Writes the header of the {@link BufferResponse} frame. The frame length already covers
+		 * the contents, which follow as file region.
+		 */
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			final int headerLength = 16 + 4 + 4 + 1 + 1 + 4;
+
+			ByteBuf result = null;
+			try {
+				result = allocateBuffer(allocator, BufferResponse.ID, headerLength);
+
+				receiverId.writeTo(result);
+				result.writeInt(sequenceNumber);
+				result.writeInt(backlog);
+				result.writeBoolean(true);
+				result.writeBoolean(false);
+				result.writeInt(segment.getLength());
+
+				result.setInt(0, result.readableBytes() + segment.getLength());
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		FileRegion createFileRegion() {
+			return new SegmentFileRegion(segment);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("FileSegmentResponse(%d bytes at %d, seq: %d, receiver: %s)",
+				segment.getLength(), segment.getPosition(), sequenceNumber, receiverId);
+		}
+	}
+
+	/**
+	 * A {@link DefaultFileRegion} of a {@link ReleasableFileSegment}, which releases the segment
+	 * instead of closing the file channel when the region is deallocated. The file channel is
+	 * shared by the subpartition view and all of its segments in flight and is closed after the
+	 * last of them has been released. This happens after the region has been sent or, if the
+	 * connection fails, when Netty discards the pending writes.
+	 *
+	 * <p>We extend {@link DefaultFileRegion}, because the native epoll transport only does
+	 * zero-copy transfers for this type.
+	 */
+	private static class SegmentFileRegion extends DefaultFileRegion {
+
+		private final ReleasableFileSegment segment;
+
+		SegmentFileRegion(ReleasableFileSegment segment) {
+			super(segment.getFileChannel(), segment.getPosition(), segment.getLength());
+			this.segment = segment;
+		}
+
+		@Override
+		protected void deallocate() {
+			segment.release();
 		}
 	}
 
@@ -577,4 +760,65 @@ public abstract class NettyMessage {
 			return new CloseRequest();
 		}
 	}
+
+	/**
+	 * Incremental credit announcement from the client to the server.
+	 */
+	static class AddCredit extends NettyMessage {
+
+		private static final byte ID = 6;
+
+		final ResultPartitionID partitionId;
+
+		final int credit;
+
+		final InputChannelID receiverId;
+
+		AddCredit(ResultPartitionID partitionId, int credit, InputChannelID receiverId) {
+			checkArgument(credit > 0, "The announced credit should be greater than 0");
+
+			this.partitionId = checkNotNull(partitionId);
+			this.credit = credit;
+			this.receiverId = checkNotNull(receiverId);
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 16 + 16 + 4 + 16);
+
+				partitionId.getPartitionId().writeTo(result);
+				partitionId.getProducerId().writeTo(result);
+				result.writeInt(credit);
+				receiverId.writeTo(result);
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		static AddCredit readFrom(ByteBuf buffer) {
+			ResultPartitionID partitionId =
+				new ResultPartitionID(
+					IntermediateResultPartitionID.fromByteBuf(buffer),
+					ExecutionAttemptID.fromByteBuf(buffer));
+			int credit = buffer.readInt();
+			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
+
+			return new AddCredit(partitionId, credit, receiverId);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("AddCredit(%s : %d)", receiverId, credit);
+		}
+	}
 }
@@ -167,6 +167,16 @@ public class PartitionRequestClient {
 						});
 	}
 
+	/**
+	 * Announces the unannounced credit of the given input channel to the remote producer.
+	 *
+	 * <p>The announcement is handed over to the network I/O thread, which sends the credit
+	 * as soon as the TCP channel is writable.
+	 */
+	public void notifyCreditAvailable(RemoteInputChannel inputChannel) {
+		partitionRequestHandler.notifyCreditAvailable(inputChannel);
+	}
+
 	public void close(RemoteInputChannel inputChannel) throws IOException {
 
 		partitionRequestHandler.removeInputChannel(inputChannel);
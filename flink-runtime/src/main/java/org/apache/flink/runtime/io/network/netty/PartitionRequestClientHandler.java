@@ -24,6 +24,7 @@ import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferListener;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
 import org.apache.flink.runtime.io.network.netty.exception.LocalTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.RemoteTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.TransportException;
@@ -32,6 +33,9 @@ import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
 
 import org.apache.flink.shaded.guava18.com.google.common.collect.Maps;
+import org.apache.flink.shaded.netty4.io.netty.channel.Channel;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFuture;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFutureListener;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelInboundHandlerAdapter;
 
@@ -46,6 +50,15 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Channel handler to read the buffers and errors sent by the producers of the requested
+ * partitions and to announce the credit of credit-based input channels.
+ *
+ * <p>Buffers of credit-based input channels are copied into one of the channel's available
+ * buffers, which the producer has been granted as credit before. Buffers of all other input
+ * channels are copied into buffers requested from the input gate's buffer pool, which stalls
+ * the whole TCP connection if the pool is exhausted.
+ */
 class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 
 	private static final Logger LOG = LoggerFactory.getLogger(PartitionRequestClientHandler.class);
@@ -66,6 +79,11 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 	 */
 	private final ConcurrentMap<InputChannelID, InputChannelID> cancelled = Maps.newConcurrentMap();
 
+	/** Credit-based input channels with unannounced credit. Only accessed by the network I/O thread. */
+	private final ArrayDeque<RemoteInputChannel> inputChannelsWithCredit = new ArrayDeque<>();
+
+	private final ChannelFutureListener writeListener = new WriteAndFlushNextMessageIfPossibleListener();
+
 	private volatile ChannelHandlerContext ctx;
 
 	// ------------------------------------------------------------------------
@@ -94,6 +112,21 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Hands the given input channel with unannounced credit over to the network I/O thread,
+	 * which announces the credit to the producer.
+	 */
+	void notifyCreditAvailable(final RemoteInputChannel inputChannel) {
+		// The notification might come from the task thread or a recycling thread, so the
+		// credit announcement is scheduled at the event loop of the channel.
+		ctx.executor().execute(new Runnable() {
+			@Override
+			public void run() {
+				ctx.pipeline().fireUserEventTriggered(inputChannel);
+			}
+		});
+	}
+
 	// ------------------------------------------------------------------------
 	// Network events
 	// ------------------------------------------------------------------------
@@ -155,6 +188,31 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	@Override
+	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
+		if (msg instanceof RemoteInputChannel) {
+			// Queue the input channel for announcing its credit. If the queue
+			// is empty, we try trigger the actual write. Otherwise this will
+			// be handled by the writeAndFlushNextMessageIfPossible calls.
+			boolean triggerWrite = inputChannelsWithCredit.isEmpty();
+
+			inputChannelsWithCredit.add((RemoteInputChannel) msg);
+
+			if (triggerWrite) {
+				writeAndFlushNextMessageIfPossible(ctx.channel());
+			}
+		} else {
+			ctx.fireUserEventTriggered(msg);
+		}
+	}
+
+	@Override
+	public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+		writeAndFlushNextMessageIfPossible(ctx.channel());
+
+		super.channelWritabilityChanged(ctx);
+	}
+
 	@Override
 	public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
 		try {
@@ -184,6 +242,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 			}
 			finally {
 				inputChannels.clear();
+				inputChannelsWithCredit.clear();
 
 				if (ctx != null) {
 					ctx.close();
@@ -192,6 +251,44 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Announces the credit of the next queued input channel to its producer. The next channel
+	 * is handled after the previous announcement has been written out.
+	 */
+	private void writeAndFlushNextMessageIfPossible(Channel channel) {
+		if (channelError.get() != null || !channel.isWritable()) {
+			return;
+		}
+
+		while (true) {
+			RemoteInputChannel inputChannel = inputChannelsWithCredit.poll();
+
+			// The input channel may be null because of the write callbacks
+			// that are executed after each write.
+			if (inputChannel == null) {
+				return;
+			}
+
+			// It is no need to notify credit for the released channel.
+			if (!inputChannel.isReleased()) {
+				int credit = inputChannel.getAndResetUnannouncedCredit();
+
+				if (credit > 0) {
+					AddCredit msg = new AddCredit(
+						inputChannel.getPartitionId(),
+						credit,
+						inputChannel.getInputChannelId());
+
+					// Write and flush and wait until this is done before
+					// trying to continue with the next input channel.
+					channel.writeAndFlush(msg).addListener(writeListener);
+
+					return;
+				}
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -276,7 +373,37 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 				// Early return for empty buffers. Otherwise Netty's readBytes() throws an
 				// IndexOutOfBoundsException.
 				if (bufferOrEvent.getSize() == 0) {
-					inputChannel.onEmptyBuffer(bufferOrEvent.sequenceNumber);
+					inputChannel.onEmptyBuffer(bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
+					return true;
+				}
+
+				if (inputChannel.isCreditBased()) {
+					// The producer only sends buffers, for which it has been granted credit,
+					// so there has to be an available buffer unless the channel was released.
+					Buffer buffer = inputChannel.requestBuffer();
+
+					if (buffer == null) {
+						if (inputChannel.isReleased()) {
+							cancelRequestFor(bufferOrEvent.receiverId);
+							return true;
+						}
+
+						throw new IllegalStateException("Received a buffer for " + inputChannel +
+							" without any available buffer. This indicates a bug in the credit-based flow control.");
+					}
+
+					boolean success = false;
+					try {
+						bufferOrEvent.readInto(buffer);
+						success = true;
+					} finally {
+						if (!success) {
+							buffer.recycle();
+						}
+					}
+
+					inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
+
 					return true;
 				}
 
@@ -292,10 +419,9 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 					Buffer buffer = bufferProvider.requestBuffer();
 
 					if (buffer != null) {
-						buffer.setSize(bufferOrEvent.getSize());
-						bufferOrEvent.getNettyBuffer().readBytes(buffer.getNioBuffer());
+						bufferOrEvent.readInto(buffer);
 
-						inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber);
+						inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
 
 						return true;
 					}
@@ -318,7 +444,7 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 				MemorySegment memSeg = MemorySegmentFactory.wrap(byteArray);
 				Buffer buffer = new Buffer(memSeg, FreeingBufferRecycler.INSTANCE, false);
 
-				inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber);
+				inputChannel.onBuffer(buffer, bufferOrEvent.sequenceNumber, bufferOrEvent.backlog);
 
 				return true;
 			}
@@ -442,15 +568,13 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 					throw new IllegalStateException("Running buffer availability task w/o a buffer.");
 				}
 
-				buffer.setSize(stagedBufferResponse.getSize());
-
-				stagedBufferResponse.getNettyBuffer().readBytes(buffer.getNioBuffer());
+				stagedBufferResponse.readInto(buffer);
 				stagedBufferResponse.releaseBuffer();
 
 				RemoteInputChannel inputChannel = inputChannels.get(stagedBufferResponse.receiverId);
 
 				if (inputChannel != null) {
-					inputChannel.onBuffer(buffer, stagedBufferResponse.sequenceNumber);
+					inputChannel.onBuffer(buffer, stagedBufferResponse.sequenceNumber, stagedBufferResponse.backlog);
 
 					success = true;
 				}
@@ -481,6 +605,26 @@ class PartitionRequestClientHandler extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	// This listener is called after an AddCredit message has been written and flushed.
+	// If successful, the listener triggers the announcement of the next queued credit.
+	private class WriteAndFlushNextMessageIfPossibleListener implements ChannelFutureListener {
+
+		@Override
+		public void operationComplete(ChannelFuture future) throws Exception {
+			try {
+				if (future.isSuccess()) {
+					writeAndFlushNextMessageIfPossible(future.channel());
+				} else if (future.cause() != null) {
+					notifyAllChannelsOfErrorAndClose(future.cause());
+				} else {
+					notifyAllChannelsOfErrorAndClose(new IllegalStateException("Sending cancelled by user."));
+				}
+			} catch (Throwable t) {
+				notifyAllChannelsOfErrorAndClose(t);
+			}
+		}
+	}
+
 	public class StagedMessagesHandlerTask implements Runnable {
 
 		@Override
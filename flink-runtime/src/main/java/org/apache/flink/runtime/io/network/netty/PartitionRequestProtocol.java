@@ -35,9 +35,25 @@ class PartitionRequestProtocol implements NettyProtocol {
 	private final ResultPartitionProvider partitionProvider;
 	private final TaskEventDispatcher taskEventDispatcher;
 
+	/** Whether the server compresses the data buffers it sends to the clients. */
+	private final boolean compressionEnabled;
+
+	/** Whether the server sends data buffers residing in files via zero-copy file transfer. */
+	private final boolean zeroCopyEnabled;
+
 	PartitionRequestProtocol(ResultPartitionProvider partitionProvider, TaskEventDispatcher taskEventDispatcher) {
+		this(partitionProvider, taskEventDispatcher, false, false);
+	}
+
+	PartitionRequestProtocol(
+			ResultPartitionProvider partitionProvider,
+			TaskEventDispatcher taskEventDispatcher,
+			boolean compressionEnabled,
+			boolean zeroCopyEnabled) {
 		this.partitionProvider = partitionProvider;
 		this.taskEventDispatcher = taskEventDispatcher;
+		this.compressionEnabled = compressionEnabled;
+		this.zeroCopyEnabled = zeroCopyEnabled;
 	}
 
 	// +-------------------------------------------------------------------+
@@ -73,7 +89,7 @@ class PartitionRequestProtocol implements NettyProtocol {
 
 	@Override
 	public ChannelHandler[] getServerChannelHandlers() {
-		PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue();
+		PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue(compressionEnabled, zeroCopyEnabled);
 		PartitionRequestServerHandler serverHandler = new PartitionRequestServerHandler(
 				partitionProvider, taskEventDispatcher, queueOfPartitionQueues);
 
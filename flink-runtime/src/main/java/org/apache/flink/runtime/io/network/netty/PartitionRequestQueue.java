@@ -22,7 +22,9 @@ import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ErrorResponse;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.FileSegmentResponse;
 import org.apache.flink.runtime.io.network.partition.ProducerFailedException;
+import org.apache.flink.runtime.io.network.partition.ReleasableFileSegment;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel.BufferAndAvailability;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 
@@ -38,7 +40,8 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
-import java.util.Queue;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
@@ -46,6 +49,10 @@ import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferRespo
 /**
  * A nonEmptyReader of partition queues, which listens for channel writability changed
  * events before writing and flushing {@link Buffer} instances.
+ *
+ * <p>Readers of credit-based consumers are only queued for writing while their consumer
+ * has announced credit, so that a back-pressured consumer does not block other consumers
+ * sharing the same TCP connection.
  */
 class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
@@ -53,14 +60,33 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 
 	private final ChannelFutureListener writeListener = new WriteAndFlushNextMessageIfPossibleListener();
 
-	private final Queue<SequenceNumberingViewReader> nonEmptyReader = new ArrayDeque<>();
+	/** The readers which are already enqueued available for transferring data. */
+	private final ArrayDeque<SequenceNumberingViewReader> availableReaders = new ArrayDeque<>();
+
+	/** All the readers created for the consumers' partition requests. */
+	private final Map<InputChannelID, SequenceNumberingViewReader> allReaders = new HashMap<>();
 
 	private final Set<InputChannelID> released = Sets.newHashSet();
 
 	private boolean fatalError;
 
+	/** Whether data buffers are compressed before being sent to the consumers. */
+	private final boolean compressionEnabled;
+
+	/** Whether data buffers residing in files are sent via zero-copy file transfer. */
+	private final boolean zeroCopyEnabled;
+
 	private ChannelHandlerContext ctx;
 
+	PartitionRequestQueue() {
+		this(false, false);
+	}
+
+	PartitionRequestQueue(boolean compressionEnabled, boolean zeroCopyEnabled) {
+		this.compressionEnabled = compressionEnabled;
+		this.zeroCopyEnabled = zeroCopyEnabled;
+	}
+
 	@Override
 	public void channelRegistered(final ChannelHandlerContext ctx) throws Exception {
 		if (this.ctx == null) {
@@ -88,6 +114,36 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		});
 	}
 
+	/**
+	 * Registers a newly created reader. Called by the network I/O thread when handling the
+	 * partition request of the reader's consumer.
+	 */
+	void notifyReaderCreated(final SequenceNumberingViewReader reader) {
+		allReaders.put(reader.getReceiverId(), reader);
+	}
+
+	/**
+	 * Adds the credit announced by a consumer to its reader and tries to write out buffers
+	 * which were held back for lack of credit. Called by the network I/O thread.
+	 *
+	 * @param receiverId The input channel id to identify the consumer.
+	 * @param credit The unannounced credit of the consumer.
+	 */
+	void addCredit(InputChannelID receiverId, int credit) throws Exception {
+		if (fatalError || released.contains(receiverId)) {
+			return;
+		}
+
+		SequenceNumberingViewReader reader = allReaders.get(receiverId);
+		if (reader != null) {
+			reader.addCredit(credit);
+
+			enqueueAvailableReader(reader);
+		} else {
+			throw new IllegalStateException("No reader for receiverId = " + receiverId + " exists.");
+		}
+	}
+
 	public void cancel(InputChannelID receiverId) {
 		ctx.pipeline().fireUserEventTriggered(receiverId);
 	}
@@ -98,20 +154,36 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Try to enqueue the reader once receiving credit notification from the consumer or receiving
+	 * non-empty reader notification from the producer.
+	 *
+	 * <p>NOTE: Only one thread would trigger the actual enqueue after checking the reader's
+	 * availability, so there is no race condition here.
+	 */
+	private void enqueueAvailableReader(final SequenceNumberingViewReader reader) throws Exception {
+		if (reader.isRegisteredAsAvailable() || released.contains(reader.getReceiverId()) || !reader.isAvailable()) {
+			return;
+		}
+
+		// Queue an available reader for consumption. If the queue is empty,
+		// we try trigger the actual write. Otherwise this will be handled by
+		// the writeAndFlushNextMessageIfPossible calls.
+		boolean triggerWrite = availableReaders.isEmpty();
+		registerAvailableReader(reader);
+
+		if (triggerWrite) {
+			writeAndFlushNextMessageIfPossible(ctx.channel());
+		}
+	}
+
 	@Override
 	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
 		// The user event triggered event loop callback is used for thread-safe
 		// hand over of reader queues and cancelled producers.
 
 		if (msg.getClass() == SequenceNumberingViewReader.class) {
-			// Queue a non-empty reader for consumption. If the queue
-			// is empty, we try trigger the actual write. Otherwise this
-			// will be handled by the writeAndFlushIfPossible calls.
-			boolean triggerWrite = nonEmptyReader.isEmpty();
-			nonEmptyReader.add((SequenceNumberingViewReader) msg);
-			if (triggerWrite) {
-				writeAndFlushNextMessageIfPossible(ctx.channel());
-			}
+			enqueueAvailableReader((SequenceNumberingViewReader) msg);
 		} else if (msg.getClass() == InputChannelID.class) {
 			// Release partition view that get a cancel request.
 			InputChannelID toCancel = (InputChannelID) msg;
@@ -120,15 +192,15 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 			}
 
 			// Cancel the request for the input channel
-			int size = nonEmptyReader.size();
-			for (int i = 0; i < size; i++) {
-				SequenceNumberingViewReader reader = nonEmptyReader.poll();
-				if (reader.getReceiverId().equals(toCancel)) {
-					reader.releaseAllResources();
-					markAsReleased(reader.getReceiverId());
-				} else {
-					nonEmptyReader.add(reader);
+			final SequenceNumberingViewReader toRelease = allReaders.get(toCancel);
+			if (toRelease != null) {
+				if (toRelease.isRegisteredAsAvailable()) {
+					availableReaders.remove(toRelease);
+					toRelease.setRegisteredAsAvailable(false);
 				}
+
+				toRelease.releaseAllResources();
+				markAsReleased(toCancel);
 			}
 		} else {
 			ctx.fireUserEventTriggered(msg);
@@ -153,7 +225,7 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		try {
 			if (channel.isWritable()) {
 				while (true) {
-					SequenceNumberingViewReader reader = nonEmptyReader.poll();
+					SequenceNumberingViewReader reader = pollAvailableReader();
 
 					// No queue with available data. We allow this here, because
 					// of the write callbacks that are executed after each write.
@@ -161,6 +233,27 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 						return;
 					}
 
+					if (zeroCopyEnabled) {
+						ReleasableFileSegment segment = reader.getNextFileSegment();
+
+						if (segment != null) {
+							FileSegmentResponse msg = new FileSegmentResponse(
+								segment,
+								reader.getSequenceNumber(),
+								reader.getReceiverId(),
+								reader.getBuffersInBacklog());
+
+							// data buffers are never the end of the partition
+							if (reader.isAvailable()) {
+								registerAvailableReader(reader);
+							}
+
+							channel.writeAndFlush(msg).addListener(writeListener);
+
+							return;
+						}
+					}
+
 					next = reader.getNextBuffer();
 
 					if (next == null) {
@@ -183,23 +276,24 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 							return;
 						}
 					} else {
-						// this channel was now removed from the non-empty reader queue
-						// we re-add it in case it has more data, because in that case no
-						// "non-empty" notification will come for that reader from the queue.
-						if (next.moreAvailable()) {
-							nonEmptyReader.add(reader);
-						}
-
 						BufferResponse msg = new BufferResponse(
 							next.buffer(),
 							reader.getSequenceNumber(),
-							reader.getReceiverId());
+							reader.getReceiverId(),
+							reader.getBuffersInBacklog(),
+							compressionEnabled);
 
 						if (isEndOfPartitionEvent(next.buffer())) {
 							reader.notifySubpartitionConsumed();
 							reader.releaseAllResources();
 
 							markAsReleased(reader.getReceiverId());
+						} else if (reader.isAvailable()) {
+							// this channel was now removed from the available reader queue
+							// we re-add it in case it has more data and credit, because in that
+							// case no "non-empty" notification will come for that reader from the
+							// queue and no credit notification will come from the consumer.
+							registerAvailableReader(reader);
 						}
 
 						// Write and flush and wait until this is done before
@@ -219,6 +313,19 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	private void registerAvailableReader(SequenceNumberingViewReader reader) {
+		availableReaders.add(reader);
+		reader.setRegisteredAsAvailable(true);
+	}
+
+	private SequenceNumberingViewReader pollAvailableReader() {
+		SequenceNumberingViewReader reader = availableReaders.poll();
+		if (reader != null) {
+			reader.setRegisteredAsAvailable(false);
+		}
+		return reader;
+	}
+
 	private boolean isEndOfPartitionEvent(Buffer buffer) throws IOException {
 		return EventSerializer.isEvent(buffer, EndOfPartitionEvent.class,
 			getClass().getClassLoader());
@@ -248,11 +355,14 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 	}
 
 	private void releaseAllResources() throws IOException {
-		SequenceNumberingViewReader reader;
-		while ((reader = nonEmptyReader.poll()) != null) {
+		// note: this is only ever executed by one thread: the Netty IO thread!
+		for (SequenceNumberingViewReader reader : allReaders.values()) {
 			reader.releaseAllResources();
-			markAsReleased(reader.getReceiverId());
+			released.add(reader.getReceiverId());
 		}
+
+		availableReaders.clear();
+		allReaders.clear();
 	}
 
 	/**
@@ -260,9 +370,10 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 	 */
 	private void markAsReleased(InputChannelID receiverId) {
 		released.add(receiverId);
+		allReaders.remove(receiverId);
 	}
 
-	// This listener is called after an element of the current nonEmptyReader has been
+	// This listener is called after an element of the current availableReaders has been
 	// flushed. If successful, the listener triggers further processing of the
 	// queues.
 	private class WriteAndFlushNextMessageIfPossibleListener implements ChannelFutureListener {
@@ -20,6 +20,8 @@ package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
+import org.apache.flink.runtime.io.network.partition.FileSegmentSubpartitionView;
+import org.apache.flink.runtime.io.network.partition.ReleasableFileSegment;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
@@ -30,12 +32,19 @@ import org.apache.flink.runtime.io.network.partition.consumer.LocalInputChannel;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicLong;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkState;
+
 /**
  * Simple wrapper for the partition readerQueue iterator, which increments a
  * sequence number for each returned buffer and remembers the receiver ID.
  *
  * <p>It also keeps track of available buffers and notifies the outbound
  * handler about non-emptiness, similar to the {@link LocalInputChannel}.
+ *
+ * <p>If the consumer announced an initial credit with its partition request, the
+ * reader additionally tracks the consumer's available credit and is only considered
+ * available while there is both data and credit left.
  */
 class SequenceNumberingViewReader implements BufferAvailabilityListener {
 
@@ -51,9 +60,29 @@ class SequenceNumberingViewReader implements BufferAvailabilityListener {
 
 	private int sequenceNumber = -1;
 
+	/** Whether the consumer of this reader transfers data based on announced credit. */
+	private final boolean isCreditBased;
+
+	/**
+	 * The number of buffers the consumer can currently receive. This is only accessed
+	 * by the network I/O thread.
+	 */
+	private int numCreditsAvailable;
+
+	/** Whether this reader is currently enqueued in the outbound queue of available readers. */
+	private boolean isRegisteredAsAvailable;
+
 	SequenceNumberingViewReader(InputChannelID receiverId, PartitionRequestQueue requestQueue) {
+		this(receiverId, 0, requestQueue);
+	}
+
+	SequenceNumberingViewReader(InputChannelID receiverId, int initialCredit, PartitionRequestQueue requestQueue) {
+		checkArgument(initialCredit >= 0, "Initial credit must not be negative.");
+
 		this.receiverId = receiverId;
 		this.requestQueue = requestQueue;
+		this.isCreditBased = initialCredit > 0;
+		this.numCreditsAvailable = initialCredit;
 	}
 
 	void requestSubpartitionView(
@@ -85,22 +114,110 @@ class SequenceNumberingViewReader implements BufferAvailabilityListener {
 		return sequenceNumber;
 	}
 
+	boolean isCreditBased() {
+		return isCreditBased;
+	}
+
+	int getNumCreditsAvailable() {
+		return numCreditsAvailable;
+	}
+
+	/**
+	 * Adds credit announced by the consumer. Called by the network I/O thread.
+	 */
+	void addCredit(int creditDeltas) {
+		checkState(isCreditBased, "Received credit for a reader that is not credit-based.");
+
+		numCreditsAvailable += creditDeltas;
+	}
+
+	boolean isRegisteredAsAvailable() {
+		return isRegisteredAsAvailable;
+	}
+
+	void setRegisteredAsAvailable(boolean isRegisteredAsAvailable) {
+		this.isRegisteredAsAvailable = isRegisteredAsAvailable;
+	}
+
+	/**
+	 * Returns whether the reader should be polled by the outbound queue, i.e. there is at
+	 * least one buffer queued and, in credit-based mode, the consumer has credit left.
+	 *
+	 * <p>A released view is always available so that its failure cause can be forwarded to the
+	 * consumer.
+	 */
+	boolean isAvailable() {
+		if (numBuffersAvailable.get() > 0) {
+			return !isCreditBased || numCreditsAvailable > 0;
+		}
+
+		final ResultSubpartitionView view = subpartitionView;
+		return view != null && view.isReleased();
+	}
+
+	/**
+	 * Returns the number of buffers which are queued in the subpartition but not yet
+	 * handed out by this reader.
+	 */
+	int getBuffersInBacklog() {
+		return (int) Math.max(0, Math.min(Integer.MAX_VALUE, numBuffersAvailable.get()));
+	}
+
 	public BufferAndAvailability getNextBuffer() throws IOException, InterruptedException {
 		Buffer next = subpartitionView.getNextBuffer();
 		if (next != null) {
-			long remaining = numBuffersAvailable.decrementAndGet();
-			sequenceNumber++;
+			return new BufferAndAvailability(next, onBufferConsumed());
+		} else {
+			return null;
+		}
+	}
 
-			if (remaining >= 0) {
-				return new BufferAndAvailability(next, remaining > 0);
-			} else {
-				throw new IllegalStateException("no buffer available");
+	/**
+	 * Returns the file segment of the next buffer, if the view is backed by a file and the next
+	 * buffer is a data buffer (see {@link FileSegmentSubpartitionView}). Otherwise, the next
+	 * buffer has to be requested via {@link #getNextBuffer()}.
+	 *
+	 * <p>The returned segment has to be released after its contents have been sent.
+	 */
+	ReleasableFileSegment getNextFileSegment() throws IOException {
+		final ResultSubpartitionView view = subpartitionView;
+
+		if (view instanceof FileSegmentSubpartitionView) {
+			ReleasableFileSegment next = ((FileSegmentSubpartitionView) view).getNextFileSegment();
+			if (next != null) {
+				try {
+					onBufferConsumed();
+				} catch (Throwable t) {
+					next.release();
+					throw t;
+				}
 			}
+			return next;
 		} else {
 			return null;
 		}
 	}
 
+	/**
+	 * Updates the sequence number, the available buffers and credit for a consumed buffer.
+	 *
+	 * @return whether more buffers are available
+	 */
+	private boolean onBufferConsumed() {
+		long remaining = numBuffersAvailable.decrementAndGet();
+		sequenceNumber++;
+
+		if (isCreditBased && --numCreditsAvailable < 0) {
+			throw new IllegalStateException("no credit available");
+		}
+
+		if (remaining >= 0) {
+			return remaining > 0;
+		} else {
+			throw new IllegalStateException("no buffer available");
+		}
+	}
+
 	public void notifySubpartitionConsumed() throws IOException {
 		subpartitionView.notifySubpartitionConsumed();
 	}
@@ -132,6 +249,8 @@ class SequenceNumberingViewReader implements BufferAvailabilityListener {
 			", receiverId=" + receiverId +
 			", numBuffersAvailable=" + numBuffersAvailable.get() +
 			", sequenceNumber=" + sequenceNumber +
+			", isCreditBased=" + isCreditBased +
+			", numCreditsAvailable=" + numCreditsAvailable +
 			'}';
 	}
 }
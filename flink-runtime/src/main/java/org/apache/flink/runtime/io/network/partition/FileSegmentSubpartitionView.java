@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * A {@link ResultSubpartitionView} over data residing in a file, which can hand out its data
+ * buffers as {@link ReleasableFileSegment} instances instead of reading them into memory. This
+ * allows the network stack to send them to remote consumers via zero-copy file transfer.
+ */
+public interface FileSegmentSubpartitionView extends ResultSubpartitionView {
+
+	/**
+	 * Returns the file segment of the next buffer, if it is a data buffer, and advances past it.
+	 * The returned segment counts as a consumed buffer, just like a buffer returned by
+	 * {@link #getNextBuffer()}.
+	 *
+	 * <p>If the next buffer is an event or there is currently no buffer available, this returns
+	 * <code>null</code> without advancing. The next buffer has to be requested via
+	 * {@link #getNextBuffer()} in this case.
+	 *
+	 * <p><strong>Important</strong>: The file segment keeps the file open, even after the view has
+	 * been released. It has to be released once its contents have been transferred.
+	 */
+	@Nullable
+	ReleasableFileSegment getNextFileSegment() throws IOException;
+}
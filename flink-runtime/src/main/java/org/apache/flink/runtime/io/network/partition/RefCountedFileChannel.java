@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.Closeable;
+import java.nio.channels.FileChannel;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A file channel, which is shared by its owner and the {@link ReleasableFileSegment} instances
+ * handed out for zero-copy transfers. The owner holds the initial reference. The channel is
+ * closed once the owner and all segments have released their references, so that segments,
+ * which are still queued in the network stack, remain readable after the owner is released.
+ */
+public final class RefCountedFileChannel {
+
+	private static final Logger LOG = LoggerFactory.getLogger(RefCountedFileChannel.class);
+
+	private final FileChannel fileChannel;
+
+	/** Closes the file channel and cleans up the file, after the last reference is released. */
+	private final Closeable closer;
+
+	/** The number of references to the file channel, guarded by this object. */
+	private int referenceCount;
+
+	public RefCountedFileChannel(FileChannel fileChannel, Closeable closer) {
+		this.fileChannel = checkNotNull(fileChannel);
+		this.closer = checkNotNull(closer);
+		this.referenceCount = 1;
+	}
+
+	/**
+	 * Creates a segment of the file, which holds its own reference to the file channel.
+	 *
+	 * @return the segment or <tt>null</tt> if the channel has already been released
+	 */
+	@Nullable
+	public synchronized ReleasableFileSegment createSegment(long position, int length) {
+		if (referenceCount == 0) {
+			return null;
+		}
+
+		++referenceCount;
+		return new ReleasableFileSegment(this, fileChannel, position, length);
+	}
+
+	/**
+	 * Releases a reference and closes the channel, if it was the last one.
+	 */
+	public void release() {
+		synchronized (this) {
+			checkState(referenceCount > 0, "The file channel has already been released.");
+			if (--referenceCount > 0) {
+				return;
+			}
+		}
+
+		try {
+			closer.close();
+		} catch (Throwable t) {
+			LOG.warn("Error while closing {}.", fileChannel, t);
+		}
+	}
+}
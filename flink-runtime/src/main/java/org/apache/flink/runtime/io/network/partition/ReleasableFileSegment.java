@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.disk.iomanager.FileSegment;
+
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link FileSegment} of a data buffer, which keeps the file channel open until it is released.
+ * Each segment handed out by a {@link FileSegmentSubpartitionView} has to be released exactly
+ * once, after its contents have been transferred or if they will not be transferred anymore.
+ */
+public final class ReleasableFileSegment extends FileSegment {
+
+	private final RefCountedFileChannel owner;
+
+	private final AtomicBoolean isReleased = new AtomicBoolean();
+
+	ReleasableFileSegment(RefCountedFileChannel owner, FileChannel fileChannel, long position, int length) {
+		super(fileChannel, position, length, true);
+		this.owner = checkNotNull(owner);
+	}
+
+	/**
+	 * Releases the reference to the file channel. Repeated calls have no effect.
+	 */
+	public void release() {
+		if (isReleased.compareAndSet(false, true)) {
+			owner.release();
+		}
+	}
+}
@@ -161,8 +161,17 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 
 				break;
 
+			case BLOCKING_SORT_MERGE:
+				SortMergePartitionFile partitionFile = new SortMergePartitionFile(subpartitions.length, ioManager);
+				for (int i = 0; i < subpartitions.length; i++) {
+					subpartitions[i] = new SortMergeSubpartition(i, this, partitionFile);
+				}
+
+				break;
+
 			case PIPELINED:
 			case PIPELINED_BOUNDED:
+			case PIPELINED_CREDIT_BASED:
 				for (int i = 0; i < subpartitions.length; i++) {
 					subpartitions[i] = new PipelinedSubpartition(i, this);
 				}
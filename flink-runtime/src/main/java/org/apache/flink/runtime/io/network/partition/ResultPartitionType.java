@@ -22,6 +22,16 @@ public enum ResultPartitionType {
 
 	BLOCKING(false, false, false, false),
 
+	/**
+	 * Blocking partitions, which write the data of all subpartitions into a single data file per
+	 * producer. The file is sorted by subpartition and indexed, so that each consumer reads its
+	 * sections of the file.
+	 *
+	 * In contrast to {@link #BLOCKING}, which spills to one file per subpartition, this results in
+	 * sequential writes and only one open file per producer at high parallelism.
+	 */
+	BLOCKING_SORT_MERGE(false, false, false, false),
+
 	PIPELINED(true, true, false, false),
 
 	/**
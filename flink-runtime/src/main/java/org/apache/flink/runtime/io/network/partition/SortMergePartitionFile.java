@@ -0,0 +1,384 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkElementIndex;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The single data file shared by all {@link SortMergeSubpartition} instances of a
+ * {@link ResultPartitionType#BLOCKING_SORT_MERGE} result partition.
+ *
+ * <p>Added buffers are kept in memory, grouped by subpartition. When the buffer pool asks for
+ * memory back or the partition is finished, all buffered data is appended to the file as one
+ * <em>region</em>, in which the buffers are sorted by subpartition index. The file is therefore
+ * written sequentially and consists of a number of regions, each holding one contiguous section
+ * per subpartition. The in-memory index keeps the file offset and the number of buffers of each
+ * of these sections.
+ *
+ * <p>Each buffer is stored with a header of {@link #HEADER_LENGTH} bytes (an event flag and the
+ * buffer size) followed by its contents. Consumers read the sections of their subpartition via
+ * positional reads, which allows all of them to share the same file channel.
+ *
+ * <p>The file is deleted after all subpartitions and all file segments handed out for zero-copy
+ * transfers have been released.
+ */
+class SortMergePartitionFile {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SortMergePartitionFile.class);
+
+	/** Length of the header written in front of each buffer: is buffer (int) and size (int). */
+	static final int HEADER_LENGTH = 8;
+
+	/** The I/O manager used to determine the location of the file. */
+	private final IOManager ioManager;
+
+	/** Buffers added since the last flush, grouped by subpartition. */
+	private final ArrayDeque<Buffer>[] bufferedBuffers;
+
+	/** Per region and subpartition: the file offset of the subpartition's section. */
+	private final ArrayList<long[]> regionOffsets = new ArrayList<>();
+
+	/** Per region and subpartition: the number of buffers in the subpartition's section. */
+	private final ArrayList<int[]> regionNumBuffers = new ArrayList<>();
+
+	/** Reused buffer for writing the buffer headers. */
+	private final ByteBuffer headerBuffer = ByteBuffer.allocateDirect(HEADER_LENGTH);
+
+	/** The channel of the file. This is null until the first region is written. */
+	private FileIOChannel.ID channelId;
+
+	private FileChannel fileChannel;
+
+	/**
+	 * The reference counted file channel, which keeps the file until the partition and all file
+	 * segments handed out for zero-copy transfers have been released.
+	 */
+	private RefCountedFileChannel sharedFileChannel;
+
+	/** The number of bytes written to the file. */
+	private long fileSize;
+
+	/** The number of buffers currently held in memory. */
+	private int numBufferedBuffers;
+
+	/** The number of subpartitions, which have been finished. */
+	private int numFinishedSubpartitions;
+
+	/** The number of subpartitions, which have been released. */
+	private int numReleasedSubpartitions;
+
+	/** Flag indicating whether all subpartitions have been finished and the file is complete. */
+	private volatile boolean isFinished;
+
+	/** Flag indicating whether the file has been released and deleted. */
+	private volatile boolean isReleased;
+
+	@SuppressWarnings("unchecked")
+	SortMergePartitionFile(int numberOfSubpartitions, IOManager ioManager) {
+		checkArgument(numberOfSubpartitions > 0);
+
+		this.ioManager = checkNotNull(ioManager);
+		this.bufferedBuffers = new ArrayDeque[numberOfSubpartitions];
+
+		for (int i = 0; i < numberOfSubpartitions; i++) {
+			bufferedBuffers[i] = new ArrayDeque<>();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Produce
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Adds a buffer of the given subpartition.
+	 *
+	 * @return <tt>true</tt> if the buffer has been added, <tt>false</tt> if the file has already
+	 * been finished or released
+	 */
+	synchronized boolean add(int subpartitionIndex, Buffer buffer) {
+		checkNotNull(buffer);
+
+		if (isFinished || isReleased) {
+			return false;
+		}
+
+		bufferedBuffers[subpartitionIndex].add(buffer);
+		numBufferedBuffers++;
+
+		return true;
+	}
+
+	/**
+	 * Marks the given subpartition as finished. After the last subpartition has been finished,
+	 * the remaining buffered data is written to the file.
+	 */
+	synchronized void finish(int subpartitionIndex) throws IOException {
+		checkElementIndex(subpartitionIndex, bufferedBuffers.length);
+
+		if (isReleased) {
+			return;
+		}
+
+		if (++numFinishedSubpartitions == bufferedBuffers.length) {
+			flush();
+			isFinished = true;
+
+			LOG.debug("Finished {}.", this);
+		}
+	}
+
+	/**
+	 * Writes all buffered data as a new region to the file and recycles the written buffers.
+	 *
+	 * @return the number of recycled buffers
+	 */
+	synchronized int flush() throws IOException {
+		if (numBufferedBuffers == 0 || isReleased) {
+			return 0;
+		}
+
+		if (fileChannel == null) {
+			channelId = ioManager.createChannel();
+			fileChannel = FileChannel.open(
+				channelId.getPathFile().toPath(),
+				StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+			sharedFileChannel = new RefCountedFileChannel(fileChannel, this::closeAndDeleteFile);
+		}
+
+		final int numSubpartitions = bufferedBuffers.length;
+		final long[] offsets = new long[numSubpartitions];
+		final int[] numBuffers = new int[numSubpartitions];
+		final int numFlushedBuffers = numBufferedBuffers;
+
+		for (int i = 0; i < numSubpartitions; i++) {
+			final ArrayDeque<Buffer> buffers = bufferedBuffers[i];
+
+			offsets[i] = fileSize;
+			numBuffers[i] = buffers.size();
+
+			Buffer buffer;
+			while ((buffer = buffers.poll()) != null) {
+				try {
+					writeBuffer(buffer);
+				} finally {
+					buffer.recycle();
+					numBufferedBuffers--;
+				}
+			}
+		}
+
+		regionOffsets.add(offsets);
+		regionNumBuffers.add(numBuffers);
+
+		LOG.debug("Wrote region {} with {} buffers of {}.", regionOffsets.size() - 1, numFlushedBuffers, this);
+
+		return numFlushedBuffers;
+	}
+
+	private void writeBuffer(Buffer buffer) throws IOException {
+		final ByteBuffer contents = buffer.getNioBuffer();
+
+		headerBuffer.clear();
+		headerBuffer.putInt(buffer.isBuffer() ? 1 : 0);
+		headerBuffer.putInt(contents.remaining());
+		headerBuffer.flip();
+
+		final ByteBuffer[] data = new ByteBuffer[] {headerBuffer, contents};
+		final long length = HEADER_LENGTH + contents.remaining();
+
+		long written = 0;
+		while (written < length) {
+			written += fileChannel.write(data);
+		}
+
+		fileSize += length;
+	}
+
+	// ------------------------------------------------------------------------
+	// Consume
+	// ------------------------------------------------------------------------
+
+	boolean isFinished() {
+		return isFinished;
+	}
+
+	boolean isReleased() {
+		return isReleased;
+	}
+
+	/**
+	 * Returns the number of regions. Must only be called after the file has been finished.
+	 */
+	int getNumberOfRegions() {
+		checkState(isFinished, "File not finished yet.");
+		return regionOffsets.size();
+	}
+
+	long getOffset(int region, int subpartitionIndex) {
+		return regionOffsets.get(region)[subpartitionIndex];
+	}
+
+	int getNumberOfBuffers(int region, int subpartitionIndex) {
+		return regionNumBuffers.get(region)[subpartitionIndex];
+	}
+
+	/**
+	 * Reads the buffer at the given file offset into the given buffer. Reads are positional and
+	 * may happen concurrently from multiple consumers.
+	 *
+	 * @param offset The file offset of the buffer header.
+	 * @param target The buffer to read the contents into. It is tagged as event if necessary.
+	 *
+	 * @return the file offset of the next buffer
+	 */
+	long readBuffer(long offset, Buffer target) throws IOException {
+		final ByteBuffer header = readHeader(offset);
+
+		final boolean isBuffer = header.getInt() == 1;
+		final int size = header.getInt();
+
+		target.setSize(size);
+		readFully(target.getNioBuffer(), offset + HEADER_LENGTH);
+
+		if (!isBuffer) {
+			target.tagAsEvent();
+		}
+
+		return offset + HEADER_LENGTH + size;
+	}
+
+	/**
+	 * Returns the segment of the file holding the contents of the buffer at the given file
+	 * offset, if it is a data buffer.
+	 *
+	 * @param offset The file offset of the buffer header.
+	 *
+	 * @return the segment of the buffer contents or <tt>null</tt> if the buffer is an event or the
+	 * file has been released
+	 */
+	@Nullable
+	ReleasableFileSegment getBufferSegment(long offset) throws IOException {
+		final ByteBuffer header = readHeader(offset);
+
+		final boolean isBuffer = header.getInt() == 1;
+		final int size = header.getInt();
+
+		return isBuffer ? sharedFileChannel.createSegment(offset + HEADER_LENGTH, size) : null;
+	}
+
+	private ByteBuffer readHeader(long offset) throws IOException {
+		checkState(isFinished, "File not finished yet.");
+
+		final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		readFully(header, offset);
+		header.flip();
+
+		return header;
+	}
+
+	private void readFully(ByteBuffer target, long position) throws IOException {
+		while (target.hasRemaining()) {
+			int read = fileChannel.read(target, position);
+			if (read < 0) {
+				throw new EOFException("Unexpected end of " + channelId.getPath() + ".");
+			}
+			position += read;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	// Release
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Notifies about a released subpartition. After all subpartitions have been released, all
+	 * buffered data is recycled and the file is deleted.
+	 */
+	synchronized void release(int subpartitionIndex) {
+		checkElementIndex(subpartitionIndex, bufferedBuffers.length);
+
+		if (isReleased || ++numReleasedSubpartitions < bufferedBuffers.length) {
+			return;
+		}
+
+		isReleased = true;
+
+		for (ArrayDeque<Buffer> buffers : bufferedBuffers) {
+			for (Buffer buffer : buffers) {
+				buffer.recycle();
+			}
+			buffers.clear();
+		}
+		numBufferedBuffers = 0;
+
+		if (sharedFileChannel != null) {
+			// file segments in flight keep the file until they are released
+			sharedFileChannel.release();
+		}
+	}
+
+	private void closeAndDeleteFile() {
+		try {
+			fileChannel.close();
+		} catch (Throwable t) {
+			LOG.warn("Error while closing {}.", this, t);
+		}
+
+		if (!channelId.getPathFile().delete() && channelId.getPathFile().exists()) {
+			LOG.warn("Failed to delete {}.", channelId.getPath());
+		}
+	}
+
+	/**
+	 * Makes a best effort to get the number of buffers of the given subpartition, which are
+	 * currently held in memory.
+	 */
+	int unsynchronizedGetNumberOfBufferedBuffers(int subpartitionIndex) {
+		// since we do not synchronize, the size may actually be lower than 0!
+		return Math.max(bufferedBuffers[subpartitionIndex].size(), 0);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SortMergePartitionFile [%d subpartitions, %d regions, %d bytes, file: %s]",
+			bufferedBuffers.length, regionOffsets.size(), fileSize,
+			channelId == null ? "none" : channelId.getPath());
+	}
+}
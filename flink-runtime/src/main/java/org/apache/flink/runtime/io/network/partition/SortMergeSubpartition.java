@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A subpartition of a {@link ResultPartitionType#BLOCKING_SORT_MERGE} result partition.
+ *
+ * <p>In contrast to the {@link SpillableSubpartition}, which spills to one file per subpartition,
+ * all subpartitions of the partition write to a single {@link SortMergePartitionFile}, which is
+ * sorted by subpartition index and indexed. The subpartition is consumed via a
+ * {@link SortMergeSubpartitionView}, which reads the subpartition's sections of the file.
+ */
+class SortMergeSubpartition extends ResultSubpartition {
+
+	/** The file shared by all subpartitions of the parent partition. */
+	private final SortMergePartitionFile partitionFile;
+
+	/** Flag indicating whether the subpartition has been finished. */
+	private boolean isFinished;
+
+	/** Flag indicating whether the subpartition has been released. */
+	private volatile boolean isReleased;
+
+	/** The read view to consume this subpartition. */
+	private ResultSubpartitionView readView;
+
+	SortMergeSubpartition(int index, ResultPartition parent, SortMergePartitionFile partitionFile) {
+		super(index, parent);
+
+		this.partitionFile = checkNotNull(partitionFile);
+	}
+
+	@Override
+	public synchronized boolean add(Buffer buffer) throws IOException {
+		checkNotNull(buffer);
+
+		if (isFinished || isReleased) {
+			return false;
+		}
+
+		if (partitionFile.add(index, buffer)) {
+			updateStatistics(buffer);
+			return true;
+		}
+
+		return false;
+	}
+
+	@Override
+	public synchronized void finish() throws IOException {
+		if (add(EventSerializer.toBuffer(EndOfPartitionEvent.INSTANCE))) {
+			isFinished = true;
+
+			partitionFile.finish(index);
+		}
+	}
+
+	@Override
+	public void release() throws IOException {
+		final ResultSubpartitionView view;
+
+		synchronized (this) {
+			if (isReleased) {
+				return;
+			}
+
+			isReleased = true;
+			view = readView;
+		}
+
+		partitionFile.release(index);
+
+		if (view != null) {
+			view.releaseAllResources();
+		}
+	}
+
+	@Override
+	public synchronized ResultSubpartitionView createReadView(BufferAvailabilityListener availabilityListener) throws IOException {
+		if (!isFinished || !partitionFile.isFinished()) {
+			throw new IllegalStateException("Subpartition has not been finished yet, " +
+				"but blocking subpartitions can only be consumed after they have " +
+				"been finished.");
+		}
+
+		if (readView != null) {
+			throw new IllegalStateException("Subpartition is being or already has been " +
+				"consumed, but we currently allow subpartitions to only be consumed once.");
+		}
+
+		readView = new SortMergeSubpartitionView(
+			this,
+			partitionFile,
+			parent.getBufferProvider().getMemorySegmentSize(),
+			getTotalNumberOfBuffers(),
+			availabilityListener);
+
+		return readView;
+	}
+
+	@Override
+	int releaseMemory() throws IOException {
+		// All subpartitions share the buffered data, so the first call writes out everything.
+		return partitionFile.flush();
+	}
+
+	@Override
+	public boolean isReleased() {
+		return isReleased;
+	}
+
+	@Override
+	public int unsynchronizedGetNumberOfQueuedBuffers() {
+		return partitionFile.unsynchronizedGetNumberOfBufferedBuffers(index);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SortMergeSubpartition [%d number of buffers (%d bytes), " +
+				"finished? %s, read view? %s]",
+			getTotalNumberOfBuffers(), getTotalNumberOfBytes(), isFinished, readView != null);
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.partition.SpilledSubpartitionView.SpillReadBufferPool;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Reader for a {@link SortMergeSubpartition}.
+ *
+ * <p>The view reads the sections of its subpartition region by region from the shared
+ * {@link SortMergePartitionFile}. Since the partition is finished before it can be consumed,
+ * all buffers are announced as available on creation. Reads are done synchronously. Data buffers
+ * can also be handed out as {@link ReleasableFileSegment} instances of the file (see
+ * {@link #getNextFileSegment()}).
+ */
+class SortMergeSubpartitionView implements FileSegmentSubpartitionView {
+
+	/** The subpartition this view belongs to. */
+	private final ResultSubpartition parent;
+
+	/** The file to read from. */
+	private final SortMergePartitionFile partitionFile;
+
+	/** The buffer pool to read data into. */
+	private final SpillReadBufferPool bufferPool;
+
+	/** The total number of buffers of the subpartition. */
+	private final long numberOfBuffers;
+
+	/** Flag indicating whether all resources have been released. */
+	private final AtomicBoolean isReleased = new AtomicBoolean();
+
+	/** The region currently being read. */
+	private int currentRegion = -1;
+
+	/** The number of buffers left to read in the current region. */
+	private int numRemainingBuffersInRegion;
+
+	/** The file offset of the next buffer to read. */
+	private long nextOffset;
+
+	SortMergeSubpartitionView(
+			ResultSubpartition parent,
+			SortMergePartitionFile partitionFile,
+			int memorySegmentSize,
+			long numberOfBuffers,
+			BufferAvailabilityListener availabilityListener) {
+
+		this.parent = checkNotNull(parent);
+		this.partitionFile = checkNotNull(partitionFile);
+		this.bufferPool = new SpillReadBufferPool(2, memorySegmentSize);
+		checkArgument(numberOfBuffers >= 0);
+		this.numberOfBuffers = numberOfBuffers;
+
+		availabilityListener.notifyBuffersAvailable(numberOfBuffers);
+	}
+
+	@Override
+	public Buffer getNextBuffer() throws IOException, InterruptedException {
+		if (!advanceToNextBuffer()) {
+			return null;
+		}
+
+		// As for spilled subpartitions, we expect that the returned buffers are recycled
+		// before the next buffers are requested.
+		Buffer buffer = bufferPool.requestBufferBlocking();
+		if (buffer == null) {
+			return null;
+		}
+
+		boolean success = false;
+		try {
+			nextOffset = partitionFile.readBuffer(nextOffset, buffer);
+			numRemainingBuffersInRegion--;
+			success = true;
+		} finally {
+			if (!success) {
+				buffer.recycle();
+			}
+		}
+
+		return buffer;
+	}
+
+	@Override
+	public ReleasableFileSegment getNextFileSegment() throws IOException {
+		if (!advanceToNextBuffer()) {
+			return null;
+		}
+
+		ReleasableFileSegment segment = partitionFile.getBufferSegment(nextOffset);
+		if (segment != null) {
+			nextOffset = segment.getPosition() + segment.getLength();
+			numRemainingBuffersInRegion--;
+		}
+
+		return segment;
+	}
+
+	/**
+	 * Moves to the next region with buffers of this subpartition, if the current region has
+	 * been read completely.
+	 *
+	 * @return <tt>true</tt> if there is a buffer to read at {@link #nextOffset}
+	 */
+	private boolean advanceToNextBuffer() {
+		if (isReleased()) {
+			return false;
+		}
+
+		while (numRemainingBuffersInRegion == 0) {
+			if (currentRegion + 1 >= partitionFile.getNumberOfRegions()) {
+				return false;
+			}
+
+			currentRegion++;
+			numRemainingBuffersInRegion = partitionFile.getNumberOfBuffers(currentRegion, parent.index);
+			nextOffset = partitionFile.getOffset(currentRegion, parent.index);
+		}
+
+		return true;
+	}
+
+	@Override
+	public void notifyBuffersAvailable(long buffers) throws IOException {
+		// All buffers are announced on creation.
+	}
+
+	@Override
+	public void notifySubpartitionConsumed() throws IOException {
+		parent.onConsumedSubpartition();
+	}
+
+	@Override
+	public void releaseAllResources() throws IOException {
+		if (isReleased.compareAndSet(false, true)) {
+			// The file is shared with the other subpartitions and deleted by the partition.
+			bufferPool.destroy();
+		}
+	}
+
+	@Override
+	public boolean isReleased() {
+		return parent.isReleased() || isReleased.get();
+	}
+
+	@Override
+	public Throwable getFailureCause() {
+		return parent.getFailureCause();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SortMergeSubpartitionView(index: %d, buffers: %d) of ResultPartition %s",
+			parent.index,
+			numberOfBuffers,
+			parent.parent.getPartitionId());
+	}
+}
@@ -20,8 +20,8 @@ package org.apache.flink.runtime.io.network.partition;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
-import org.apache.flink.runtime.io.disk.iomanager.BufferFileReader;
 import org.apache.flink.runtime.io.disk.iomanager.BufferFileWriter;
+import org.apache.flink.runtime.io.disk.iomanager.FileSegment;
 import org.apache.flink.runtime.io.disk.iomanager.SynchronousBufferFileReader;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
@@ -44,9 +44,12 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * only when the spilling is done. Spilling is done async and if it is still
  * in progress, we wait with the notification until the spilling is done.
  *
- * <p>Reads of the spilled file are done in synchronously.
+ * <p>Reads of the spilled file are done in synchronously. Data buffers can also be handed out as
+ * {@link ReleasableFileSegment} instances of the spilled file (see {@link #getNextFileSegment()}).
+ * The file is deleted when the view is released, but the reader stays open until all of these
+ * segments have been released.
  */
-class SpilledSubpartitionView implements ResultSubpartitionView, NotificationListener {
+class SpilledSubpartitionView implements FileSegmentSubpartitionView, NotificationListener {
 
 	private static final Logger LOG = LoggerFactory.getLogger(SpilledSubpartitionView.class);
 
@@ -57,7 +60,10 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 	private final BufferFileWriter spillWriter;
 
 	/** The synchronous file reader to do the actual I/O. */
-	private final BufferFileReader fileReader;
+	private final SynchronousBufferFileReader fileReader;
+
+	/** The file channel of the reader, which stays open until all handed out file segments are released. */
+	private final RefCountedFileChannel readerFileChannel;
 
 	/** The buffer pool to read data into. */
 	private final SpillReadBufferPool bufferPool;
@@ -85,6 +91,7 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 		this.bufferPool = new SpillReadBufferPool(2, memorySegmentSize);
 		this.spillWriter = checkNotNull(spillWriter);
 		this.fileReader = new SynchronousBufferFileReader(spillWriter.getChannelID(), false);
+		this.readerFileChannel = new RefCountedFileChannel(fileReader.getNioFileChannel(), fileReader::close);
 		checkArgument(numberOfSpilledBuffers >= 0);
 		this.numberOfSpilledBuffers = numberOfSpilledBuffers;
 		this.availabilityListener = checkNotNull(availabilityListener);
@@ -127,6 +134,16 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 		return buffer;
 	}
 
+	@Override
+	public ReleasableFileSegment getNextFileSegment() throws IOException {
+		if (fileReader.hasReachedEndOfFile() || isSpillInProgress || isReleased.get()) {
+			return null;
+		}
+
+		FileSegment segment = fileReader.readNextBufferSegment();
+		return segment != null ? readerFileChannel.createSegment(segment.getPosition(), segment.getLength()) : null;
+	}
+
 	@Override
 	public void notifyBuffersAvailable(long buffers) throws IOException {
 		// We do the availability listener notification either directly on
@@ -149,7 +166,8 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 			// which can bring down the network.
 			spillWriter.closeAndDelete();
 
-			fileReader.close();
+			// file segments in flight keep the reader open until they are released
+			readerFileChannel.release();
 			bufferPool.destroy();
 		}
 	}
@@ -178,7 +196,7 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 	 * <p>This pool ensures that a consuming input gate makes progress in all cases, even when all
 	 * buffers of the input gate buffer pool have been requested by remote input channels.
 	 */
-	private static class SpillReadBufferPool implements BufferRecycler {
+	static class SpillReadBufferPool implements BufferRecycler {
 
 		private final Queue<Buffer> buffers;
 
@@ -206,7 +224,7 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 			}
 		}
 
-		private Buffer requestBufferBlocking() throws InterruptedException {
+		Buffer requestBufferBlocking() throws InterruptedException {
 			synchronized (buffers) {
 				while (true) {
 					if (isDestroyed) {
@@ -224,7 +242,7 @@ class SpilledSubpartitionView implements ResultSubpartitionView, NotificationLis
 			}
 		}
 
-		private void destroy() {
+		void destroy() {
 			synchronized (buffers) {
 				isDestroyed = true;
 				buffers.notifyAll();
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Computes the number of buffers each channel of a {@link SingleInputGate} may have in flight, so
+ * that the in-flight data of the gate corresponds to a target processing time.
+ *
+ * <p>The debloater measures the throughput of the consuming task, i.e. the number of bytes
+ * consumed from the gate per second, and periodically derives the number of buffers, which can
+ * be processed within the target time. This number is spread evenly over the input channels.
+ * Under back pressure, the throughput drops and so does the amount of data queued in front of
+ * the task, which bounds the time needed to align checkpoint barriers.
+ *
+ * <p>This class is not thread-safe. It is only accessed by the consuming task thread.
+ */
+class BufferDebloater {
+
+	/** The minimum time between two updates of the number of buffers per channel. */
+	static final long UPDATE_INTERVAL_NANOS = 200_000_000L;
+
+	/** The weight of the latest throughput measurement in the moving average. */
+	private static final double THROUGHPUT_SMOOTHING = 0.5;
+
+	/** The time the in-flight data of the gate should take to be processed. */
+	private final long targetNanos;
+
+	/** The size of the buffers of the gate. */
+	private final int memorySegmentSize;
+
+	/** The number of input channels to spread the buffers over. */
+	private final int numberOfChannels;
+
+	/** The upper bound of buffers per channel (exclusive and floating buffers). */
+	private final int maxBuffersPerChannel;
+
+	/** The number of bytes consumed since the last update. */
+	private long bytesSinceLastUpdate;
+
+	/** The time of the last update. */
+	private long lastUpdateNanos;
+
+	/** The smoothed throughput in bytes per second or -1 if not measured yet. */
+	private double throughput = -1;
+
+	/** The current number of buffers per channel. */
+	private int buffersPerChannel;
+
+	BufferDebloater(
+			long targetMillis,
+			int memorySegmentSize,
+			int numberOfChannels,
+			int maxBuffersPerChannel,
+			long nowNanos) {
+
+		checkArgument(targetMillis > 0, "The in-flight data target must be positive.");
+		checkArgument(memorySegmentSize > 0);
+		checkArgument(numberOfChannels > 0);
+		checkArgument(maxBuffersPerChannel > 0);
+
+		this.targetNanos = targetMillis * 1_000_000L;
+		this.memorySegmentSize = memorySegmentSize;
+		this.numberOfChannels = numberOfChannels;
+		this.maxBuffersPerChannel = maxBuffersPerChannel;
+		this.buffersPerChannel = maxBuffersPerChannel;
+		this.lastUpdateNanos = nowNanos;
+	}
+
+	/**
+	 * Accounts a consumed buffer and recomputes the number of buffers per channel if the update
+	 * interval has passed.
+	 *
+	 * @param size The number of consumed bytes.
+	 * @param nowNanos The current time as given by {@link System#nanoTime()}.
+	 *
+	 * @return <tt>true</tt> if the number of buffers per channel has changed
+	 */
+	boolean onBufferConsumed(int size, long nowNanos) {
+		bytesSinceLastUpdate += size;
+
+		final long elapsedNanos = nowNanos - lastUpdateNanos;
+		if (elapsedNanos < UPDATE_INTERVAL_NANOS) {
+			return false;
+		}
+
+		final double currentThroughput = bytesSinceLastUpdate * 1e9 / elapsedNanos;
+		throughput = throughput < 0
+			? currentThroughput
+			: THROUGHPUT_SMOOTHING * currentThroughput + (1 - THROUGHPUT_SMOOTHING) * throughput;
+
+		bytesSinceLastUpdate = 0;
+		lastUpdateNanos = nowNanos;
+
+		final double targetBytes = throughput * targetNanos / 1e9;
+		final long targetBuffers = (long) Math.ceil(targetBytes / memorySegmentSize);
+		final long targetBuffersPerChannel = (targetBuffers + numberOfChannels - 1) / numberOfChannels;
+
+		final int newBuffersPerChannel = (int) Math.max(1, Math.min(maxBuffersPerChannel, targetBuffersPerChannel));
+
+		if (newBuffersPerChannel != buffersPerChannel) {
+			buffersPerChannel = newBuffersPerChannel;
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the current number of buffers each channel may have in flight.
+	 */
+	int getBuffersPerChannel() {
+		return buffersPerChannel;
+	}
+
+	/**
+	 * Returns the smoothed throughput in bytes per second or -1 if not measured yet.
+	 */
+	double getThroughput() {
+		return throughput;
+	}
+}
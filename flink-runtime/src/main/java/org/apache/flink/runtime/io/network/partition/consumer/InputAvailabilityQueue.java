@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Queue of inputs (channels or gates) with available data, which are added by any number of
+ * producer threads (e.g. Netty threads) and removed by a single consumer (the task thread).
+ *
+ * <p>The queue does not use a monitor. Elements are kept in a {@link ConcurrentLinkedQueue} and
+ * counted in an atomic counter, whose transition from zero tells the producer that the queue
+ * turned non-empty. The consumer waits for data by parking its thread, and producers only
+ * unpark it on such a transition (or on every addition, if {@link #setSignalEveryElement(boolean)
+ * requested}), so that adding an element to a non-empty queue is a single CAS loop plus an
+ * atomic increment.
+ *
+ * @param <T> Type of the queued inputs.
+ */
+final class InputAvailabilityQueue<T> implements Iterable<T> {
+
+	private final ConcurrentLinkedQueue<T> queue = new ConcurrentLinkedQueue<>();
+
+	/** The number of queued elements, which is incremented after an element has been added. */
+	private final AtomicInteger size = new AtomicInteger();
+
+	/** The consumer thread, if it is currently waiting for data. */
+	private volatile Thread waitingConsumer;
+
+	/** Flag indicating whether the consumer is signalled for every added element. */
+	private volatile boolean signalEveryElement;
+
+	/** The counter value after the last removal. This is only accessed by the consumer. */
+	private int sizeAfterLastPoll;
+
+	/**
+	 * Adds an element and wakes up the waiting consumer, if the queue was empty.
+	 *
+	 * @return <tt>true</tt> if the queue was empty before the element was added
+	 */
+	boolean add(T element) {
+		queue.add(checkNotNull(element));
+
+		final boolean wasEmpty = size.getAndIncrement() == 0;
+		if (wasEmpty || signalEveryElement) {
+			wakeUpConsumer();
+		}
+		return wasEmpty;
+	}
+
+	/**
+	 * Removes the head of the queue. Must only be called by the consumer.
+	 *
+	 * @return the head of the queue or <tt>null</tt> if the queue is empty
+	 */
+	T poll() {
+		// an element is visible in the queue before it is counted, so we must check the counter
+		// first to not remove an element whose producer did not increment the counter yet
+		if (size.get() == 0) {
+			return null;
+		}
+
+		final T element = queue.poll();
+		sizeAfterLastPoll = size.decrementAndGet();
+		return element;
+	}
+
+	/**
+	 * Removes the first element accepted by the given filter. Must only be called by the consumer.
+	 *
+	 * @return the first accepted element or <tt>null</tt> if there is none
+	 */
+	T poll(Predicate<? super T> filter) {
+		if (size.get() == 0) {
+			return null;
+		}
+
+		// only the consumer removes elements, so an element returned by the iterator is still queued
+		for (Iterator<T> it = queue.iterator(); it.hasNext(); ) {
+			T element = it.next();
+			if (filter.test(element)) {
+				it.remove();
+				sizeAfterLastPoll = size.decrementAndGet();
+				return element;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns whether further elements were counted directly after the last removal. If not, the
+	 * next added element turns the queue non-empty, i.e. {@link #add(Object)} returns <tt>true</tt>
+	 * for it. This must only be called by the consumer.
+	 */
+	boolean hadMoreAfterLastPoll() {
+		return sizeAfterLastPoll > 0;
+	}
+
+	/**
+	 * Returns the number of queued elements.
+	 */
+	int size() {
+		return size.get();
+	}
+
+	boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	/**
+	 * Parks the consumer until the given condition holds. The condition is re-evaluated whenever
+	 * the consumer is woken up, i.e. when an element has been added or {@link #wakeUpConsumer()}
+	 * has been called.
+	 *
+	 * @throws InterruptedException Thrown if the consumer thread is interrupted while waiting.
+	 */
+	void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+		// the consumer is registered before the condition is checked, so that a producer, which
+		// made the condition true after the check, sees the consumer and unparks it
+		waitingConsumer = Thread.currentThread();
+		try {
+			while (!condition.getAsBoolean()) {
+				LockSupport.park(this);
+
+				if (Thread.interrupted()) {
+					throw new InterruptedException();
+				}
+			}
+		} finally {
+			waitingConsumer = null;
+		}
+	}
+
+	/**
+	 * Wakes up the consumer, if it is waiting, in order to re-evaluate its wait condition.
+	 */
+	void wakeUpConsumer() {
+		final Thread consumer = waitingConsumer;
+		if (consumer != null) {
+			LockSupport.unpark(consumer);
+		}
+	}
+
+	/**
+	 * Sets whether the consumer is woken up for every added element instead of only for the
+	 * first element added to an empty queue. This is necessary if the consumer waits for
+	 * specific elements.
+	 */
+	void setSignalEveryElement(boolean signalEveryElement) {
+		this.signalEveryElement = signalEveryElement;
+	}
+
+	/**
+	 * Returns a weakly consistent iterator over the queued elements.
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return queue.iterator();
+	}
+}
@@ -24,6 +24,7 @@ import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferListener;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
 import org.apache.flink.runtime.io.network.netty.PartitionRequestClient;
@@ -37,6 +38,7 @@ import java.util.ArrayDeque;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -94,6 +96,18 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	/** The tag indicates whether this channel is waiting for additional floating buffers from the buffer pool. */
 	private final AtomicBoolean isWaitingForFloatingBuffers = new AtomicBoolean(false);
 
+	/**
+	 * The maximum number of available buffers, i.e. of outstanding credit. This is adjusted by the
+	 * input gate's {@link BufferDebloater} to bound the amount of in-flight data.
+	 */
+	private volatile int maxAvailableBuffers = Integer.MAX_VALUE;
+
+	/**
+	 * Recycled exclusive buffers, which are not announced as credit, because the channel has
+	 * reached {@link #maxAvailableBuffers}. Guarded by the lock of the available buffers.
+	 */
+	private final ArrayDeque<Buffer> withheldBuffers = new ArrayDeque<>();
+
 	public RemoteInputChannel(
 		SingleInputGate inputGate,
 		int channelIndex,
@@ -211,7 +225,7 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	// ------------------------------------------------------------------------
 
 	@Override
-	boolean isReleased() {
+	public boolean isReleased() {
 		return isReleased.get();
 	}
 
@@ -229,6 +243,9 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 
 			// Gather all exclusive buffers and recycle them to global pool in batch
 			final List<MemorySegment> exclusiveRecyclingSegments = new ArrayList<>();
+			// Floating buffers are recycled outside of the lock as the buffer pool may call back
+			// into input channels while holding its own lock
+			final List<Buffer> floatingRecyclingBuffers = new ArrayList<>();
 
 			synchronized (receivedBuffers) {
 				Buffer buffer;
@@ -247,9 +264,17 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 					if (buffer.getRecycler() == this) {
 						exclusiveRecyclingSegments.add(buffer.getMemorySegment());
 					} else {
-						buffer.recycle();
+						floatingRecyclingBuffers.add(buffer);
 					}
 				}
+
+				while ((buffer = withheldBuffers.poll()) != null) {
+					exclusiveRecyclingSegments.add(buffer.getMemorySegment());
+				}
+			}
+
+			for (Buffer floatingBuffer : floatingRecyclingBuffers) {
+				floatingBuffer.recycle();
 			}
 
 			if (exclusiveRecyclingSegments.size() > 0) {
@@ -279,11 +304,123 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	// Credit-based
 	// ------------------------------------------------------------------------
 
+	/**
+	 * Returns whether this channel receives data based on announced credit, i.e. whether
+	 * exclusive buffers have been assigned to it.
+	 */
+	public boolean isCreditBased() {
+		return initialCredit > 0;
+	}
+
 	/**
 	 * Enqueue this input channel in the pipeline for sending unannounced credits to producer.
 	 */
 	void notifyCreditAvailable() {
-		//TODO in next PR
+		checkState(partitionRequestClient != null, "Tried to send credit to producer before requesting a queue.");
+
+		partitionRequestClient.notifyCreditAvailable(this);
+	}
+
+	/**
+	 * Gets the currently unannounced credit and resets it to 0. Called by the network I/O
+	 * thread right before announcing the credit to the producer.
+	 *
+	 * @return Credit which was not announced to the producer yet.
+	 */
+	public int getAndResetUnannouncedCredit() {
+		return unannouncedCredit.getAndSet(0);
+	}
+
+	/**
+	 * Gets the currently unannounced credit.
+	 *
+	 * @return Credit which was not announced to the producer yet.
+	 */
+	public int getUnannouncedCredit() {
+		return unannouncedCredit.get();
+	}
+
+	/**
+	 * Takes one of the available (already announced) buffers to receive the data of a
+	 * {@link Buffer} sent by the producer.
+	 *
+	 * @return An available buffer or <tt>null</tt> if the channel has no buffer available,
+	 * which only happens if the channel has been released.
+	 */
+	public Buffer requestBuffer() {
+		synchronized (availableBuffers) {
+			return availableBuffers.poll();
+		}
+	}
+
+	/**
+	 * Receives the backlog from the producer's buffer response. If the number of available
+	 * buffers is less than the backlog, floating buffers are requested from the input gate's
+	 * buffer pool and announced as credit. If the pool has no buffer available, the channel
+	 * registers itself as listener and receives floating buffers once they are recycled.
+	 *
+	 * @param backlog The number of unsent buffers in the producer's sub partition.
+	 */
+	void onSenderBacklog(int backlog) throws IOException {
+		senderBacklog.set(backlog);
+
+		// floating buffers are only requested up to the in-flight limit
+		backlog = Math.min(backlog, maxAvailableBuffers);
+
+		final BufferPool bufferPool = inputGate.getBufferPool();
+		int numRequestedBuffers = 0;
+
+		while (true) {
+			// Important: the buffer pool must not be accessed while holding the lock of the
+			// available buffers, because the pool notifies this channel under its own lock.
+			synchronized (availableBuffers) {
+				if (isReleased.get() || isWaitingForFloatingBuffers.get() || availableBuffers.size() >= backlog) {
+					break;
+				}
+			}
+
+			Buffer buffer = bufferPool.requestBuffer();
+			if (buffer != null) {
+				synchronized (availableBuffers) {
+					if (!isReleased.get()) {
+						availableBuffers.add(buffer);
+						numRequestedBuffers++;
+						buffer = null;
+					}
+				}
+
+				if (buffer != null) {
+					buffer.recycle();
+					break;
+				}
+			} else {
+				isWaitingForFloatingBuffers.set(true);
+
+				if (bufferPool.addBufferListener(this)) {
+					break;
+				}
+
+				isWaitingForFloatingBuffers.set(false);
+
+				if (bufferPool.isDestroyed()) {
+					break;
+				}
+			}
+		}
+
+		if (numRequestedBuffers > 0 && unannouncedCredit.getAndAdd(numRequestedBuffers) == 0) {
+			notifyCreditAvailable();
+		}
+	}
+
+	/**
+	 * Announces the credit of a buffer response, which did not take one of the available
+	 * buffers, back to the producer. This is the case for events and empty buffers.
+	 */
+	private void returnCreditOfUnpooledResponse() {
+		if (unannouncedCredit.getAndAdd(1) == 0) {
+			notifyCreditAvailable();
+		}
 	}
 
 	/**
@@ -294,6 +431,8 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	 */
 	@Override
 	public void recycle(MemorySegment segment) {
+		Buffer floatingBuffer = null;
+
 		synchronized (availableBuffers) {
 			// Important: the isReleased check should be inside the synchronized block.
 			// that way the segment can also be returned to global pool after added into
@@ -306,14 +445,80 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 					ExceptionUtils.rethrow(t);
 				}
 			}
+
+			// If there are already enough available buffers for the sender's backlog, the
+			// exclusive buffer replaces a floating buffer, which is returned to the buffer pool
+			// for other channels. The number of available buffers and thus the credit is unchanged.
+			if (availableBuffers.size() >= Math.min(senderBacklog.get(), maxAvailableBuffers)) {
+				floatingBuffer = pollFloatingBuffer();
+
+				// If the in-flight limit has been reached and there is no floating buffer to
+				// replace, the exclusive buffer is kept back without announcing it as credit.
+				if (floatingBuffer == null && availableBuffers.size() >= maxAvailableBuffers) {
+					withheldBuffers.add(new Buffer(segment, this));
+					return;
+				}
+			}
+
 			availableBuffers.add(new Buffer(segment, this));
 		}
 
-		if (unannouncedCredit.getAndAdd(1) == 0) {
+		if (floatingBuffer != null) {
+			floatingBuffer.recycle();
+		} else if (unannouncedCredit.getAndAdd(1) == 0) {
 			notifyCreditAvailable();
 		}
 	}
 
+	/**
+	 * Removes a floating buffer from the available buffers, if there is one.
+	 *
+	 * <p>Must be called while holding the lock of the available buffers.
+	 */
+	private Buffer pollFloatingBuffer() {
+		Iterator<Buffer> iterator = availableBuffers.iterator();
+		while (iterator.hasNext()) {
+			Buffer buffer = iterator.next();
+			if (buffer.getRecycler() != this) {
+				iterator.remove();
+				return buffer;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Sets the maximum number of available buffers, which are announced as credit to the producer.
+	 * Lowering the limit takes effect as buffers are consumed, because announced credit cannot be
+	 * revoked. Raising the limit announces withheld exclusive buffers right away, while additional
+	 * floating buffers are requested with the next sender backlog.
+	 *
+	 * @param maxAvailableBuffers The new limit, which must be positive.
+	 */
+	void setMaxAvailableBuffers(int maxAvailableBuffers) {
+		checkArgument(maxAvailableBuffers > 0, "The maximum number of available buffers must be positive.");
+
+		int numAnnouncedBuffers = 0;
+
+		synchronized (availableBuffers) {
+			this.maxAvailableBuffers = maxAvailableBuffers;
+
+			while (!withheldBuffers.isEmpty() && availableBuffers.size() < maxAvailableBuffers) {
+				availableBuffers.add(withheldBuffers.poll());
+				numAnnouncedBuffers++;
+			}
+		}
+
+		if (numAnnouncedBuffers > 0 && unannouncedCredit.getAndAdd(numAnnouncedBuffers) == 0) {
+			notifyCreditAvailable();
+		}
+	}
+
+	int getMaxAvailableBuffers() {
+		return maxAvailableBuffers;
+	}
+
 	public int getNumberOfAvailableBuffers() {
 		synchronized (availableBuffers) {
 			return availableBuffers.size();
@@ -335,7 +540,8 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 
 		synchronized (availableBuffers) {
 			// Important: the isReleased check should be inside the synchronized block.
-			if (isReleased.get() || availableBuffers.size() >= senderBacklog.get()) {
+			final int numRequiredBuffers = Math.min(senderBacklog.get(), maxAvailableBuffers);
+			if (isReleased.get() || availableBuffers.size() >= numRequiredBuffers) {
 				isWaitingForFloatingBuffers.set(false);
 				buffer.recycle();
 
@@ -348,7 +554,7 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 				notifyCreditAvailable();
 			}
 
-			if (availableBuffers.size() >= senderBacklog.get()) {
+			if (availableBuffers.size() >= numRequiredBuffers) {
 				isWaitingForFloatingBuffers.set(false);
 				return false;
 			} else {
@@ -395,6 +601,10 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	}
 
 	public void onBuffer(Buffer buffer, int sequenceNumber) {
+		onBuffer(buffer, sequenceNumber, 0);
+	}
+
+	public void onBuffer(Buffer buffer, int sequenceNumber, int backlog) {
 		boolean success = false;
 
 		try {
@@ -416,6 +626,17 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 					}
 				}
 			}
+
+			if (success && isCreditBased()) {
+				if (!buffer.isBuffer()) {
+					// events are not received into one of the available buffers
+					returnCreditOfUnpooledResponse();
+				}
+
+				onSenderBacklog(backlog);
+			}
+		} catch (IOException e) {
+			onError(e);
 		} finally {
 			if (!success) {
 				buffer.recycle();
@@ -424,15 +645,32 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	}
 
 	public void onEmptyBuffer(int sequenceNumber) {
+		onEmptyBuffer(sequenceNumber, 0);
+	}
+
+	public void onEmptyBuffer(int sequenceNumber, int backlog) {
+		boolean success = false;
+
 		synchronized (receivedBuffers) {
 			if (!isReleased.get()) {
 				if (expectedSequenceNumber == sequenceNumber) {
 					expectedSequenceNumber++;
+					success = true;
 				} else {
 					onError(new BufferReorderingException(expectedSequenceNumber, sequenceNumber));
 				}
 			}
 		}
+
+		if (success && isCreditBased()) {
+			returnCreditOfUnpooledResponse();
+
+			try {
+				onSenderBacklog(backlog);
+			} catch (IOException e) {
+				onError(e);
+			}
+		}
 	}
 
 	public void onFailedPartitionRequest() {
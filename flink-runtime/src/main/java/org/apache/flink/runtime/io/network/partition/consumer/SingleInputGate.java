@@ -45,13 +45,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
+import java.util.function.BooleanSupplier;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -135,8 +135,11 @@ public class SingleInputGate implements InputGate {
 	 */
 	private final Map<IntermediateResultPartitionID, InputChannel> inputChannels;
 
-	/** Channels, which notified this input gate about available data. */
-	private final ArrayDeque<InputChannel> inputChannelsWithData = new ArrayDeque<>();
+	/**
+	 * Channels, which notified this input gate about available data. Channels are added by the
+	 * network threads and removed by the task thread without locking.
+	 */
+	private final InputAvailabilityQueue<InputChannel> inputChannelsWithData = new InputAvailabilityQueue<>();
 
 	private final BitSet channelsWithEndOfPartitionEvents;
 
@@ -160,6 +163,9 @@ public class SingleInputGate implements InputGate {
 	/** Flag indicating whether all resources have been released. */
 	private volatile boolean isReleased;
 
+	/** The condition the task thread waits for, if no channel has data. */
+	private final BooleanSupplier hasChannelWithDataOrIsReleased = () -> !inputChannelsWithData.isEmpty() || isReleased;
+
 	/** Registered listener to forward buffer notifications to. */
 	private volatile InputGateListener inputGateListener;
 
@@ -170,6 +176,12 @@ public class SingleInputGate implements InputGate {
 	/** Number of network buffers to use for each remote input channel. */
 	private int networkBuffersPerChannel;
 
+	/**
+	 * Adapts the number of buffers in flight per remote channel to the consumer throughput in
+	 * credit-based mode. <tt>null</tt> if disabled.
+	 */
+	private BufferDebloater bufferDebloater;
+
 	/** A timer to retrigger local partition requests. Only initialized if actually needed. */
 	private Timer retriggerLocalRequestTimer;
 
@@ -303,6 +315,36 @@ public class SingleInputGate implements InputGate {
 		}
 	}
 
+	/**
+	 * Enables adapting the number of buffers in flight per remote input channel, so that the
+	 * in-flight data of this gate can be processed within the given target time. This requires
+	 * credit-based mode and must be called after the buffer pool has been set.
+	 *
+	 * @param targetMillis The target time to process the in-flight data in milliseconds
+	 * @param maxBuffersPerChannel The maximum number of buffers in flight per channel
+	 */
+	public void enableBufferDebloating(long targetMillis, int maxBuffersPerChannel) {
+		checkState(getConsumedPartitionType().isCreditBased(), "Buffer debloating requires credit-based flow control.");
+		checkState(bufferPool != null, "Bug in input gate setup logic: buffer pool has not been set.");
+
+		this.bufferDebloater = new BufferDebloater(
+			targetMillis,
+			bufferPool.getMemorySegmentSize(),
+			numberOfInputChannels,
+			maxBuffersPerChannel,
+			System.nanoTime());
+	}
+
+	private void updateMaxAvailableBuffers(int buffersPerChannel) {
+		synchronized (requestLock) {
+			for (InputChannel inputChannel : inputChannels.values()) {
+				if (inputChannel instanceof RemoteInputChannel) {
+					((RemoteInputChannel) inputChannel).setMaxAvailableBuffers(buffersPerChannel);
+				}
+			}
+		}
+	}
+
 	/**
 	 * The exclusive segments are recycled to network buffer pool directly when input channel is released.
 	 *
@@ -350,6 +392,11 @@ public class SingleInputGate implements InputGate {
 					if (getConsumedPartitionType().isCreditBased()) {
 						((RemoteInputChannel)newChannel).assignExclusiveSegments(
 							networkBufferPool.requestMemorySegments(networkBuffersPerChannel));
+
+						if (bufferDebloater != null) {
+							// best effort: the value is updated by the task thread
+							((RemoteInputChannel) newChannel).setMaxAvailableBuffers(bufferDebloater.getBuffersPerChannel());
+						}
 					}
 				}
 				else {
@@ -442,9 +489,7 @@ public class SingleInputGate implements InputGate {
 		}
 
 		if (released) {
-			synchronized (inputChannelsWithData) {
-				inputChannelsWithData.notifyAll();
-			}
+			inputChannelsWithData.wakeUpConsumer();
 		}
 	}
 
@@ -504,19 +549,16 @@ public class SingleInputGate implements InputGate {
 		InputChannel currentChannel;
 		boolean moreAvailable;
 
-		synchronized (inputChannelsWithData) {
-			while (inputChannelsWithData.size() == 0) {
-				if (isReleased) {
-					throw new IllegalStateException("Released");
-				}
-
-				inputChannelsWithData.wait();
+		while ((currentChannel = inputChannelsWithData.poll()) == null) {
+			if (isReleased) {
+				throw new IllegalStateException("Released");
 			}
 
-			currentChannel = inputChannelsWithData.remove();
-			moreAvailable = inputChannelsWithData.size() > 0;
+			inputChannelsWithData.awaitUntil(hasChannelWithDataOrIsReleased);
 		}
 
+		moreAvailable = inputChannelsWithData.hadMoreAfterLastPoll();
+
 		final BufferAndAvailability result = currentChannel.getNextBuffer();
 
 		// Sanity check that notifications only happen when data is available
@@ -533,6 +575,11 @@ public class SingleInputGate implements InputGate {
 		}
 
 		final Buffer buffer = result.buffer();
+
+		if (bufferDebloater != null && bufferDebloater.onBufferConsumed(buffer.getSizeUnsafe(), System.nanoTime())) {
+			updateMaxAvailableBuffers(bufferDebloater.getBuffersPerChannel());
+		}
+
 		if (buffer.isBuffer()) {
 			return new BufferOrEvent(buffer, currentChannel.getChannelIndex(), moreAvailable);
 		}
@@ -590,19 +637,7 @@ public class SingleInputGate implements InputGate {
 	}
 
 	private void queueChannel(InputChannel channel) {
-		int availableChannels;
-
-		synchronized (inputChannelsWithData) {
-			availableChannels = inputChannelsWithData.size();
-
-			inputChannelsWithData.add(channel);
-
-			if (availableChannels == 0) {
-				inputChannelsWithData.notifyAll();
-			}
-		}
-
-		if (availableChannels == 0) {
+		if (inputChannelsWithData.add(channel)) {
 			InputGateListener listener = inputGateListener;
 			if (listener != null) {
 				listener.notifyInputGateNonEmpty(this);
@@ -631,7 +666,14 @@ public class SingleInputGate implements InputGate {
 		TaskIOMetricGroup metrics) {
 
 		final IntermediateDataSetID consumedResultId = checkNotNull(igdd.getConsumedResultId());
-		final ResultPartitionType consumedPartitionType = checkNotNull(igdd.getConsumedPartitionType());
+		ResultPartitionType consumedPartitionType = checkNotNull(igdd.getConsumedPartitionType());
+
+		// Pipelined bounded partitions are consumed with credit-based flow control if enabled. The
+		// producer side is agnostic of this, because the consumer announces its initial credit
+		// with the partition request.
+		if (consumedPartitionType == ResultPartitionType.PIPELINED_BOUNDED && networkEnvironment.isCreditBased()) {
+			consumedPartitionType = ResultPartitionType.PIPELINED_CREDIT_BASED;
+		}
 
 		final int consumedSubpartitionIndex = igdd.getConsumedSubpartitionIndex();
 		checkArgument(consumedSubpartitionIndex >= 0);
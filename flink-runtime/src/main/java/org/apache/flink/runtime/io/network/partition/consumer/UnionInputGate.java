@@ -24,10 +24,13 @@ import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.shaded.guava18.com.google.common.collect.Maps;
 import org.apache.flink.shaded.guava18.com.google.common.collect.Sets;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
-import java.util.ArrayDeque;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -59,6 +62,11 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * </pre>
  *
  * It is possible to recursively union union input gates.
+ *
+ * <p> The union input gate can be restricted to read from a subset of the unioned input gates via
+ * {@link #selectInputGates(Collection)}. The data of the other input gates is left in their
+ * channels (and thus back pressures the producers) until the selection is lifted or all selected
+ * input gates are finished.
  */
 public class UnionInputGate implements InputGate, InputGateListener {
 
@@ -68,7 +76,10 @@ public class UnionInputGate implements InputGate, InputGateListener {
 	private final Set<InputGate> inputGatesWithRemainingData;
 
 	/** Gates, which notified this input gate about available data. */
-	private final ArrayDeque<InputGate> inputGatesWithData = new ArrayDeque<>();
+	private final InputAvailabilityQueue<InputGate> inputGatesWithData = new InputAvailabilityQueue<>();
+
+	/** The condition the consuming thread waits for, if no (selected) gate has data. */
+	private final BooleanSupplier hasInputGateWithDataCondition = this::hasInputGateWithData;
 
 	/** The total number of input channels across all unioned input gates. */
 	private final int totalNumberOfInputChannels;
@@ -85,6 +96,9 @@ public class UnionInputGate implements InputGate, InputGateListener {
 	/** Flag indicating whether partitions have been requested. */
 	private boolean requestedPartitionsFlag;
 
+	/** The input gates to read from or <code>null</code> to read from all input gates. */
+	private volatile Set<InputGate> selectedInputGates;
+
 	public UnionInputGate(InputGate... inputGates) {
 		this.inputGates = checkNotNull(inputGates);
 		checkArgument(inputGates.length > 1, "Union input gate should union at least two input gates.");
@@ -147,13 +161,9 @@ public class UnionInputGate implements InputGate, InputGateListener {
 		// Make sure to request the partitions, if they have not been requested before.
 		requestPartitions();
 
-		final InputGate inputGate;
-		synchronized (inputGatesWithData) {
-			while (inputGatesWithData.size() == 0) {
-				inputGatesWithData.wait();
-			}
-
-			inputGate = inputGatesWithData.remove();
+		InputGate inputGate;
+		while ((inputGate = pollInputGateWithData()) == null) {
+			inputGatesWithData.awaitUntil(hasInputGateWithDataCondition);
 		}
 
 		final BufferOrEvent bufferOrEvent = inputGate.getNextBufferOrEvent();
@@ -183,6 +193,71 @@ public class UnionInputGate implements InputGate, InputGateListener {
 		return bufferOrEvent;
 	}
 
+	/**
+	 * Removes the next input gate to read from from the queue of gates with data.
+	 *
+	 * @return the next input gate or <code>null</code> if none of the selected gates has data
+	 */
+	private InputGate pollInputGateWithData() {
+		final Set<InputGate> selected = selectedInputGates;
+
+		if (selected == null || !hasSelectedInputGateWithRemainingData(selected)) {
+			return inputGatesWithData.poll();
+		}
+
+		return inputGatesWithData.poll(selected::contains);
+	}
+
+	private boolean hasInputGateWithData() {
+		final Set<InputGate> selected = selectedInputGates;
+
+		if (selected == null || !hasSelectedInputGateWithRemainingData(selected)) {
+			return !inputGatesWithData.isEmpty();
+		}
+
+		for (InputGate inputGate : inputGatesWithData) {
+			if (selected.contains(inputGate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean hasSelectedInputGateWithRemainingData(Set<InputGate> selected) {
+		for (InputGate inputGate : selected) {
+			if (inputGatesWithRemainingData.contains(inputGate)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Restricts reading to the given unioned input gates. Once all of these input gates are
+	 * finished, the remaining input gates are read again.
+	 *
+	 * <p>This must be called by the thread consuming this input gate.
+	 *
+	 * @param inputGates The input gates to read from or <code>null</code> to read from all input
+	 *                   gates.
+	 */
+	public void selectInputGates(@Nullable Collection<InputGate> inputGates) {
+		if (inputGates == null) {
+			selectedInputGates = null;
+			inputGatesWithData.setSignalEveryElement(false);
+		} else {
+			Set<InputGate> selected = Sets.newHashSetWithExpectedSize(inputGates.size());
+			for (InputGate inputGate : inputGates) {
+				checkArgument(inputGateToIndexOffsetMap.containsKey(inputGate),
+					"Input gate %s is not part of this union input gate.", inputGate);
+				selected.add(inputGate);
+			}
+			selectedInputGates = selected;
+			// the consumer waits for specific gates and has to check every added gate
+			inputGatesWithData.setSignalEveryElement(true);
+		}
+	}
+
 	@Override
 	public void sendTaskEvent(TaskEvent event) throws IOException {
 		for (InputGate inputGate : inputGates) {
@@ -218,19 +293,7 @@ public class UnionInputGate implements InputGate, InputGateListener {
 	}
 
 	private void queueInputGate(InputGate inputGate) {
-		int availableInputGates;
-
-		synchronized (inputGatesWithData) {
-			availableInputGates = inputGatesWithData.size();
-
-			inputGatesWithData.add(inputGate);
-
-			if (availableInputGates == 0) {
-				inputGatesWithData.notifyAll();
-			}
-		}
-
-		if (availableInputGates == 0) {
+		if (inputGatesWithData.add(inputGate)) {
 			InputGateListener listener = inputGateListener;
 			if (listener != null) {
 				listener.notifyInputGateNonEmpty(this);
@@ -130,6 +130,11 @@ public class OutputEmitter<T> implements ChannelSelector<SerializationDelegate<T
 	// Channel Selection
 	// ------------------------------------------------------------------------
 
+	@Override
+	public boolean isBroadcast() {
+		return strategy == ShipStrategyType.BROADCAST;
+	}
+
 	@Override
 	public final int[] selectChannels(SerializationDelegate<T> record, int numberOfChannels) {
 		switch (strategy) {
@@ -46,9 +46,13 @@ import org.apache.flink.runtime.state.internal.InternalListState;
 import org.apache.flink.runtime.state.internal.InternalMapState;
 import org.apache.flink.runtime.state.internal.InternalReducingState;
 import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.ttl.TtlStateFactory;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.util.IOUtils;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
@@ -103,6 +107,12 @@ public abstract class AbstractKeyedStateBackend<K>
 	 */
 	protected final StreamCompressionDecorator keyGroupCompressionDecorator;
 
+	/** The factories of the transformers applied to the states in full snapshots, by state name. */
+	private final HashMap<String, StateSnapshotTransformFactory<?>> snapshotTransformFactories;
+
+	/** Provides the current time for states with a time-to-live. */
+	private TtlTimeProvider ttlTimeProvider = TtlTimeProvider.DEFAULT;
+
 	public AbstractKeyedStateBackend(
 		TaskKvStateRegistry kvStateRegistry,
 		TypeSerializer<K> keySerializer,
@@ -118,6 +128,7 @@ public abstract class AbstractKeyedStateBackend<K>
 		this.keyGroupRange = Preconditions.checkNotNull(keyGroupRange);
 		this.cancelStreamRegistry = new CloseableRegistry();
 		this.keyValueStatesByName = new HashMap<>();
+		this.snapshotTransformFactories = new HashMap<>();
 		this.executionConfig = executionConfig;
 		this.keyGroupCompressionDecorator = determineStreamCompression(executionConfig);
 	}
@@ -308,8 +319,15 @@ public abstract class AbstractKeyedStateBackend<K>
 			return typedState;
 		}
 
+		// the transformers must be known before the backend registers the state
+		StateSnapshotTransformFactory<?> snapshotTransformFactory =
+			TtlStateFactory.createSnapshotTransformFactory(stateDescriptor.getTtlConfig(), ttlTimeProvider);
+		if (snapshotTransformFactory != null) {
+			snapshotTransformFactories.put(stateDescriptor.getName(), snapshotTransformFactory);
+		}
+
 		// create a new blank key/value state
-		S state = stateDescriptor.bind(new StateBinder() {
+		S state = TtlStateFactory.createStateAndWrapWithTtlIfEnabled(stateDescriptor, new StateBinder() {
 			@Override
 			public <T> ValueState<T> createValueState(ValueStateDescriptor<T> stateDesc) throws Exception {
 				return AbstractKeyedStateBackend.this.createValueState(namespaceSerializer, stateDesc);
@@ -341,7 +359,7 @@ public abstract class AbstractKeyedStateBackend<K>
 				return AbstractKeyedStateBackend.this.createMapState(namespaceSerializer, stateDesc);
 			}
 
-		});
+		}, ttlTimeProvider);
 
 		@SuppressWarnings("unchecked")
 		InternalKvState<N> kvState = (InternalKvState<N>) state;
@@ -399,6 +417,20 @@ public abstract class AbstractKeyedStateBackend<K>
 		return state;
 	}
 
+	/**
+	 * Returns the factory of the transformers to apply to the given state in full snapshots, or null if the
+	 * state is written into snapshots as it is.
+	 */
+	@Nullable
+	protected StateSnapshotTransformFactory<?> getSnapshotTransformFactory(String stateName) {
+		return snapshotTransformFactories.get(stateName);
+	}
+
+	@VisibleForTesting
+	public void setTtlTimeProvider(TtlTimeProvider ttlTimeProvider) {
+		this.ttlTimeProvider = checkNotNull(ttlTimeProvider);
+	}
+
 	@Override
 	public void close() throws IOException {
 		cancelStreamRegistry.close();
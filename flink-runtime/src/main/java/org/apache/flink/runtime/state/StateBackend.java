@@ -21,6 +21,7 @@ package org.apache.flink.runtime.state;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 
@@ -150,6 +151,31 @@ public interface StateBackend extends java.io.Serializable {
 			KeyGroupRange keyGroupRange,
 			TaskKvStateRegistry kvStateRegistry) throws Exception;
 
+	/**
+	 * Creates a new {@link AbstractKeyedStateBackend} that is responsible for holding <b>keyed state</b>
+	 * and checkpointing it, and that may report metrics to the given metric group of the operator.
+	 *
+	 * <p>By default, the metric group is ignored and the backend is created by
+	 * {@link #createKeyedStateBackend(Environment, JobID, String, TypeSerializer, int, KeyGroupRange, TaskKvStateRegistry)}.
+	 *
+	 * @param metricGroup The metric group of the operator that owns the backend.
+	 *
+	 * @see #createKeyedStateBackend(Environment, JobID, String, TypeSerializer, int, KeyGroupRange, TaskKvStateRegistry)
+	 */
+	default <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+			Environment env,
+			JobID jobID,
+			String operatorIdentifier,
+			TypeSerializer<K> keySerializer,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			TaskKvStateRegistry kvStateRegistry,
+			MetricGroup metricGroup) throws Exception {
+
+		return createKeyedStateBackend(
+			env, jobID, operatorIdentifier, keySerializer, numberOfKeyGroups, keyGroupRange, kvStateRegistry);
+	}
+
 	/**
 	 * Creates a new {@link OperatorStateBackend} that can be used for storing operator state.
 	 * 
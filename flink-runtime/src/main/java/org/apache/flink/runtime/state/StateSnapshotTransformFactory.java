@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.annotation.Internal;
+
+/**
+ * Creates the {@link StateSnapshotTransformer StateSnapshotTransformers} of a state, for backends that hold the
+ * state as objects and for backends that hold it in serialized form.
+ *
+ * <p>The transformers apply to single values, which are the values of value states, the elements of list states
+ * and the values of the entries of map states. Backends apply them to each element or entry of their list and map
+ * states.
+ *
+ * @param <T> type of the transformed values.
+ */
+@Internal
+public interface StateSnapshotTransformFactory<T> {
+
+	/**
+	 * Creates a transformer for values that are held as objects.
+	 */
+	StateSnapshotTransformer<T> createForDeserializedState();
+
+	/**
+	 * Creates a transformer for values that are held in serialized form.
+	 */
+	StateSnapshotTransformer<byte[]> createForSerializedState();
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.annotation.Internal;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transforms or drops the values of a state while they are written into a full snapshot. Dropping a value
+ * leaves its mapping out of the snapshot, which removes it from the state once the snapshot is restored.
+ *
+ * <p>Transformers must not modify the given values, because these are still part of the state.
+ *
+ * @param <T> type of the transformed values.
+ */
+@Internal
+@FunctionalInterface
+public interface StateSnapshotTransformer<T> {
+
+	/**
+	 * Transforms the given value for the snapshot.
+	 *
+	 * @param value the value in the state.
+	 * @return the value to write into the snapshot, or null to leave the mapping out of the snapshot.
+	 */
+	@Nullable
+	T filterOrTransform(@Nullable T value);
+
+	/**
+	 * Applies a transformer of elements to each element of list states. Lists without any remaining elements
+	 * are dropped.
+	 *
+	 * @param <T> type of the list elements.
+	 */
+	class ListStateSnapshotTransformer<T> implements StateSnapshotTransformer<List<T>> {
+
+		private final StateSnapshotTransformer<T> elementTransformer;
+
+		public ListStateSnapshotTransformer(StateSnapshotTransformer<T> elementTransformer) {
+			this.elementTransformer = elementTransformer;
+		}
+
+		@Nullable
+		@Override
+		public List<T> filterOrTransform(@Nullable List<T> list) {
+			if (list == null) {
+				return null;
+			}
+
+			final List<T> transformedList = new ArrayList<>(list.size());
+			for (T element : list) {
+				final T transformedElement = elementTransformer.filterOrTransform(element);
+				if (transformedElement != null) {
+					transformedList.add(transformedElement);
+				}
+			}
+			return transformedList.isEmpty() ? null : transformedList;
+		}
+	}
+
+	/**
+	 * Applies a transformer of values to each entry of map states. Maps without any remaining entries are dropped.
+	 *
+	 * @param <K> type of the map keys.
+	 * @param <V> type of the map values.
+	 */
+	class MapStateSnapshotTransformer<K, V> implements StateSnapshotTransformer<Map<K, V>> {
+
+		private final StateSnapshotTransformer<V> entryValueTransformer;
+
+		public MapStateSnapshotTransformer(StateSnapshotTransformer<V> entryValueTransformer) {
+			this.entryValueTransformer = entryValueTransformer;
+		}
+
+		@Nullable
+		@Override
+		public Map<K, V> filterOrTransform(@Nullable Map<K, V> map) {
+			if (map == null) {
+				return null;
+			}
+
+			final Map<K, V> transformedMap = new HashMap<>(map.size());
+			for (Map.Entry<K, V> entry : map.entrySet()) {
+				final V transformedValue = entryValueTransformer.filterOrTransform(entry.getValue());
+				if (transformedValue != null) {
+					transformedMap.put(entry.getKey(), transformedValue);
+				}
+			}
+			return transformedMap.isEmpty() ? null : transformedMap;
+		}
+	}
+}
@@ -0,0 +1,630 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.util.FileUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Keeps copies of the checkpointed state of one subtask on the local disk of the TaskManager, so
+ * that a later execution attempt of the subtask on the same TaskManager can restore from the
+ * local disk instead of the checkpoint file system.
+ *
+ * <p>The copies are written while the state is checkpointed, by streams that duplicate everything
+ * written to the checkpoint streams into local files. A local copy is kept for every state file
+ * in the checkpoint file system, under the name of that file and in a directory per checkpoint.
+ * Inline state, like {@link org.apache.flink.runtime.state.memory.ByteStreamStateHandle}, is
+ * not copied.
+ *
+ * <p>On restore, {@link #retrieveLocalState(TaskStateSnapshot)} replaces the handles to remote
+ * files with handles to their local copies. A copy is only used if it has the size of the remote
+ * file; all other state is still read from the checkpoint file system.
+ *
+ * <p>The store keeps track of the remote files that the state reported for each checkpoint
+ * references. Incremental checkpoints reference shared files, which were uploaded by earlier
+ * checkpoints, through {@link PlaceholderStreamStateHandle placeholders}; the store resolves them
+ * to the files it has seen in earlier reports or in the restored state. When a checkpoint
+ * completes, the copies of earlier checkpoints are deleted, except for the copies that the
+ * completed checkpoint and later reported checkpoints still reference.
+ *
+ * <p>The store lives in a directory that is derived from the job, the vertex and the subtask index
+ * inside the temporary directories of the TaskManager, so that all execution attempts of a subtask
+ * on a TaskManager find the same directory.
+ */
+public class TaskLocalStateStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TaskLocalStateStore.class);
+
+	/** The directory in the temporary directories of the TaskManager, which holds all stores. */
+	private static final String LOCAL_STATE_DIR = "localState";
+
+	/** The prefix of the directories of the stores of one job. */
+	private static final String JOB_DIR_PREFIX = "job_";
+
+	/** The prefix of the directories that hold the copies of one checkpoint. */
+	private static final String CHECKPOINT_DIR_PREFIX = "chk_";
+
+	/** The prefix of the files that are still being written. */
+	private static final String IN_PROGRESS_FILE_PREFIX = "inprogress_";
+
+	private static final int WRITE_BUFFER_SIZE = 4096;
+
+	/** The id under which the files referenced by the restored state are tracked. */
+	private static final long RESTORED_CHECKPOINT_ID = Long.MIN_VALUE;
+
+	/** The directory of all local copies of the subtask. */
+	private final File localStateDirectory;
+
+	/** Lock that guards the referenced files, because checkpoints are reported asynchronously. */
+	private final Object lock = new Object();
+
+	/** The names of the remote files that the state of each tracked checkpoint references. */
+	private final TreeMap<Long, Set<String>> referencedFilesByCheckpoint = new TreeMap<>();
+
+	/** The names of the remote files of the shared state of incremental snapshots, by backend. */
+	private final Map<UUID, Map<StateHandleID, String>> sharedFilesByBackend = new HashMap<>();
+
+	public TaskLocalStateStore(File localStateDirectory) {
+		this.localStateDirectory = checkNotNull(localStateDirectory);
+	}
+
+	/**
+	 * Creates the store for the subtask of the given environment, in the temporary directories of
+	 * the TaskManager's I/O manager.
+	 */
+	public static TaskLocalStateStore forTask(Environment environment) {
+		final File[] tempDirectories = environment.getIOManager().getSpillingDirectories();
+		final int subtaskIndex = environment.getTaskInfo().getIndexOfThisSubtask();
+
+		final File localStateDirectory = new File(
+			new File(tempDirectories[subtaskIndex % tempDirectories.length], LOCAL_STATE_DIR),
+			getJobDirectoryPrefix(environment.getJobID()) +
+				"vertex_" + environment.getJobVertexId() + "_subtask_" + subtaskIndex);
+
+		return new TaskLocalStateStore(localStateDirectory);
+	}
+
+	/**
+	 * Deletes the stores of all subtasks of the given job in the given temporary directories of a
+	 * TaskManager.
+	 */
+	public static void discardLocalStateOfJob(File[] tempDirectories, JobID jobId) {
+		final String jobDirectoryPrefix = getJobDirectoryPrefix(jobId);
+
+		for (File tempDirectory : tempDirectories) {
+			final File[] storeDirectories = new File(tempDirectory, LOCAL_STATE_DIR).listFiles();
+			if (storeDirectories == null) {
+				continue;
+			}
+
+			for (File storeDirectory : storeDirectories) {
+				if (storeDirectory.getName().startsWith(jobDirectoryPrefix)) {
+					FileUtils.deleteDirectoryQuietly(storeDirectory);
+				}
+			}
+		}
+	}
+
+	private static String getJobDirectoryPrefix(JobID jobId) {
+		return JOB_DIR_PREFIX + jobId + '_';
+	}
+
+	public File getLocalStateDirectory() {
+		return localStateDirectory;
+	}
+
+	/**
+	 * Wraps the given factory such that its checkpoint streams also write a local copy of the state
+	 * into this store. Failures to write the local copy are logged and never fail the checkpoint.
+	 */
+	public CheckpointStreamFactory createDuplicatingStreamFactory(CheckpointStreamFactory remoteStreamFactory) {
+		return new DuplicatingCheckpointStreamFactory(checkNotNull(remoteStreamFactory));
+	}
+
+	/**
+	 * Returns the given state, in which all handles to remote files, for which a valid local copy
+	 * exists, are replaced by handles to the local copies.
+	 */
+	public TaskStateSnapshot retrieveLocalState(TaskStateSnapshot remoteState) {
+		// the first checkpoints after the restore may reference the shared files of the restored state
+		synchronized (lock) {
+			referencedFilesByCheckpoint.put(RESTORED_CHECKPOINT_ID, collectReferencedFiles(remoteState));
+		}
+
+		final Map<String, File> localCopies = listLocalCopies();
+		if (localCopies.isEmpty()) {
+			return remoteState;
+		}
+
+		final TaskStateSnapshot localState = new TaskStateSnapshot();
+		for (Map.Entry<OperatorID, OperatorSubtaskState> entry : remoteState.getSubtaskStateMappings()) {
+			final OperatorSubtaskState subtaskState = entry.getValue();
+
+			localState.putSubtaskStateByOperatorID(
+				entry.getKey(),
+				new OperatorSubtaskState(
+					retrieveLocalOperatorState(subtaskState.getManagedOperatorState(), localCopies),
+					retrieveLocalOperatorState(subtaskState.getRawOperatorState(), localCopies),
+					retrieveLocalKeyedState(subtaskState.getManagedKeyedState(), localCopies),
+					retrieveLocalKeyedState(subtaskState.getRawKeyedState(), localCopies)));
+		}
+
+		return localState;
+	}
+
+	/**
+	 * Records the state that the subtask reported for the given checkpoint, so that the local
+	 * copies it references are kept until a later checkpoint completes. This must be called before
+	 * the checkpoint is acknowledged.
+	 */
+	public void reportCheckpoint(long checkpointId, TaskStateSnapshot reportedState) {
+		synchronized (lock) {
+			referencedFilesByCheckpoint.put(checkpointId, collectReferencedFiles(reportedState));
+		}
+	}
+
+	/**
+	 * Deletes the local copies of all checkpoints before the given completed checkpoint, except
+	 * for the copies that the completed checkpoint or later reported checkpoints still reference.
+	 */
+	public void confirmCheckpoint(long checkpointId) {
+		final Set<String> retainedFiles = new HashSet<>();
+
+		synchronized (lock) {
+			referencedFilesByCheckpoint.headMap(checkpointId).clear();
+			for (Set<String> referencedFiles : referencedFilesByCheckpoint.values()) {
+				retainedFiles.addAll(referencedFiles);
+			}
+
+			for (Map<StateHandleID, String> sharedFiles : sharedFilesByBackend.values()) {
+				sharedFiles.values().retainAll(retainedFiles);
+			}
+			sharedFilesByBackend.values().removeIf(Map::isEmpty);
+		}
+
+		final File[] checkpointDirectories = localStateDirectory.listFiles();
+		if (checkpointDirectories == null) {
+			return;
+		}
+
+		for (File checkpointDirectory : checkpointDirectories) {
+			final String name = checkpointDirectory.getName();
+			if (name.startsWith(CHECKPOINT_DIR_PREFIX) &&
+				Long.parseLong(name.substring(CHECKPOINT_DIR_PREFIX.length())) < checkpointId) {
+
+				pruneCheckpointDirectory(checkpointDirectory, retainedFiles);
+			}
+		}
+	}
+
+	/**
+	 * Deletes all local copies. This is called when the subtask finished and will not be restored.
+	 * The copies of failed and canceled subtasks are deleted by the
+	 * {@link TaskLocalStateStoresManager} of the TaskManager, once their job is released.
+	 */
+	public void dispose() {
+		FileUtils.deleteDirectoryQuietly(localStateDirectory);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Retention
+	// ------------------------------------------------------------------------
+
+	private static void pruneCheckpointDirectory(File checkpointDirectory, Set<String> retainedFiles) {
+		final File[] files = checkpointDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				if (!retainedFiles.contains(file.getName()) && !file.delete()) {
+					LOG.debug("Could not delete the local copy {}.", file);
+				}
+			}
+		}
+
+		final String[] remainingFiles = checkpointDirectory.list();
+		if (remainingFiles != null && remainingFiles.length == 0) {
+			FileUtils.deleteDirectoryQuietly(checkpointDirectory);
+		}
+	}
+
+	/**
+	 * Collects the names of all remote files that the given state references, and remembers the
+	 * files of the shared state of incremental snapshots to resolve later placeholders. Must be
+	 * called under the lock.
+	 */
+	private Set<String> collectReferencedFiles(TaskStateSnapshot state) {
+		final Set<String> fileNames = new HashSet<>();
+
+		for (Map.Entry<OperatorID, OperatorSubtaskState> entry : state.getSubtaskStateMappings()) {
+			final OperatorSubtaskState subtaskState = entry.getValue();
+
+			collectOperatorStateFiles(subtaskState.getManagedOperatorState(), fileNames);
+			collectOperatorStateFiles(subtaskState.getRawOperatorState(), fileNames);
+			collectKeyedStateFiles(subtaskState.getManagedKeyedState(), fileNames);
+			collectKeyedStateFiles(subtaskState.getRawKeyedState(), fileNames);
+		}
+
+		return fileNames;
+	}
+
+	private static void collectOperatorStateFiles(Collection<OperatorStateHandle> stateHandles, Set<String> fileNames) {
+		for (OperatorStateHandle stateHandle : stateHandles) {
+			if (stateHandle != null) {
+				addFileName(stateHandle.getDelegateStateHandle(), fileNames);
+			}
+		}
+	}
+
+	private void collectKeyedStateFiles(Collection<KeyedStateHandle> stateHandles, Set<String> fileNames) {
+		for (KeyedStateHandle stateHandle : stateHandles) {
+			if (stateHandle instanceof KeyGroupsStateHandle) {
+				addFileName(((KeyGroupsStateHandle) stateHandle).getDelegateStateHandle(), fileNames);
+
+			} else if (stateHandle instanceof IncrementalKeyedStateHandle) {
+				final IncrementalKeyedStateHandle incrementalStateHandle = (IncrementalKeyedStateHandle) stateHandle;
+
+				final Map<StateHandleID, String> sharedFiles = sharedFilesByBackend.computeIfAbsent(
+					incrementalStateHandle.getBackendIdentifier(), backendId -> new HashMap<>());
+
+				for (Map.Entry<StateHandleID, StreamStateHandle> entry : incrementalStateHandle.getSharedState().entrySet()) {
+					if (entry.getValue() instanceof PlaceholderStreamStateHandle) {
+						final String fileName = sharedFiles.get(entry.getKey());
+						if (fileName != null) {
+							fileNames.add(fileName);
+						}
+					} else if (addFileName(entry.getValue(), fileNames)) {
+						sharedFiles.put(entry.getKey(), ((FileStateHandle) entry.getValue()).getFilePath().getName());
+					}
+				}
+
+				for (StreamStateHandle privateStateHandle : incrementalStateHandle.getPrivateState().values()) {
+					addFileName(privateStateHandle, fileNames);
+				}
+				addFileName(incrementalStateHandle.getMetaStateHandle(), fileNames);
+			}
+		}
+	}
+
+	/**
+	 * Adds the name of the remote file of the given handle, if the handle refers to a file.
+	 *
+	 * @return True, if the handle refers to a file.
+	 */
+	private static boolean addFileName(StreamStateHandle stateHandle, Set<String> fileNames) {
+		if (stateHandle != null && stateHandle.getClass() == FileStateHandle.class) {
+			fileNames.add(((FileStateHandle) stateHandle).getFilePath().getName());
+			return true;
+		} else {
+			return false;
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Restore
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Lists the local copies of all checkpoints by the name of their remote file.
+	 */
+	private Map<String, File> listLocalCopies() {
+		final Map<String, File> localCopies = new HashMap<>();
+
+		final File[] checkpointDirectories = localStateDirectory.listFiles();
+		if (checkpointDirectories != null) {
+			for (File checkpointDirectory : checkpointDirectories) {
+				final File[] files = checkpointDirectory.getName().startsWith(CHECKPOINT_DIR_PREFIX) ?
+					checkpointDirectory.listFiles() : null;
+
+				if (files != null) {
+					for (File file : files) {
+						localCopies.put(file.getName(), file);
+					}
+				}
+			}
+		}
+
+		return localCopies;
+	}
+
+	private static Collection<OperatorStateHandle> retrieveLocalOperatorState(
+			Collection<OperatorStateHandle> stateHandles,
+			Map<String, File> localCopies) {
+
+		final Collection<OperatorStateHandle> result = new ArrayList<>(stateHandles.size());
+		for (OperatorStateHandle stateHandle : stateHandles) {
+			if (stateHandle == null) {
+				result.add(null);
+			} else {
+				result.add(new OperatorStateHandle(
+					stateHandle.getStateNameToPartitionOffsets(),
+					retrieveLocalCopy(stateHandle.getDelegateStateHandle(), localCopies)));
+			}
+		}
+		return result;
+	}
+
+	private static Collection<KeyedStateHandle> retrieveLocalKeyedState(
+			Collection<KeyedStateHandle> stateHandles,
+			Map<String, File> localCopies) {
+
+		final Collection<KeyedStateHandle> result = new ArrayList<>(stateHandles.size());
+		for (KeyedStateHandle stateHandle : stateHandles) {
+			if (stateHandle instanceof KeyGroupsStateHandle) {
+				final KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) stateHandle;
+
+				result.add(new KeyGroupsStateHandle(
+					keyGroupsStateHandle.getGroupRangeOffsets(),
+					retrieveLocalCopy(keyGroupsStateHandle.getDelegateStateHandle(), localCopies)));
+
+			} else if (stateHandle instanceof IncrementalKeyedStateHandle) {
+				final IncrementalKeyedStateHandle incrementalStateHandle = (IncrementalKeyedStateHandle) stateHandle;
+
+				result.add(new IncrementalKeyedStateHandle(
+					incrementalStateHandle.getBackendIdentifier(),
+					incrementalStateHandle.getKeyGroupRange(),
+					incrementalStateHandle.getCheckpointId(),
+					retrieveLocalCopies(incrementalStateHandle.getSharedState(), localCopies),
+					retrieveLocalCopies(incrementalStateHandle.getPrivateState(), localCopies),
+					retrieveLocalCopy(incrementalStateHandle.getMetaStateHandle(), localCopies)));
+
+			} else {
+				result.add(stateHandle);
+			}
+		}
+		return result;
+	}
+
+	private static Map<StateHandleID, StreamStateHandle> retrieveLocalCopies(
+			Map<StateHandleID, StreamStateHandle> stateHandles,
+			Map<String, File> localCopies) {
+
+		final Map<StateHandleID, StreamStateHandle> result = new HashMap<>(stateHandles.size());
+		for (Map.Entry<StateHandleID, StreamStateHandle> entry : stateHandles.entrySet()) {
+			result.put(entry.getKey(), retrieveLocalCopy(entry.getValue(), localCopies));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns a handle to the local copy of the given remote file, or the given handle if there is
+	 * no valid local copy.
+	 */
+	private static StreamStateHandle retrieveLocalCopy(StreamStateHandle stateHandle, Map<String, File> localCopies) {
+		if (stateHandle == null || stateHandle.getClass() != FileStateHandle.class) {
+			return stateHandle;
+		}
+
+		final Path remoteFilePath = ((FileStateHandle) stateHandle).getFilePath();
+		final File localCopy = localCopies.get(remoteFilePath.getName());
+
+		if (localCopy == null) {
+			return stateHandle;
+		} else if (localCopy.length() != stateHandle.getStateSize()) {
+			LOG.warn("Ignoring local copy {} of {}, because its size differs from the remote file.",
+				localCopy, remoteFilePath);
+			return stateHandle;
+		} else {
+			LOG.debug("Restoring {} from local copy {}.", remoteFilePath, localCopy);
+			return new FileStateHandle(new Path(localCopy.toURI()), localCopy.length());
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Checkpoint
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A stream factory whose streams write to the streams of a remote factory and into a local copy.
+	 */
+	private final class DuplicatingCheckpointStreamFactory implements CheckpointStreamFactory {
+
+		private final CheckpointStreamFactory remoteStreamFactory;
+
+		DuplicatingCheckpointStreamFactory(CheckpointStreamFactory remoteStreamFactory) {
+			this.remoteStreamFactory = remoteStreamFactory;
+		}
+
+		@Override
+		public CheckpointStateOutputStream createCheckpointStateOutputStream(
+				long checkpointID,
+				long timestamp) throws Exception {
+
+			return new DuplicatingCheckpointStateOutputStream(
+				remoteStreamFactory.createCheckpointStateOutputStream(checkpointID, timestamp),
+				checkpointID);
+		}
+
+		@Override
+		public void close() throws Exception {
+			remoteStreamFactory.close();
+		}
+	}
+
+	/**
+	 * A checkpoint stream that writes to a remote stream and into a local file. The handle of the
+	 * remote stream is the result of the stream. The local file is kept as the copy of the remote
+	 * file, if the remote stream produced a file.
+	 */
+	private final class DuplicatingCheckpointStateOutputStream extends CheckpointStreamFactory.CheckpointStateOutputStream {
+
+		private final CheckpointStreamFactory.CheckpointStateOutputStream remoteStream;
+
+		private final long checkpointId;
+
+		private final File inProgressFile;
+
+		/** The stream to the local file, or null if the local copy failed. */
+		private OutputStream localStream;
+
+		DuplicatingCheckpointStateOutputStream(
+				CheckpointStreamFactory.CheckpointStateOutputStream remoteStream,
+				long checkpointId) {
+
+			this.remoteStream = remoteStream;
+			this.checkpointId = checkpointId;
+			this.inProgressFile = new File(localStateDirectory, IN_PROGRESS_FILE_PREFIX + UUID.randomUUID());
+
+			try {
+				if (!localStateDirectory.isDirectory() && !localStateDirectory.mkdirs() && !localStateDirectory.isDirectory()) {
+					throw new IOException("Could not create the local state directory " + localStateDirectory + '.');
+				}
+				this.localStream = new BufferedOutputStream(new FileOutputStream(inProgressFile), WRITE_BUFFER_SIZE);
+			} catch (IOException e) {
+				LOG.warn("Could not create a local copy of the state of checkpoint {}.", checkpointId, e);
+				this.localStream = null;
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			remoteStream.write(b);
+
+			if (localStream != null) {
+				try {
+					localStream.write(b);
+				} catch (IOException e) {
+					discardLocalCopy(e);
+				}
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			remoteStream.write(b, off, len);
+
+			if (localStream != null) {
+				try {
+					localStream.write(b, off, len);
+				} catch (IOException e) {
+					discardLocalCopy(e);
+				}
+			}
+		}
+
+		@Override
+		public long getPos() throws IOException {
+			return remoteStream.getPos();
+		}
+
+		@Override
+		public void flush() throws IOException {
+			remoteStream.flush();
+		}
+
+		@Override
+		public void sync() throws IOException {
+			remoteStream.sync();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				remoteStream.close();
+			} finally {
+				discardLocalCopy(null);
+			}
+		}
+
+		@Override
+		public StreamStateHandle closeAndGetHandle() throws IOException {
+			final StreamStateHandle stateHandle;
+			try {
+				stateHandle = remoteStream.closeAndGetHandle();
+			} catch (IOException e) {
+				discardLocalCopy(null);
+				throw e;
+			}
+
+			if (stateHandle != null && stateHandle.getClass() == FileStateHandle.class) {
+				keepLocalCopy(((FileStateHandle) stateHandle).getFilePath().getName());
+			} else {
+				// inline state needs no local copy
+				discardLocalCopy(null);
+			}
+
+			return stateHandle;
+		}
+
+		private void keepLocalCopy(String remoteFileName) {
+			if (localStream == null) {
+				return;
+			}
+
+			try {
+				localStream.close();
+				localStream = null;
+
+				final File checkpointDirectory = new File(localStateDirectory, CHECKPOINT_DIR_PREFIX + checkpointId);
+				if (!checkpointDirectory.isDirectory() && !checkpointDirectory.mkdirs() && !checkpointDirectory.isDirectory()) {
+					throw new IOException("Could not create the local directory " + checkpointDirectory + '.');
+				}
+
+				final File localCopy = new File(checkpointDirectory, remoteFileName);
+				if (!inProgressFile.renameTo(localCopy)) {
+					throw new IOException("Could not move the local copy to " + localCopy + '.');
+				}
+			} catch (IOException e) {
+				discardLocalCopy(e);
+			}
+		}
+
+		private void discardLocalCopy(IOException cause) {
+			if (cause != null) {
+				LOG.warn("Could not create a local copy of the state of checkpoint {}.", checkpointId, cause);
+			}
+
+			if (localStream != null) {
+				try {
+					localStream.close();
+				} catch (IOException ignored) {
+					// the file is deleted anyways
+				}
+				localStream = null;
+			}
+
+			if (inProgressFile.exists() && !inProgressFile.delete()) {
+				LOG.debug("Could not delete the local file {}.", inProgressFile);
+			}
+		}
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Deletes the {@link TaskLocalStateStore task-local state} of the jobs of a TaskManager once the
+ * jobs have terminated.
+ *
+ * <p>The TaskManager registers every task with its job while the task runs. Like the job's
+ * libraries in the {@link org.apache.flink.runtime.blob.PermanentBlobCache}, the local state of a
+ * job is deleted once no task of the job has been registered for the cleanup interval. This
+ * way, a failed task, which is restarted on the same TaskManager, still finds its local state.
+ */
+public class TaskLocalStateStoresManager {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TaskLocalStateStoresManager.class);
+
+	/** The I/O manager of the TaskManager, whose temporary directories hold the local state. */
+	private final IOManager ioManager;
+
+	/** Time interval (ms) to run the cleanup task; also used as the TTL of released jobs. */
+	private final long cleanupInterval;
+
+	/** The number of registered tasks per job. */
+	private final Map<JobID, RefCount> jobRefCounters = new HashMap<>();
+
+	/** Timer task to execute the cleanup at regular intervals. */
+	private final Timer cleanupTimer;
+
+	public TaskLocalStateStoresManager(IOManager ioManager, long cleanupInterval) {
+		checkArgument(cleanupInterval > 0L, "The cleanup interval must be positive.");
+
+		this.ioManager = checkNotNull(ioManager);
+		this.cleanupInterval = cleanupInterval;
+
+		this.cleanupTimer = new Timer("TaskLocalStateStoresManager cleanup timer", true);
+		this.cleanupTimer.schedule(new LocalStateCleanupTask(), cleanupInterval, cleanupInterval);
+	}
+
+	/**
+	 * Registers a task of the given job, whose local state must be kept until the task is
+	 * unregistered.
+	 */
+	public void registerTask(JobID jobId) {
+		checkNotNull(jobId);
+
+		synchronized (jobRefCounters) {
+			RefCount ref = jobRefCounters.get(jobId);
+			if (ref == null) {
+				ref = new RefCount();
+				jobRefCounters.put(jobId, ref);
+			} else {
+				// reset cleanup timeout
+				ref.keepUntil = -1L;
+			}
+			++ref.references;
+		}
+	}
+
+	/**
+	 * Unregisters a task of the given job. The local state of the job is deleted, once no task of
+	 * the job is registered for the cleanup interval.
+	 */
+	public void unregisterTask(JobID jobId) {
+		checkNotNull(jobId);
+
+		synchronized (jobRefCounters) {
+			RefCount ref = jobRefCounters.get(jobId);
+
+			if (ref == null || ref.references == 0) {
+				LOG.warn("Unregistering a task of job {}, which has no registered tasks.", jobId);
+				return;
+			}
+
+			--ref.references;
+			if (ref.references == 0) {
+				ref.keepUntil = System.currentTimeMillis() + cleanupInterval;
+			}
+		}
+	}
+
+	/**
+	 * Stops the cleanup. The local state is deleted together with the temporary directories of
+	 * the TaskManager when it shuts down.
+	 */
+	public void shutdown() {
+		cleanupTimer.cancel();
+	}
+
+	/**
+	 * Deletes the local state of all jobs, which have no registered tasks and whose TTL has
+	 * passed.
+	 */
+	@VisibleForTesting
+	void cleanup() {
+		synchronized (jobRefCounters) {
+			final Iterator<Map.Entry<JobID, RefCount>> entryIter = jobRefCounters.entrySet().iterator();
+			final long currentTimeMillis = System.currentTimeMillis();
+
+			while (entryIter.hasNext()) {
+				final Map.Entry<JobID, RefCount> entry = entryIter.next();
+				final RefCount ref = entry.getValue();
+
+				if (ref.references <= 0 && ref.keepUntil > 0L && currentTimeMillis >= ref.keepUntil) {
+					LOG.debug("Deleting the local state of job {}.", entry.getKey());
+
+					TaskLocalStateStore.discardLocalStateOfJob(ioManager.getSpillingDirectories(), entry.getKey());
+					entryIter.remove();
+				}
+			}
+		}
+	}
+
+	@VisibleForTesting
+	int getNumberOfRegisteredJobs() {
+		synchronized (jobRefCounters) {
+			return jobRefCounters.size();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Job reference counters with a time-to-live (TTL).
+	 */
+	private static final class RefCount {
+
+		/** Number of registered tasks of the job. */
+		int references;
+
+		/**
+		 * Timestamp in milliseconds when the local state of the job should be deleted (no
+		 * cleanup for non-positive values).
+		 */
+		long keepUntil = -1L;
+	}
+
+	/**
+	 * Periodically deletes the local state of released jobs.
+	 */
+	private final class LocalStateCleanupTask extends TimerTask {
+
+		@Override
+		public void run() {
+			cleanup();
+		}
+	}
+}
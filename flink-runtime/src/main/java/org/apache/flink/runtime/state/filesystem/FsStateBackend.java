@@ -31,6 +31,7 @@ import org.apache.flink.runtime.state.DefaultOperatorStateBackend;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.OperatorStateBackend;
 import org.apache.flink.runtime.state.heap.HeapKeyedStateBackend;
+import org.apache.flink.runtime.state.heap.HeapSpillingManager;
 
 import java.io.IOException;
 import java.net.URI;
@@ -67,6 +68,12 @@ public class FsStateBackend extends AbstractStateBackend {
 	/** Switch to chose between synchronous and asynchronous snapshots */
 	private final boolean asynchronousSnapshots;
 
+	/** The heap usage above which keyed state is spilled to local disk, or zero if spilling is disabled */
+	private double spillingHeapUsageThreshold;
+
+	/** The maximum number of incremental checkpoints in a row, or zero if checkpoints are not incremental */
+	private int maxIncrementalCheckpoints;
+
 	/**
 	 * Creates a new state backend that stores its checkpoint data in the file system and location
 	 * defined by the given URI.
@@ -268,6 +275,62 @@ public class FsStateBackend extends AbstractStateBackend {
 		return fileStateThreshold;
 	}
 
+	/**
+	 * Enables spilling of keyed state to local disk. Once the fraction of the maximum heap size that is
+	 * used after a garbage collection exceeds the given threshold, the keyed state backends spill the
+	 * state of the least recently accessed key-groups to the temporary directories of the TaskManager
+	 * and load it back when it is accessed again. This keeps jobs with a temporarily growing key space
+	 * from running out of memory, at the cost of disk accesses for spilled key-groups.
+	 *
+	 * <p>Spilled key-groups are snapshotted from their spill files, independent of whether snapshots are
+	 * taken synchronously or asynchronously.
+	 *
+	 * @param heapUsageThreshold The fraction of the maximum heap size above which state is spilled, in (0, 1].
+	 */
+	public void enableSpilling(double heapUsageThreshold) {
+		checkArgument(heapUsageThreshold > 0.0 && heapUsageThreshold <= 1.0,
+				"The heap usage threshold must be in (0, 1].");
+
+		this.spillingHeapUsageThreshold = heapUsageThreshold;
+	}
+
+	/**
+	 * Checks whether keyed state is spilled to local disk if the heap runs full.
+	 *
+	 * @see #enableSpilling(double)
+	 */
+	public boolean isSpillingEnabled() {
+		return spillingHeapUsageThreshold > 0.0;
+	}
+
+	/**
+	 * Enables incremental checkpoints of keyed state. An incremental checkpoint writes only the state of the
+	 * key-groups that were accessed since the last completed checkpoint, and references the files of previous
+	 * checkpoints for the state of the other key-groups. Checkpoints that reference the same files share them
+	 * through the shared state registry of the checkpoint coordinator.
+	 *
+	 * <p>To bound the number of files that a checkpoint references, and with it the amount of outdated state that
+	 * is kept in these files, a checkpoint writes the state of all key-groups again after the given number of
+	 * incremental checkpoints in a row. Savepoints are never incremental.
+	 *
+	 * @param maxIncrementalCheckpoints The maximum number of incremental checkpoints in a row, at least 1.
+	 */
+	public void enableIncrementalCheckpointing(int maxIncrementalCheckpoints) {
+		checkArgument(maxIncrementalCheckpoints > 0,
+				"The maximum number of incremental checkpoints must be positive.");
+
+		this.maxIncrementalCheckpoints = maxIncrementalCheckpoints;
+	}
+
+	/**
+	 * Checks whether checkpoints of keyed state are incremental.
+	 *
+	 * @see #enableIncrementalCheckpointing(int)
+	 */
+	public boolean isIncrementalCheckpointingEnabled() {
+		return maxIncrementalCheckpoints > 0;
+	}
+
 	// ------------------------------------------------------------------------
 	//  initialization and cleanup
 	// ------------------------------------------------------------------------
@@ -296,6 +359,13 @@ public class FsStateBackend extends AbstractStateBackend {
 			KeyGroupRange keyGroupRange,
 			TaskKvStateRegistry kvStateRegistry) throws IOException {
 
+		final HeapSpillingManager spillingManager = isSpillingEnabled() ?
+				new HeapSpillingManager(
+					env.getIOManager().getSpillingDirectories(),
+					spillingHeapUsageThreshold,
+					keyGroupRange) :
+				null;
+
 		return new HeapKeyedStateBackend<>(
 				kvStateRegistry,
 				keySerializer,
@@ -303,7 +373,9 @@ public class FsStateBackend extends AbstractStateBackend {
 				numberOfKeyGroups,
 				keyGroupRange,
 				asynchronousSnapshots,
-				env.getExecutionConfig());
+				env.getExecutionConfig(),
+				spillingManager,
+				maxIncrementalCheckpoints);
 	}
 
 	@Override
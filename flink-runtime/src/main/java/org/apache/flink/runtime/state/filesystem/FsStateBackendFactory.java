@@ -38,6 +38,10 @@ public class FsStateBackendFactory implements StateBackendFactory<FsStateBackend
 	 * rather than in files */
 	public static final String MEMORY_THRESHOLD_CONF_KEY = "state.backend.fs.memory-threshold";
 
+	/** The key under which the config stores the fraction of the heap size above which keyed state
+	 * is spilled to local disk */
+	public static final String SPILLING_HEAP_USAGE_THRESHOLD_CONF_KEY = "state.backend.fs.spilling.heap-usage-threshold";
+
 
 	@Override
 	public FsStateBackend createFromConfig(Configuration config) throws IllegalConfigurationException {
@@ -53,7 +57,14 @@ public class FsStateBackendFactory implements StateBackendFactory<FsStateBackend
 
 		try {
 			Path path = new Path(checkpointDirURI);
-			return new FsStateBackend(path.toUri(), memoryThreshold);
+			FsStateBackend backend = new FsStateBackend(path.toUri(), memoryThreshold);
+
+			final double spillingHeapUsageThreshold = config.getDouble(SPILLING_HEAP_USAGE_THRESHOLD_CONF_KEY, 0.0);
+			if (spillingHeapUsageThreshold > 0.0) {
+				backend.enableSpilling(spillingHeapUsageThreshold);
+			}
+
+			return backend;
 		}
 		catch (IOException | IllegalArgumentException e) {
 			throw new IllegalConfigurationException("Invalid configuration for the state backend", e);
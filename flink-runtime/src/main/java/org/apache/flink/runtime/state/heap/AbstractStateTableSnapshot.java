@@ -19,8 +19,11 @@
 package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 /**
  * Abstract class to encapsulate the logic to take snapshots of {@link StateTable} implementations and also defines how
  * the snapshot is written during the serialization phase of checkpointing.
@@ -33,13 +36,21 @@ abstract class AbstractStateTableSnapshot<K, N, S, T extends StateTable<K, N, S>
 	 */
 	final T owningStateTable;
 
+	/**
+	 * The transformer applied to the states while they are written, or null if they are written as they are.
+	 */
+	@Nullable
+	final StateSnapshotTransformer<S> stateSnapshotTransformer;
+
 	/**
 	 * Creates a new {@link AbstractStateTableSnapshot} for and owned by the given table.
 	 *
 	 * @param owningStateTable the {@link StateTable} for which this object represents a snapshot.
+	 * @param stateSnapshotTransformer the transformer applied to the states while they are written, or null.
 	 */
-	AbstractStateTableSnapshot(T owningStateTable) {
+	AbstractStateTableSnapshot(T owningStateTable, @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
 		this.owningStateTable = Preconditions.checkNotNull(owningStateTable);
+		this.stateSnapshotTransformer = stateSnapshotTransformer;
 	}
 
 	/**
@@ -23,8 +23,13 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+
+import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class represents the snapshot of a {@link CopyOnWriteStateTable} and has a role in operator state checkpointing. Besides
@@ -89,10 +94,13 @@ public class CopyOnWriteStateTableSnapshot<K, N, S>
 	 * Creates a new {@link CopyOnWriteStateTableSnapshot}.
 	 *
 	 * @param owningStateTable the {@link CopyOnWriteStateTable} for which this object represents a snapshot.
+	 * @param stateSnapshotTransformer the transformer applied to the states while they are written, or null.
 	 */
-	CopyOnWriteStateTableSnapshot(CopyOnWriteStateTable<K, N, S> owningStateTable) {
+	CopyOnWriteStateTableSnapshot(
+			CopyOnWriteStateTable<K, N, S> owningStateTable,
+			@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
 
-		super(owningStateTable);
+		super(owningStateTable, stateSnapshotTransformer);
 		this.snapshotData = owningStateTable.snapshotTableArrays();
 		this.snapshotVersion = owningStateTable.getStateTableVersion();
 		this.stateTableSize = owningStateTable.size();
@@ -184,6 +192,16 @@ public class CopyOnWriteStateTableSnapshot<K, N, S>
 		int startOffset = keyGroupOffsetIdx < 0 ? 0 : keyGroupOffsets[keyGroupOffsetIdx];
 		int endOffset = keyGroupOffsets[keyGroupOffsetIdx + 1];
 
+		if (stateSnapshotTransformer != null) {
+			List<CopyOnWriteStateTable.StateTableEntry<K, N, S>> entries = new ArrayList<>(endOffset - startOffset);
+			for (int i = startOffset; i < endOffset; ++i) {
+				entries.add(groupedOut[i]);
+				groupedOut[i] = null; // free asap for GC
+			}
+			writeTransformedMappings(dov, entries);
+			return;
+		}
+
 		// write number of mappings in key-group
 		dov.writeInt(endOffset - startOffset);
 
@@ -197,6 +215,73 @@ public class CopyOnWriteStateTableSnapshot<K, N, S>
 		}
 	}
 
+	/**
+	 * Writes all mappings of this snapshot in the same format as {@link #writeMappingsInKeyGroup(DataOutputView, int)},
+	 * without partitioning them by key-group. This is used for state tables that only hold the mappings of a single
+	 * key-group.
+	 */
+	void writeAllMappings(DataOutputView dov) throws IOException {
+
+		if (stateSnapshotTransformer != null) {
+			List<CopyOnWriteStateTable.StateTableEntry<K, N, S>> entries = new ArrayList<>(stateTableSize);
+			for (int i = 0; i < snapshotData.length; ++i) {
+				CopyOnWriteStateTable.StateTableEntry<K, N, S> entry = snapshotData[i];
+				snapshotData[i] = null; // free asap for GC
+				while (null != entry) {
+					entries.add(entry);
+					entry = entry.next;
+				}
+			}
+			writeTransformedMappings(dov, entries);
+			return;
+		}
+
+		// write number of mappings
+		dov.writeInt(stateTableSize);
+
+		// write mappings
+		for (int i = 0; i < snapshotData.length; ++i) {
+			CopyOnWriteStateTable.StateTableEntry<K, N, S> toWrite = snapshotData[i];
+			snapshotData[i] = null; // free asap for GC
+			while (null != toWrite) {
+				localNamespaceSerializer.serialize(toWrite.namespace, dov);
+				localKeySerializer.serialize(toWrite.key, dov);
+				localStateSerializer.serialize(toWrite.state, dov);
+				toWrite = toWrite.next;
+			}
+		}
+	}
+
+	/**
+	 * Writes the given mappings with their states transformed, leaving out the mappings for which the transformer
+	 * returns null. The states are transformed before any mapping is written, because the number of written mappings
+	 * precedes them.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeTransformedMappings(
+			DataOutputView dov,
+			List<CopyOnWriteStateTable.StateTableEntry<K, N, S>> entries) throws IOException {
+
+		final Object[] transformedStates = new Object[entries.size()];
+		int count = 0;
+		for (int i = 0; i < transformedStates.length; ++i) {
+			transformedStates[i] = stateSnapshotTransformer.filterOrTransform(entries.get(i).state);
+			if (transformedStates[i] != null) {
+				++count;
+			}
+		}
+
+		dov.writeInt(count);
+		for (int i = 0; i < transformedStates.length; ++i) {
+			if (transformedStates[i] != null) {
+				CopyOnWriteStateTable.StateTableEntry<K, N, S> toWrite = entries.get(i);
+				localNamespaceSerializer.serialize(toWrite.namespace, dov);
+				localKeySerializer.serialize(toWrite.key, dov);
+				localStateSerializer.serialize((S) transformedStates[i], dov);
+			}
+		}
+	}
+
 	/**
 	 * Returns true iff the given state table is the owner of this snapshot object.
 	 */
@@ -44,13 +44,18 @@ import org.apache.flink.runtime.state.ArrayListSerializer;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.DoneFuture;
 import org.apache.flink.runtime.state.HashMapSerializer;
+import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
 import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
 import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
 import org.apache.flink.runtime.state.SnappyStreamCompressionDecorator;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateSnapshotTransformFactory;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
@@ -60,23 +65,29 @@ import org.apache.flink.runtime.state.internal.InternalListState;
 import org.apache.flink.runtime.state.internal.InternalMapState;
 import org.apache.flink.runtime.state.internal.InternalReducingState;
 import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.StateMigrationException;
 
-import org.apache.commons.collections.map.HashedMap;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.RunnableFuture;
 import java.util.stream.Stream;
 
@@ -116,6 +127,39 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	 */
 	private final boolean asynchronousSnapshots;
 
+	/**
+	 * Spills cold key-groups to local disk if the heap runs full, or null if spilling is disabled. This impacts the
+	 * choice of the underlying {@link StateTable} implementation.
+	 */
+	@Nullable
+	private final HeapSpillingManager spillingManager;
+
+	/**
+	 * The maximum number of incremental snapshots in a row, after which a snapshot writes the state of all
+	 * key-groups again, or zero if snapshots are not incremental.
+	 */
+	private final int maxIncrementalCheckpoints;
+
+	/**
+	 * The modification sequence number of the last access to each key-group, indexed by key-group position, or null
+	 * if snapshots are not incremental. A key-group was modified since a snapshot if its number is larger than the
+	 * number of the snapshot.
+	 */
+	@Nullable
+	private final long[] keyGroupModifications;
+
+	/** The current modification sequence number, which is increased by each snapshot. */
+	private long modificationSequence = 1L;
+
+	/** The incremental snapshots of the last completed checkpoint and of the checkpoints after it. */
+	private final SortedMap<Long, MaterializedSnapshot> materializedSnapshots = new TreeMap<>();
+
+	/** The identifier of the last completed checkpoint. */
+	private long lastCompletedCheckpointId = -1L;
+
+	/** Unique ID of this backend, which identifies the shared files of its incremental snapshots. */
+	private UUID backendUID = UUID.randomUUID();
+
 	public HeapKeyedStateBackend(
 			TaskKvStateRegistry kvStateRegistry,
 			TypeSerializer<K> keySerializer,
@@ -125,8 +169,66 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			boolean asynchronousSnapshots,
 			ExecutionConfig executionConfig) {
 
+		this(
+			kvStateRegistry,
+			keySerializer,
+			userCodeClassLoader,
+			numberOfKeyGroups,
+			keyGroupRange,
+			asynchronousSnapshots,
+			executionConfig,
+			null);
+	}
+
+	public HeapKeyedStateBackend(
+			TaskKvStateRegistry kvStateRegistry,
+			TypeSerializer<K> keySerializer,
+			ClassLoader userCodeClassLoader,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			boolean asynchronousSnapshots,
+			ExecutionConfig executionConfig,
+			@Nullable HeapSpillingManager spillingManager) {
+
+		this(
+			kvStateRegistry,
+			keySerializer,
+			userCodeClassLoader,
+			numberOfKeyGroups,
+			keyGroupRange,
+			asynchronousSnapshots,
+			executionConfig,
+			spillingManager,
+			0);
+	}
+
+	/**
+	 * Creates a new heap keyed state backend.
+	 *
+	 * @param maxIncrementalCheckpoints The maximum number of incremental snapshots in a row, or zero if snapshots
+	 *                                  are not incremental. Savepoints are never incremental.
+	 */
+	public HeapKeyedStateBackend(
+			TaskKvStateRegistry kvStateRegistry,
+			TypeSerializer<K> keySerializer,
+			ClassLoader userCodeClassLoader,
+			int numberOfKeyGroups,
+			KeyGroupRange keyGroupRange,
+			boolean asynchronousSnapshots,
+			ExecutionConfig executionConfig,
+			@Nullable HeapSpillingManager spillingManager,
+			int maxIncrementalCheckpoints) {
+
 		super(kvStateRegistry, keySerializer, userCodeClassLoader, numberOfKeyGroups, keyGroupRange, executionConfig);
+		Preconditions.checkArgument(maxIncrementalCheckpoints >= 0,
+			"The maximum number of incremental checkpoints must not be negative.");
+
 		this.asynchronousSnapshots = asynchronousSnapshots;
+		this.spillingManager = spillingManager;
+		this.maxIncrementalCheckpoints = maxIncrementalCheckpoints;
+		this.keyGroupModifications = maxIncrementalCheckpoints > 0 ?
+			new long[keyGroupRange.getNumberOfKeyGroups()] :
+			null;
 		LOG.info("Initializing heap keyed state backend with stream factory.");
 
 		this.restoredKvStateMetaInfos = new HashMap<>();
@@ -226,6 +328,40 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return !stateTables.isEmpty();
 	}
 
+	@Override
+	public void setCurrentKey(K newKey) {
+		super.setCurrentKey(newKey);
+
+		if (keyGroupModifications != null) {
+			markCurrentKeyGroupModified();
+		}
+
+		if (spillingManager != null && spillingManager.recordAccess(getCurrentKeyGroupIndex())) {
+			spillColdKeyGroups();
+		}
+	}
+
+	/**
+	 * Marks the key-group of the current key as modified since the last snapshot. Accesses to the state of a key
+	 * are not tracked individually, so the key-group is marked as soon as a key in it becomes the current key.
+	 */
+	private void markCurrentKeyGroupModified() {
+		final int keyGroupPos = getCurrentKeyGroupIndex() - keyGroupRange.getStartKeyGroup();
+		if (keyGroupPos >= 0 && keyGroupPos < keyGroupModifications.length) {
+			keyGroupModifications[keyGroupPos] = modificationSequence;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void spillColdKeyGroups() {
+		try {
+			spillingManager.spillColdKeyGroups(
+				(Collection<SpillableStateTable<K, ?, ?>>) (Collection<?>) stateTables.values());
+		} catch (Exception e) {
+			throw new FlinkRuntimeException("Could not spill keyed state to disk.", e);
+		}
+	}
+
 	@Override
 	public <N, V> InternalValueState<N, V> createValueState(
 			TypeSerializer<N> namespaceSerializer,
@@ -293,8 +429,34 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		return new HeapMapState<>(stateDesc, stateTable, keySerializer, namespaceSerializer);
 	}
 
+	/**
+	 * Creates the snapshot of the given state table, which applies the snapshot transformer of the state, if any.
+	 * The transformers of values apply to each element of list states and to each entry value of map states.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private <S> StateTableSnapshot createStateTableSnapshot(String stateName, StateTable<K, ?, S> stateTable) {
+		StateSnapshotTransformFactory<?> transformFactory = getSnapshotTransformFactory(stateName);
+		if (transformFactory == null) {
+			return stateTable.createSnapshot();
+		}
+
+		StateSnapshotTransformer<Object> transformer =
+			(StateSnapshotTransformer<Object>) transformFactory.createForDeserializedState();
+
+		switch (stateTable.getMetaInfo().getStateType()) {
+			case LIST:
+				transformer = (StateSnapshotTransformer) new StateSnapshotTransformer.ListStateSnapshotTransformer<>(transformer);
+				break;
+			case MAP:
+				transformer = (StateSnapshotTransformer) new StateSnapshotTransformer.MapStateSnapshotTransformer<>(transformer);
+				break;
+			default:
+		}
+
+		return stateTable.createSnapshot((StateSnapshotTransformer<S>) transformer);
+	}
+
 	@Override
-	@SuppressWarnings("unchecked")
 	public  RunnableFuture<KeyedStateHandle> snapshot(
 			final long checkpointId,
 			final long timestamp,
@@ -313,16 +475,14 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 		List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> metaInfoSnapshots = new ArrayList<>(stateTables.size());
 
-		final Map<String, Integer> kVStateToId = new HashMap<>(stateTables.size());
-
-		final Map<StateTable<K, ?, ?>, StateTableSnapshot> cowStateStableSnapshots = new HashedMap(stateTables.size());
+		// the id of each state is the position of its table snapshot in this list
+		final List<StateTableSnapshot> cowStateStableSnapshots = new ArrayList<>(stateTables.size());
 
 		for (Map.Entry<String, StateTable<K, ?, ?>> kvState : stateTables.entrySet()) {
-			kVStateToId.put(kvState.getKey(), kVStateToId.size());
 			StateTable<K, ?, ?> stateTable = kvState.getValue();
 			if (null != stateTable) {
 				metaInfoSnapshots.add(stateTable.getMetaInfo().snapshot());
-				cowStateStableSnapshots.put(stateTable, stateTable.createSnapshot());
+				cowStateStableSnapshots.add(createStateTableSnapshot(kvState.getKey(), stateTable));
 			}
 		}
 
@@ -332,11 +492,36 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				metaInfoSnapshots,
 				!Objects.equals(UncompressedStreamCompressionDecorator.INSTANCE, keyGroupCompressionDecorator));
 
-		//--------------------------------------------------- this becomes the end of sync part
+		final AbstractAsyncCallableWithResources<KeyedStateHandle> ioCallable =
+			isIncrementalCheckpointingEnabled() &&
+				checkpointOptions.getCheckpointType() != CheckpointOptions.CheckpointType.SAVEPOINT ?
+			snapshotIncrementally(checkpointId, timestamp, streamFactory, serializationProxy, cowStateStableSnapshots) :
+			snapshotFully(checkpointId, timestamp, streamFactory, serializationProxy, cowStateStableSnapshots);
+
+		AsyncStoppableTaskWithCallback<KeyedStateHandle> task = AsyncStoppableTaskWithCallback.from(ioCallable);
+
+		if (!asynchronousSnapshots) {
+			task.run();
+		}
+
+		LOG.info("Heap backend snapshot (" + streamFactory + ", synchronous part) in thread " +
+				Thread.currentThread() + " took " + (System.currentTimeMillis() - syncStartTime) + " ms.");
+
+		return task;
+	}
+
+	/**
+	 * Creates the asynchronous part of a full snapshot, which writes the state of all key-groups to one stream.
+	 */
+	private AbstractAsyncCallableWithResources<KeyedStateHandle> snapshotFully(
+			final long checkpointId,
+			final long timestamp,
+			final CheckpointStreamFactory streamFactory,
+			final KeyedBackendSerializationProxy<K> serializationProxy,
+			final List<StateTableSnapshot> cowStateStableSnapshots) {
 
 		// implementation of the async IO operation, based on FutureTask
-		final AbstractAsyncCallableWithResources<KeyedStateHandle> ioCallable =
-			new AbstractAsyncCallableWithResources<KeyedStateHandle>() {
+		return new AbstractAsyncCallableWithResources<KeyedStateHandle>() {
 
 				CheckpointStreamFactory.CheckpointStateOutputStream stream = null;
 
@@ -354,7 +539,7 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 						stream = null;
 					}
 
-					for (StateTableSnapshot tableSnapshot : cowStateStableSnapshots.values()) {
+					for (StateTableSnapshot tableSnapshot : cowStateStableSnapshots) {
 						tableSnapshot.release();
 					}
 				}
@@ -381,15 +566,7 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					for (int keyGroupPos = 0; keyGroupPos < keyGroupRange.getNumberOfKeyGroups(); ++keyGroupPos) {
 						int keyGroupId = keyGroupRange.getKeyGroupId(keyGroupPos);
 						keyGroupRangeOffsets[keyGroupPos] = localStream.getPos();
-						outView.writeInt(keyGroupId);
-
-						for (Map.Entry<String, StateTable<K, ?, ?>> kvState : stateTables.entrySet()) {
-							OutputStream kgCompressionOut = keyGroupCompressionDecorator.decorateWithCompression(localStream);
-							DataOutputViewStreamWrapper kgCompressionView = new DataOutputViewStreamWrapper(kgCompressionOut);
-							kgCompressionView.writeShort(kVStateToId.get(kvState.getKey()));
-							cowStateStableSnapshots.get(kvState.getValue()).writeMappingsInKeyGroup(kgCompressionView, keyGroupId);
-							kgCompressionOut.close(); // this will just close the outer stream
-						}
+						writeKeyGroup(localStream, outView, keyGroupId, cowStateStableSnapshots);
 					}
 
 					if (cancelStreamRegistry.unregisterCloseable(stream)) {
@@ -417,17 +594,202 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 					return null;
 				}
 			};
+	}
 
-		AsyncStoppableTaskWithCallback<KeyedStateHandle> task = AsyncStoppableTaskWithCallback.from(ioCallable);
+	/**
+	 * Creates an incremental snapshot, which writes the state of the key-groups that were accessed since the last
+	 * completed checkpoint to a new shared file, and references the files of the last completed checkpoint for the
+	 * other key-groups. If there is no completed checkpoint, or its snapshot references more than
+	 * {@link #maxIncrementalCheckpoints} files, the snapshot writes the state of all key-groups to the new file and
+	 * thereby becomes the base of the following incremental snapshots.
+	 */
+	private AbstractAsyncCallableWithResources<KeyedStateHandle> snapshotIncrementally(
+			final long checkpointId,
+			final long timestamp,
+			final CheckpointStreamFactory streamFactory,
+			final KeyedBackendSerializationProxy<K> serializationProxy,
+			final List<StateTableSnapshot> cowStateStableSnapshots) {
 
-		if (!asynchronousSnapshots) {
-			task.run();
+		final MaterializedSnapshot baseSnapshot;
+
+		// use the last completed checkpoint as the comparison base
+		synchronized (materializedSnapshots) {
+			baseSnapshot = materializedSnapshots.get(lastCompletedCheckpointId);
 		}
 
-		LOG.info("Heap backend snapshot (" + streamFactory + ", synchronous part) in thread " +
-				Thread.currentThread() + " took " + (System.currentTimeMillis() - syncStartTime) + " ms.");
+		final boolean compact = baseSnapshot == null ||
+			baseSnapshot.index.getFiles().size() > maxIncrementalCheckpoints;
 
-		return task;
+		final List<Integer> modifiedKeyGroups = new ArrayList<>();
+		for (int keyGroup : keyGroupRange) {
+			if (compact || keyGroupModifications[keyGroup - keyGroupRange.getStartKeyGroup()] >
+					baseSnapshot.modificationSequence) {
+				modifiedKeyGroups.add(keyGroup);
+			}
+		}
+
+		final long snapshotModificationSequence = modificationSequence++;
+
+		// the state of the current key can be modified without another call to setCurrentKey()
+		if (getCurrentKey() != null) {
+			markCurrentKeyGroupModified();
+		}
+
+		final UUID snapshotBackendUID = backendUID;
+
+		LOG.debug("Taking incremental heap snapshot for checkpoint {}, based on checkpoint {}, with {} of {} key groups.",
+			checkpointId, compact ? "none" : lastCompletedCheckpointId,
+			modifiedKeyGroups.size(), keyGroupRange.getNumberOfKeyGroups());
+
+		return new AbstractAsyncCallableWithResources<KeyedStateHandle>() {
+
+			CheckpointStreamFactory.CheckpointStateOutputStream stream = null;
+
+			@Override
+			protected void acquireResources() throws Exception {
+				// the streams of the snapshot are opened one after another in performOperation()
+			}
+
+			@Override
+			protected void releaseResources() throws Exception {
+				closeStream();
+
+				for (StateTableSnapshot tableSnapshot : cowStateStableSnapshots) {
+					tableSnapshot.release();
+				}
+			}
+
+			@Override
+			protected void stopOperation() throws Exception {
+				closeStream();
+			}
+
+			private void closeStream() {
+				if (stream != null && cancelStreamRegistry.unregisterCloseable(stream)) {
+					IOUtils.closeQuietly(stream);
+					stream = null;
+				}
+			}
+
+			private CheckpointStreamFactory.CheckpointStateOutputStream openStream() throws Exception {
+				stream = streamFactory.createCheckpointStateOutputStream(checkpointId, timestamp);
+				cancelStreamRegistry.registerCloseable(stream);
+				return stream;
+			}
+
+			/**
+			 * Closes the current stream and returns its handle, or null if the snapshot was stopped.
+			 */
+			@Nullable
+			private StreamStateHandle closeStreamAndGetHandle() throws IOException {
+				if (cancelStreamRegistry.unregisterCloseable(stream)) {
+					final StreamStateHandle streamStateHandle = stream.closeAndGetHandle();
+					stream = null;
+					return streamStateHandle;
+				}
+				return null;
+			}
+
+			@Override
+			public KeyedStateHandle performOperation() throws Exception {
+				long asyncStartTime = System.currentTimeMillis();
+
+				final KeyGroupFileIndex index = compact ?
+					new KeyGroupFileIndex(keyGroupRange) :
+					new KeyGroupFileIndex(baseSnapshot.index);
+
+				final Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+
+				StreamStateHandle sharedStateHandle = null;
+				boolean completed = false;
+
+				try {
+					if (!modifiedKeyGroups.isEmpty()) {
+						final CheckpointStreamFactory.CheckpointStateOutputStream localStream = openStream();
+
+						DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(localStream);
+						serializationProxy.write(outView);
+
+						final long[] keyGroupOffsets = new long[modifiedKeyGroups.size()];
+						for (int i = 0; i < keyGroupOffsets.length; i++) {
+							keyGroupOffsets[i] = localStream.getPos();
+							writeKeyGroup(localStream, outView, modifiedKeyGroups.get(i), cowStateStableSnapshots);
+						}
+
+						sharedStateHandle = closeStreamAndGetHandle();
+						if (sharedStateHandle == null) {
+							return null;
+						}
+
+						final StateHandleID sharedStateHandleID = new StateHandleID(UUID.randomUUID().toString());
+						for (int i = 0; i < keyGroupOffsets.length; i++) {
+							index.setKeyGroup(modifiedKeyGroups.get(i), sharedStateHandleID, keyGroupOffsets[i]);
+						}
+						sharedState.put(sharedStateHandleID, sharedStateHandle);
+					}
+
+					// the files of previous checkpoints are replaced with the originals by the shared state registry
+					for (StateHandleID referencedFile : index.getFiles()) {
+						sharedState.putIfAbsent(referencedFile, new PlaceholderStreamStateHandle());
+					}
+
+					index.write(new DataOutputViewStreamWrapper(openStream()));
+
+					final StreamStateHandle metaStateHandle = closeStreamAndGetHandle();
+					if (metaStateHandle == null) {
+						return null;
+					}
+
+					synchronized (materializedSnapshots) {
+						materializedSnapshots.put(checkpointId, new MaterializedSnapshot(index, snapshotModificationSequence));
+					}
+
+					if (asynchronousSnapshots) {
+						LOG.info("Heap backend incremental snapshot ({}, asynchronous part) in thread {} took {} ms.",
+							streamFactory, Thread.currentThread(), (System.currentTimeMillis() - asyncStartTime));
+					}
+
+					completed = true;
+
+					return new IncrementalKeyedStateHandle(
+						snapshotBackendUID,
+						keyGroupRange,
+						checkpointId,
+						sharedState,
+						Collections.emptyMap(),
+						metaStateHandle);
+				} finally {
+					if (!completed && sharedStateHandle != null) {
+						try {
+							sharedStateHandle.discardState();
+						} catch (Exception e) {
+							LOG.warn("Could not discard the state of an incomplete snapshot.", e);
+						}
+					}
+				}
+			}
+		};
+	}
+
+	/**
+	 * Writes the mappings of all states in the given key-group. The id of each state is the position of its table
+	 * snapshot in the given list.
+	 */
+	private void writeKeyGroup(
+			OutputStream out,
+			DataOutputViewStreamWrapper outView,
+			int keyGroupId,
+			List<StateTableSnapshot> stateTableSnapshots) throws IOException {
+
+		outView.writeInt(keyGroupId);
+
+		for (int kvStateId = 0; kvStateId < stateTableSnapshots.size(); kvStateId++) {
+			OutputStream kgCompressionOut = keyGroupCompressionDecorator.decorateWithCompression(out);
+			DataOutputViewStreamWrapper kgCompressionView = new DataOutputViewStreamWrapper(kgCompressionOut);
+			kgCompressionView.writeShort(kvStateId);
+			stateTableSnapshots.get(kvStateId).writeMappingsInKeyGroup(kgCompressionView, keyGroupId);
+			kgCompressionOut.close(); // this will just close the outer stream
+		}
 	}
 
 	@SuppressWarnings("deprecation")
@@ -446,14 +808,9 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		restorePartitionedState(restoredState);
 	}
 
-	@SuppressWarnings({"unchecked"})
 	private void restorePartitionedState(Collection<KeyedStateHandle> state) throws Exception {
 
-		final Map<Integer, String> kvStatesById = new HashMap<>();
-		int numRegisteredKvStates = 0;
-		stateTables.clear();
-
-		boolean keySerializerRestored = false;
+		disposeStateTables();
 
 		for (KeyedStateHandle keyedStateHandle : state) {
 
@@ -461,132 +818,231 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 				continue;
 			}
 
-			if (!(keyedStateHandle instanceof KeyGroupsStateHandle)) {
+			if (keyedStateHandle instanceof KeyGroupsStateHandle) {
+				KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) keyedStateHandle;
+				restoreKeyGroups(keyGroupsStateHandle.getDelegateStateHandle(), keyGroupsStateHandle.getGroupRangeOffsets());
+			} else if (keyedStateHandle instanceof IncrementalKeyedStateHandle) {
+				IncrementalKeyedStateHandle incrementalStateHandle = (IncrementalKeyedStateHandle) keyedStateHandle;
+				KeyGroupFileIndex index = restoreIncrementalSnapshot(incrementalStateHandle);
+
+				if (isIncrementalCheckpointingEnabled() && state.size() == 1 &&
+						keyGroupRange.equals(incrementalStateHandle.getKeyGroupRange())) {
+
+					// continue the chain of incremental snapshots of the restored snapshot; all key-groups that are
+					// accessed after the restore have a larger modification sequence number than the snapshot
+					backendUID = incrementalStateHandle.getBackendIdentifier();
+
+					synchronized (materializedSnapshots) {
+						materializedSnapshots.put(incrementalStateHandle.getCheckpointId(), new MaterializedSnapshot(index, 0L));
+						lastCompletedCheckpointId = incrementalStateHandle.getCheckpointId();
+					}
+				}
+			} else {
 				throw new IllegalStateException("Unexpected state handle type, " +
-						"expected: " + KeyGroupsStateHandle.class +
+						"expected: " + KeyGroupsStateHandle.class + " or " + IncrementalKeyedStateHandle.class +
 						", but found: " + keyedStateHandle.getClass());
 			}
+		}
+	}
+
+	/**
+	 * Restores the key-groups of the backend from the shared files of the given incremental snapshot, and returns
+	 * the index of the snapshot.
+	 */
+	private KeyGroupFileIndex restoreIncrementalSnapshot(IncrementalKeyedStateHandle stateHandle) throws Exception {
+		final KeyGroupFileIndex index;
+
+		FSDataInputStream fsDataInputStream = stateHandle.getMetaStateHandle().openInputStream();
+		cancelStreamRegistry.registerCloseable(fsDataInputStream);
+
+		try {
+			index = KeyGroupFileIndex.read(
+				new DataInputViewStreamWrapper(fsDataInputStream), stateHandle.getKeyGroupRange());
+		} finally {
+			if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+				IOUtils.closeQuietly(fsDataInputStream);
+			}
+		}
 
-			KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) keyedStateHandle;
-			FSDataInputStream fsDataInputStream = keyGroupsStateHandle.openInputStream();
-			cancelStreamRegistry.registerCloseable(fsDataInputStream);
+		for (Map.Entry<StateHandleID, List<Tuple2<Integer, Long>>> keyGroupOffsets :
+				index.getKeyGroupOffsetsByFile(keyGroupRange).entrySet()) {
 
-			try {
-				DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
+			StreamStateHandle sharedStateHandle = stateHandle.getSharedState().get(keyGroupOffsets.getKey());
 
-				KeyedBackendSerializationProxy<K> serializationProxy =
-						new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+			Preconditions.checkState(sharedStateHandle != null,
+				"Missing shared state " + keyGroupOffsets.getKey() + " of the incremental snapshot.");
 
-				serializationProxy.read(inView);
+			restoreKeyGroups(sharedStateHandle, keyGroupOffsets.getValue());
+		}
 
-				if (!keySerializerRestored) {
-					// check for key serializer compatibility; this also reconfigures the
-					// key serializer to be compatible, if it is required and is possible
-					if (CompatibilityUtil.resolveCompatibilityResult(
-							serializationProxy.getKeySerializer(),
-							UnloadableDummyTypeSerializer.class,
-							serializationProxy.getKeySerializerConfigSnapshot(),
-							keySerializer)
-						.isRequiresMigration()) {
+		return index;
+	}
 
-						// TODO replace with state migration; note that key hash codes need to remain the same after migration
-						throw new StateMigrationException("The new key serializer is not compatible to read previous keys. " +
-							"Aborting now since state migration is currently not available");
-					}
+	/**
+	 * Restores the given key-groups from a stream in the format of full snapshots.
+	 *
+	 * @param stateHandle the handle to the stream.
+	 * @param keyGroupOffsets the key-groups to restore, and their offsets in the stream.
+	 */
+	@SuppressWarnings("unchecked")
+	private void restoreKeyGroups(
+			StreamStateHandle stateHandle,
+			Iterable<Tuple2<Integer, Long>> keyGroupOffsets) throws Exception {
 
-					keySerializerRestored = true;
-				}
+		FSDataInputStream fsDataInputStream = stateHandle.openInputStream();
+		cancelStreamRegistry.registerCloseable(fsDataInputStream);
 
-				List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> restoredMetaInfos =
-						serializationProxy.getStateMetaInfoSnapshots();
+		try {
+			DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
 
-				for (RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> restoredMetaInfo : restoredMetaInfos) {
+			KeyedBackendSerializationProxy<K> serializationProxy =
+					new KeyedBackendSerializationProxy<>(userCodeClassLoader);
 
-					if (restoredMetaInfo.getStateSerializer() == null ||
-							restoredMetaInfo.getStateSerializer() instanceof UnloadableDummyTypeSerializer) {
+			serializationProxy.read(inView);
 
-						// must fail now if the previous serializer cannot be restored because there is no serializer
-						// capable of reading previous state
-						// TODO when eager state registration is in place, we can try to get a convert deserializer
-						// TODO from the newly registered serializer instead of simply failing here
+			// check for key serializer compatibility; this also reconfigures the
+			// key serializer to be compatible, if it is required and is possible
+			if (CompatibilityUtil.resolveCompatibilityResult(
+					serializationProxy.getKeySerializer(),
+					UnloadableDummyTypeSerializer.class,
+					serializationProxy.getKeySerializerConfigSnapshot(),
+					keySerializer)
+				.isRequiresMigration()) {
 
-						throw new IOException("Unable to restore keyed state [" + restoredMetaInfo.getName() + "]." +
-							" For memory-backed keyed state, the previous serializer of the keyed state must be" +
-							" present; the serializer could have been removed from the classpath, or its implementation" +
-							" have changed and could not be loaded. This is a temporary restriction that will be fixed" +
-							" in future versions.");
-					}
+				// TODO replace with state migration; note that key hash codes need to remain the same after migration
+				throw new StateMigrationException("The new key serializer is not compatible to read previous keys. " +
+					"Aborting now since state migration is currently not available");
+			}
 
-					restoredKvStateMetaInfos.put(restoredMetaInfo.getName(), restoredMetaInfo);
+			List<RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?>> restoredMetaInfos =
+					serializationProxy.getStateMetaInfoSnapshots();
 
-					StateTable<K, ?, ?> stateTable = stateTables.get(restoredMetaInfo.getName());
+			for (RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> restoredMetaInfo : restoredMetaInfos) {
 
-					//important: only create a new table we did not already create it previously
-					if (null == stateTable) {
+				if (restoredMetaInfo.getStateSerializer() == null ||
+						restoredMetaInfo.getStateSerializer() instanceof UnloadableDummyTypeSerializer) {
 
-						RegisteredKeyedBackendStateMetaInfo<?, ?> registeredKeyedBackendStateMetaInfo =
-								new RegisteredKeyedBackendStateMetaInfo<>(
-									restoredMetaInfo.getStateType(),
-									restoredMetaInfo.getName(),
-									restoredMetaInfo.getNamespaceSerializer(),
-									restoredMetaInfo.getStateSerializer());
+					// must fail now if the previous serializer cannot be restored because there is no serializer
+					// capable of reading previous state
+					// TODO when eager state registration is in place, we can try to get a convert deserializer
+					// TODO from the newly registered serializer instead of simply failing here
 
-						stateTable = newStateTable(registeredKeyedBackendStateMetaInfo);
-						stateTables.put(restoredMetaInfo.getName(), stateTable);
-						kvStatesById.put(numRegisteredKvStates, restoredMetaInfo.getName());
-						++numRegisteredKvStates;
-					} else {
-						// TODO with eager state registration in place, check here for serializer migration strategies
-					}
+					throw new IOException("Unable to restore keyed state [" + restoredMetaInfo.getName() + "]." +
+						" For memory-backed keyed state, the previous serializer of the keyed state must be" +
+						" present; the serializer could have been removed from the classpath, or its implementation" +
+						" have changed and could not be loaded. This is a temporary restriction that will be fixed" +
+						" in future versions.");
 				}
 
-				final StreamCompressionDecorator streamCompressionDecorator = serializationProxy.isUsingKeyGroupCompression() ?
-					SnappyStreamCompressionDecorator.INSTANCE : UncompressedStreamCompressionDecorator.INSTANCE;
+				restoredKvStateMetaInfos.put(restoredMetaInfo.getName(), restoredMetaInfo);
+
+				StateTable<K, ?, ?> stateTable = stateTables.get(restoredMetaInfo.getName());
+
+				//important: only create a new table we did not already create it previously
+				if (null == stateTable) {
+
+					RegisteredKeyedBackendStateMetaInfo<?, ?> registeredKeyedBackendStateMetaInfo =
+							new RegisteredKeyedBackendStateMetaInfo<>(
+								restoredMetaInfo.getStateType(),
+								restoredMetaInfo.getName(),
+								restoredMetaInfo.getNamespaceSerializer(),
+								restoredMetaInfo.getStateSerializer());
+
+					stateTable = newStateTable(registeredKeyedBackendStateMetaInfo);
+					stateTables.put(restoredMetaInfo.getName(), stateTable);
+				} else {
+					// TODO with eager state registration in place, check here for serializer migration strategies
+				}
+			}
 
-				for (Tuple2<Integer, Long> groupOffset : keyGroupsStateHandle.getGroupRangeOffsets()) {
-					int keyGroupIndex = groupOffset.f0;
-					long offset = groupOffset.f1;
+			final StreamCompressionDecorator streamCompressionDecorator = serializationProxy.isUsingKeyGroupCompression() ?
+				SnappyStreamCompressionDecorator.INSTANCE : UncompressedStreamCompressionDecorator.INSTANCE;
 
-					// Check that restored key groups all belong to the backend.
-					Preconditions.checkState(keyGroupRange.contains(keyGroupIndex), "The key group must belong to the backend.");
+			for (Tuple2<Integer, Long> groupOffset : keyGroupOffsets) {
+				int keyGroupIndex = groupOffset.f0;
+				long offset = groupOffset.f1;
 
-					fsDataInputStream.seek(offset);
+				// Check that restored key groups all belong to the backend.
+				Preconditions.checkState(keyGroupRange.contains(keyGroupIndex), "The key group must belong to the backend.");
 
-					int writtenKeyGroupIndex = inView.readInt();
+				fsDataInputStream.seek(offset);
 
-					try (InputStream kgCompressionInStream =
-							 streamCompressionDecorator.decorateWithCompression(fsDataInputStream)) {
+				int writtenKeyGroupIndex = inView.readInt();
 
-						DataInputViewStreamWrapper kgCompressionInView =
-							new DataInputViewStreamWrapper(kgCompressionInStream);
+				try (InputStream kgCompressionInStream =
+						 streamCompressionDecorator.decorateWithCompression(fsDataInputStream)) {
 
-						Preconditions.checkState(writtenKeyGroupIndex == keyGroupIndex,
-							"Unexpected key-group in restore.");
+					DataInputViewStreamWrapper kgCompressionInView =
+						new DataInputViewStreamWrapper(kgCompressionInStream);
 
-						for (int i = 0; i < restoredMetaInfos.size(); i++) {
-							int kvStateId = kgCompressionInView.readShort();
-							StateTable<K, ?, ?> stateTable = stateTables.get(kvStatesById.get(kvStateId));
+					Preconditions.checkState(writtenKeyGroupIndex == keyGroupIndex,
+						"Unexpected key-group in restore.");
 
-							StateTableByKeyGroupReader keyGroupReader =
-								StateTableByKeyGroupReaders.readerForVersion(
-									stateTable,
-									serializationProxy.getReadVersion());
+					for (int i = 0; i < restoredMetaInfos.size(); i++) {
+						int kvStateId = kgCompressionInView.readShort();
+						RegisteredKeyedBackendStateMetaInfo.Snapshot<?, ?> restoredMetaInfo = restoredMetaInfos.get(kvStateId);
+						StateTable<K, Object, Object> stateTable =
+							(StateTable<K, Object, Object>) stateTables.get(restoredMetaInfo.getName());
 
-							keyGroupReader.readMappingsInKeyGroup(kgCompressionInView, keyGroupIndex);
+						// the mappings are read with the serializers they were written with, which can differ
+						// from the serializers of the table if the table is restored from several snapshots
+						TypeSerializer<?> namespaceSerializer = restoredMetaInfo.getNamespaceSerializer();
+						if (namespaceSerializer == null || namespaceSerializer instanceof UnloadableDummyTypeSerializer) {
+							namespaceSerializer = stateTable.getNamespaceSerializer();
 						}
+
+						StateTableByKeyGroupReader keyGroupReader =
+							StateTableByKeyGroupReaders.readerForVersion(
+								stateTable,
+								serializationProxy.getReadVersion(),
+								(TypeSerializer<Object>) namespaceSerializer,
+								(TypeSerializer<Object>) restoredMetaInfo.getStateSerializer());
+
+						keyGroupReader.readMappingsInKeyGroup(kgCompressionInView, keyGroupIndex);
 					}
 				}
-			} finally {
-				if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
-					IOUtils.closeQuietly(fsDataInputStream);
+
+				if (spillingManager != null && spillingManager.shouldSpill()) {
+					spillColdKeyGroups();
 				}
 			}
+		} finally {
+			if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+				IOUtils.closeQuietly(fsDataInputStream);
+			}
 		}
 	}
 
 	@Override
-	public void notifyCheckpointComplete(long checkpointId) {
-		//Nothing to do
+	public void notifyCheckpointComplete(long completedCheckpointId) {
+		if (!isIncrementalCheckpointingEnabled()) {
+			return;
+		}
+
+		synchronized (materializedSnapshots) {
+			if (completedCheckpointId < lastCompletedCheckpointId) {
+				return;
+			}
+
+			materializedSnapshots.keySet().removeIf(checkpointId -> checkpointId < completedCheckpointId);
+
+			lastCompletedCheckpointId = completedCheckpointId;
+		}
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+		disposeStateTables();
+	}
+
+	private void disposeStateTables() {
+		for (StateTable<K, ?, ?> stateTable : stateTables.values()) {
+			if (stateTable instanceof SpillableStateTable) {
+				((SpillableStateTable<K, ?, ?>) stateTable).dispose();
+			}
+		}
+		stateTables.clear();
 	}
 
 	@Override
@@ -621,6 +1077,10 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	}
 
 	public <N, V> StateTable<K, N, V> newStateTable(RegisteredKeyedBackendStateMetaInfo<N, V> newMetaInfo) {
+		if (spillingManager != null) {
+			return new SpillableStateTable<>(this, newMetaInfo, spillingManager);
+		}
+
 		return asynchronousSnapshots ?
 				new CopyOnWriteStateTable<>(this, newMetaInfo) :
 				new NestedMapsStateTable<>(this, newMetaInfo);
@@ -630,4 +1090,26 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	public boolean supportsAsynchronousSnapshots() {
 		return asynchronousSnapshots;
 	}
+
+	/**
+	 * Checks whether the snapshots for checkpoints are incremental.
+	 */
+	public boolean isIncrementalCheckpointingEnabled() {
+		return maxIncrementalCheckpoints > 0;
+	}
+
+	/**
+	 * The index of an incremental snapshot, together with the modification sequence number at which it was taken.
+	 */
+	private static final class MaterializedSnapshot {
+
+		final KeyGroupFileIndex index;
+
+		final long modificationSequence;
+
+		MaterializedSnapshot(KeyGroupFileIndex index, long modificationSequence) {
+			this.index = index;
+			this.modificationSequence = modificationSequence;
+		}
+	}
 }
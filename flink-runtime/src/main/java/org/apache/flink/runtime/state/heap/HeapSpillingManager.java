@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.util.MathUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Decides when and which state of a {@link HeapKeyedStateBackend} is spilled to local disk.
+ *
+ * <p>The manager tracks the last access to each key-group of the backend and periodically checks the
+ * heap usage. Once the heap usage exceeds the configured threshold, the least recently accessed
+ * key-groups of all {@link SpillableStateTable SpillableStateTables} are spilled until a fraction of the
+ * state on the heap has been moved to disk. The heap usage is measured after garbage collections, so
+ * that garbage does not trigger spilling and state is only spilled again once a collection has freed
+ * the previously spilled state.
+ */
+@Internal
+public class HeapSpillingManager {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HeapSpillingManager.class);
+
+	/** The default number of key accesses between two checks of the heap usage. */
+	private static final int DEFAULT_CHECK_INTERVAL = 1024;
+
+	/** The fraction of the state on the heap which is spilled once the heap usage exceeds the threshold. */
+	private static final double SPILL_FRACTION = 0.1;
+
+	/** The directories to which the state is spilled. */
+	private final File[] spillDirectories;
+
+	/** The condition that triggers spilling, checked every {@link #checkIntervalMask} + 1 key accesses. */
+	private final BooleanSupplier spillCondition;
+
+	private final int checkIntervalMask;
+
+	private final int keyGroupOffset;
+
+	/** The access clock value of the last access to each key-group. */
+	private final long[] lastAccesses;
+
+	private long accessClock;
+
+	private int nextSpillDirectory;
+
+	/**
+	 * Creates a new {@link HeapSpillingManager} for the key-groups of a backend.
+	 *
+	 * @param spillDirectories the local directories to which the state is spilled.
+	 * @param heapUsageThreshold the fraction of the maximum heap size, which is used after a garbage collection,
+	 *                           above which state is spilled.
+	 * @param keyGroupRange the key-groups of the backend.
+	 */
+	public HeapSpillingManager(File[] spillDirectories, double heapUsageThreshold, KeyGroupRange keyGroupRange) {
+		this(spillDirectories, keyGroupRange, new HeapUsageCondition(heapUsageThreshold), DEFAULT_CHECK_INTERVAL);
+	}
+
+	@VisibleForTesting
+	HeapSpillingManager(
+			File[] spillDirectories,
+			KeyGroupRange keyGroupRange,
+			BooleanSupplier spillCondition,
+			int checkInterval) {
+
+		checkArgument(spillDirectories.length > 0, "No spill directories.");
+		checkArgument(MathUtils.isPowerOf2(checkInterval), "The check interval must be a power of two.");
+
+		this.spillDirectories = spillDirectories;
+		this.spillCondition = checkNotNull(spillCondition);
+		this.checkIntervalMask = checkInterval - 1;
+		this.keyGroupOffset = keyGroupRange.getStartKeyGroup();
+		this.lastAccesses = new long[keyGroupRange.getNumberOfKeyGroups()];
+	}
+
+	/**
+	 * Records an access to the given key-group and returns whether state should be spilled now.
+	 */
+	boolean recordAccess(int keyGroupIndex) {
+		final int keyGroupPos = keyGroupIndex - keyGroupOffset;
+		if (keyGroupPos >= 0 && keyGroupPos < lastAccesses.length) {
+			lastAccesses[keyGroupPos] = ++accessClock;
+		}
+		return (accessClock & checkIntervalMask) == 0 && spillCondition.getAsBoolean();
+	}
+
+	/**
+	 * Returns whether state should be spilled now, independent of key accesses. This is used while restoring
+	 * state.
+	 */
+	boolean shouldSpill() {
+		return spillCondition.getAsBoolean();
+	}
+
+	/**
+	 * Spills the least recently accessed key-groups of the given tables, until a fraction of the mappings on the
+	 * heap have been spilled.
+	 */
+	void spillColdKeyGroups(Collection<? extends SpillableStateTable<?, ?, ?>> tables) throws Exception {
+		long numMappingsOnHeap = 0L;
+		for (SpillableStateTable<?, ?, ?> table : tables) {
+			numMappingsOnHeap += table.sizeOnHeap();
+		}
+
+		final long numMappingsToSpill = (long) Math.ceil(numMappingsOnHeap * SPILL_FRACTION);
+		long numSpilledMappings = 0L;
+		int numSpilledKeyGroups = 0;
+
+		for (int keyGroupPos : keyGroupPositionsByLastAccess()) {
+			if (numSpilledMappings >= numMappingsToSpill) {
+				break;
+			}
+
+			final int keyGroupIndex = keyGroupPos + keyGroupOffset;
+			boolean spilled = false;
+
+			for (SpillableStateTable<?, ?, ?> table : tables) {
+				int numMappings = table.spillKeyGroup(keyGroupIndex);
+				numSpilledMappings += numMappings;
+				spilled |= numMappings > 0;
+			}
+
+			if (spilled) {
+				++numSpilledKeyGroups;
+			}
+		}
+
+		LOG.debug("Spilled {} of {} mappings in {} key-groups to disk.",
+			numSpilledMappings, numMappingsOnHeap, numSpilledKeyGroups);
+	}
+
+	/**
+	 * Returns a new file in one of the spill directories. The directories are used in a round-robin fashion.
+	 */
+	File createSpillFile() {
+		final File directory = spillDirectories[nextSpillDirectory];
+		nextSpillDirectory = (nextSpillDirectory + 1) % spillDirectories.length;
+		return new File(directory, "heap-state-" + UUID.randomUUID() + ".spill");
+	}
+
+	private Integer[] keyGroupPositionsByLastAccess() {
+		final Integer[] positions = new Integer[lastAccesses.length];
+		for (int i = 0; i < positions.length; i++) {
+			positions[i] = i;
+		}
+
+		Arrays.sort(positions, (a, b) -> Long.compare(lastAccesses[a], lastAccesses[b]));
+		return positions;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Holds if the heap usage after the last garbage collection exceeds a threshold and no state has been spilled
+	 * since that collection.
+	 */
+	private static final class HeapUsageCondition implements BooleanSupplier {
+
+		private final double threshold;
+
+		/** The pool that holds the long living objects, like state, or null if it cannot be determined. */
+		private final MemoryPoolMXBean tenuredPool;
+
+		private final GarbageCollectorMXBean[] collectors;
+
+		private long numCollectionsAtLastSpill = -1L;
+
+		HeapUsageCondition(double threshold) {
+			checkArgument(threshold > 0.0 && threshold <= 1.0, "The heap usage threshold must be in (0, 1].");
+
+			this.threshold = threshold;
+			this.tenuredPool = findTenuredPool();
+			this.collectors = ManagementFactory.getGarbageCollectorMXBeans().toArray(new GarbageCollectorMXBean[0]);
+		}
+
+		@Override
+		public boolean getAsBoolean() {
+			final long numCollections = getNumberOfCollections();
+			if (numCollections == numCollectionsAtLastSpill) {
+				// the effect of the last spilling is not yet visible
+				return false;
+			}
+
+			final double heapUsage;
+			if (tenuredPool != null && tenuredPool.getCollectionUsage() != null) {
+				MemoryUsage usage = tenuredPool.getCollectionUsage();
+				long max = usage.getMax() > 0 ? usage.getMax() : tenuredPool.getUsage().getMax();
+				heapUsage = max > 0 ? (double) usage.getUsed() / max : 0.0;
+			} else {
+				Runtime runtime = Runtime.getRuntime();
+				heapUsage = (double) (runtime.totalMemory() - runtime.freeMemory()) / runtime.maxMemory();
+			}
+
+			if (heapUsage >= threshold) {
+				numCollectionsAtLastSpill = numCollections;
+				return true;
+			} else {
+				return false;
+			}
+		}
+
+		private long getNumberOfCollections() {
+			long numCollections = 0L;
+			for (GarbageCollectorMXBean collector : collectors) {
+				numCollections += Math.max(collector.getCollectionCount(), 0L);
+			}
+			return numCollections;
+		}
+
+		private static MemoryPoolMXBean findTenuredPool() {
+			MemoryPoolMXBean tenuredPool = null;
+			for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+				if (pool.getType() == MemoryType.HEAP && pool.isCollectionUsageThresholdSupported()
+						&& (tenuredPool == null || pool.getUsage().getMax() > tenuredPool.getUsage().getMax())) {
+					tenuredPool = pool;
+				}
+			}
+			return tenuredPool;
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.util.Preconditions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The index of an incremental snapshot of a {@link HeapKeyedStateBackend}, which locates the state of each
+ * key-group in the shared files of the snapshot.
+ *
+ * <p>Each shared file is written by one snapshot and holds the state of the key-groups that were modified since
+ * the snapshot that it is based on, in the format of full snapshots. The index of a snapshot starts as a copy of
+ * the index of its base snapshot and points the modified key-groups to the new file.
+ */
+final class KeyGroupFileIndex {
+
+	private static final int VERSION = 1;
+
+	/** The key-group range of the snapshot. */
+	private final KeyGroupRange keyGroupRange;
+
+	/** The file that holds the state of each key-group, indexed by key-group position. */
+	private final StateHandleID[] keyGroupFiles;
+
+	/** The offset of the state of each key-group in its file, indexed by key-group position. */
+	private final long[] keyGroupOffsets;
+
+	KeyGroupFileIndex(KeyGroupRange keyGroupRange) {
+		this.keyGroupRange = Preconditions.checkNotNull(keyGroupRange);
+		this.keyGroupFiles = new StateHandleID[keyGroupRange.getNumberOfKeyGroups()];
+		this.keyGroupOffsets = new long[keyGroupRange.getNumberOfKeyGroups()];
+	}
+
+	/**
+	 * Creates a copy of the given index, which can be modified independently of the given index.
+	 */
+	KeyGroupFileIndex(KeyGroupFileIndex base) {
+		this.keyGroupRange = base.keyGroupRange;
+		this.keyGroupFiles = base.keyGroupFiles.clone();
+		this.keyGroupOffsets = base.keyGroupOffsets.clone();
+	}
+
+	KeyGroupRange getKeyGroupRange() {
+		return keyGroupRange;
+	}
+
+	/**
+	 * Sets the file that holds the state of the given key-group, and the offset of the state in the file.
+	 */
+	void setKeyGroup(int keyGroup, StateHandleID file, long offset) {
+		final int pos = keyGroup - keyGroupRange.getStartKeyGroup();
+		Preconditions.checkArgument(keyGroupRange.contains(keyGroup), "The key group must belong to the index.");
+		keyGroupFiles[pos] = Preconditions.checkNotNull(file);
+		keyGroupOffsets[pos] = offset;
+	}
+
+	/**
+	 * Returns the files that hold the state of at least one key-group.
+	 */
+	Set<StateHandleID> getFiles() {
+		final Set<StateHandleID> files = new LinkedHashSet<>();
+		for (StateHandleID file : keyGroupFiles) {
+			if (file != null) {
+				files.add(file);
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * Returns the key-groups of the given range and their offsets, grouped by the files that hold them.
+	 */
+	Map<StateHandleID, List<Tuple2<Integer, Long>>> getKeyGroupOffsetsByFile(KeyGroupRange range) {
+		final Map<StateHandleID, List<Tuple2<Integer, Long>>> result = new HashMap<>();
+		for (int keyGroup : keyGroupRange.getIntersection(range)) {
+			final int pos = keyGroup - keyGroupRange.getStartKeyGroup();
+			Preconditions.checkState(keyGroupFiles[pos] != null, "No file for key group " + keyGroup + '.');
+			result.computeIfAbsent(keyGroupFiles[pos], file -> new ArrayList<>())
+				.add(Tuple2.of(keyGroup, keyGroupOffsets[pos]));
+		}
+		return result;
+	}
+
+	// ------------------------------------------------------------------------
+	//  serialization
+	// ------------------------------------------------------------------------
+
+	void write(DataOutputView out) throws IOException {
+		final List<StateHandleID> files = new ArrayList<>(getFiles());
+		final Map<StateHandleID, Integer> fileIds = new HashMap<>(files.size());
+
+		out.writeInt(VERSION);
+		out.writeInt(files.size());
+		for (StateHandleID file : files) {
+			fileIds.put(file, fileIds.size());
+			out.writeUTF(file.getKeyString());
+		}
+
+		for (int pos = 0; pos < keyGroupFiles.length; pos++) {
+			Preconditions.checkState(keyGroupFiles[pos] != null,
+				"No file for key group " + keyGroupRange.getKeyGroupId(pos) + '.');
+			out.writeInt(fileIds.get(keyGroupFiles[pos]));
+			out.writeLong(keyGroupOffsets[pos]);
+		}
+	}
+
+	static KeyGroupFileIndex read(DataInputView in, KeyGroupRange keyGroupRange) throws IOException {
+		final int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unknown version of the key-group file index: " + version);
+		}
+
+		final StateHandleID[] files = new StateHandleID[in.readInt()];
+		for (int i = 0; i < files.length; i++) {
+			files[i] = new StateHandleID(in.readUTF());
+		}
+
+		final KeyGroupFileIndex index = new KeyGroupFileIndex(keyGroupRange);
+		for (int keyGroup : keyGroupRange) {
+			final StateHandleID file = files[in.readInt()];
+			index.setKeyGroup(keyGroup, file, in.readLong());
+		}
+		return index;
+	}
+}
@@ -23,9 +23,12 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
 import org.apache.flink.runtime.state.StateTransformationFunction;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
@@ -322,7 +325,12 @@ public class NestedMapsStateTable<K, N, S> extends StateTable<K, N, S> {
 
 	@Override
 	public NestedMapsStateTableSnapshot<K, N, S> createSnapshot() {
-		return new NestedMapsStateTableSnapshot<>(this);
+		return createSnapshot(null);
+	}
+
+	@Override
+	NestedMapsStateTableSnapshot<K, N, S> createSnapshot(@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
+		return new NestedMapsStateTableSnapshot<>(this, stateSnapshotTransformer);
 	}
 
 	/**
@@ -335,8 +343,11 @@ public class NestedMapsStateTable<K, N, S> extends StateTable<K, N, S> {
 	static class NestedMapsStateTableSnapshot<K, N, S>
 			extends AbstractStateTableSnapshot<K, N, S, NestedMapsStateTable<K, N, S>> {
 
-		NestedMapsStateTableSnapshot(NestedMapsStateTable<K, N, S> owningTable) {
-			super(owningTable);
+		NestedMapsStateTableSnapshot(
+				NestedMapsStateTable<K, N, S> owningTable,
+				@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
+
+			super(owningTable, stateSnapshotTransformer);
 		}
 
 		/**
@@ -355,6 +366,12 @@ public class NestedMapsStateTable<K, N, S> extends StateTable<K, N, S> {
 				TypeSerializer<K> keySerializer = owningStateTable.keyContext.getKeySerializer();
 				TypeSerializer<N> namespaceSerializer = owningStateTable.metaInfo.getNamespaceSerializer();
 				TypeSerializer<S> stateSerializer = owningStateTable.metaInfo.getStateSerializer();
+
+				if (stateSnapshotTransformer != null) {
+					writeTransformedMappings(dov, keyGroupMap, keySerializer, namespaceSerializer, stateSnapshotTransformer);
+					return;
+				}
+
 				dov.writeInt(countMappingsInKeyGroup(keyGroupMap));
 				for (Map.Entry<N, Map<K, S>> namespaceEntry : keyGroupMap.entrySet()) {
 					final N namespace = namespaceEntry.getKey();
@@ -370,5 +387,43 @@ public class NestedMapsStateTable<K, N, S> extends StateTable<K, N, S> {
 				dov.writeInt(0);
 			}
 		}
+
+		private void writeTransformedMappings(
+				DataOutputView dov,
+				Map<N, Map<K, S>> keyGroupMap,
+				TypeSerializer<K> keySerializer,
+				TypeSerializer<N> namespaceSerializer,
+				StateSnapshotTransformer<S> transformer) throws IOException {
+
+			final Map<N, Map<K, S>> transformedMap = new HashMap<>(keyGroupMap.size());
+			int count = 0;
+
+			for (Map.Entry<N, Map<K, S>> namespaceEntry : keyGroupMap.entrySet()) {
+				final Map<K, S> transformedNamespaceMap = new HashMap<>(namespaceEntry.getValue().size());
+
+				for (Map.Entry<K, S> keyEntry : namespaceEntry.getValue().entrySet()) {
+					final S transformedState = transformer.filterOrTransform(keyEntry.getValue());
+					if (transformedState != null) {
+						transformedNamespaceMap.put(keyEntry.getKey(), transformedState);
+					}
+				}
+
+				if (!transformedNamespaceMap.isEmpty()) {
+					transformedMap.put(namespaceEntry.getKey(), transformedNamespaceMap);
+					count += transformedNamespaceMap.size();
+				}
+			}
+
+			TypeSerializer<S> stateSerializer = owningStateTable.metaInfo.getStateSerializer();
+			dov.writeInt(count);
+			for (Map.Entry<N, Map<K, S>> namespaceEntry : transformedMap.entrySet()) {
+				final N namespace = namespaceEntry.getKey();
+				for (Map.Entry<K, S> keyEntry : namespaceEntry.getValue().entrySet()) {
+					namespaceSerializer.serialize(namespace, dov);
+					keySerializer.serialize(keyEntry.getKey(), dov);
+					stateSerializer.serialize(keyEntry.getValue(), dov);
+				}
+			}
+		}
 	}
 }
@@ -0,0 +1,563 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nullable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * A {@link StateTable} that can spill the mappings of individual key-groups to local disk and loads them back on
+ * the next access. This allows heap state to grow beyond the available memory, see {@link HeapSpillingManager}.
+ *
+ * <p>The mappings of each key-group are held by a separate {@link CopyOnWriteStateTable}, so that a key-group can be
+ * spilled by serializing and dropping its table. Accesses to key-groups on the heap only add a lookup of the
+ * key-group's table to the access path of a {@link CopyOnWriteStateTable}. Snapshots are taken from the tables of
+ * the key-groups on the heap with copy-on-write semantics, and copy the files of spilled key-groups, which hold the
+ * mappings in the format of checkpoints.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+@Internal
+public class SpillableStateTable<K, N, S> extends StateTable<K, N, S> {
+
+	/** The initial capacity of the tables of the individual key-groups. */
+	private static final int KEY_GROUP_TABLE_CAPACITY = 16;
+
+	private final HeapSpillingManager spillingManager;
+
+	/** The tables of the key-groups on the heap, indexed by key-group position. */
+	private final CopyOnWriteStateTable<K, N, S>[] keyGroupTables;
+
+	/** The spilled key-groups, indexed by key-group position. */
+	private final SpilledKeyGroup<K, N, S>[] spilledKeyGroups;
+
+	/** The offset to the contiguous key groups. */
+	private final int keyGroupOffset;
+
+	/**
+	 * Creates a new {@link SpillableStateTable} for the given key context and meta info.
+	 *
+	 * @param keyContext the key context.
+	 * @param metaInfo the meta information for this state table.
+	 * @param spillingManager the manager that provides the spill files.
+	 */
+	@SuppressWarnings("unchecked")
+	public SpillableStateTable(
+			InternalKeyContext<K> keyContext,
+			RegisteredKeyedBackendStateMetaInfo<N, S> metaInfo,
+			HeapSpillingManager spillingManager) {
+
+		super(keyContext, metaInfo);
+		this.spillingManager = Preconditions.checkNotNull(spillingManager);
+		this.keyGroupOffset = keyContext.getKeyGroupRange().getStartKeyGroup();
+
+		final int numberOfKeyGroups = keyContext.getKeyGroupRange().getNumberOfKeyGroups();
+		this.keyGroupTables = (CopyOnWriteStateTable<K, N, S>[]) new CopyOnWriteStateTable[numberOfKeyGroups];
+		this.spilledKeyGroups = (SpilledKeyGroup<K, N, S>[]) new SpilledKeyGroup[numberOfKeyGroups];
+	}
+
+	// ------------------------------------------------------------------------
+	//  access to the key-group tables
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the table of the given key-group, loading the key-group if it was spilled, or null if the key-group
+	 * has no mappings. Like in a single {@link CopyOnWriteStateTable}, key-groups outside of the key-group range of
+	 * the backend have no mappings.
+	 */
+	private CopyOnWriteStateTable<K, N, S> getKeyGroupTable(int keyGroupIndex) {
+		final int pos = keyGroupIndex - keyGroupOffset;
+		if (pos < 0 || pos >= keyGroupTables.length) {
+			return null;
+		}
+
+		final CopyOnWriteStateTable<K, N, S> table = keyGroupTables[pos];
+		return table != null || spilledKeyGroups[pos] == null ? table : loadKeyGroup(pos);
+	}
+
+	/**
+	 * Returns the table of the given key-group, loading the key-group if it was spilled, or creating the table if the
+	 * key-group has no mappings.
+	 */
+	private CopyOnWriteStateTable<K, N, S> getOrCreateKeyGroupTable(int keyGroupIndex) {
+		final int pos = indexToOffset(keyGroupIndex);
+		CopyOnWriteStateTable<K, N, S> table = keyGroupTables[pos];
+		if (table == null) {
+			if (spilledKeyGroups[pos] != null) {
+				table = loadKeyGroup(pos);
+			} else {
+				table = new CopyOnWriteStateTable<>(keyContext, metaInfo, KEY_GROUP_TABLE_CAPACITY);
+				keyGroupTables[pos] = table;
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Translates a key-group id to the internal array offset.
+	 */
+	private int indexToOffset(int index) {
+		final int pos = index - keyGroupOffset;
+		if (pos < 0 || pos >= keyGroupTables.length) {
+			throw new IllegalArgumentException("Key group index " + index + " is out of range of key group " +
+				"range [" + keyGroupOffset + ", " + (keyGroupOffset + keyGroupTables.length) + ").");
+		}
+		return pos;
+	}
+
+	// ------------------------------------------------------------------------
+	//  spilling
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the number of mappings on the heap.
+	 */
+	int sizeOnHeap() {
+		int count = 0;
+		for (CopyOnWriteStateTable<K, N, S> table : keyGroupTables) {
+			if (table != null) {
+				count += table.size();
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Spills the mappings of the given key-group to disk, if the key-group is on the heap.
+	 *
+	 * @return the number of spilled mappings.
+	 */
+	int spillKeyGroup(int keyGroupIndex) throws IOException {
+		final int pos = indexToOffset(keyGroupIndex);
+		final CopyOnWriteStateTable<K, N, S> table = keyGroupTables[pos];
+		if (table == null) {
+			return 0;
+		}
+
+		final int numMappings = table.size();
+		if (numMappings > 0) {
+			final File file = spillingManager.createSpillFile();
+			final SpilledKeyGroup.Serializers<K, N, S> serializers = getSerializers();
+
+			try (DataOutputViewStreamWrapper out =
+					new DataOutputViewStreamWrapper(new BufferedOutputStream(new FileOutputStream(file)))) {
+
+				out.writeInt(numMappings);
+				for (StateEntry<K, N, S> entry : table) {
+					serializers.namespaceSerializer.serialize(entry.getNamespace(), out);
+					serializers.keySerializer.serialize(entry.getKey(), out);
+					serializers.stateSerializer.serialize(entry.getState(), out);
+				}
+			} catch (IOException e) {
+				if (!file.delete()) {
+					e.addSuppressed(new IOException("Could not delete spill file " + file + '.'));
+				}
+				throw e;
+			}
+
+			spilledKeyGroups[pos] = new SpilledKeyGroup<>(file, numMappings, serializers);
+		}
+
+		// snapshots still holding the table keep their copy-on-write view of it
+		keyGroupTables[pos] = null;
+		return numMappings;
+	}
+
+	/**
+	 * Loads the spilled mappings of the key-group at the given position back into a new table on the heap. The
+	 * mappings are read with the serializers they were spilled with, which differ from the current serializers if
+	 * the state was registered again after the key-group was spilled.
+	 */
+	private CopyOnWriteStateTable<K, N, S> loadKeyGroup(int pos) {
+		final SpilledKeyGroup<K, N, S> spilledKeyGroup = spilledKeyGroups[pos];
+		final CopyOnWriteStateTable<K, N, S> table = new CopyOnWriteStateTable<>(
+			keyContext, metaInfo, spilledKeyGroup.getNumMappings() + KEY_GROUP_TABLE_CAPACITY);
+		final TypeSerializer<S> stateSerializer = spilledKeyGroup.getSerializers().stateSerializer;
+		final int keyGroupIndex = pos + keyGroupOffset;
+
+		try (DataInputViewStreamWrapper in = spilledKeyGroup.openInputView()) {
+			MappingReader reader = new MappingReader(in, spilledKeyGroup.getSerializers());
+			while (reader.next()) {
+				table.put(reader.key, keyGroupIndex, reader.namespace, stateSerializer.deserialize(in));
+			}
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Could not load spilled state from " + spilledKeyGroup.getFile() + '.', e);
+		}
+
+		keyGroupTables[pos] = table;
+		spilledKeyGroups[pos] = null;
+		spilledKeyGroup.release();
+		return table;
+	}
+
+	/**
+	 * Deletes the spill files of this table, once no snapshot is using them anymore.
+	 */
+	void dispose() {
+		for (int i = 0; i < spilledKeyGroups.length; i++) {
+			if (spilledKeyGroups[i] != null) {
+				spilledKeyGroups[i].release();
+				spilledKeyGroups[i] = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns the serializers of the mappings.
+	 */
+	private SpilledKeyGroup.Serializers<K, N, S> getSerializers() {
+		return new SpilledKeyGroup.Serializers<>(
+			keyContext.getKeySerializer(), metaInfo.getNamespaceSerializer(), metaInfo.getStateSerializer());
+	}
+
+	@VisibleForTesting
+	boolean isSpilled(int keyGroupIndex) {
+		return spilledKeyGroups[indexToOffset(keyGroupIndex)] != null;
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		int count = sizeOnHeap();
+		for (SpilledKeyGroup<K, N, S> spilledKeyGroup : spilledKeyGroups) {
+			if (spilledKeyGroup != null) {
+				count += spilledKeyGroup.getNumMappings();
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public S get(N namespace) {
+		final CopyOnWriteStateTable<K, N, S> table = getKeyGroupTable(keyContext.getCurrentKeyGroupIndex());
+		return table != null ? table.get(namespace) : null;
+	}
+
+	@Override
+	public boolean containsKey(N namespace) {
+		final CopyOnWriteStateTable<K, N, S> table = getKeyGroupTable(keyContext.getCurrentKeyGroupIndex());
+		return table != null && table.containsKey(namespace);
+	}
+
+	@Override
+	public void put(N namespace, S state) {
+		getOrCreateKeyGroupTable(keyContext.getCurrentKeyGroupIndex()).put(namespace, state);
+	}
+
+	@Override
+	public S putAndGetOld(N namespace, S state) {
+		return getOrCreateKeyGroupTable(keyContext.getCurrentKeyGroupIndex()).putAndGetOld(namespace, state);
+	}
+
+	@Override
+	public void remove(N namespace) {
+		final CopyOnWriteStateTable<K, N, S> table = getKeyGroupTable(keyContext.getCurrentKeyGroupIndex());
+		if (table != null) {
+			table.remove(namespace);
+		}
+	}
+
+	@Override
+	public S removeAndGetOld(N namespace) {
+		final CopyOnWriteStateTable<K, N, S> table = getKeyGroupTable(keyContext.getCurrentKeyGroupIndex());
+		return table != null ? table.removeAndGetOld(namespace) : null;
+	}
+
+	@Override
+	public <T> void transform(N namespace, T value, StateTransformationFunction<S, T> transformation) throws Exception {
+		getOrCreateKeyGroupTable(keyContext.getCurrentKeyGroupIndex()).transform(namespace, value, transformation);
+	}
+
+	@Override
+	public void put(K key, int keyGroup, N namespace, S state) {
+		getOrCreateKeyGroupTable(keyGroup).put(key, keyGroup, namespace, state);
+	}
+
+	/**
+	 * Returns the state for the composite of the given key and namespace. Spilled key-groups are not loaded back,
+	 * because this is typically called by queryable state from outside the task thread.
+	 */
+	@Override
+	public S get(K key, N namespace) {
+		final int pos = KeyGroupRangeAssignment.assignToKeyGroup(key, keyContext.getNumberOfKeyGroups()) - keyGroupOffset;
+		if (pos < 0 || pos >= keyGroupTables.length) {
+			return null;
+		}
+
+		final CopyOnWriteStateTable<K, N, S> table = keyGroupTables[pos];
+		if (table != null) {
+			return table.get(key, namespace);
+		}
+
+		final SpilledKeyGroup<K, N, S> spilledKeyGroup = spilledKeyGroups[pos];
+		if (spilledKeyGroup != null) {
+			try (DataInputViewStreamWrapper in = spilledKeyGroup.openInputView()) {
+				final SpilledKeyGroup.Serializers<K, N, S> serializers = spilledKeyGroup.getSerializers().duplicate();
+				MappingReader reader = new MappingReader(in, serializers);
+				while (reader.next()) {
+					if (key.equals(reader.key) && namespace.equals(reader.namespace)) {
+						return serializers.stateSerializer.deserialize(in);
+					}
+					serializers.stateSerializer.deserialize(in);
+				}
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Could not read spilled state from " + spilledKeyGroup.getFile() + '.', e);
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public Stream<K> getKeys(N namespace) {
+		final List<K> spilledKeys = new ArrayList<>();
+		for (SpilledKeyGroup<K, N, S> spilledKeyGroup : spilledKeyGroups) {
+			if (spilledKeyGroup != null) {
+				forEachSpilledMapping(spilledKeyGroup, (mappingKey, mappingNamespace) -> {
+					if (namespace.equals(mappingNamespace)) {
+						spilledKeys.add(mappingKey);
+					}
+				});
+			}
+		}
+
+		Stream<K> keys = spilledKeys.stream();
+		for (CopyOnWriteStateTable<K, N, S> table : keyGroupTables) {
+			if (table != null) {
+				keys = Stream.concat(keys, table.getKeys(namespace));
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public void setMetaInfo(RegisteredKeyedBackendStateMetaInfo<N, S> metaInfo) {
+		super.setMetaInfo(metaInfo);
+		for (CopyOnWriteStateTable<K, N, S> table : keyGroupTables) {
+			if (table != null) {
+				table.setMetaInfo(metaInfo);
+			}
+		}
+	}
+
+	@Override
+	public int sizeOfNamespace(Object namespace) {
+		final int[] count = new int[1];
+		for (CopyOnWriteStateTable<K, N, S> table : keyGroupTables) {
+			if (table != null) {
+				count[0] += table.sizeOfNamespace(namespace);
+			}
+		}
+		for (SpilledKeyGroup<K, N, S> spilledKeyGroup : spilledKeyGroups) {
+			if (spilledKeyGroup != null) {
+				forEachSpilledMapping(spilledKeyGroup, (mappingKey, mappingNamespace) -> {
+					if (namespace.equals(mappingNamespace)) {
+						++count[0];
+					}
+				});
+			}
+		}
+		return count[0];
+	}
+
+	private void forEachSpilledMapping(SpilledKeyGroup<K, N, S> spilledKeyGroup, MappingConsumer<K, N> consumer) {
+		try (DataInputViewStreamWrapper in = spilledKeyGroup.openInputView()) {
+			final SpilledKeyGroup.Serializers<K, N, S> serializers = spilledKeyGroup.getSerializers();
+			MappingReader reader = new MappingReader(in, serializers);
+			while (reader.next()) {
+				consumer.accept(reader.key, reader.namespace);
+				serializers.stateSerializer.deserialize(in);
+			}
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Could not read spilled state from " + spilledKeyGroup.getFile() + '.', e);
+		}
+	}
+
+	/**
+	 * Reads the namespace and key of the spilled mappings, leaving the input positioned at the state.
+	 */
+	private final class MappingReader {
+
+		private final DataInputView in;
+
+		private final TypeSerializer<K> keySerializer;
+
+		private final TypeSerializer<N> namespaceSerializer;
+
+		private int remaining;
+
+		private K key;
+
+		private N namespace;
+
+		MappingReader(DataInputView in, SpilledKeyGroup.Serializers<K, N, S> serializers) throws IOException {
+			this.in = in;
+			this.keySerializer = serializers.keySerializer;
+			this.namespaceSerializer = serializers.namespaceSerializer;
+			this.remaining = in.readInt();
+		}
+
+		boolean next() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+
+			--remaining;
+			namespace = namespaceSerializer.deserialize(in);
+			key = keySerializer.deserialize(in);
+			return true;
+		}
+	}
+
+	private interface MappingConsumer<K, N> {
+		void accept(K key, N namespace);
+	}
+
+	// snapshots ---------------------------------------------------------------------------------------------------
+
+	@Override
+	SpillableStateTableSnapshot<K, N, S> createSnapshot() {
+		return createSnapshot(null);
+	}
+
+	@Override
+	SpillableStateTableSnapshot<K, N, S> createSnapshot(@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
+		return new SpillableStateTableSnapshot<>(this, stateSnapshotTransformer);
+	}
+
+	/**
+	 * This class encapsulates the snapshot logic. The snapshot consists of {@link CopyOnWriteStateTableSnapshot
+	 * CopyOnWriteStateTableSnapshots} of the key-groups on the heap and references to the files of spilled key-groups.
+	 * The files are copied as they are, unless they were spilled with other serializers than the current ones or the
+	 * snapshot has a {@link StateSnapshotTransformer}. Then their mappings are deserialized, transformed, and
+	 * serialized again with the current serializers.
+	 *
+	 * @param <K> type of key.
+	 * @param <N> type of namespace.
+	 * @param <S> type of state.
+	 */
+	static class SpillableStateTableSnapshot<K, N, S>
+			extends AbstractStateTableSnapshot<K, N, S, SpillableStateTable<K, N, S>> {
+
+		private final CopyOnWriteStateTableSnapshot<K, N, S>[] keyGroupSnapshots;
+
+		private final SpilledKeyGroup<K, N, S>[] spilledKeyGroups;
+
+		/**
+		 * Duplicates of the serializers of the spilled key-groups, which cannot be copied as they are, indexed by
+		 * key-group position.
+		 */
+		private final SpilledKeyGroup.Serializers<K, N, S>[] spillSerializers;
+
+		/** Duplicates of the current serializers, if any spilled key-group must be serialized again. */
+		private final SpilledKeyGroup.Serializers<K, N, S> localSerializers;
+
+		@SuppressWarnings("unchecked")
+		SpillableStateTableSnapshot(
+				SpillableStateTable<K, N, S> owningTable,
+				@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) {
+
+			super(owningTable, stateSnapshotTransformer);
+
+			final int numberOfKeyGroups = owningTable.keyGroupTables.length;
+			this.keyGroupSnapshots = (CopyOnWriteStateTableSnapshot<K, N, S>[])
+				new CopyOnWriteStateTableSnapshot[numberOfKeyGroups];
+			this.spilledKeyGroups = (SpilledKeyGroup<K, N, S>[]) new SpilledKeyGroup[numberOfKeyGroups];
+			this.spillSerializers = (SpilledKeyGroup.Serializers<K, N, S>[])
+				new SpilledKeyGroup.Serializers[numberOfKeyGroups];
+
+			final SpilledKeyGroup.Serializers<K, N, S> currentSerializers = owningTable.getSerializers();
+			boolean requiresLocalSerializers = false;
+
+			for (int i = 0; i < numberOfKeyGroups; i++) {
+				CopyOnWriteStateTable<K, N, S> table = owningTable.keyGroupTables[i];
+				SpilledKeyGroup<K, N, S> spilledKeyGroup = owningTable.spilledKeyGroups[i];
+
+				if (table != null && table.size() > 0) {
+					keyGroupSnapshots[i] = table.createSnapshot(stateSnapshotTransformer);
+				} else if (spilledKeyGroup != null) {
+					spilledKeyGroup.retain();
+					spilledKeyGroups[i] = spilledKeyGroup;
+
+					if (stateSnapshotTransformer != null || !currentSerializers.equals(spilledKeyGroup.getSerializers())) {
+						spillSerializers[i] = spilledKeyGroup.getSerializers().duplicate();
+						requiresLocalSerializers = true;
+					}
+				}
+			}
+
+			this.localSerializers = requiresLocalSerializers ? currentSerializers.duplicate() : null;
+		}
+
+		@Override
+		public void writeMappingsInKeyGroup(DataOutputView dov, int keyGroupId) throws IOException {
+			final int pos = keyGroupId - owningStateTable.keyGroupOffset;
+
+			if (keyGroupSnapshots[pos] != null) {
+				keyGroupSnapshots[pos].writeAllMappings(dov);
+			} else if (spillSerializers[pos] != null && stateSnapshotTransformer != null) {
+				spilledKeyGroups[pos].transformTo(dov, spillSerializers[pos], localSerializers, stateSnapshotTransformer);
+			} else if (spillSerializers[pos] != null) {
+				spilledKeyGroups[pos].transcodeTo(dov, spillSerializers[pos], localSerializers);
+			} else if (spilledKeyGroups[pos] != null) {
+				spilledKeyGroups[pos].copyTo(dov);
+			} else {
+				dov.writeInt(0);
+			}
+		}
+
+		@Override
+		public void release() {
+			for (int i = 0; i < keyGroupSnapshots.length; i++) {
+				if (keyGroupSnapshots[i] != null) {
+					keyGroupSnapshots[i].release();
+					keyGroupSnapshots[i] = null;
+				}
+				if (spilledKeyGroups[i] != null) {
+					spilledKeyGroups[i].release();
+					spilledKeyGroups[i] = null;
+				}
+			}
+		}
+	}
+}
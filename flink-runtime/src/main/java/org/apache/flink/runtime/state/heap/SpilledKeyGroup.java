@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The mappings of one key-group of a {@link SpillableStateTable}, which have been spilled to a local file. The file
+ * holds the mappings in the format of the key-groups in checkpoints, i.e., the number of mappings followed by the
+ * serialized namespace, key and state of each mapping.
+ *
+ * <p>The file is reference counted, because snapshots may still write it after the mappings have been loaded back
+ * into the state table. The file is deleted once the last reference has been released.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+final class SpilledKeyGroup<K, N, S> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SpilledKeyGroup.class);
+
+	private static final int BUFFER_SIZE = 16 * 1024;
+
+	private final File file;
+
+	private final int numMappings;
+
+	/** The serializers the mappings were written with. */
+	private final Serializers<K, N, S> serializers;
+
+	/** The number of references to the file, guarded by this object. */
+	private int referenceCount;
+
+	/**
+	 * Creates a handle for the given spill file, which holds a single reference of the creator.
+	 */
+	SpilledKeyGroup(File file, int numMappings, Serializers<K, N, S> serializers) {
+		this.file = checkNotNull(file);
+		this.numMappings = numMappings;
+		this.serializers = checkNotNull(serializers);
+		this.referenceCount = 1;
+	}
+
+	int getNumMappings() {
+		return numMappings;
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	Serializers<K, N, S> getSerializers() {
+		return serializers;
+	}
+
+	/**
+	 * Opens a view on the mappings, starting with the number of mappings.
+	 */
+	DataInputViewStreamWrapper openInputView() throws IOException {
+		return new DataInputViewStreamWrapper(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+	}
+
+	/**
+	 * Copies the spill file, i.e., the mappings in the format of a key-group in a checkpoint, to the given output.
+	 */
+	void copyTo(DataOutputView out) throws IOException {
+		final byte[] buffer = new byte[BUFFER_SIZE];
+		try (InputStream in = new FileInputStream(file)) {
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				out.write(buffer, 0, read);
+			}
+		}
+	}
+
+	/**
+	 * Writes the mappings to the given output with other serializers than the ones they were spilled with.
+	 *
+	 * @param out the output.
+	 * @param readSerializers duplicates of the serializers the mappings were spilled with.
+	 * @param writeSerializers the serializers to write the mappings with.
+	 */
+	void transcodeTo(
+			DataOutputView out,
+			Serializers<K, N, S> readSerializers,
+			Serializers<K, N, S> writeSerializers) throws IOException {
+
+		try (DataInputViewStreamWrapper in = openInputView()) {
+			final int count = in.readInt();
+			out.writeInt(count);
+
+			for (int i = 0; i < count; i++) {
+				writeSerializers.namespaceSerializer.serialize(readSerializers.namespaceSerializer.deserialize(in), out);
+				writeSerializers.keySerializer.serialize(readSerializers.keySerializer.deserialize(in), out);
+				writeSerializers.stateSerializer.serialize(readSerializers.stateSerializer.deserialize(in), out);
+			}
+		}
+	}
+
+	/**
+	 * Writes the mappings to the given output with their states transformed, leaving out the mappings for which the
+	 * transformer returns null. The written mappings are buffered in serialized form, because their number precedes
+	 * them.
+	 *
+	 * @param out the output.
+	 * @param readSerializers duplicates of the serializers the mappings were spilled with.
+	 * @param writeSerializers the serializers to write the mappings with.
+	 * @param transformer the transformer applied to the states.
+	 */
+	void transformTo(
+			DataOutputView out,
+			Serializers<K, N, S> readSerializers,
+			Serializers<K, N, S> writeSerializers,
+			StateSnapshotTransformer<S> transformer) throws IOException {
+
+		final DataOutputSerializer mappings = new DataOutputSerializer(BUFFER_SIZE);
+		int written = 0;
+
+		try (DataInputViewStreamWrapper in = openInputView()) {
+			final int count = in.readInt();
+
+			for (int i = 0; i < count; i++) {
+				final N namespace = readSerializers.namespaceSerializer.deserialize(in);
+				final K key = readSerializers.keySerializer.deserialize(in);
+				final S state = transformer.filterOrTransform(readSerializers.stateSerializer.deserialize(in));
+
+				if (state != null) {
+					writeSerializers.namespaceSerializer.serialize(namespace, mappings);
+					writeSerializers.keySerializer.serialize(key, mappings);
+					writeSerializers.stateSerializer.serialize(state, mappings);
+					++written;
+				}
+			}
+		}
+
+		out.writeInt(written);
+		out.write(mappings.getByteArray(), 0, mappings.length());
+	}
+
+	synchronized void retain() {
+		checkState(referenceCount > 0, "The spill file has already been deleted.");
+		++referenceCount;
+	}
+
+	synchronized void release() {
+		checkState(referenceCount > 0, "The spill file has already been deleted.");
+		if (--referenceCount == 0 && !file.delete() && file.exists()) {
+			LOG.warn("Could not delete spill file {}.", file);
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The serializers of the mappings of a state table.
+	 */
+	static final class Serializers<K, N, S> {
+
+		final TypeSerializer<K> keySerializer;
+
+		final TypeSerializer<N> namespaceSerializer;
+
+		final TypeSerializer<S> stateSerializer;
+
+		Serializers(
+				TypeSerializer<K> keySerializer,
+				TypeSerializer<N> namespaceSerializer,
+				TypeSerializer<S> stateSerializer) {
+
+			this.keySerializer = checkNotNull(keySerializer);
+			this.namespaceSerializer = checkNotNull(namespaceSerializer);
+			this.stateSerializer = checkNotNull(stateSerializer);
+		}
+
+		/**
+		 * Duplicates the serializers, because they might be stateful and shared with the event processing thread.
+		 */
+		Serializers<K, N, S> duplicate() {
+			return new Serializers<>(keySerializer.duplicate(), namespaceSerializer.duplicate(), stateSerializer.duplicate());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+
+			Serializers<?, ?, ?> that = (Serializers<?, ?, ?>) o;
+			return keySerializer.equals(that.keySerializer)
+				&& namespaceSerializer.equals(that.namespaceSerializer)
+				&& stateSerializer.equals(that.stateSerializer);
+		}
+
+		@Override
+		public int hashCode() {
+			int result = keySerializer.hashCode();
+			result = 31 * result + namespaceSerializer.hashCode();
+			result = 31 * result + stateSerializer.hashCode();
+			return result;
+		}
+	}
+}
@@ -21,9 +21,12 @@ package org.apache.flink.runtime.state.heap;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
 import org.apache.flink.runtime.state.StateTransformationFunction;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 import java.util.stream.Stream;
 
 /**
@@ -184,6 +187,12 @@ public abstract class StateTable<K, N, S> {
 
 	abstract StateTableSnapshot createSnapshot();
 
+	/**
+	 * Creates a snapshot that applies the given transformer to the states while they are written. Mappings for
+	 * which the transformer returns null are left out.
+	 */
+	abstract StateTableSnapshot createSnapshot(@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer);
+
 	public abstract void put(K key, int keyGroup, N namespace, S state);
 
 	// For testing --------------------------------------------------------------------------------
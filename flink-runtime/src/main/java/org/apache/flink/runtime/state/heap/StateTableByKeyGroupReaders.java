@@ -43,13 +43,33 @@ class StateTableByKeyGroupReaders {
 	 * @return the appropriate reader.
 	 */
 	static <K, N, S> StateTableByKeyGroupReader readerForVersion(StateTable<K, N, S> table, int version) {
+		return readerForVersion(table, version, table.getNamespaceSerializer(), table.getStateSerializer());
+	}
+
+	/**
+	 * Creates a new StateTableByKeyGroupReader that inserts de-serialized mappings into the given table, using the
+	 * given serializers for namespaces and states. These are the serializers with which the mappings were written,
+	 * which can differ from the serializers of the table if the table is restored from several snapshots.
+	 *
+	 * @param table the {@link StateTable} into which de-serialized mappings are inserted.
+	 * @param version version for the de-serialization algorithm.
+	 * @param namespaceSerializer the serializer for the namespaces of the mappings.
+	 * @param stateSerializer the serializer for the states of the mappings.
+	 * @return the appropriate reader.
+	 */
+	static <K, N, S> StateTableByKeyGroupReader readerForVersion(
+			StateTable<K, N, S> table,
+			int version,
+			TypeSerializer<N> namespaceSerializer,
+			TypeSerializer<S> stateSerializer) {
+
 		switch (version) {
 			case 1:
-				return new StateTableByKeyGroupReaderV1<>(table);
+				return new StateTableByKeyGroupReaderV1<>(table, namespaceSerializer, stateSerializer);
 			case 2:
 			case 3:
 			case 4:
-				return new StateTableByKeyGroupReaderV2V3<>(table);
+				return new StateTableByKeyGroupReaderV2V3<>(table, namespaceSerializer, stateSerializer);
 			default:
 				throw new IllegalArgumentException("Unknown version: " + version);
 		}
@@ -60,8 +80,18 @@ class StateTableByKeyGroupReaders {
 
 		protected final StateTable<K, N, S> stateTable;
 
-		AbstractStateTableByKeyGroupReader(StateTable<K, N, S> stateTable) {
+		private final TypeSerializer<N> namespaceSerializer;
+
+		private final TypeSerializer<S> stateSerializer;
+
+		AbstractStateTableByKeyGroupReader(
+				StateTable<K, N, S> stateTable,
+				TypeSerializer<N> namespaceSerializer,
+				TypeSerializer<S> stateSerializer) {
+
 			this.stateTable = stateTable;
+			this.namespaceSerializer = namespaceSerializer;
+			this.stateSerializer = stateSerializer;
 		}
 
 		@Override
@@ -72,19 +102,23 @@ class StateTableByKeyGroupReaders {
 		}
 
 		protected TypeSerializer<N> getNamespaceSerializer() {
-			return stateTable.getNamespaceSerializer();
+			return namespaceSerializer;
 		}
 
 		protected TypeSerializer<S> getStateSerializer() {
-			return stateTable.getStateSerializer();
+			return stateSerializer;
 		}
 	}
 
 	static final class StateTableByKeyGroupReaderV1<K, N, S>
 			extends AbstractStateTableByKeyGroupReader<K, N, S> {
 
-		StateTableByKeyGroupReaderV1(StateTable<K, N, S> stateTable) {
-			super(stateTable);
+		StateTableByKeyGroupReaderV1(
+				StateTable<K, N, S> stateTable,
+				TypeSerializer<N> namespaceSerializer,
+				TypeSerializer<S> stateSerializer) {
+
+			super(stateTable, namespaceSerializer, stateSerializer);
 		}
 
 		@Override
@@ -115,8 +149,12 @@ class StateTableByKeyGroupReaders {
 	private static final class StateTableByKeyGroupReaderV2V3<K, N, S>
 			extends AbstractStateTableByKeyGroupReader<K, N, S> {
 
-		StateTableByKeyGroupReaderV2V3(StateTable<K, N, S> stateTable) {
-			super(stateTable);
+		StateTableByKeyGroupReaderV2V3(
+				StateTable<K, N, S> stateTable,
+				TypeSerializer<N> namespaceSerializer,
+				TypeSerializer<S> stateSerializer) {
+
+			super(stateTable, namespaceSerializer, stateSerializer);
 		}
 
 		@Override
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Base class of the states with a time-to-live. These wrap the state of the backend, which holds
+ * {@link TtlValue TtlValues}, and unwrap, check and renew the timestamps of the values on access.
+ *
+ * @param <N> type of the namespace.
+ * @param <S> type of the wrapped state of the backend.
+ */
+abstract class AbstractTtlState<N, S extends InternalKvState<N>> implements InternalKvState<N> {
+
+	/** The wrapped state, which holds the values together with their timestamps. */
+	final S original;
+
+	private final TtlTimeProvider timeProvider;
+
+	private final long ttl;
+
+	private final boolean updateTimestampOnRead;
+
+	private final boolean returnExpired;
+
+	AbstractTtlState(S original, StateTtlConfig config, TtlTimeProvider timeProvider) {
+		this.original = checkNotNull(original);
+		this.timeProvider = checkNotNull(timeProvider);
+		this.ttl = config.getTtl().toMilliseconds();
+		this.updateTimestampOnRead = config.getUpdateType() == StateTtlConfig.UpdateType.OnReadAndWrite;
+		this.returnExpired = config.getStateVisibility() == StateTtlConfig.StateVisibility.ReturnExpiredIfNotCleanedUp;
+	}
+
+	<V> TtlValue<V> wrapWithCurrentTimestamp(V userValue) {
+		return new TtlValue<>(userValue, timeProvider.currentTimestamp());
+	}
+
+	boolean isExpired(TtlValue<?> ttlValue) {
+		return isExpired(ttlValue.getLastAccessTimestamp(), timeProvider.currentTimestamp(), ttl);
+	}
+
+	boolean isUpdateTimestampOnRead() {
+		return updateTimestampOnRead;
+	}
+
+	boolean isReturnExpired() {
+		return returnExpired;
+	}
+
+	static boolean isExpired(long lastAccessTimestamp, long currentTimestamp, long ttl) {
+		return currentTimestamp - lastAccessTimestamp >= ttl;
+	}
+
+	@Override
+	public void setCurrentNamespace(N namespace) {
+		original.setCurrentNamespace(namespace);
+	}
+
+	@Override
+	public byte[] getSerializedValue(byte[] serializedKeyAndNamespace) throws Exception {
+		throw new UnsupportedOperationException("Queryable state is not supported with a time-to-live.");
+	}
+
+	@Override
+	public void clear() {
+		original.clear();
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.runtime.state.internal.InternalListState;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * A {@link InternalListState} with a time-to-live, for which each element expires on its own. Expired elements
+ * are removed when the list is read.
+ *
+ * @param <N> type of the namespace.
+ * @param <T> type of the list elements.
+ */
+class TtlListState<N, T>
+		extends AbstractTtlState<N, InternalListState<N, TtlValue<T>>>
+		implements InternalListState<N, T> {
+
+	TtlListState(
+			InternalListState<N, TtlValue<T>> original,
+			StateTtlConfig config,
+			TtlTimeProvider timeProvider) {
+
+		super(original, config, timeProvider);
+	}
+
+	@Override
+	public Iterable<T> get() throws Exception {
+		Iterable<TtlValue<T>> ttlValues = original.get();
+		if (ttlValues == null) {
+			return null;
+		}
+
+		List<T> result = new ArrayList<>();
+		List<TtlValue<T>> unexpired = new ArrayList<>();
+		boolean anyExpired = false;
+
+		for (TtlValue<T> ttlValue : ttlValues) {
+			if (isExpired(ttlValue)) {
+				anyExpired = true;
+				if (isReturnExpired()) {
+					result.add(ttlValue.getUserValue());
+				}
+			} else {
+				result.add(ttlValue.getUserValue());
+				unexpired.add(ttlValue);
+			}
+		}
+
+		if (anyExpired || (isUpdateTimestampOnRead() && !unexpired.isEmpty())) {
+			original.clear();
+			for (TtlValue<T> ttlValue : unexpired) {
+				original.add(isUpdateTimestampOnRead() ? wrapWithCurrentTimestamp(ttlValue.getUserValue()) : ttlValue);
+			}
+		}
+
+		return result.isEmpty() ? null : result;
+	}
+
+	@Override
+	public void add(T value) throws Exception {
+		if (value != null) {
+			original.add(wrapWithCurrentTimestamp(value));
+		}
+	}
+
+	@Override
+	public void mergeNamespaces(N target, Collection<N> sources) throws Exception {
+		original.mergeNamespaces(target, sources);
+	}
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A {@link InternalMapState} with a time-to-live, for which each entry expires on its own. Expired entries are
+ * removed when they are read, including when they are passed over by an iteration.
+ *
+ * @param <N> type of the namespace.
+ * @param <UK> type of the map keys.
+ * @param <UV> type of the map values.
+ */
+class TtlMapState<N, UK, UV>
+		extends AbstractTtlState<N, InternalMapState<N, UK, TtlValue<UV>>>
+		implements InternalMapState<N, UK, UV> {
+
+	TtlMapState(
+			InternalMapState<N, UK, TtlValue<UV>> original,
+			StateTtlConfig config,
+			TtlTimeProvider timeProvider) {
+
+		super(original, config, timeProvider);
+	}
+
+	@Override
+	public UV get(UK key) throws Exception {
+		TtlValue<UV> ttlValue = original.get(key);
+		if (ttlValue == null) {
+			return null;
+		}
+
+		if (isExpired(ttlValue)) {
+			original.remove(key);
+			return isReturnExpired() ? ttlValue.getUserValue() : null;
+		}
+
+		if (isUpdateTimestampOnRead()) {
+			original.put(key, wrapWithCurrentTimestamp(ttlValue.getUserValue()));
+		}
+		return ttlValue.getUserValue();
+	}
+
+	@Override
+	public void put(UK key, UV value) throws Exception {
+		original.put(key, wrapWithCurrentTimestamp(value));
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> map) throws Exception {
+		if (map == null) {
+			return;
+		}
+
+		for (Map.Entry<UK, UV> entry : map.entrySet()) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+
+	@Override
+	public void remove(UK key) throws Exception {
+		original.remove(key);
+	}
+
+	@Override
+	public boolean contains(UK key) throws Exception {
+		TtlValue<UV> ttlValue = original.get(key);
+		if (ttlValue == null) {
+			return false;
+		}
+
+		if (isExpired(ttlValue)) {
+			original.remove(key);
+			return isReturnExpired();
+		}
+		return true;
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() throws Exception {
+		return entriesIterable(entry -> entry);
+	}
+
+	@Override
+	public Iterable<UK> keys() throws Exception {
+		return entriesIterable(Map.Entry::getKey);
+	}
+
+	@Override
+	public Iterable<UV> values() throws Exception {
+		return entriesIterable(Map.Entry::getValue);
+	}
+
+	@Override
+	public Iterator<Map.Entry<UK, UV>> iterator() throws Exception {
+		Iterator<Map.Entry<UK, TtlValue<UV>>> originalIterator = original.iterator();
+		return originalIterator == null ? null : new UnexpiredEntriesIterator<>(originalIterator, entry -> entry);
+	}
+
+	private <R> Iterable<R> entriesIterable(Function<Map.Entry<UK, UV>, R> resultMapper) throws Exception {
+		Iterable<Map.Entry<UK, TtlValue<UV>>> originalEntries = original.entries();
+		return originalEntries == null ? null : () -> new UnexpiredEntriesIterator<>(originalEntries.iterator(), resultMapper);
+	}
+
+	/**
+	 * Iterates over the unexpired entries of the wrapped state, and removes the expired entries that it passes over.
+	 */
+	private class UnexpiredEntriesIterator<R> implements Iterator<R> {
+
+		private final Iterator<Map.Entry<UK, TtlValue<UV>>> originalIterator;
+
+		private final Function<Map.Entry<UK, UV>, R> resultMapper;
+
+		private TtlEntry nextEntry;
+
+		/** The entry that was returned last, or null if there is none or it has been removed. */
+		private TtlEntry lastReturnedEntry;
+
+		/** Whether the original iterator has not moved past the last returned entry yet. */
+		private boolean originalIteratorAtLastReturned;
+
+		UnexpiredEntriesIterator(
+				Iterator<Map.Entry<UK, TtlValue<UV>>> originalIterator,
+				Function<Map.Entry<UK, UV>, R> resultMapper) {
+
+			this.originalIterator = originalIterator;
+			this.resultMapper = resultMapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (nextEntry == null && originalIterator.hasNext()) {
+				Map.Entry<UK, TtlValue<UV>> originalEntry = originalIterator.next();
+				originalIteratorAtLastReturned = false;
+				TtlValue<UV> ttlValue = originalEntry.getValue();
+
+				if (isExpired(ttlValue)) {
+					originalIterator.remove();
+					if (isReturnExpired()) {
+						nextEntry = new TtlEntry(originalEntry, ttlValue.getUserValue(), null);
+					}
+				} else {
+					if (isUpdateTimestampOnRead()) {
+						originalEntry.setValue(wrapWithCurrentTimestamp(ttlValue.getUserValue()));
+					}
+					nextEntry = new TtlEntry(originalEntry, ttlValue.getUserValue(), originalEntry);
+				}
+			}
+			return nextEntry != null;
+		}
+
+		@Override
+		public R next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			TtlEntry entry = nextEntry;
+			nextEntry = null;
+			lastReturnedEntry = entry;
+			originalIteratorAtLastReturned = true;
+			return resultMapper.apply(entry);
+		}
+
+		@Override
+		public void remove() {
+			checkState(lastReturnedEntry != null, "The remove operation must be called after a valid next operation.");
+
+			// expired entries have already been removed from the wrapped state
+			if (lastReturnedEntry.originalEntry != null) {
+				if (originalIteratorAtLastReturned) {
+					originalIterator.remove();
+				} else {
+					// hasNext() has moved the original iterator past the returned entry
+					try {
+						original.remove(lastReturnedEntry.getKey());
+					} catch (Exception e) {
+						throw new FlinkRuntimeException("Error while removing the entry from the state.", e);
+					}
+				}
+			}
+			lastReturnedEntry = null;
+		}
+	}
+
+	/**
+	 * An entry of the map with the user value, which writes updated values through to the wrapped state.
+	 */
+	private class TtlEntry implements Map.Entry<UK, UV> {
+
+		private final UK key;
+
+		private UV value;
+
+		/** The entry of the wrapped state, or null if the entry has already been removed. */
+		private final Map.Entry<UK, TtlValue<UV>> originalEntry;
+
+		TtlEntry(Map.Entry<UK, TtlValue<UV>> entry, UV value, Map.Entry<UK, TtlValue<UV>> originalEntry) {
+			this.key = entry.getKey();
+			this.value = value;
+			this.originalEntry = originalEntry;
+		}
+
+		@Override
+		public UK getKey() {
+			return key;
+		}
+
+		@Override
+		public UV getValue() {
+			return value;
+		}
+
+		@Override
+		public UV setValue(UV value) {
+			if (originalEntry == null) {
+				throw new IllegalStateException("The entry has expired and was removed.");
+			}
+
+			UV oldValue = this.value;
+			originalEntry.setValue(wrapWithCurrentTimestamp(value));
+			this.value = value;
+			return oldValue;
+		}
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.typeutils.CompatibilityResult;
+import org.apache.flink.api.common.typeutils.CompatibilityUtil;
+import org.apache.flink.api.common.typeutils.CompositeTypeSerializerConfigSnapshot;
+import org.apache.flink.api.common.typeutils.TypeDeserializerAdapter;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerConfigSnapshot;
+import org.apache.flink.api.common.typeutils.UnloadableDummyTypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Serializer for {@link TtlValue TtlValues}. The timestamp is written first, followed by a null flag and the
+ * user value, so that the timestamp can be read from the serialized form without deserializing the user value.
+ *
+ * @param <T> type of the user value.
+ */
+public final class TtlSerializer<T> extends TypeSerializer<TtlValue<T>> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The number of bytes before the serialized user value. */
+	static final int USER_VALUE_OFFSET = Long.BYTES + 1;
+
+	private final TypeSerializer<T> userValueSerializer;
+
+	public TtlSerializer(TypeSerializer<T> userValueSerializer) {
+		this.userValueSerializer = checkNotNull(userValueSerializer);
+	}
+
+	public TypeSerializer<T> getUserValueSerializer() {
+		return userValueSerializer;
+	}
+
+	/**
+	 * Reads the timestamp of a serialized {@link TtlValue}, which starts at the given offset.
+	 */
+	static long readTimestamp(byte[] serializedValue, int offset) {
+		long timestamp = 0L;
+		for (int i = offset; i < offset + Long.BYTES; i++) {
+			timestamp = (timestamp << 8) | (serializedValue[i] & 0xFF);
+		}
+		return timestamp;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Type Serializer implementation
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean isImmutableType() {
+		return false;
+	}
+
+	@Override
+	public TypeSerializer<TtlValue<T>> duplicate() {
+		TypeSerializer<T> duplicateUserValueSerializer = userValueSerializer.duplicate();
+		return duplicateUserValueSerializer == userValueSerializer ? this : new TtlSerializer<>(duplicateUserValueSerializer);
+	}
+
+	@Override
+	public TtlValue<T> createInstance() {
+		return new TtlValue<>(userValueSerializer.createInstance(), 0L);
+	}
+
+	@Override
+	public TtlValue<T> copy(TtlValue<T> from) {
+		T userValue = from.getUserValue();
+		return new TtlValue<>(
+			userValue != null ? userValueSerializer.copy(userValue) : null,
+			from.getLastAccessTimestamp());
+	}
+
+	@Override
+	public TtlValue<T> copy(TtlValue<T> from, TtlValue<T> reuse) {
+		return copy(from);
+	}
+
+	@Override
+	public int getLength() {
+		return -1;
+	}
+
+	@Override
+	public void serialize(TtlValue<T> record, DataOutputView target) throws IOException {
+		target.writeLong(record.getLastAccessTimestamp());
+
+		T userValue = record.getUserValue();
+		if (userValue == null) {
+			target.writeBoolean(true);
+		} else {
+			target.writeBoolean(false);
+			userValueSerializer.serialize(userValue, target);
+		}
+	}
+
+	@Override
+	public TtlValue<T> deserialize(DataInputView source) throws IOException {
+		long lastAccessTimestamp = source.readLong();
+		boolean isNull = source.readBoolean();
+		return new TtlValue<>(isNull ? null : userValueSerializer.deserialize(source), lastAccessTimestamp);
+	}
+
+	@Override
+	public TtlValue<T> deserialize(TtlValue<T> reuse, DataInputView source) throws IOException {
+		return deserialize(source);
+	}
+
+	@Override
+	public void copy(DataInputView source, DataOutputView target) throws IOException {
+		target.writeLong(source.readLong());
+
+		boolean isNull = source.readBoolean();
+		target.writeBoolean(isNull);
+		if (!isNull) {
+			userValueSerializer.copy(source, target);
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj == this ||
+			(obj != null && obj.getClass() == getClass() &&
+				userValueSerializer.equals(((TtlSerializer<?>) obj).userValueSerializer));
+	}
+
+	@Override
+	public boolean canEqual(Object obj) {
+		return obj instanceof TtlSerializer;
+	}
+
+	@Override
+	public int hashCode() {
+		return userValueSerializer.hashCode();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Serializer configuration snapshotting & compatibility
+	// ------------------------------------------------------------------------
+
+	@Override
+	public TypeSerializerConfigSnapshot snapshotConfiguration() {
+		return new TtlSerializerConfigSnapshot<>(userValueSerializer);
+	}
+
+	@Override
+	public CompatibilityResult<TtlValue<T>> ensureCompatibility(TypeSerializerConfigSnapshot configSnapshot) {
+		if (configSnapshot instanceof TtlSerializerConfigSnapshot) {
+			Tuple2<TypeSerializer<?>, TypeSerializerConfigSnapshot> previousUserValueSerializerAndConfig =
+				((TtlSerializerConfigSnapshot<?>) configSnapshot).getSingleNestedSerializerAndConfig();
+
+			CompatibilityResult<T> compatResult = CompatibilityUtil.resolveCompatibilityResult(
+				previousUserValueSerializerAndConfig.f0,
+				UnloadableDummyTypeSerializer.class,
+				previousUserValueSerializerAndConfig.f1,
+				userValueSerializer);
+
+			if (!compatResult.isRequiresMigration()) {
+				return CompatibilityResult.compatible();
+			} else if (compatResult.getConvertDeserializer() != null) {
+				return CompatibilityResult.requiresMigration(
+					new TtlSerializer<>(new TypeDeserializerAdapter<>(compatResult.getConvertDeserializer())));
+			}
+		}
+
+		return CompatibilityResult.requiresMigration();
+	}
+
+	/**
+	 * Configuration snapshot of the {@link TtlSerializer}.
+	 *
+	 * @param <T> type of the user value.
+	 */
+	public static final class TtlSerializerConfigSnapshot<T> extends CompositeTypeSerializerConfigSnapshot {
+
+		private static final int VERSION = 1;
+
+		/** This empty nullary constructor is required for deserializing the configuration. */
+		public TtlSerializerConfigSnapshot() {}
+
+		public TtlSerializerConfigSnapshot(TypeSerializer<T> userValueSerializer) {
+			super(userValueSerializer);
+		}
+
+		@Override
+		public int getVersion() {
+			return VERSION;
+		}
+	}
+}
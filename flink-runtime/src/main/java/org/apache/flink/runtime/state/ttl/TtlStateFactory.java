@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateBinder;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.runtime.state.StateSnapshotTransformFactory;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+import org.apache.flink.runtime.state.internal.InternalListState;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+
+import javax.annotation.Nullable;
+
+/**
+ * Creates the states with a time-to-live for state descriptors that enable it. These states are backed by states
+ * of the same type, created by the state backend, which hold the values wrapped in {@link TtlValue TtlValues}.
+ */
+public final class TtlStateFactory {
+
+	private TtlStateFactory() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Creates the state for the given descriptor with the given binder of the state backend. If the descriptor
+	 * enables the time-to-live, the state of the backend holds {@link TtlValue TtlValues} and is wrapped into a
+	 * state with a time-to-live.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <S extends State, V> S createStateAndWrapWithTtlIfEnabled(
+			StateDescriptor<S, V> stateDesc,
+			StateBinder originalStateBinder,
+			TtlTimeProvider timeProvider) throws Exception {
+
+		final StateTtlConfig ttlConfig = stateDesc.getTtlConfig();
+		if (!ttlConfig.isEnabled()) {
+			return stateDesc.bind(originalStateBinder);
+		}
+
+		switch (stateDesc.getType()) {
+			case VALUE:
+				return (S) createValueState(
+					(ValueStateDescriptor<V>) stateDesc, originalStateBinder, ttlConfig, timeProvider);
+			case LIST:
+				return (S) createListState(
+					(ListStateDescriptor<?>) stateDesc, originalStateBinder, ttlConfig, timeProvider);
+			case MAP:
+				return (S) createMapState(
+					(MapStateDescriptor<?, ?>) stateDesc, originalStateBinder, ttlConfig, timeProvider);
+			default:
+				throw new UnsupportedOperationException(
+					"The time-to-live is not supported for " + stateDesc.getType() + " state '" +
+						stateDesc.getName() + "'. It is supported for value, list and map state.");
+		}
+	}
+
+	/**
+	 * Creates the factory of the transformers which leave expired values out of full snapshots, or returns null
+	 * if the given configuration does not clean up full snapshots.
+	 */
+	@Nullable
+	public static StateSnapshotTransformFactory<TtlValue<?>> createSnapshotTransformFactory(
+			StateTtlConfig ttlConfig,
+			TtlTimeProvider timeProvider) {
+
+		if (!ttlConfig.isEnabled() || !ttlConfig.isCleanupInFullSnapshot()) {
+			return null;
+		}
+
+		final long ttl = ttlConfig.getTtl().toMilliseconds();
+
+		return new StateSnapshotTransformFactory<TtlValue<?>>() {
+			@Override
+			public StateSnapshotTransformer<TtlValue<?>> createForDeserializedState() {
+				final long currentTimestamp = timeProvider.currentTimestamp();
+				return value -> value == null ||
+					AbstractTtlState.isExpired(value.getLastAccessTimestamp(), currentTimestamp, ttl) ? null : value;
+			}
+
+			@Override
+			public StateSnapshotTransformer<byte[]> createForSerializedState() {
+				final long currentTimestamp = timeProvider.currentTimestamp();
+				return value -> value == null ||
+					AbstractTtlState.isExpired(TtlSerializer.readTimestamp(value, 0), currentTimestamp, ttl) ? null : value;
+			}
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> ValueState<T> createValueState(
+			ValueStateDescriptor<T> stateDesc,
+			StateBinder originalStateBinder,
+			StateTtlConfig ttlConfig,
+			TtlTimeProvider timeProvider) throws Exception {
+
+		ValueStateDescriptor<TtlValue<T>> ttlStateDesc = new ValueStateDescriptor<>(
+			stateDesc.getName(), new TtlSerializer<>(stateDesc.getSerializer()));
+
+		return new TtlValueState<>(
+			(InternalValueState<Object, TtlValue<T>>) originalStateBinder.createValueState(ttlStateDesc),
+			stateDesc,
+			ttlConfig,
+			timeProvider);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> ListState<T> createListState(
+			ListStateDescriptor<T> stateDesc,
+			StateBinder originalStateBinder,
+			StateTtlConfig ttlConfig,
+			TtlTimeProvider timeProvider) throws Exception {
+
+		ListStateDescriptor<TtlValue<T>> ttlStateDesc = new ListStateDescriptor<>(
+			stateDesc.getName(), new TtlSerializer<>(stateDesc.getElementSerializer()));
+
+		return new TtlListState<>(
+			(InternalListState<Object, TtlValue<T>>) originalStateBinder.createListState(ttlStateDesc),
+			ttlConfig,
+			timeProvider);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <UK, UV> MapState<UK, UV> createMapState(
+			MapStateDescriptor<UK, UV> stateDesc,
+			StateBinder originalStateBinder,
+			StateTtlConfig ttlConfig,
+			TtlTimeProvider timeProvider) throws Exception {
+
+		MapStateDescriptor<UK, TtlValue<UV>> ttlStateDesc = new MapStateDescriptor<>(
+			stateDesc.getName(), stateDesc.getKeySerializer(), new TtlSerializer<>(stateDesc.getValueSerializer()));
+
+		return new TtlMapState<>(
+			(InternalMapState<Object, UK, TtlValue<UV>>) originalStateBinder.createMapState(ttlStateDesc),
+			ttlConfig,
+			timeProvider);
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+
+import java.io.IOException;
+
+/**
+ * A {@link InternalValueState} with a time-to-live. Expired values are removed when they are read.
+ *
+ * @param <N> type of the namespace.
+ * @param <T> type of the value.
+ */
+class TtlValueState<N, T>
+		extends AbstractTtlState<N, InternalValueState<N, TtlValue<T>>>
+		implements InternalValueState<N, T> {
+
+	private final ValueStateDescriptor<T> stateDesc;
+
+	TtlValueState(
+			InternalValueState<N, TtlValue<T>> original,
+			ValueStateDescriptor<T> stateDesc,
+			StateTtlConfig config,
+			TtlTimeProvider timeProvider) {
+
+		super(original, config, timeProvider);
+		this.stateDesc = stateDesc;
+	}
+
+	@Override
+	public T value() throws IOException {
+		TtlValue<T> ttlValue = original.value();
+		if (ttlValue == null) {
+			return stateDesc.getDefaultValue();
+		}
+
+		if (isExpired(ttlValue)) {
+			original.clear();
+			return isReturnExpired() ? ttlValue.getUserValue() : stateDesc.getDefaultValue();
+		}
+
+		if (isUpdateTimestampOnRead()) {
+			original.update(wrapWithCurrentTimestamp(ttlValue.getUserValue()));
+		}
+		return ttlValue.getUserValue();
+	}
+
+	@Override
+	public void update(T value) throws IOException {
+		if (value == null) {
+			original.clear();
+		} else {
+			original.update(wrapWithCurrentTimestamp(value));
+		}
+	}
+}
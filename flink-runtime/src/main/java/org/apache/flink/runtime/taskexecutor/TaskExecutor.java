@@ -21,6 +21,7 @@ package org.apache.flink.runtime.taskexecutor;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.time.Time;
+import org.apache.flink.configuration.BlobServerOptions;
 import org.apache.flink.runtime.accumulators.AccumulatorSnapshot;
 import org.apache.flink.runtime.blob.BlobCacheService;
 import org.apache.flink.runtime.broadcast.BroadcastVariableManager;
@@ -65,6 +66,7 @@ import org.apache.flink.runtime.rpc.FatalErrorHandler;
 import org.apache.flink.runtime.rpc.RpcEndpoint;
 import org.apache.flink.runtime.rpc.RpcService;
 import org.apache.flink.runtime.rpc.akka.AkkaRpcServiceUtils;
+import org.apache.flink.runtime.state.TaskLocalStateStoresManager;
 import org.apache.flink.runtime.taskexecutor.exceptions.CheckpointException;
 import org.apache.flink.runtime.taskexecutor.exceptions.PartitionException;
 import org.apache.flink.runtime.taskexecutor.exceptions.SlotAllocationException;
@@ -149,6 +151,9 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
 	private final FileCache fileCache;
 
+	/** Deletes the task-local state of the jobs, once they have terminated */
+	private final TaskLocalStateStoresManager localStateStoresManager;
+
 	// --------- resource manager --------
 
 	private TaskExecutorToResourceManagerConnection resourceManagerConnection;
@@ -204,6 +209,11 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 		this.jobManagerTable = checkNotNull(jobManagerTable);
 		this.jobLeaderService = checkNotNull(jobLeaderService);
 
+		// the local state of a job is retained as long as its libraries
+		this.localStateStoresManager = new TaskLocalStateStoresManager(
+			ioManager,
+			taskManagerConfiguration.getConfiguration().getLong(BlobServerOptions.CLEANUP_INTERVAL) * 1000L);
+
 		this.jobManagerConnections = new HashMap<>(4);
 
 		this.jobManagerHeartbeatManager = heartbeatServices.createHeartbeatManager(
@@ -270,6 +280,8 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
 		resourceManagerHeartbeatManager.stop();
 
+		localStateStoresManager.shutdown();
+
 		ioManager.shutdown();
 
 		memoryManager.shutdown();
@@ -418,6 +430,7 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 			}
 
 			if (taskAdded) {
+				localStateStoresManager.registerTask(task.getJobID());
 				task.startTaskThread();
 
 				return CompletableFuture.completedFuture(Acknowledge.get());
@@ -1038,6 +1051,8 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
 		Task task = taskSlotTable.removeTask(executionAttemptID);
 		if (task != null) {
+			localStateStoresManager.unregisterTask(task.getJobID());
+
 			if (!task.getExecutionState().isTerminal()) {
 				try {
 					task.failExternally(new IllegalStateException("Task is being remove from TaskManager."));
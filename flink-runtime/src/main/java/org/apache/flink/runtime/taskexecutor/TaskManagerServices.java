@@ -369,7 +369,9 @@ public class TaskManagerServices {
 			networkEnvironmentConfiguration.partitionRequestInitialBackoff(),
 			networkEnvironmentConfiguration.partitionRequestMaxBackoff(),
 			networkEnvironmentConfiguration.networkBuffersPerChannel(),
-			networkEnvironmentConfiguration.floatingNetworkBuffersPerGate());
+			networkEnvironmentConfiguration.floatingNetworkBuffersPerGate(),
+			networkEnvironmentConfiguration.isCreditBased(),
+			networkEnvironmentConfiguration.bufferDebloatTarget());
 	}
 
 	/**
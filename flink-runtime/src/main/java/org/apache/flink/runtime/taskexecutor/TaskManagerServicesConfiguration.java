@@ -333,6 +333,18 @@ public class TaskManagerServicesConfiguration {
 		int extraBuffersPerGate = configuration.getInteger(
 			TaskManagerOptions.NETWORK_EXTRA_BUFFERS_PER_GATE);
 
+		boolean enableCreditBased = configuration.getBoolean(
+			TaskManagerOptions.NETWORK_CREDIT_MODEL);
+
+		long bufferDebloatTarget = -1;
+		if (configuration.getBoolean(TaskManagerOptions.NETWORK_BUFFER_DEBLOAT_ENABLED)) {
+			bufferDebloatTarget = configuration.getLong(TaskManagerOptions.NETWORK_BUFFER_DEBLOAT_TARGET);
+
+			checkConfigParameter(bufferDebloatTarget > 0, bufferDebloatTarget,
+				TaskManagerOptions.NETWORK_BUFFER_DEBLOAT_TARGET.key(),
+				"The in-flight data target must be positive.");
+		}
+
 		return new NetworkEnvironmentConfiguration(
 			networkBufFraction,
 			networkBufMin,
@@ -343,7 +355,9 @@ public class TaskManagerServicesConfiguration {
 			maxRequestBackoff,
 			buffersPerChannel,
 			extraBuffersPerGate,
-			nettyConfig);
+			nettyConfig,
+			enableCreditBased,
+			bufferDebloatTarget);
 	}
 
 	/**
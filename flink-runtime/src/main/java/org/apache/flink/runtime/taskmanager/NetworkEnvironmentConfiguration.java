@@ -48,6 +48,11 @@ public class NetworkEnvironmentConfiguration {
 
 	private final NettyConfig nettyConfig;
 
+	private final boolean enableCreditBased;
+
+	/** Target time to process the in-flight data of an input gate (ms), or -1 if not adapted. */
+	private final long bufferDebloatTarget;
+
 	/**
 	 * Constructor for a setup with purely local communication (no netty).
 	 */
@@ -82,6 +87,27 @@ public class NetworkEnvironmentConfiguration {
 			int floatingNetworkBuffersPerGate,
 			@Nullable NettyConfig nettyConfig) {
 
+		this(networkBufFraction, networkBufMin, networkBufMax, networkBufferSize,
+				ioMode,
+				partitionRequestInitialBackoff, partitionRequestMaxBackoff,
+				networkBuffersPerChannel, floatingNetworkBuffersPerGate,
+				nettyConfig, false, -1);
+	}
+
+	public NetworkEnvironmentConfiguration(
+			float networkBufFraction,
+			long networkBufMin,
+			long networkBufMax,
+			int networkBufferSize,
+			IOMode ioMode,
+			int partitionRequestInitialBackoff,
+			int partitionRequestMaxBackoff,
+			int networkBuffersPerChannel,
+			int floatingNetworkBuffersPerGate,
+			@Nullable NettyConfig nettyConfig,
+			boolean enableCreditBased,
+			long bufferDebloatTarget) {
+
 		this.networkBufFraction = networkBufFraction;
 		this.networkBufMin = networkBufMin;
 		this.networkBufMax = networkBufMax;
@@ -92,6 +118,8 @@ public class NetworkEnvironmentConfiguration {
 		this.networkBuffersPerChannel = networkBuffersPerChannel;
 		this.floatingNetworkBuffersPerGate = floatingNetworkBuffersPerGate;
 		this.nettyConfig = nettyConfig;
+		this.enableCreditBased = enableCreditBased;
+		this.bufferDebloatTarget = bufferDebloatTarget;
 	}
 
 	// ------------------------------------------------------------------------
@@ -136,6 +164,14 @@ public class NetworkEnvironmentConfiguration {
 		return nettyConfig;
 	}
 
+	public boolean isCreditBased() {
+		return enableCreditBased;
+	}
+
+	public long bufferDebloatTarget() {
+		return bufferDebloatTarget;
+	}
+
 	// ------------------------------------------------------------------------
 
 	@Override
@@ -148,6 +184,8 @@ public class NetworkEnvironmentConfiguration {
 		result = 31 * result + networkBuffersPerChannel;
 		result = 31 * result + floatingNetworkBuffersPerGate;
 		result = 31 * result + (nettyConfig != null ? nettyConfig.hashCode() : 0);
+		result = 31 * result + (enableCreditBased ? 1 : 0);
+		result = 31 * result + (int) (bufferDebloatTarget ^ (bufferDebloatTarget >>> 32));
 		return result;
 	}
 
@@ -170,7 +208,9 @@ public class NetworkEnvironmentConfiguration {
 					this.partitionRequestMaxBackoff == that.partitionRequestMaxBackoff &&
 					this.networkBuffersPerChannel == that.networkBuffersPerChannel &&
 					this.floatingNetworkBuffersPerGate == that.floatingNetworkBuffersPerGate &&
-					this.ioMode == that.ioMode && 
+					this.ioMode == that.ioMode &&
+					this.enableCreditBased == that.enableCreditBased &&
+					this.bufferDebloatTarget == that.bufferDebloatTarget &&
 					(nettyConfig != null ? nettyConfig.equals(that.nettyConfig) : that.nettyConfig == null);
 		}
 	}
@@ -188,6 +228,8 @@ public class NetworkEnvironmentConfiguration {
 				", networkBuffersPerChannel=" + networkBuffersPerChannel +
 				", floatingNetworkBuffersPerGate=" + floatingNetworkBuffersPerGate +
 				", nettyConfig=" + nettyConfig +
+				", enableCreditBased=" + enableCreditBased +
+				", bufferDebloatTarget=" + bufferDebloatTarget +
 				'}';
 	}
 }
@@ -67,6 +67,7 @@ import org.apache.flink.runtime.metrics.util.MetricUtils
 import org.apache.flink.runtime.metrics.{MetricRegistryConfiguration, MetricRegistryImpl, MetricRegistry => FlinkMetricRegistry}
 import org.apache.flink.runtime.process.ProcessReaper
 import org.apache.flink.runtime.security.{SecurityConfiguration, SecurityUtils}
+import org.apache.flink.runtime.state.TaskLocalStateStoresManager
 import org.apache.flink.runtime.taskexecutor.{TaskExecutor, TaskManagerConfiguration, TaskManagerServices, TaskManagerServicesConfiguration}
 import org.apache.flink.runtime.util._
 import org.apache.flink.runtime.{FlinkActor, LeaderSessionMessageFilter, LogMessages}
@@ -150,6 +151,12 @@ class TaskManager(
   /** Handler for distributed files cached by this TaskManager */
   protected val fileCache = new FileCache(config.getTmpDirectories())
 
+  /** Deletes the task-local state of the jobs, once they have terminated. The local state of a
+    * job is retained as long as its libraries */
+  protected val localStateStoresManager = new TaskLocalStateStoresManager(
+    ioManager,
+    config.getConfiguration().getLong(BlobServerOptions.CLEANUP_INTERVAL) * 1000L)
+
   protected val leaderRetrievalService: LeaderRetrievalService = highAvailabilityServices.
     getJobManagerLeaderRetriever(
       HighAvailabilityServices.DEFAULT_JOB_ID)
@@ -233,6 +240,8 @@ class TaskManager(
       case e: Exception => log.error("Leader retrieval service did not shut down properly.")
     }
 
+    localStateStoresManager.shutdown()
+
     try {
       ioManager.shutdown()
     } catch {
@@ -1214,6 +1223,7 @@ class TaskManager(
       }
       
       // all good, we kick off the task, which performs its own initialization
+      localStateStoresManager.registerTask(task.getJobID)
       task.startTaskThread()
 
       sender ! decorateMessage(Acknowledge.get())
@@ -1297,6 +1307,7 @@ class TaskManager(
 
       for (t <- runningTasks.values().asScala) {
         t.failExternally(cause)
+        localStateStoresManager.unregisterTask(t.getJobID)
       }
       runningTasks.clear()
     }
@@ -1307,6 +1318,8 @@ class TaskManager(
     val task = runningTasks.remove(executionID)
     if (task != null) {
 
+      localStateStoresManager.unregisterTask(task.getJobID)
+
       // the task must be in a terminal state
       if (!task.getExecutionState.isTerminal) {
         try {
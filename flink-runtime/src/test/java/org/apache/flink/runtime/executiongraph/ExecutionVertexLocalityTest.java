@@ -37,6 +37,7 @@ import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.JobGraph;
 import org.apache.flink.runtime.jobgraph.JobVertex;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobmanager.scheduler.LocationPreferenceConstraint;
 import org.apache.flink.runtime.jobmanager.slots.AllocatedSlot;
 import org.apache.flink.runtime.jobmanager.slots.SlotOwner;
 import org.apache.flink.runtime.jobmanager.slots.TaskManagerGateway;
@@ -50,6 +51,9 @@ import org.junit.Test;
 
 import java.lang.reflect.Field;
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
@@ -137,6 +141,7 @@ public class ExecutionVertexLocalityTest extends TestLogger {
 	public void testLocalityBasedOnState() throws Exception {
 		final int parallelism = 10;
 		final TaskManagerLocation[] locations = new TaskManagerLocation[parallelism];
+		final TaskManagerLocation[] sourceLocations = new TaskManagerLocation[parallelism];
 
 		final ExecutionGraph graph = createTestGraph(parallelism, false);
 
@@ -170,6 +175,7 @@ public class ExecutionVertexLocalityTest extends TestLogger {
 			ExecutionVertex source = graph.getAllVertices().get(sourceVertexId).getTaskVertices()[i];
 			TaskManagerLocation randomLocation = new TaskManagerLocation(
 					ResourceID.generate(), InetAddress.getLoopbackAddress(), 30000 + i);
+			sourceLocations[i] = randomLocation;
 			initializeLocation(source, randomLocation);
 
 			// target state
@@ -185,6 +191,18 @@ public class ExecutionVertexLocalityTest extends TestLogger {
 			assertTrue(preference.hasNext());
 			assertEquals(locations[i], preference.next().get());
 			assertFalse(preference.hasNext());
+
+			// without local recovery, the execution is scheduled based on its inputs
+			graph.setLocalRecoveryEnabled(false);
+			Collection<TaskManagerLocation> preferredLocations = target.getCurrentExecutionAttempt()
+				.calculatePreferredLocations(LocationPreferenceConstraint.ANY).get();
+			assertEquals(Collections.singletonList(sourceLocations[i]), new ArrayList<>(preferredLocations));
+
+			// with local recovery, the execution is scheduled based on the state's location as well
+			graph.setLocalRecoveryEnabled(true);
+			preferredLocations = target.getCurrentExecutionAttempt()
+				.calculatePreferredLocations(LocationPreferenceConstraint.ANY).get();
+			assertEquals(Collections.singletonList(locations[i]), new ArrayList<>(preferredLocations));
 		}
 	}
 
@@ -63,6 +63,7 @@ import java.util.concurrent.Future;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
@@ -434,6 +435,59 @@ public class RecordWriterTest {
 		assertTrue(buffer.isRecycled());
 	}
 
+	/**
+	 * Tests that records emitted via a broadcasting {@link ChannelSelector} are serialized only
+	 * once and that the resulting buffers are shared by all channels and properly recycled.
+	 */
+	@Test
+	public void testBroadcastSelectorSharesBuffers() throws Exception {
+		int numChannels = 3;
+		int bufferSize = 32;
+		int lenBytes = 4; // serialized length
+
+		@SuppressWarnings("unchecked")
+		Queue<BufferOrEvent>[] queues = new Queue[numChannels];
+		for (int i = 0; i < numChannels; i++) {
+			queues[i] = new ArrayDeque<>();
+		}
+
+		BufferProvider bufferProvider = createBufferProvider(bufferSize);
+
+		ResultPartitionWriter partitionWriter = createCollectingPartitionWriter(queues, bufferProvider);
+		RecordWriter<ByteArrayIO> writer = new RecordWriter<>(partitionWriter, new Broadcast<ByteArrayIO>());
+
+		// one full buffer and one partial buffer
+		writer.emit(new ByteArrayIO(new byte[bufferSize - lenBytes]));
+		writer.emit(new ByteArrayIO(new byte[bufferSize / 2]));
+		writer.broadcastEvent(EndOfPartitionEvent.INSTANCE);
+
+		// buffers are requested once for all channels
+		verify(bufferProvider, times(2)).requestBufferBlocking();
+
+		for (int i = 0; i < numChannels; i++) {
+			assertEquals(3, queues[i].size()); // 2 buffers + 1 event
+		}
+
+		for (int b = 0; b < 2; b++) {
+			Buffer buffer = queues[0].peek().getBuffer();
+
+			for (int i = 0; i < numChannels; i++) {
+				BufferOrEvent boe = queues[i].remove();
+				assertTrue(boe.isBuffer());
+				assertTrue(buffer == boe.getBuffer());
+				assertFalse(buffer.isRecycled());
+
+				boe.getBuffer().recycle();
+			}
+
+			assertTrue(buffer.isRecycled());
+		}
+
+		for (int i = 0; i < numChannels; i++) {
+			assertTrue(queues[i].remove().isEvent());
+		}
+	}
+
 	// ---------------------------------------------------------------------------------------------
 	// Helpers
 	// ---------------------------------------------------------------------------------------------
@@ -546,6 +600,30 @@ public class RecordWriterTest {
 		}
 	}
 
+	/**
+	 * Channel selector sending every record to all channels.
+	 */
+	private static class Broadcast<T extends IOReadableWritable> implements ChannelSelector<T> {
+
+		private int[] channels;
+
+		@Override
+		public int[] selectChannels(final T record, final int numberOfOutputChannels) {
+			if (channels == null || channels.length != numberOfOutputChannels) {
+				channels = new int[numberOfOutputChannels];
+				for (int i = 0; i < numberOfOutputChannels; i++) {
+					channels[i] = i;
+				}
+			}
+			return channels;
+		}
+
+		@Override
+		public boolean isBroadcast() {
+			return true;
+		}
+	}
+
 	/**
 	 * RoundRobin channel selector starting at 0 ({@link RoundRobinChannelSelector} starts at 1).
 	 */
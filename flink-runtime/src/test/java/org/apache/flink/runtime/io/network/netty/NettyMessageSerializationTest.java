@@ -23,19 +23,31 @@ import org.apache.flink.runtime.event.task.IntegerTaskEvent;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.partition.RefCountedFileChannel;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.apache.flink.shaded.netty4.io.netty.channel.FileRegion;
 import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Random;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -52,6 +64,9 @@ public class NettyMessageSerializationTest {
 
 	private final Random random = new Random();
 
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Test
 	public void testEncodeDecode() {
 		{
@@ -62,7 +77,7 @@ public class NettyMessageSerializationTest {
 				nioBuffer.putInt(i);
 			}
 
-			NettyMessage.BufferResponse expected = new NettyMessage.BufferResponse(buffer, random.nextInt(), new InputChannelID());
+			NettyMessage.BufferResponse expected = new NettyMessage.BufferResponse(buffer, random.nextInt(), new InputChannelID(), random.nextInt());
 			NettyMessage.BufferResponse actual = encodeAndDecode(expected);
 
 			// Verify recycle has been called on buffer instance
@@ -85,6 +100,7 @@ public class NettyMessageSerializationTest {
 
 			assertEquals(expected.sequenceNumber, actual.sequenceNumber);
 			assertEquals(expected.receiverId, actual.receiverId);
+			assertEquals(expected.backlog, actual.backlog);
 		}
 
 		{
@@ -157,6 +173,164 @@ public class NettyMessageSerializationTest {
 
 			assertEquals(expected.getClass(), actual.getClass());
 		}
+
+		{
+			NettyMessage.AddCredit expected = new NettyMessage.AddCredit(new ResultPartitionID(new IntermediateResultPartitionID(), new ExecutionAttemptID()), random.nextInt(Integer.MAX_VALUE) + 1, new InputChannelID());
+			NettyMessage.AddCredit actual = encodeAndDecode(expected);
+
+			assertEquals(expected.partitionId, actual.partitionId);
+			assertEquals(expected.credit, actual.credit);
+			assertEquals(expected.receiverId, actual.receiverId);
+		}
+	}
+
+	@Test
+	public void testEncodeDecodeCompressedBuffer() throws Exception {
+		final int size = 32 * 1024;
+
+		{
+			// compressible contents are sent compressed
+			Buffer buffer = createOffHeapBuffer(size);
+			ByteBuffer nioBuffer = buffer.getNioBuffer();
+			for (int i = 0; i < size; i += 4) {
+				nioBuffer.putInt(i % 16);
+			}
+
+			NettyMessage.BufferResponse expected = new NettyMessage.BufferResponse(
+				buffer, random.nextInt(), new InputChannelID(), random.nextInt(), true);
+			NettyMessage.BufferResponse actual = encodeAndDecode(expected);
+
+			assertTrue(actual.isCompressed);
+			assertTrue(actual.getSize() < size);
+			assertEquals(expected.sequenceNumber, actual.sequenceNumber);
+			assertEquals(expected.receiverId, actual.receiverId);
+			assertEquals(expected.backlog, actual.backlog);
+
+			// decompress into off-heap memory
+			Buffer target = createOffHeapBuffer(size);
+			actual.getNettyBuffer().markReaderIndex();
+			actual.readInto(target);
+			assertEquals(size, target.getSize());
+			nioBuffer = target.getNioBuffer();
+			for (int i = 0; i < size; i += 4) {
+				assertEquals(i % 16, nioBuffer.getInt());
+			}
+
+			// decompress into heap memory
+			target = new Buffer(MemorySegmentFactory.allocateUnpooledSegment(size), mock(BufferRecycler.class));
+			actual.getNettyBuffer().resetReaderIndex();
+			actual.readInto(target);
+			assertEquals(size, target.getSize());
+			nioBuffer = target.getNioBuffer();
+			for (int i = 0; i < size; i += 4) {
+				assertEquals(i % 16, nioBuffer.getInt());
+			}
+
+			actual.releaseBuffer();
+		}
+
+		{
+			// incompressible contents are sent as they are
+			Buffer buffer = createOffHeapBuffer(size);
+			byte[] data = new byte[size];
+			random.nextBytes(data);
+			buffer.getNioBuffer().put(data);
+
+			NettyMessage.BufferResponse actual = encodeAndDecode(new NettyMessage.BufferResponse(
+				buffer, random.nextInt(), new InputChannelID(), random.nextInt(), true));
+
+			assertFalse(actual.isCompressed);
+			assertEquals(size, actual.getSize());
+
+			Buffer target = createOffHeapBuffer(size);
+			actual.readInto(target);
+			byte[] received = new byte[size];
+			target.getNioBuffer().get(received);
+			assertArrayEquals(data, received);
+
+			actual.releaseBuffer();
+		}
+
+		{
+			// events are never compressed
+			Buffer event = createOffHeapBuffer(size);
+			event.tagAsEvent();
+
+			NettyMessage.BufferResponse actual = encodeAndDecode(new NettyMessage.BufferResponse(
+				event, random.nextInt(), new InputChannelID(), random.nextInt(), true));
+
+			assertFalse(actual.isBuffer());
+			assertFalse(actual.isCompressed);
+			assertEquals(size, actual.getSize());
+
+			actual.releaseBuffer();
+		}
+	}
+
+	/**
+	 * Tests that a {@link NettyMessage.FileSegmentResponse} is received as a regular
+	 * {@link NettyMessage.BufferResponse} with the contents of the file segment and that the file
+	 * stays open until the file region has been released, even if its owner released it before.
+	 */
+	@Test
+	public void testEncodeFileSegmentAndDecodeBuffer() throws Exception {
+		final File file = temporaryFolder.newFile();
+		final byte[] contents = new byte[1024];
+		random.nextBytes(contents);
+
+		try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			// some bytes in front of the segment
+			fileChannel.write(ByteBuffer.wrap(new byte[13]));
+			fileChannel.write(ByteBuffer.wrap(contents));
+
+			RefCountedFileChannel sharedFileChannel = new RefCountedFileChannel(fileChannel, fileChannel::close);
+
+			NettyMessage.FileSegmentResponse expected = new NettyMessage.FileSegmentResponse(
+				sharedFileChannel.createSegment(13, contents.length),
+				random.nextInt(),
+				new InputChannelID(),
+				random.nextInt());
+
+			channel.writeOutbound(expected);
+
+			// the owner, e.g. a subpartition view, is released while the region is queued
+			sharedFileChannel.release();
+			assertTrue(fileChannel.isOpen());
+
+			// header and file region
+			ByteBuf header = (ByteBuf) channel.readOutbound();
+			FileRegion region = (FileRegion) channel.readOutbound();
+			assertEquals(contents.length, region.count());
+
+			ByteArrayOutputStream transferred = new ByteArrayOutputStream();
+			region.transferTo(Channels.newChannel(transferred), 0);
+			region.release();
+
+			// the region held the last reference
+			assertFalse(fileChannel.isOpen());
+
+			channel.writeInbound(Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(transferred.toByteArray())));
+			NettyMessage.BufferResponse actual = (NettyMessage.BufferResponse) channel.readInbound();
+
+			assertTrue(actual.isBuffer());
+			assertFalse(actual.isCompressed);
+			assertEquals(expected.sequenceNumber, actual.sequenceNumber);
+			assertEquals(expected.receiverId, actual.receiverId);
+			assertEquals(expected.backlog, actual.backlog);
+			assertEquals(contents.length, actual.getSize());
+
+			byte[] received = new byte[contents.length];
+			actual.getNettyBuffer().readBytes(received);
+			assertArrayEquals(contents, received);
+
+			actual.releaseBuffer();
+		}
+	}
+
+	private static Buffer createOffHeapBuffer(int size) {
+		return new Buffer(
+			MemorySegmentFactory.wrapPooledOffHeapMemory(ByteBuffer.allocateDirect(size), null),
+			mock(BufferRecycler.class));
 	}
 
 	@SuppressWarnings("unchecked")
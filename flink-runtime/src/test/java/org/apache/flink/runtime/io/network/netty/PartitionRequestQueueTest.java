@@ -19,17 +19,25 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.runtime.execution.CancelTaskException;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
+import org.apache.flink.runtime.io.network.util.TestBufferFactory;
 
 import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
@@ -71,4 +79,55 @@ public class PartitionRequestQueueTest {
 		NettyMessage.ErrorResponse err = (NettyMessage.ErrorResponse) msg;
 		assertTrue(err.cause instanceof CancelTaskException);
 	}
+
+	/**
+	 * Tests that a credit-based reader only writes out as many buffers as the consumer announced
+	 * credit for, and continues writing after receiving further credit.
+	 */
+	@Test
+	public void testEnqueueReaderByNotifyingCredit() throws Exception {
+		final PartitionRequestQueue queue = new PartitionRequestQueue();
+		final EmbeddedChannel channel = new EmbeddedChannel(queue);
+
+		final ResultPartitionProvider partitionProvider = mock(ResultPartitionProvider.class);
+		final ResultPartitionID partitionId = new ResultPartitionID();
+
+		final ResultSubpartitionView view = mock(ResultSubpartitionView.class);
+		when(view.getNextBuffer()).thenAnswer(new Answer<Buffer>() {
+			@Override
+			public Buffer answer(InvocationOnMock invocation) throws Throwable {
+				return TestBufferFactory.createBuffer();
+			}
+		});
+		when(partitionProvider.createSubpartitionView(
+			eq(partitionId),
+			eq(0),
+			any(BufferAvailabilityListener.class))).thenReturn(view);
+
+		final InputChannelID receiverId = new InputChannelID();
+		final SequenceNumberingViewReader reader = new SequenceNumberingViewReader(receiverId, 1, queue);
+		reader.requestSubpartitionView(partitionProvider, partitionId, 0);
+		queue.notifyReaderCreated(reader);
+
+		// Three buffers are available, but only one credit
+		reader.notifyBuffersAvailable(3);
+		channel.runPendingTasks();
+
+		BufferResponse response = (BufferResponse) channel.readOutbound();
+		assertNotNull(response);
+		assertEquals(2, response.backlog);
+		assertNull(channel.readOutbound());
+		assertEquals(0, reader.getNumCreditsAvailable());
+		assertFalse(reader.isRegisteredAsAvailable());
+
+		// Announcing more credit enqueues the reader again
+		queue.addCredit(receiverId, 5);
+		channel.runPendingTasks();
+
+		assertNotNull(channel.readOutbound());
+		assertNotNull(channel.readOutbound());
+		assertNull(channel.readOutbound());
+		assertEquals(3, reader.getNumCreditsAvailable());
+		assertFalse(reader.isRegisteredAsAvailable());
+	}
 }
@@ -39,7 +39,6 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.lang.reflect.Field;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -333,7 +332,7 @@ public class InputGateFairnessTest {
 
 	private static class FairnessVerifyingInputGate extends SingleInputGate {
 
-		private final ArrayDeque<InputChannel> channelsWithData;
+		private final Iterable<InputChannel> channelsWithData;
 
 		private final HashSet<InputChannel> uniquenessChecker;
 
@@ -354,7 +353,7 @@ public class InputGateFairnessTest {
 			try {
 				Field f = SingleInputGate.class.getDeclaredField("inputChannelsWithData");
 				f.setAccessible(true);
-				channelsWithData = (ArrayDeque<InputChannel>) f.get(this);
+				channelsWithData = (Iterable<InputChannel>) f.get(this);
 			}
 			catch (Exception e) {
 				throw new RuntimeException(e);
@@ -366,10 +365,13 @@ public class InputGateFairnessTest {
 
 		@Override
 		public BufferOrEvent getNextBufferOrEvent() throws IOException, InterruptedException {
-			synchronized (channelsWithData) {
-				assertTrue("too many input channels", channelsWithData.size() <= getNumberOfInputChannels());
-				ensureUnique(channelsWithData);
+			// take a snapshot, the queue is not locked
+			ArrayList<InputChannel> channels = new ArrayList<>();
+			for (InputChannel channel : channelsWithData) {
+				channels.add(channel);
 			}
+			assertTrue("too many input channels", channels.size() <= getNumberOfInputChannels());
+			ensureUnique(channels);
 
 			return super.getNextBufferOrEvent();
 		}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.util.TestBufferFactory;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link SortMergeSubpartition} and {@link SortMergeSubpartitionView}.
+ */
+public class SortMergeSubpartitionTest extends SubpartitionTestBase {
+
+	/** Asynchronous I/O manager. */
+	private static final IOManager ioManager = new IOManagerAsync();
+
+	@AfterClass
+	public static void shutdown() {
+		ioManager.shutdown();
+	}
+
+	@Override
+	SortMergeSubpartition createSubpartition() {
+		return createSubpartitions(1)[0];
+	}
+
+	/**
+	 * Tests that each subpartition reads back exactly its own buffers in order, across multiple
+	 * regions of the shared file, and that the file is deleted after all subpartitions have been
+	 * released.
+	 */
+	@Test
+	public void testWriteAndReadMultipleRegions() throws Exception {
+		final int numSubpartitions = 3;
+		final int numRegions = 4;
+		final SortMergeSubpartition[] subpartitions = createSubpartitions(numSubpartitions);
+
+		for (int region = 0; region < numRegions; region++) {
+			for (int i = 0; i < numSubpartitions; i++) {
+				// subpartition i gets (i + region) buffers in this region
+				for (int j = 0; j < i + region; j++) {
+					assertTrue(subpartitions[i].add(createBuffer(i, region, j)));
+				}
+			}
+
+			// buffer pool asks for memory: everything is written out
+			int expected = numSubpartitions * region + (numSubpartitions * (numSubpartitions - 1)) / 2;
+			assertEquals(expected, subpartitions[region % numSubpartitions].releaseMemory());
+			assertEquals(0, subpartitions[0].releaseMemory());
+		}
+
+		for (SortMergeSubpartition subpartition : subpartitions) {
+			subpartition.finish();
+		}
+
+		for (int i = 0; i < numSubpartitions; i++) {
+			BufferAvailabilityListener listener = mock(BufferAvailabilityListener.class);
+			ResultSubpartitionView view = subpartitions[i].createReadView(listener);
+
+			// data buffers of all regions plus the end of partition event
+			int numBuffers = numRegions * i + (numRegions * (numRegions - 1)) / 2 + 1;
+			verify(listener).notifyBuffersAvailable(numBuffers);
+
+			for (int region = 0; region < numRegions; region++) {
+				for (int j = 0; j < i + region; j++) {
+					Buffer buffer = view.getNextBuffer();
+					assertTrue(buffer.isBuffer());
+					assertEquals(TestBufferFactory.BUFFER_SIZE / 2, buffer.getSize());
+					assertEquals(i, buffer.getNioBuffer().getInt(0));
+					assertEquals(region, buffer.getNioBuffer().getInt(4));
+					assertEquals(j, buffer.getNioBuffer().getInt(8));
+					buffer.recycle();
+				}
+			}
+
+			Buffer event = view.getNextBuffer();
+			assertFalse(event.isBuffer());
+			assertEquals(EndOfPartitionEvent.class, EventSerializer.fromBuffer(event, getClass().getClassLoader()).getClass());
+			event.recycle();
+
+			assertNull(view.getNextBuffer());
+		}
+
+		File file = findPartitionFile();
+		assertTrue(file.exists());
+
+		for (SortMergeSubpartition subpartition : subpartitions) {
+			assertTrue(file.exists());
+			subpartition.release();
+		}
+
+		assertFalse(file.exists());
+	}
+
+	/**
+	 * Tests that a view can only be created after all subpartitions of the partition have been
+	 * finished, because the last region is only written then.
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void testCreateReadViewBeforeAllSubpartitionsFinished() throws Exception {
+		final SortMergeSubpartition[] subpartitions = createSubpartitions(2);
+
+		try {
+			subpartitions[0].finish();
+			subpartitions[0].createReadView(mock(BufferAvailabilityListener.class));
+		} finally {
+			for (SortMergeSubpartition subpartition : subpartitions) {
+				subpartition.release();
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static SortMergeSubpartition[] createSubpartitions(int numSubpartitions) {
+		ResultPartition parent = mock(ResultPartition.class);
+		BufferProvider bufferProvider = mock(BufferProvider.class);
+		when(parent.getBufferProvider()).thenReturn(bufferProvider);
+		when(bufferProvider.getMemorySegmentSize()).thenReturn(TestBufferFactory.BUFFER_SIZE);
+
+		SortMergePartitionFile partitionFile = new SortMergePartitionFile(numSubpartitions, ioManager);
+
+		SortMergeSubpartition[] subpartitions = new SortMergeSubpartition[numSubpartitions];
+		for (int i = 0; i < numSubpartitions; i++) {
+			subpartitions[i] = new SortMergeSubpartition(i, parent, partitionFile);
+		}
+
+		return subpartitions;
+	}
+
+	private static Buffer createBuffer(int subpartition, int region, int index) {
+		Buffer buffer = TestBufferFactory.createBuffer(TestBufferFactory.BUFFER_SIZE / 2);
+		buffer.getNioBuffer().putInt(subpartition).putInt(region).putInt(index);
+		return buffer;
+	}
+
+	private static File findPartitionFile() {
+		File found = null;
+
+		for (File dir : ioManager.getSpillingDirectories()) {
+			File[] files = dir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					if (file.isFile()) {
+						assertNull("More than one file per partition.", found);
+						found = file;
+					}
+				}
+			}
+		}
+
+		assertTrue(found != null);
+		return found;
+	}
+}
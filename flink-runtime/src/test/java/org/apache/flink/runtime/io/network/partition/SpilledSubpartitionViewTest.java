@@ -23,6 +23,7 @@ import org.apache.flink.runtime.io.disk.iomanager.IOManager;
 import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.util.TestConsumerCallback;
 import org.apache.flink.runtime.io.network.util.TestInfiniteBufferProvider;
@@ -35,6 +36,7 @@ import org.junit.AfterClass;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -42,6 +44,11 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 public class SpilledSubpartitionViewTest {
@@ -201,6 +208,95 @@ public class SpilledSubpartitionViewTest {
 		}
 	}
 
+	/**
+	 * Tests that data buffers are handed out as file segments of the spill file and that the
+	 * end of partition event has to be read via {@link SpilledSubpartitionView#getNextBuffer()}.
+	 */
+	@Test
+	public void testReadFileSegments() throws Exception {
+		final int numberOfBuffersToWrite = 128;
+
+		final BufferFileWriter writer = createWriterAndWriteBuffers(IO_MANAGER, writerBufferPool, numberOfBuffersToWrite);
+
+		writer.close();
+
+		SpilledSubpartitionView view = new SpilledSubpartitionView(
+			mock(ResultSubpartition.class),
+			32 * 1024,
+			writer,
+			numberOfBuffersToWrite + 1,
+			mock(BufferAvailabilityListener.class));
+
+		try {
+			long expectedPosition = 0;
+
+			for (int i = 0; i < numberOfBuffersToWrite; i++) {
+				ReleasableFileSegment segment = view.getNextFileSegment();
+
+				assertNotNull(segment);
+				assertTrue(segment.isBuffer());
+				// every block is prefixed by an 8 byte header
+				assertEquals(expectedPosition + 8, segment.getPosition());
+
+				expectedPosition = segment.getPosition() + segment.getLength();
+				segment.release();
+			}
+
+			// the end of partition event is not handed out as file segment
+			assertNull(view.getNextFileSegment());
+
+			Buffer event = view.getNextBuffer();
+			assertNotNull(event);
+			assertFalse(event.isBuffer());
+			assertEquals(EndOfPartitionEvent.class, EventSerializer.fromBuffer(event, getClass().getClassLoader()).getClass());
+			event.recycle();
+
+			assertNull(view.getNextFileSegment());
+			assertNull(view.getNextBuffer());
+		} finally {
+			view.releaseAllResources();
+		}
+	}
+
+	/**
+	 * Tests that a file segment, which is still in flight when the view is released, can be read
+	 * until the segment is released and that the file is closed afterwards.
+	 */
+	@Test
+	public void testFileSegmentOutlivesReleasedView() throws Exception {
+		final BufferFileWriter writer = createWriterAndWriteBuffers(IO_MANAGER, writerBufferPool, 2);
+
+		writer.close();
+
+		SpilledSubpartitionView view = new SpilledSubpartitionView(
+			mock(ResultSubpartition.class),
+			32 * 1024,
+			writer,
+			3,
+			mock(BufferAvailabilityListener.class));
+
+		ReleasableFileSegment segment = view.getNextFileSegment();
+		assertNotNull(segment);
+
+		view.releaseAllResources();
+
+		// a released view does not hand out segments anymore
+		assertNull(view.getNextFileSegment());
+
+		// the spill file is deleted, but the segment can still be read
+		assertTrue(segment.getFileChannel().isOpen());
+		ByteBuffer contents = ByteBuffer.allocate(segment.getLength());
+		while (contents.hasRemaining()) {
+			assertTrue(segment.getFileChannel().read(contents, segment.getPosition() + contents.position()) >= 0);
+		}
+
+		segment.release();
+		assertFalse(segment.getFileChannel().isOpen());
+
+		// repeated releases have no effect
+		segment.release();
+	}
+
 	/**
 	 * Returns a buffer file writer, to which the specified number of buffer write requests have
 	 * been issued (including an end of partition event).
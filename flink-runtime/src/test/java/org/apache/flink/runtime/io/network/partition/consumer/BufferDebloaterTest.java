@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import static org.apache.flink.runtime.io.network.partition.consumer.BufferDebloater.UPDATE_INTERVAL_NANOS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BufferDebloater}.
+ */
+public class BufferDebloaterTest extends TestLogger {
+
+	private static final int SEGMENT_SIZE = 1024;
+
+	/**
+	 * Tests that the number of buffers per channel follows the measured throughput and stays
+	 * within its bounds.
+	 */
+	@Test
+	public void testBuffersPerChannelFollowThroughput() {
+		// 1 second target, 2 channels, at most 10 buffers per channel
+		final BufferDebloater debloater = new BufferDebloater(1000, SEGMENT_SIZE, 2, 10, 0);
+		assertEquals(10, debloater.getBuffersPerChannel());
+
+		long now = 0;
+
+		// no update before the interval passed
+		assertFalse(debloater.onBufferConsumed(SEGMENT_SIZE, now + UPDATE_INTERVAL_NANOS - 1));
+
+		// 4 segments per interval = 20 segments per second => 10 buffers per channel
+		now += UPDATE_INTERVAL_NANOS;
+		assertFalse(debloater.onBufferConsumed(3 * SEGMENT_SIZE, now));
+		assertEquals(10, debloater.getBuffersPerChannel());
+
+		// no data in the next interval halves the smoothed throughput => 5 buffers per channel
+		now += UPDATE_INTERVAL_NANOS;
+		assertTrue(debloater.onBufferConsumed(0, now));
+		assertEquals(5, debloater.getBuffersPerChannel());
+
+		// at least one buffer per channel
+		for (int i = 0; i < 10; i++) {
+			now += UPDATE_INTERVAL_NANOS;
+			debloater.onBufferConsumed(0, now);
+		}
+		assertEquals(1, debloater.getBuffersPerChannel());
+
+		// high throughput is bounded by the maximum
+		now += UPDATE_INTERVAL_NANOS;
+		assertTrue(debloater.onBufferConsumed(1000 * SEGMENT_SIZE, now));
+		assertEquals(10, debloater.getBuffersPerChannel());
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.apache.flink.core.testutils.CheckedThread;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link InputAvailabilityQueue}.
+ */
+public class InputAvailabilityQueueTest {
+
+	@Test
+	public void testAddAndPoll() {
+		InputAvailabilityQueue<Integer> queue = new InputAvailabilityQueue<>();
+
+		assertNull(queue.poll());
+		assertTrue(queue.add(1));
+		assertFalse(queue.add(2));
+		assertEquals(2, queue.size());
+
+		assertEquals(Integer.valueOf(1), queue.poll());
+		assertTrue(queue.hadMoreAfterLastPoll());
+		assertEquals(Integer.valueOf(2), queue.poll());
+		assertFalse(queue.hadMoreAfterLastPoll());
+
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+
+		// the queue turns non-empty again
+		assertTrue(queue.add(3));
+	}
+
+	@Test
+	public void testPollWithFilter() {
+		InputAvailabilityQueue<Integer> queue = new InputAvailabilityQueue<>();
+		queue.add(1);
+		queue.add(2);
+		queue.add(3);
+
+		assertEquals(Integer.valueOf(2), queue.poll(i -> i % 2 == 0));
+		assertTrue(queue.hadMoreAfterLastPoll());
+		assertNull(queue.poll(i -> i % 2 == 0));
+		assertEquals(2, queue.size());
+
+		assertEquals(Integer.valueOf(1), queue.poll());
+		assertEquals(Integer.valueOf(3), queue.poll());
+		assertFalse(queue.hadMoreAfterLastPoll());
+	}
+
+	/**
+	 * Tests that a waiting consumer is woken up by an added element and by an explicit wake up.
+	 */
+	@Test(timeout = 60_000L)
+	public void testAwaitUntil() throws Exception {
+		final InputAvailabilityQueue<Integer> queue = new InputAvailabilityQueue<>();
+		final AtomicBoolean released = new AtomicBoolean();
+
+		CheckedThread consumer = new CheckedThread() {
+			@Override
+			public void go() throws Exception {
+				queue.awaitUntil(() -> !queue.isEmpty());
+				assertEquals(Integer.valueOf(1), queue.poll());
+
+				queue.awaitUntil(released::get);
+			}
+		};
+		consumer.start();
+
+		queue.add(1);
+
+		while (!queue.isEmpty()) {
+			Thread.sleep(1);
+		}
+
+		released.set(true);
+		queue.wakeUpConsumer();
+
+		consumer.sync();
+	}
+
+	/**
+	 * Tests that the consumer is woken up for every element, if it waits for specific elements.
+	 */
+	@Test(timeout = 60_000L)
+	public void testSignalEveryElement() throws Exception {
+		final InputAvailabilityQueue<Integer> queue = new InputAvailabilityQueue<>();
+		queue.setSignalEveryElement(true);
+		queue.add(1);
+
+		CheckedThread consumer = new CheckedThread() {
+			@Override
+			public void go() throws Exception {
+				Integer element;
+				while ((element = queue.poll(i -> i == 2)) == null) {
+					queue.awaitUntil(() -> {
+						for (Integer i : queue) {
+							if (i == 2) {
+								return true;
+							}
+						}
+						return false;
+					});
+				}
+				assertEquals(Integer.valueOf(2), element);
+			}
+		};
+		consumer.start();
+
+		// the queue is not empty, so the element is only signalled due to the flag
+		queue.add(2);
+
+		consumer.sync();
+		assertEquals(1, queue.size());
+	}
+
+	@Test(timeout = 60_000L, expected = InterruptedException.class)
+	public void testInterruptWaitingConsumer() throws Exception {
+		final InputAvailabilityQueue<Integer> queue = new InputAvailabilityQueue<>();
+
+		Thread.currentThread().interrupt();
+		queue.awaitUntil(() -> false);
+	}
+}
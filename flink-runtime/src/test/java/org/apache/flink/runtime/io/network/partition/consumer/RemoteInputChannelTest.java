@@ -24,6 +24,8 @@ import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.netty.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.partition.ProducerFailedException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
@@ -45,12 +47,14 @@ import java.util.concurrent.Future;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -308,6 +312,7 @@ public class RemoteInputChannelTest {
 	public void testRecycleExclusiveBufferBeforeReleased() throws Exception {
 		final SingleInputGate inputGate = mock(SingleInputGate.class);
 		final RemoteInputChannel inputChannel = spy(createRemoteInputChannel(inputGate));
+		inputChannel.requestSubpartition(0);
 
 		// Recycle exclusive segment
 		inputChannel.recycle(MemorySegmentFactory.allocateUnpooledSegment(1024, inputChannel));
@@ -374,6 +379,169 @@ public class RemoteInputChannelTest {
 		verify(inputGate, times(1)).returnExclusiveSegments(anyListOf(MemorySegment.class));
 	}
 
+	/**
+	 * Tests {@link RemoteInputChannel#onSenderBacklog(int)}, verifying that floating buffers are
+	 * requested from the buffer pool and announced as credit if the backlog exceeds the number of
+	 * available buffers, and that the channel registers as listener once the pool is exhausted.
+	 */
+	@Test
+	public void testRequestFloatingBuffersOnSenderBacklog() throws Exception {
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(8, 1024);
+		final BufferPool floatingBufferPool = networkBufferPool.createBufferPool(2, 2);
+
+		final SingleInputGate inputGate = mock(SingleInputGate.class);
+		when(inputGate.getBufferPool()).thenReturn(floatingBufferPool);
+		when(inputGate.getBufferProvider()).thenReturn(floatingBufferPool);
+
+		final PartitionRequestClient client = mock(PartitionRequestClient.class);
+		final RemoteInputChannel inputChannel = createRemoteInputChannel(
+			inputGate, client, new Tuple2<Integer, Integer>(0, 0));
+
+		try {
+			inputChannel.assignExclusiveSegments(networkBufferPool.requestMemorySegments(2));
+			inputChannel.requestSubpartition(0);
+
+			assertTrue(inputChannel.isCreditBased());
+			assertEquals(2, inputChannel.getInitialCredit());
+
+			// The exclusive buffers suffice for this backlog
+			inputChannel.onSenderBacklog(2);
+
+			assertEquals(2, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(0, inputChannel.getUnannouncedCredit());
+			verify(client, never()).notifyCreditAvailable(inputChannel);
+
+			// Request both floating buffers and wait for the third one
+			inputChannel.onSenderBacklog(5);
+
+			assertEquals(4, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(2, inputChannel.getUnannouncedCredit());
+			verify(client, times(1)).notifyCreditAvailable(inputChannel);
+			assertEquals(0, floatingBufferPool.getNumberOfAvailableMemorySegments());
+
+			assertEquals(2, inputChannel.getAndResetUnannouncedCredit());
+
+			// Receiving data into a floating buffer and consuming it hands the floating buffer
+			// back to the waiting channel via the buffer pool
+			Buffer floatingBuffer = null;
+			Buffer buffer;
+			while ((buffer = inputChannel.requestBuffer()) != null) {
+				if (buffer.getRecycler() != inputChannel) {
+					floatingBuffer = buffer;
+					break;
+				}
+				// put exclusive buffers back
+				buffer.recycle();
+			}
+			assertNotNull(floatingBuffer);
+
+			floatingBuffer.recycle();
+
+			assertEquals(0, floatingBufferPool.getNumberOfAvailableMemorySegments());
+		} finally {
+			inputChannel.releaseAllResources();
+			floatingBufferPool.lazyDestroy();
+			networkBufferPool.destroy();
+		}
+	}
+
+	/**
+	 * Tests that an event received by a credit-based channel, which does not take one of the
+	 * available buffers, returns the credit consumed by the producer.
+	 */
+	@Test
+	public void testReturnCreditOfEvents() throws Exception {
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(4, 1024);
+		final BufferPool floatingBufferPool = networkBufferPool.createBufferPool(1, 1);
+
+		final SingleInputGate inputGate = mock(SingleInputGate.class);
+		when(inputGate.getBufferPool()).thenReturn(floatingBufferPool);
+
+		final PartitionRequestClient client = mock(PartitionRequestClient.class);
+		final RemoteInputChannel inputChannel = createRemoteInputChannel(
+			inputGate, client, new Tuple2<Integer, Integer>(0, 0));
+
+		try {
+			inputChannel.assignExclusiveSegments(networkBufferPool.requestMemorySegments(2));
+			inputChannel.requestSubpartition(0);
+
+			final Buffer event = TestBufferFactory.createBuffer();
+			event.tagAsEvent();
+			inputChannel.onBuffer(event, 0, 0);
+
+			assertEquals(1, inputChannel.getUnannouncedCredit());
+			verify(client, times(1)).notifyCreditAvailable(inputChannel);
+
+			inputChannel.onEmptyBuffer(1, 0);
+
+			assertEquals(2, inputChannel.getUnannouncedCredit());
+			verify(client, times(1)).notifyCreditAvailable(inputChannel);
+		} finally {
+			inputChannel.releaseAllResources();
+			floatingBufferPool.lazyDestroy();
+			networkBufferPool.destroy();
+		}
+	}
+
+	/**
+	 * Tests that a credit-based channel withholds recycled exclusive buffers once it reached the
+	 * limit set via {@link RemoteInputChannel#setMaxAvailableBuffers(int)}, does not request
+	 * floating buffers beyond the limit, and announces withheld buffers when the limit is raised.
+	 */
+	@Test
+	public void testMaxAvailableBuffers() throws Exception {
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(4, 1024);
+		final BufferPool floatingBufferPool = networkBufferPool.createBufferPool(1, 1);
+
+		final SingleInputGate inputGate = mock(SingleInputGate.class);
+		when(inputGate.getBufferPool()).thenReturn(floatingBufferPool);
+
+		final PartitionRequestClient client = mock(PartitionRequestClient.class);
+		final RemoteInputChannel inputChannel = createRemoteInputChannel(
+			inputGate, client, new Tuple2<Integer, Integer>(0, 0));
+
+		try {
+			inputChannel.assignExclusiveSegments(networkBufferPool.requestMemorySegments(2));
+			inputChannel.requestSubpartition(0);
+
+			inputChannel.setMaxAvailableBuffers(1);
+
+			// the producer sends two buffers, which are consumed afterwards
+			final Buffer first = inputChannel.requestBuffer();
+			final Buffer second = inputChannel.requestBuffer();
+			assertEquals(0, inputChannel.getNumberOfAvailableBuffers());
+
+			first.recycle();
+			assertEquals(1, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(1, inputChannel.getUnannouncedCredit());
+
+			// the limit is reached: the buffer is withheld
+			second.recycle();
+			assertEquals(1, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(1, inputChannel.getUnannouncedCredit());
+
+			// no floating buffers beyond the limit
+			inputChannel.onSenderBacklog(5);
+			assertEquals(1, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(1, inputChannel.getUnannouncedCredit());
+
+			// raising the limit announces the withheld buffer
+			inputChannel.setMaxAvailableBuffers(3);
+			assertEquals(2, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(2, inputChannel.getUnannouncedCredit());
+			verify(client, times(1)).notifyCreditAvailable(inputChannel);
+
+			// ... and floating buffers are requested up to the new limit
+			inputChannel.onSenderBacklog(5);
+			assertEquals(3, inputChannel.getNumberOfAvailableBuffers());
+			assertEquals(3, inputChannel.getUnannouncedCredit());
+		} finally {
+			inputChannel.releaseAllResources();
+			floatingBufferPool.lazyDestroy();
+			networkBufferPool.destroy();
+		}
+	}
+
 	// ---------------------------------------------------------------------------------------------
 
 	private RemoteInputChannel createRemoteInputChannel(SingleInputGate inputGate)
@@ -28,7 +28,6 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.lang.reflect.Field;
-import java.util.ArrayDeque;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.mockito.Matchers.any;
@@ -71,18 +70,16 @@ public class TestSingleInputGate {
 		try {
 			Field f = realGate.getClass().getDeclaredField("inputChannelsWithData");
 			f.setAccessible(true);
-			final ArrayDeque<InputChannel> notifications = (ArrayDeque<InputChannel>) f.get(realGate);
+			final InputAvailabilityQueue<InputChannel> notifications = (InputAvailabilityQueue<InputChannel>) f.get(realGate);
 
 			doAnswer(new Answer<Void>() {
 				@Override
 				public Void answer(InvocationOnMock invocation) throws Throwable {
 					invocation.callRealMethod();
 
-					synchronized (notifications) {
-						if (!notifications.isEmpty()) {
-							InputGateListener listener = (InputGateListener) invocation.getArguments()[0];
-							listener.notifyInputGateNonEmpty(inputGate);
-						}
+					if (!notifications.isEmpty()) {
+						InputGateListener listener = (InputGateListener) invocation.getArguments()[0];
+						listener.notifyInputGateNonEmpty(inputGate);
 					}
 
 					return null;
@@ -25,6 +25,8 @@ import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
 import org.apache.flink.runtime.taskmanager.TaskActions;
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -113,4 +115,64 @@ public class UnionInputGateTest {
 		assertTrue(union.isFinished());
 		assertNull(union.getNextBufferOrEvent());
 	}
+
+	/**
+	 * Tests that only the selected input gates are read and that the other input gates are read
+	 * once the selected input gates are finished.
+	 */
+	@Test(timeout = 120 * 1000)
+	public void testInputGateSelection() throws Exception {
+		final SingleInputGate ig1 = createInputGate(2);
+		final SingleInputGate ig2 = createInputGate(2);
+
+		final UnionInputGate union = new UnionInputGate(ig1, ig2);
+
+		final TestInputChannel[][] inputChannels = new TestInputChannel[][]{
+				TestInputChannel.createInputChannels(ig1, 2),
+				TestInputChannel.createInputChannels(ig2, 2)
+		};
+
+		for (int i = 0; i < inputChannels.length; i++) {
+			for (TestInputChannel inputChannel : inputChannels[i]) {
+				inputChannel.readBuffer();
+				inputChannel.readEndOfPartitionEvent();
+			}
+		}
+
+		for (TestInputChannel inputChannel : inputChannels[0]) {
+			ig1.notifyChannelNonEmpty(inputChannel.getInputChannel());
+		}
+		for (TestInputChannel inputChannel : inputChannels[1]) {
+			ig2.notifyChannelNonEmpty(inputChannel.getInputChannel());
+		}
+
+		union.selectInputGates(Collections.<InputGate>singletonList(ig2));
+		SingleInputGateTest.verifyBufferOrEvent(union, true, 2); // gate 2, channel 0
+
+		union.selectInputGates(Collections.<InputGate>singletonList(ig1));
+		SingleInputGateTest.verifyBufferOrEvent(union, true, 0); // gate 1, channel 0
+		SingleInputGateTest.verifyBufferOrEvent(union, true, 1); // gate 1, channel 1
+
+		union.selectInputGates(Collections.<InputGate>singletonList(ig2));
+		SingleInputGateTest.verifyBufferOrEvent(union, true, 3); // gate 2, channel 1
+		SingleInputGateTest.verifyBufferOrEvent(union, false, 2); // gate 2, channel 0
+		SingleInputGateTest.verifyBufferOrEvent(union, false, 3); // gate 2, channel 1
+
+		// the selected gate is finished, the remaining gate is read
+		assertTrue(ig2.isFinished());
+		SingleInputGateTest.verifyBufferOrEvent(union, false, 0); // gate 1, channel 0
+		SingleInputGateTest.verifyBufferOrEvent(union, false, 1); // gate 1, channel 1
+
+		assertTrue(union.isFinished());
+		assertNull(union.getNextBufferOrEvent());
+	}
+
+	private static SingleInputGate createInputGate(int numberOfInputChannels) {
+		return new SingleInputGate(
+			"Test Task", new JobID(),
+			new IntermediateDataSetID(), ResultPartitionType.PIPELINED,
+			0, numberOfInputChannels,
+			mock(TaskActions.class),
+			UnregisteredMetricGroups.createUnregisteredTaskMetricGroup().getIOMetricGroup());
+	}
 }
@@ -119,6 +119,7 @@ public class SchedulerTestUtils {
 	public static Execution getTestVertex(Collection<CompletableFuture<TaskManagerLocation>> preferredLocationFutures) {
 		ExecutionVertex vertex = mock(ExecutionVertex.class);
 
+		when(vertex.getPreferredLocationsBasedOnState()).thenReturn(null);
 		when(vertex.getPreferredLocationsBasedOnInputs()).thenReturn(preferredLocationFutures);
 		when(vertex.getJobId()).thenReturn(new JobID());
 		when(vertex.toString()).thenReturn("TEST-VERTEX");
@@ -32,8 +32,10 @@ import org.apache.flink.api.common.state.MapState;
 import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ReducingState;
 import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.StateTtlConfig;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.time.Time;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.base.DoubleSerializer;
@@ -65,6 +67,7 @@ import org.apache.flink.runtime.state.internal.InternalKvState;
 import org.apache.flink.runtime.state.internal.InternalListState;
 import org.apache.flink.runtime.state.internal.InternalReducingState;
 import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.runtime.util.BlockerCheckpointStreamFactory;
 import org.apache.flink.shaded.guava18.com.google.common.base.Joiner;
 import org.apache.flink.types.IntValue;
@@ -78,6 +81,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -2475,6 +2479,260 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> exten
 	 * backend.
 	 * @throws Exception
 	 */
+	@Test
+	public void testValueStateTtl() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, "default");
+		kvId.enableTimeToLive(StateTtlConfig.newBuilder(Time.milliseconds(10)).build());
+
+		ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		state.update("1");
+		timeProvider.time = 9;
+		assertEquals("1", state.value());
+
+		// reads do not renew the timestamp
+		timeProvider.time = 10;
+		assertEquals("default", state.value());
+		assertEquals(0, backend.numStateEntries());
+
+		// writes renew the timestamp
+		state.update("2");
+		timeProvider.time = 15;
+		state.update("3");
+		timeProvider.time = 24;
+		assertEquals("3", state.value());
+
+		backend.dispose();
+	}
+
+	@Test
+	public void testValueStateTtlWithUpdateOnReadAndReturnExpired() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+		kvId.enableTimeToLive(StateTtlConfig.newBuilder(Time.milliseconds(10))
+			.setUpdateType(StateTtlConfig.UpdateType.OnReadAndWrite)
+			.setStateVisibility(StateTtlConfig.StateVisibility.ReturnExpiredIfNotCleanedUp)
+			.build());
+
+		ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		state.update("1");
+
+		// reads renew the timestamp
+		timeProvider.time = 9;
+		assertEquals("1", state.value());
+		timeProvider.time = 18;
+		assertEquals("1", state.value());
+
+		// an expired value is returned once and removed
+		timeProvider.time = 28;
+		assertEquals("1", state.value());
+		assertNull(state.value());
+
+		backend.dispose();
+	}
+
+	@Test
+	public void testListStateTtl() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+
+		ListStateDescriptor<String> kvId = new ListStateDescriptor<>("id", String.class);
+		kvId.enableTimeToLive(StateTtlConfig.newBuilder(Time.milliseconds(10)).build());
+
+		ListState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		state.add("1");
+		timeProvider.time = 5;
+		state.add("2");
+		state.add("3");
+
+		// each element expires on its own
+		timeProvider.time = 10;
+		assertThat(state.get(), containsInAnyOrder("2", "3"));
+
+		timeProvider.time = 15;
+		assertNull(state.get());
+		assertEquals(0, backend.numStateEntries());
+
+		backend.dispose();
+	}
+
+	@Test
+	public void testMapStateTtl() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+
+		MapStateDescriptor<Integer, String> kvId = new MapStateDescriptor<>("id", Integer.class, String.class);
+		kvId.enableTimeToLive(StateTtlConfig.newBuilder(Time.milliseconds(10)).build());
+
+		MapState<Integer, String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		state.put(1, "1");
+		state.put(2, "2");
+		timeProvider.time = 5;
+		state.put(3, "3");
+		state.put(4, "4");
+
+		// each entry expires on its own
+		timeProvider.time = 10;
+		assertFalse(state.contains(1));
+		assertNull(state.get(2));
+		assertTrue(state.contains(3));
+
+		Map<Integer, String> entries = new HashMap<>();
+		for (Map.Entry<Integer, String> entry : state.entries()) {
+			entries.put(entry.getKey(), entry.getValue());
+		}
+		assertEquals(new HashMap<Integer, String>() {{ put(3, "3"); put(4, "4"); }}, entries);
+
+		// iterations skip the expired entries
+		timeProvider.time = 15;
+		Iterator<Map.Entry<Integer, String>> iterator = state.iterator();
+		assertTrue(iterator == null || !iterator.hasNext());
+
+		backend.dispose();
+	}
+
+	/**
+	 * Tests that entries can be removed through the iterators of a map state with time-to-live,
+	 * also after the iterator has looked ahead to the next entry.
+	 */
+	@Test
+	public void testMapStateTtlIteratorRemove() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+
+		MapStateDescriptor<Integer, String> kvId = new MapStateDescriptor<>("id", Integer.class, String.class);
+		kvId.enableTimeToLive(StateTtlConfig.newBuilder(Time.milliseconds(10)).build());
+
+		MapState<Integer, String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		backend.setCurrentKey(1);
+		for (int i = 0; i < 6; i++) {
+			state.put(i, String.valueOf(i));
+		}
+
+		// remove directly after next()
+		Iterator<Map.Entry<Integer, String>> iterator = state.iterator();
+		Map.Entry<Integer, String> first = iterator.next();
+		iterator.remove();
+		assertFalse(state.contains(first.getKey()));
+
+		// remove after hasNext() has looked ahead
+		Iterator<Integer> keys = state.keys().iterator();
+		Integer second = keys.next();
+		assertTrue(keys.hasNext());
+		keys.remove();
+		assertFalse(state.contains(second));
+
+		try {
+			keys.remove();
+			fail("Removing an entry twice should fail.");
+		} catch (IllegalStateException expected) {
+			// expected
+		}
+
+		// remove all remaining entries
+		Iterator<Map.Entry<Integer, String>> entries = state.entries().iterator();
+		int numRemoved = 0;
+		while (entries.hasNext()) {
+			entries.next();
+			entries.remove();
+			numRemoved++;
+		}
+		assertEquals(4, numRemoved);
+
+		Iterator<Map.Entry<Integer, String>> emptyIterator = state.iterator();
+		assertTrue(emptyIterator == null || !emptyIterator.hasNext());
+
+		backend.dispose();
+	}
+
+	@Test
+	public void testStateTtlCleanupInFullSnapshot() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		ManualTtlTimeProvider timeProvider = new ManualTtlTimeProvider();
+		backend.setTtlTimeProvider(timeProvider);
+
+		StateTtlConfig ttlConfig = StateTtlConfig.newBuilder(Time.milliseconds(10))
+			.setStateVisibility(StateTtlConfig.StateVisibility.ReturnExpiredIfNotCleanedUp)
+			.cleanupFullSnapshot()
+			.build();
+
+		ValueStateDescriptor<String> valueId = new ValueStateDescriptor<>("value", String.class);
+		valueId.enableTimeToLive(ttlConfig);
+		ListStateDescriptor<String> listId = new ListStateDescriptor<>("list", String.class);
+		listId.enableTimeToLive(ttlConfig);
+		MapStateDescriptor<Integer, String> mapId = new MapStateDescriptor<>("map", Integer.class, String.class);
+		mapId.enableTimeToLive(ttlConfig);
+
+		ValueState<String> valueState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+		ListState<String> listState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, listId);
+		MapState<Integer, String> mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+		for (int key = 0; key < 4; key++) {
+			backend.setCurrentKey(key);
+			valueState.update("expired-" + key);
+			listState.add("expired-" + key);
+			mapState.put(1, "expired-" + key);
+		}
+
+		timeProvider.time = 5;
+		for (int key = 2; key < 6; key++) {
+			backend.setCurrentKey(key);
+			valueState.update("" + key);
+			listState.add("" + key);
+			mapState.put(2, "" + key);
+		}
+
+		timeProvider.time = 10;
+		KeyedStateHandle snapshot = runSnapshot(backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpoint()));
+		backend.dispose();
+
+		// incremental snapshots are not cleaned up
+		Assume.assumeTrue(snapshot instanceof KeyGroupsStateHandle);
+
+		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+		backend.setTtlTimeProvider(timeProvider);
+
+		valueState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, valueId);
+		listState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, listId);
+		mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+		// the expired values would still be returned if they had been restored
+		for (int key = 0; key < 6; key++) {
+			backend.setCurrentKey(key);
+			if (key < 2) {
+				assertNull(valueState.value());
+				assertNull(listState.get());
+				assertNull(mapState.get(1));
+			} else {
+				assertEquals("" + key, valueState.value());
+				assertThat(listState.get(), containsInAnyOrder("" + key));
+				assertNull(mapState.get(1));
+				assertEquals("" + key, mapState.get(2));
+			}
+		}
+
+		backend.dispose();
+	}
+
 	@Test
 	public void testKeyGroupSnapshotRestore() throws Exception {
 		final int MAX_PARALLELISM = 10;
@@ -3372,6 +3630,19 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> exten
 		}
 	}
 
+	/**
+	 * A {@link TtlTimeProvider} with a manually set time.
+	 */
+	private static class ManualTtlTimeProvider implements TtlTimeProvider {
+
+		long time;
+
+		@Override
+		public long currentTimestamp() {
+			return time;
+		}
+	}
+
 	protected KeyedStateHandle runSnapshot(RunnableFuture<KeyedStateHandle> snapshotRunnableFuture) throws Exception {
 		if(!snapshotRunnableFuture.isDone()) {
 			Thread runner = new Thread(snapshotRunnableFuture);
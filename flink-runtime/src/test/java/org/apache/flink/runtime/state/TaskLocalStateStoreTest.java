@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link TaskLocalStateStore}.
+ */
+public class TaskLocalStateStoreTest extends TestLogger {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private TaskLocalStateStore localStateStore;
+
+	private CheckpointStreamFactory streamFactory;
+
+	@Before
+	public void setup() throws IOException {
+		localStateStore = new TaskLocalStateStore(temporaryFolder.newFolder());
+
+		// state smaller than 1 KB is inlined into the state handles
+		streamFactory = localStateStore.createDuplicatingStreamFactory(
+			new FsCheckpointStreamFactory(new Path(temporaryFolder.newFolder().toURI()), new JobID(), 1024));
+	}
+
+	@Test
+	public void testRestoresFromLocalCopies() throws Exception {
+		byte[] keyedState = randomBytes(64 * 1024);
+		byte[] operatorState = randomBytes(16 * 1024);
+
+		KeyGroupsStateHandle keyedStateHandle = new KeyGroupsStateHandle(
+			new KeyGroupRangeOffsets(new KeyGroupRange(0, 0)), writeState(1L, keyedState));
+		OperatorStateHandle operatorStateHandle = new OperatorStateHandle(
+			Collections.emptyMap(), writeState(1L, operatorState));
+
+		TaskStateSnapshot remoteState = createSnapshot(operatorStateHandle, keyedStateHandle);
+
+		// the remote files are not needed anymore
+		keyedStateHandle.discardState();
+		operatorStateHandle.discardState();
+
+		TaskStateSnapshot localState = localStateStore.retrieveLocalState(remoteState);
+		OperatorSubtaskState subtaskState = localState.getSubtaskStateMappings().iterator().next().getValue();
+
+		KeyGroupsStateHandle localKeyedStateHandle =
+			(KeyGroupsStateHandle) subtaskState.getManagedKeyedState().iterator().next();
+		OperatorStateHandle localOperatorStateHandle = subtaskState.getManagedOperatorState().iterator().next();
+
+		assertEquals(keyedStateHandle.getGroupRangeOffsets(), localKeyedStateHandle.getGroupRangeOffsets());
+		assertArrayEquals(keyedState, readState(localKeyedStateHandle));
+		assertArrayEquals(operatorState, readState(localOperatorStateHandle));
+	}
+
+	@Test
+	public void testIgnoresInvalidLocalCopies() throws Exception {
+		FileStateHandle remoteHandle = (FileStateHandle) writeState(1L, randomBytes(4096));
+		TaskStateSnapshot remoteState = createSnapshot(
+			new OperatorStateHandle(Collections.emptyMap(), remoteHandle), null);
+
+		// truncate the local copy
+		File localCopy = new File(
+			new File(localStateStore.getLocalStateDirectory(), "chk_1"), remoteHandle.getFilePath().getName());
+		assertTrue(localCopy.exists());
+		try (RandomAccessFile file = new RandomAccessFile(localCopy, "rw")) {
+			file.setLength(100L);
+		}
+
+		assertRestoresFromRemote(remoteState, remoteHandle);
+	}
+
+	@Test
+	public void testDoesNotCopyInlineState() throws Exception {
+		StreamStateHandle stateHandle = writeState(1L, randomBytes(100));
+
+		assertTrue(stateHandle instanceof ByteStreamStateHandle);
+		assertFalse(new File(localStateStore.getLocalStateDirectory(), "chk_1").exists());
+	}
+
+	@Test
+	public void testPrunesEarlierCheckpoints() throws Exception {
+		FileStateHandle firstHandle = (FileStateHandle) writeState(1L, randomBytes(4096));
+		FileStateHandle secondHandle = (FileStateHandle) writeState(2L, randomBytes(4096));
+
+		localStateStore.confirmCheckpoint(2L);
+
+		assertRestoresFromRemote(
+			createSnapshot(new OperatorStateHandle(Collections.emptyMap(), firstHandle), null), firstHandle);
+
+		TaskStateSnapshot localState = localStateStore.retrieveLocalState(
+			createSnapshot(new OperatorStateHandle(Collections.emptyMap(), secondHandle), null));
+		OperatorStateHandle localHandle = localState.getSubtaskStateMappings().iterator().next().getValue()
+			.getManagedOperatorState().iterator().next();
+		assertNotEquals(secondHandle, localHandle.getDelegateStateHandle());
+
+		localStateStore.dispose();
+		assertFalse(localStateStore.getLocalStateDirectory().exists());
+	}
+
+	@Test
+	public void testRetainsSharedFilesOfIncrementalCheckpoints() throws Exception {
+		UUID backendId = UUID.randomUUID();
+		StateHandleID sstId = new StateHandleID("000001.sst");
+
+		FileStateHandle sharedHandle = (FileStateHandle) writeState(1L, randomBytes(4096));
+		FileStateHandle firstMetaHandle = (FileStateHandle) writeState(1L, randomBytes(2048));
+		localStateStore.reportCheckpoint(1L, createSnapshot(null,
+			createIncrementalHandle(backendId, 1L, sstId, sharedHandle, firstMetaHandle)));
+
+		// the second checkpoint references the shared file of the first one through a placeholder
+		FileStateHandle secondMetaHandle = (FileStateHandle) writeState(2L, randomBytes(2048));
+		localStateStore.reportCheckpoint(2L, createSnapshot(null,
+			createIncrementalHandle(backendId, 2L, sstId, new PlaceholderStreamStateHandle(), secondMetaHandle)));
+
+		localStateStore.confirmCheckpoint(2L);
+
+		File firstCheckpointDirectory = new File(localStateStore.getLocalStateDirectory(), "chk_1");
+		assertTrue(new File(firstCheckpointDirectory, sharedHandle.getFilePath().getName()).exists());
+		assertFalse(new File(firstCheckpointDirectory, firstMetaHandle.getFilePath().getName()).exists());
+
+		// the restored state of the second checkpoint is read from the local copies
+		TaskStateSnapshot localState = localStateStore.retrieveLocalState(createSnapshot(null,
+			createIncrementalHandle(backendId, 2L, sstId, sharedHandle, secondMetaHandle)));
+		IncrementalKeyedStateHandle localHandle = (IncrementalKeyedStateHandle) localState
+			.getSubtaskStateMappings().iterator().next().getValue().getManagedKeyedState().iterator().next();
+		assertNotEquals(sharedHandle, localHandle.getSharedState().get(sstId));
+		assertNotEquals(secondMetaHandle, localHandle.getMetaStateHandle());
+
+		// once no checkpoint references the shared file anymore, its copy is deleted
+		FileStateHandle thirdMetaHandle = (FileStateHandle) writeState(3L, randomBytes(2048));
+		localStateStore.reportCheckpoint(3L, createSnapshot(null, new IncrementalKeyedStateHandle(
+			backendId,
+			new KeyGroupRange(0, 0),
+			3L,
+			Collections.emptyMap(),
+			Collections.emptyMap(),
+			thirdMetaHandle)));
+
+		localStateStore.confirmCheckpoint(3L);
+
+		assertFalse(firstCheckpointDirectory.exists());
+		assertFalse(new File(localStateStore.getLocalStateDirectory(), "chk_2").exists());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static IncrementalKeyedStateHandle createIncrementalHandle(
+			UUID backendId,
+			long checkpointId,
+			StateHandleID sstId,
+			StreamStateHandle sstHandle,
+			StreamStateHandle metaHandle) {
+
+		Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>();
+		sharedState.put(sstId, sstHandle);
+
+		return new IncrementalKeyedStateHandle(
+			backendId,
+			new KeyGroupRange(0, 0),
+			checkpointId,
+			sharedState,
+			Collections.emptyMap(),
+			metaHandle);
+	}
+
+	private void assertRestoresFromRemote(TaskStateSnapshot remoteState, StreamStateHandle remoteHandle) {
+		TaskStateSnapshot localState = localStateStore.retrieveLocalState(remoteState);
+		OperatorStateHandle restoredHandle = localState.getSubtaskStateMappings().iterator().next().getValue()
+			.getManagedOperatorState().iterator().next();
+
+		assertEquals(remoteHandle, restoredHandle.getDelegateStateHandle());
+	}
+
+	private StreamStateHandle writeState(long checkpointId, byte[] state) throws Exception {
+		CheckpointStreamFactory.CheckpointStateOutputStream out =
+			streamFactory.createCheckpointStateOutputStream(checkpointId, checkpointId);
+		out.write(state, 0, state.length / 2);
+		for (int i = state.length / 2; i < state.length; i++) {
+			out.write(state[i]);
+		}
+		return out.closeAndGetHandle();
+	}
+
+	private static byte[] readState(StreamStateHandle stateHandle) throws IOException {
+		byte[] state = new byte[(int) stateHandle.getStateSize()];
+		try (FSDataInputStream in = stateHandle.openInputStream()) {
+			int offset = 0;
+			while (offset < state.length) {
+				offset += in.read(state, offset, state.length - offset);
+			}
+			assertEquals(-1, in.read());
+		}
+		return state;
+	}
+
+	private static TaskStateSnapshot createSnapshot(OperatorStateHandle operatorState, KeyedStateHandle keyedState) {
+		TaskStateSnapshot snapshot = new TaskStateSnapshot();
+		snapshot.putSubtaskStateByOperatorID(
+			new OperatorID(),
+			new OperatorSubtaskState(operatorState, null, keyedState, null));
+		return snapshot;
+	}
+
+	private static byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		new Random(size).nextBytes(bytes);
+		return bytes;
+	}
+}
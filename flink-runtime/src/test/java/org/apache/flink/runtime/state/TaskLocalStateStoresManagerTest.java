@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.TaskInfo;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link TaskLocalStateStoresManager}.
+ */
+public class TaskLocalStateStoresManagerTest extends TestLogger {
+
+	private IOManager ioManager;
+
+	@Before
+	public void createIOManager() {
+		ioManager = new IOManagerAsync();
+	}
+
+	@After
+	public void shutdownIOManager() {
+		ioManager.shutdown();
+	}
+
+	/**
+	 * Tests that the local state of a job is deleted once it has no registered tasks anymore, and
+	 * that the local state of the other jobs is retained.
+	 */
+	@Test(timeout = 10000L)
+	public void testDeletesLocalStateOfReleasedJobs() throws Exception {
+		JobID releasedJob = new JobID();
+		JobID runningJob = new JobID();
+
+		File releasedJobState = createLocalState(releasedJob, 0);
+		File otherSubtaskState = createLocalState(releasedJob, 1);
+		File runningJobState = createLocalState(runningJob, 0);
+
+		TaskLocalStateStoresManager manager = new TaskLocalStateStoresManager(ioManager, 1L);
+		try {
+			manager.registerTask(releasedJob);
+			manager.registerTask(releasedJob);
+			manager.registerTask(runningJob);
+
+			// one task of the job is still registered
+			manager.unregisterTask(releasedJob);
+			Thread.sleep(10L);
+			manager.cleanup();
+			assertTrue(releasedJobState.exists());
+
+			manager.unregisterTask(releasedJob);
+			while (manager.getNumberOfRegisteredJobs() > 1) {
+				Thread.sleep(1L);
+			}
+
+			assertFalse(releasedJobState.exists());
+			assertFalse(otherSubtaskState.exists());
+			assertTrue(runningJobState.exists());
+		}
+		finally {
+			manager.shutdown();
+		}
+	}
+
+	@Test
+	public void testDiscardLocalStateOfJobWithoutLocalState() {
+		TaskLocalStateStore.discardLocalStateOfJob(ioManager.getSpillingDirectories(), new JobID());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private File createLocalState(JobID jobId, int subtaskIndex) throws Exception {
+		Environment environment = mock(Environment.class);
+		when(environment.getIOManager()).thenReturn(ioManager);
+		when(environment.getJobID()).thenReturn(jobId);
+		when(environment.getJobVertexId()).thenReturn(new JobVertexID());
+		when(environment.getTaskInfo()).thenReturn(new TaskInfo("test", 2, subtaskIndex, 2, 0));
+
+		File localStateDirectory = TaskLocalStateStore.forTask(environment).getLocalStateDirectory();
+		File checkpointDirectory = new File(localStateDirectory, "chk_1");
+		assertTrue(checkpointDirectory.mkdirs());
+		assertTrue(new File(checkpointDirectory, "state").createNewFile());
+
+		assertEquals(1, localStateDirectory.list().length);
+		return localStateDirectory;
+	}
+}
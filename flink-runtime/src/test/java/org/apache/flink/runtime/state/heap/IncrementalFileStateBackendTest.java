@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.FileStateBackendTest;
+import org.apache.flink.runtime.state.IncrementalKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the tests of the {@link FileStateBackendTest} with incremental checkpoints of the keyed state backends, and
+ * tests that incremental checkpoints only write the state of the accessed key-groups.
+ */
+public class IncrementalFileStateBackendTest extends FileStateBackendTest {
+
+	private static final int NUMBER_OF_KEY_GROUPS = 10;
+
+	private static final int NUMBER_OF_KEYS = 1000;
+
+	private static final int MAX_INCREMENTAL_CHECKPOINTS = 2;
+
+	private final ValueStateDescriptor<String> stateDescriptor =
+		new ValueStateDescriptor<>("id", StringSerializer.INSTANCE);
+
+	@Override
+	protected FsStateBackend getStateBackend() throws Exception {
+		FsStateBackend stateBackend = super.getStateBackend();
+		stateBackend.enableIncrementalCheckpointing(MAX_INCREMENTAL_CHECKPOINTS);
+		return stateBackend;
+	}
+
+	@Override
+	protected boolean useAsyncMode() {
+		return true;
+	}
+
+	@Test
+	public void testSnapshotsOnlyAccessedKeyGroups() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			ValueState<String> state = getState(backend);
+			for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+				backend.setCurrentKey(key);
+				state.update("v" + key);
+			}
+
+			IncrementalKeyedStateHandle snapshot1 = checkpoint(backend, 1L, streamFactory, sharedStateRegistry);
+			assertEquals(1, snapshot1.getSharedState().size());
+			StateHandleID baseFile = snapshot1.getSharedState().keySet().iterator().next();
+			long baseFileSize = snapshot1.getSharedState().get(baseFile).getStateSize();
+
+			// the current key is still set after the checkpoint
+			state.update("u" + (NUMBER_OF_KEYS - 1));
+
+			IncrementalKeyedStateHandle snapshot2 = (IncrementalKeyedStateHandle) runSnapshot(
+				backend.snapshot(2L, 2L, streamFactory, CheckpointOptions.forCheckpoint()));
+
+			assertEquals(snapshot1.getBackendIdentifier(), snapshot2.getBackendIdentifier());
+			assertEquals(2, snapshot2.getSharedState().size());
+			assertTrue(snapshot2.getSharedState().get(baseFile) instanceof PlaceholderStreamStateHandle);
+
+			for (Map.Entry<StateHandleID, StreamStateHandle> sharedState : snapshot2.getSharedState().entrySet()) {
+				if (!sharedState.getKey().equals(baseFile)) {
+					// only one of the key-groups was written again
+					assertTrue(sharedState.getValue().getStateSize() < baseFileSize / 2);
+				}
+			}
+
+			snapshot2.registerSharedStates(sharedStateRegistry);
+			backend.notifyCheckpointComplete(2L);
+
+			// the shared file of the first checkpoint is still referenced by the second checkpoint
+			snapshot1.discardState();
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+			verifyState(backend, NUMBER_OF_KEYS - 1);
+
+			snapshot2.discardState();
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testSnapshotsAllKeyGroupsAfterMaxIncrementalCheckpoints() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			ValueState<String> state = getState(backend);
+			for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+				backend.setCurrentKey(key);
+				state.update("v" + key);
+			}
+
+			assertEquals(1, checkpoint(backend, 1L, streamFactory, sharedStateRegistry).getSharedState().size());
+
+			// each checkpoint writes one more file with the state of one key-group
+			for (int i = 0; i < MAX_INCREMENTAL_CHECKPOINTS; i++) {
+				backend.setCurrentKey(firstKeyInKeyGroup(i));
+				state.update("u" + i);
+
+				IncrementalKeyedStateHandle snapshot = checkpoint(backend, i + 2L, streamFactory, sharedStateRegistry);
+				assertEquals(i + 2, snapshot.getSharedState().size());
+			}
+
+			backend.setCurrentKey(firstKeyInKeyGroup(MAX_INCREMENTAL_CHECKPOINTS));
+			state.update("u" + MAX_INCREMENTAL_CHECKPOINTS);
+
+			IncrementalKeyedStateHandle snapshot = (IncrementalKeyedStateHandle) runSnapshot(backend.snapshot(
+				MAX_INCREMENTAL_CHECKPOINTS + 2L,
+				MAX_INCREMENTAL_CHECKPOINTS + 2L,
+				streamFactory,
+				CheckpointOptions.forCheckpoint()));
+
+			assertEquals(1, snapshot.getSharedState().size());
+			assertTrue(!(snapshot.getSharedState().values().iterator().next() instanceof PlaceholderStreamStateHandle));
+
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+			state = getState(backend);
+			for (int i = 0; i <= MAX_INCREMENTAL_CHECKPOINTS; i++) {
+				backend.setCurrentKey(firstKeyInKeyGroup(i));
+				assertEquals("u" + i, state.value());
+			}
+
+			snapshot.discardState();
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testContinuesIncrementalCheckpointsAfterRestore() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			ValueState<String> state = getState(backend);
+			for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+				backend.setCurrentKey(key);
+				state.update("v" + key);
+			}
+
+			IncrementalKeyedStateHandle snapshot1 = checkpoint(backend, 1L, streamFactory, sharedStateRegistry);
+			StateHandleID baseFile = snapshot1.getSharedState().keySet().iterator().next();
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot1);
+			state = getState(backend);
+			backend.setCurrentKey(0);
+			state.update("u0");
+
+			IncrementalKeyedStateHandle snapshot2 = (IncrementalKeyedStateHandle) runSnapshot(
+				backend.snapshot(2L, 2L, streamFactory, CheckpointOptions.forCheckpoint()));
+
+			assertEquals(snapshot1.getBackendIdentifier(), snapshot2.getBackendIdentifier());
+			assertEquals(2, snapshot2.getSharedState().size());
+			assertTrue(snapshot2.getSharedState().get(baseFile) instanceof PlaceholderStreamStateHandle);
+
+			snapshot2.registerSharedStates(sharedStateRegistry);
+			snapshot1.discardState();
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+			verifyState(backend, 0);
+
+			snapshot2.discardState();
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testSavepointsAreNotIncremental() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		try {
+			ValueState<String> state = getState(backend);
+			backend.setCurrentKey(1);
+			state.update("v1");
+
+			checkpoint(backend, 1L, streamFactory, sharedStateRegistry);
+
+			KeyedStateHandle savepoint = runSnapshot(
+				backend.snapshot(2L, 2L, streamFactory, CheckpointOptions.forSavepoint("savepoints")));
+
+			assertTrue(savepoint instanceof KeyGroupsStateHandle);
+			savepoint.discardState();
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	private ValueState<String> getState(AbstractKeyedStateBackend<Integer> backend) throws Exception {
+		return backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+	}
+
+	/**
+	 * Takes an incremental snapshot and completes the checkpoint.
+	 */
+	private IncrementalKeyedStateHandle checkpoint(
+			AbstractKeyedStateBackend<Integer> backend,
+			long checkpointId,
+			CheckpointStreamFactory streamFactory,
+			SharedStateRegistry sharedStateRegistry) throws Exception {
+
+		KeyedStateHandle snapshot = runSnapshot(
+			backend.snapshot(checkpointId, checkpointId, streamFactory, CheckpointOptions.forCheckpoint()));
+
+		assertTrue(snapshot instanceof IncrementalKeyedStateHandle);
+		snapshot.registerSharedStates(sharedStateRegistry);
+		backend.notifyCheckpointComplete(checkpointId);
+
+		return (IncrementalKeyedStateHandle) snapshot;
+	}
+
+	/**
+	 * Verifies the values of all keys, where the given key was updated after the initial values.
+	 */
+	private void verifyState(AbstractKeyedStateBackend<Integer> backend, int updatedKey) throws Exception {
+		ValueState<String> state = getState(backend);
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			backend.setCurrentKey(key);
+			assertEquals((key == updatedKey ? "u" : "v") + key, state.value());
+		}
+	}
+
+	private static int firstKeyInKeyGroup(int keyGroup) {
+		int key = 0;
+		while (KeyGroupRangeAssignment.assignToKeyGroup(key, NUMBER_OF_KEY_GROUPS) != keyGroup) {
+			key++;
+		}
+		return key;
+	}
+}
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.RegisteredKeyedBackendStateMetaInfo;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpillableStateTable}.
+ */
+public class SpillableStateTableTest extends TestLogger {
+
+	private static final int NUMBER_OF_KEY_GROUPS = 10;
+
+	private static final int NUMBER_OF_KEYS = 100;
+
+	private static final Integer NAMESPACE = 1;
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+	private File spillDirectory;
+
+	private HeapSpillingManager spillingManager;
+
+	private HeapKeyedStateBackend<Integer> backend;
+
+	private SpillableStateTable<Integer, Integer, Integer> stateTable;
+
+	@Before
+	public void setup() throws Exception {
+		spillDirectory = temporaryFolder.newFolder();
+		spillingManager = new HeapSpillingManager(
+			new File[] {spillDirectory},
+			new KeyGroupRange(0, NUMBER_OF_KEY_GROUPS - 1),
+			() -> false,
+			1);
+		backend = createBackend(spillingManager);
+		stateTable = new SpillableStateTable<>(backend, createMetaInfo(), spillingManager);
+
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			backend.setCurrentKey(key);
+			stateTable.put(NAMESPACE, key);
+		}
+	}
+
+	@After
+	public void cleanup() {
+		stateTable.dispose();
+		backend.dispose();
+	}
+
+	@Test
+	public void testSpillAndLoadKeyGroup() throws Exception {
+		final int keyGroup = keyGroupOf(0);
+		final int numMappings = stateTable.spillKeyGroup(keyGroup);
+
+		assertTrue(numMappings > 0);
+		assertTrue(stateTable.isSpilled(keyGroup));
+		assertEquals(NUMBER_OF_KEYS - numMappings, stateTable.sizeOnHeap());
+		assertEquals(NUMBER_OF_KEYS, stateTable.size());
+		assertEquals(NUMBER_OF_KEYS, stateTable.sizeOfNamespace(NAMESPACE));
+		assertEquals(1, numberOfSpillFiles());
+
+		// lookups by key and key iteration do not load spilled key-groups
+		assertEquals(Integer.valueOf(0), stateTable.get(0, NAMESPACE));
+		assertEquals(allKeys(), stateTable.getKeys(NAMESPACE).collect(Collectors.toSet()));
+		assertTrue(stateTable.isSpilled(keyGroup));
+
+		// accesses in the key context load spilled key-groups
+		backend.setCurrentKey(0);
+		assertEquals(Integer.valueOf(0), stateTable.get(NAMESPACE));
+		assertFalse(stateTable.isSpilled(keyGroup));
+		assertEquals(NUMBER_OF_KEYS, stateTable.sizeOnHeap());
+		assertEquals(0, numberOfSpillFiles());
+	}
+
+	@Test
+	public void testSnapshotIsolation() throws Exception {
+		final int spilledKeyGroup = keyGroupOf(0);
+		final int heapKeyGroup = keyGroupOf(1);
+		assertTrue(spilledKeyGroup != heapKeyGroup);
+
+		stateTable.spillKeyGroup(spilledKeyGroup);
+		final StateTableSnapshot snapshot = stateTable.createSnapshot();
+
+		// modify a spilled and a heap key-group, and spill the heap key-group after the snapshot was taken
+		backend.setCurrentKey(0);
+		stateTable.put(NAMESPACE, -1);
+		backend.setCurrentKey(1);
+		stateTable.put(NAMESPACE, -1);
+		stateTable.spillKeyGroup(heapKeyGroup);
+
+		// the spill file of the loaded key-group is kept for the snapshot
+		assertEquals(2, numberOfSpillFiles());
+
+		final HeapKeyedStateBackend<Integer> restoreBackend = createBackend(null);
+		final StateTable<Integer, Integer, Integer> restoredTable = restoreBackend.newStateTable(createMetaInfo());
+
+		for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+			ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos();
+			snapshot.writeMappingsInKeyGroup(new DataOutputViewStreamWrapper(out), keyGroup);
+
+			StateTableByKeyGroupReaders
+				.readerForVersion(restoredTable, KeyedBackendSerializationProxy.VERSION)
+				.readMappingsInKeyGroup(
+					new DataInputViewStreamWrapper(new ByteArrayInputStreamWithPos(out.getBuf(), 0, out.getPosition())),
+					keyGroup);
+		}
+
+		snapshot.release();
+		assertEquals(1, numberOfSpillFiles());
+
+		assertEquals(NUMBER_OF_KEYS, restoredTable.size());
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			assertEquals(Integer.valueOf(key), restoredTable.get(key, NAMESPACE));
+		}
+
+		restoreBackend.dispose();
+	}
+
+	@Test
+	public void testSpillColdKeyGroups() throws Exception {
+		// access all keys except those of one key-group, which becomes the coldest key-group
+		final int coldKeyGroup = keyGroupOf(0);
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			if (keyGroupOf(key) != coldKeyGroup) {
+				backend.setCurrentKey(key);
+				stateTable.get(NAMESPACE);
+			}
+		}
+
+		final int hotKeyGroup = backend.getCurrentKeyGroupIndex();
+
+		spillingManager.spillColdKeyGroups(Collections.singletonList(stateTable));
+
+		assertTrue(stateTable.isSpilled(coldKeyGroup));
+		assertFalse(stateTable.isSpilled(hotKeyGroup));
+		assertTrue(stateTable.sizeOnHeap() <= NUMBER_OF_KEYS * 0.9);
+		assertEquals(NUMBER_OF_KEYS, stateTable.size());
+	}
+
+	// ------------------------------------------------------------------------
+
+	private HeapKeyedStateBackend<Integer> createBackend(HeapSpillingManager spillingManager) {
+		return new HeapKeyedStateBackend<>(
+			null,
+			IntSerializer.INSTANCE,
+			getClass().getClassLoader(),
+			NUMBER_OF_KEY_GROUPS,
+			new KeyGroupRange(0, NUMBER_OF_KEY_GROUPS - 1),
+			true,
+			new ExecutionConfig(),
+			spillingManager);
+	}
+
+	private static RegisteredKeyedBackendStateMetaInfo<Integer, Integer> createMetaInfo() {
+		return new RegisteredKeyedBackendStateMetaInfo<>(
+			StateDescriptor.Type.VALUE,
+			"test",
+			IntSerializer.INSTANCE,
+			IntSerializer.INSTANCE);
+	}
+
+	private static int keyGroupOf(int key) {
+		return KeyGroupRangeAssignment.assignToKeyGroup(key, NUMBER_OF_KEY_GROUPS);
+	}
+
+	private int numberOfSpillFiles() {
+		String[] files = spillDirectory.list();
+		return files == null ? 0 : files.length;
+	}
+
+	private static Set<Integer> allKeys() {
+		Set<Integer> keys = new HashSet<>();
+		for (int key = 0; key < NUMBER_OF_KEYS; key++) {
+			keys.add(key);
+		}
+		return keys;
+	}
+}
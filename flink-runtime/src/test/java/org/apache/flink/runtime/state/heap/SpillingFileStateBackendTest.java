@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.FileStateBackendTest;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+
+/**
+ * Runs the tests of the {@link FileStateBackendTest} with keyed state backends that spill the coldest key-group
+ * on every key access, so that state is constantly spilled and loaded back.
+ */
+public class SpillingFileStateBackendTest extends FileStateBackendTest {
+
+	@Override
+	protected FsStateBackend getStateBackend() throws Exception {
+		return new AlwaysSpillingFsStateBackend(
+			tempFolder.newFolder().toURI(),
+			tempFolder.newFolder(),
+			useAsyncMode());
+	}
+
+	@Override
+	protected boolean useAsyncMode() {
+		return true;
+	}
+
+	private static final class AlwaysSpillingFsStateBackend extends FsStateBackend {
+
+		private static final long serialVersionUID = 1L;
+
+		private final File spillDirectory;
+
+		private final boolean asynchronousSnapshots;
+
+		AlwaysSpillingFsStateBackend(
+				URI checkpointDataUri,
+				File spillDirectory,
+				boolean asynchronousSnapshots) throws IOException {
+
+			super(checkpointDataUri, asynchronousSnapshots);
+			this.spillDirectory = spillDirectory;
+			this.asynchronousSnapshots = asynchronousSnapshots;
+		}
+
+		@Override
+		public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+				Environment env,
+				JobID jobID,
+				String operatorIdentifier,
+				TypeSerializer<K> keySerializer,
+				int numberOfKeyGroups,
+				KeyGroupRange keyGroupRange,
+				TaskKvStateRegistry kvStateRegistry) throws IOException {
+
+			return new HeapKeyedStateBackend<>(
+				kvStateRegistry,
+				keySerializer,
+				env.getUserClassLoader(),
+				numberOfKeyGroups,
+				keyGroupRange,
+				asynchronousSnapshots,
+				env.getExecutionConfig(),
+				new HeapSpillingManager(new File[] {spillDirectory}, keyGroupRange, () -> true, 1));
+		}
+	}
+}
@@ -280,6 +280,7 @@ public class TaskExecutorTest extends TestLogger {
 
 		final TaskManagerConfiguration taskManagerConfiguration = mock(TaskManagerConfiguration.class);
 		when(taskManagerConfiguration.getNumberSlots()).thenReturn(1);
+		when(taskManagerConfiguration.getConfiguration()).thenReturn(new Configuration());
 
 		final TaskManagerLocation taskManagerLocation = mock(TaskManagerLocation.class);
 		when(taskManagerLocation.getResourceID()).thenReturn(tmResourceId);
@@ -384,6 +385,7 @@ public class TaskExecutorTest extends TestLogger {
 		final TaskManagerConfiguration taskManagerConfiguration = mock(TaskManagerConfiguration.class);
 		when(taskManagerConfiguration.getNumberSlots()).thenReturn(1);
 		when(taskManagerConfiguration.getTimeout()).thenReturn(Time.seconds(10L));
+		when(taskManagerConfiguration.getConfiguration()).thenReturn(new Configuration());
 
 		final TaskManagerLocation taskManagerLocation = mock(TaskManagerLocation.class);
 		when(taskManagerLocation.getResourceID()).thenReturn(tmResourceId);
@@ -503,6 +505,7 @@ public class TaskExecutorTest extends TestLogger {
 
 		TaskManagerConfiguration taskManagerServicesConfiguration = mock(TaskManagerConfiguration.class);
 		when(taskManagerServicesConfiguration.getNumberSlots()).thenReturn(1);
+		when(taskManagerServicesConfiguration.getConfiguration()).thenReturn(new Configuration());
 
 		rpc.registerGateway(resourceManagerAddress, rmGateway);
 
@@ -1063,6 +1066,7 @@ public class TaskExecutorTest extends TestLogger {
 
 		TaskManagerConfiguration taskManagerServicesConfiguration = mock(TaskManagerConfiguration.class);
 		when(taskManagerServicesConfiguration.getNumberSlots()).thenReturn(1);
+		when(taskManagerServicesConfiguration.getConfiguration()).thenReturn(new Configuration());
 
 		TaskManagerLocation taskManagerLocation = mock(TaskManagerLocation.class);
 		when(taskManagerLocation.getResourceID()).thenReturn(resourceID);
@@ -74,6 +74,7 @@ import java.io.Serializable;
 import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -225,11 +226,7 @@ public abstract class AbstractStreamOperator<OUT>
 		initKeyedState(); //TODO we should move the actual initialization of this from StreamTask to this class
 
 		if (getKeyedStateBackend() != null && timeServiceManager == null) {
-			timeServiceManager = new InternalTimeServiceManager<>(
-				getKeyedStateBackend().getNumberOfKeyGroups(),
-				getKeyedStateBackend().getKeyGroupRange(),
-				this,
-				getRuntimeContext().getProcessingTimeService());
+			timeServiceManager = createTimeServiceManager(getKeyedStateBackend());
 		}
 
 		if (restoring) {
@@ -244,7 +241,7 @@ public abstract class AbstractStreamOperator<OUT>
 			}
 		}
 
-		checkpointStreamFactory = container.createCheckpointStreamFactory(this);
+		checkpointStreamFactory = container.createStateCheckpointStreamFactory(this);
 
 		initOperatorState(operatorStateHandlesBackend);
 
@@ -303,6 +300,22 @@ public abstract class AbstractStreamOperator<OUT>
 		}
 	}
 
+	private <K> InternalTimeServiceManager<K, ?> createTimeServiceManager(KeyedStateBackend<K> keyedStateBackend) {
+		// keyed state backends may store the timers themselves
+		@SuppressWarnings("unchecked")
+		InternalTimerServiceFactory<K> timerServiceFactory =
+			keyedStateBackend instanceof InternalTimerServiceFactory ?
+				(InternalTimerServiceFactory<K>) keyedStateBackend :
+				null;
+
+		return new InternalTimeServiceManager<>(
+			keyedStateBackend.getNumberOfKeyGroups(),
+			keyedStateBackend.getKeyGroupRange(),
+			this,
+			getRuntimeContext().getProcessingTimeService(),
+			timerServiceFactory);
+	}
+
 	/**
 	 * This method is called after all records have been added to the operators via the methods
 	 * {@link OneInputStreamOperator#processElement(StreamRecord)}, or
@@ -837,6 +850,12 @@ public abstract class AbstractStreamOperator<OUT>
 			output.collect(outputTag, record);
 		}
 
+		@Override
+		public void collectBatch(List<StreamRecord<OUT>> records) {
+			numRecordsOut.inc(records.size());
+			output.collectBatch(records);
+		}
+
 		@Override
 		public void close() {
 			output.close();
@@ -22,7 +22,6 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
 import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
-import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.KeyGroupsList;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeCallback;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
@@ -30,8 +29,6 @@ import org.apache.flink.util.InstantiationUtil;
 import org.apache.flink.util.Preconditions;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 
@@ -41,7 +38,7 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 /**
  * {@link InternalTimerService} that stores timers on the Java heap.
  */
-public class HeapInternalTimerService<K, N> implements InternalTimerService<N>, ProcessingTimeCallback {
+public class HeapInternalTimerService<K, N> implements ManagedInternalTimerService<K, N>, ProcessingTimeCallback {
 
 	private final ProcessingTimeService processingTimeService;
 
@@ -50,21 +47,17 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 	/**
 	 * Processing time timers that are currently in-flight.
 	 */
-	private final Set<InternalTimer<K, N>>[] processingTimeTimersByKeyGroup;
-	private final PriorityQueue<InternalTimer<K, N>> processingTimeTimersQueue;
+	private final InternalTimerHeap<K, N> processingTimeTimersQueue;
 
 	/**
 	 * Event time timers that are currently in-flight.
 	 */
-	private final Set<InternalTimer<K, N>>[] eventTimeTimersByKeyGroup;
-	private final PriorityQueue<InternalTimer<K, N>> eventTimeTimersQueue;
+	private final InternalTimerHeap<K, N> eventTimeTimersQueue;
 
 	/**
 	 * Information concerning the local key-group range.
 	 */
 	private final KeyGroupsList localKeyGroupRange;
-	private final int totalKeyGroups;
-	private final int localKeyGroupRangeStartIdx;
 
 	/**
 	 * The local event time, as denoted by the last received
@@ -103,24 +96,10 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 		this.keyContext = checkNotNull(keyContext);
 		this.processingTimeService = checkNotNull(processingTimeService);
 
-		this.totalKeyGroups = totalKeyGroups;
 		this.localKeyGroupRange = checkNotNull(localKeyGroupRange);
 
-		// find the starting index of the local key-group range
-		int startIdx = Integer.MAX_VALUE;
-		for (Integer keyGroupIdx : localKeyGroupRange) {
-			startIdx = Math.min(keyGroupIdx, startIdx);
-		}
-		this.localKeyGroupRangeStartIdx = startIdx;
-
-		// the list of ids of the key-groups this task is responsible for
-		int localKeyGroups = this.localKeyGroupRange.getNumberOfKeyGroups();
-
-		this.eventTimeTimersQueue = new PriorityQueue<>(100);
-		this.eventTimeTimersByKeyGroup = new HashSet[localKeyGroups];
-
-		this.processingTimeTimersQueue = new PriorityQueue<>(100);
-		this.processingTimeTimersByKeyGroup = new HashSet[localKeyGroups];
+		this.eventTimeTimersQueue = new InternalTimerHeap<>(totalKeyGroups, localKeyGroupRange);
+		this.processingTimeTimersQueue = new InternalTimerHeap<>(totalKeyGroups, localKeyGroupRange);
 	}
 
 	/**
@@ -132,6 +111,7 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 	 * </ol>
 	 * This method can be called multiple times, as long as it is called with the same serializers.
 	 */
+	@Override
 	public void startTimerService(
 			TypeSerializer<K> keySerializer,
 			TypeSerializer<N> namespaceSerializer,
@@ -190,14 +170,11 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 	public void registerProcessingTimeTimer(N namespace, long time) {
 		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
 
-		// make sure we only put one timer per key into the queue
-		Set<InternalTimer<K, N>> timerSet = getProcessingTimeTimerSetForTimer(timer);
-		if (timerSet.add(timer)) {
-
-			InternalTimer<K, N> oldHead = processingTimeTimersQueue.peek();
-			long nextTriggerTime = oldHead != null ? oldHead.getTimestamp() : Long.MAX_VALUE;
+		InternalTimer<K, N> oldHead = processingTimeTimersQueue.peek();
+		long nextTriggerTime = oldHead != null ? oldHead.getTimestamp() : Long.MAX_VALUE;
 
-			processingTimeTimersQueue.add(timer);
+		// the queue only keeps one timer per key and namespace
+		if (processingTimeTimersQueue.add(timer)) {
 
 			// check if we need to re-schedule our timer to earlier
 			if (time < nextTriggerTime) {
@@ -212,28 +189,19 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 	@Override
 	public void registerEventTimeTimer(N namespace, long time) {
 		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
-		Set<InternalTimer<K, N>> timerSet = getEventTimeTimerSetForTimer(timer);
-		if (timerSet.add(timer)) {
-			eventTimeTimersQueue.add(timer);
-		}
+		eventTimeTimersQueue.add(timer);
 	}
 
 	@Override
 	public void deleteProcessingTimeTimer(N namespace, long time) {
 		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
-		Set<InternalTimer<K, N>> timerSet = getProcessingTimeTimerSetForTimer(timer);
-		if (timerSet.remove(timer)) {
-			processingTimeTimersQueue.remove(timer);
-		}
+		processingTimeTimersQueue.remove(timer);
 	}
 
 	@Override
 	public void deleteEventTimeTimer(N namespace, long time) {
 		InternalTimer<K, N> timer = new InternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace);
-		Set<InternalTimer<K, N>> timerSet = getEventTimeTimerSetForTimer(timer);
-		if (timerSet.remove(timer)) {
-			eventTimeTimersQueue.remove(timer);
-		}
+		eventTimeTimersQueue.remove(timer);
 	}
 
 	@Override
@@ -246,10 +214,7 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 
 		while ((timer = processingTimeTimersQueue.peek()) != null && timer.getTimestamp() <= time) {
 
-			Set<InternalTimer<K, N>> timerSet = getProcessingTimeTimerSetForTimer(timer);
-
-			timerSet.remove(timer);
-			processingTimeTimersQueue.remove();
+			processingTimeTimersQueue.poll();
 
 			keyContext.setCurrentKey(timer.getKey());
 			triggerTarget.onProcessingTime(timer);
@@ -262,6 +227,7 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 		}
 	}
 
+	@Override
 	public void advanceWatermark(long time) throws Exception {
 		currentWatermark = time;
 
@@ -269,26 +235,30 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 
 		while ((timer = eventTimeTimersQueue.peek()) != null && timer.getTimestamp() <= time) {
 
-			Set<InternalTimer<K, N>> timerSet = getEventTimeTimerSetForTimer(timer);
-			timerSet.remove(timer);
-			eventTimeTimersQueue.remove();
+			eventTimeTimersQueue.poll();
 
 			keyContext.setCurrentKey(timer.getKey());
 			triggerTarget.onEventTime(timer);
 		}
 	}
 
+	@Override
+	public boolean isStoredInKeyedStateBackend() {
+		return false;
+	}
+
 	/**
 	 * Snapshots the timers (both processing and event time ones) for a given {@code keyGroupIdx}.
 	 * @param stream the stream to write to.
 	 * @param keyGroupIdx the id of the key-group to be put in the snapshot.
 	 */
+	@Override
 	public void snapshotTimersForKeyGroup(DataOutputViewStreamWrapper stream, int keyGroupIdx) throws Exception {
 		InstantiationUtil.serializeObject(stream, keySerializer);
 		InstantiationUtil.serializeObject(stream, namespaceSerializer);
 
 		// write the event time timers
-		Set<InternalTimer<K, N>> eventTimers = getEventTimeTimerSetForKeyGroup(keyGroupIdx);
+		Set<InternalTimer<K, N>> eventTimers = eventTimeTimersQueue.getTimersForKeyGroup(keyGroupIdx);
 		if (eventTimers != null) {
 			stream.writeInt(eventTimers.size());
 			for (InternalTimer<K, N> timer : eventTimers) {
@@ -299,7 +269,7 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 		}
 
 		// write the processing time timers
-		Set<InternalTimer<K, N>> processingTimers = getProcessingTimeTimerSetForKeyGroup(keyGroupIdx);
+		Set<InternalTimer<K, N>> processingTimers = processingTimeTimersQueue.getTimersForKeyGroup(keyGroupIdx);
 		if (processingTimers != null) {
 			stream.writeInt(processingTimers.size());
 			for (InternalTimer<K, N> timer : processingTimers) {
@@ -317,6 +287,7 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 	 * @param userCodeClassLoader the class loader that will be used to deserialize
 	 * 								the local key and namespace serializers.
 	 */
+	@Override
 	public void restoreTimersForKeyGroup(DataInputViewStreamWrapper stream, int keyGroupIdx,
 										ClassLoader userCodeClassLoader) throws IOException, ClassNotFoundException {
 
@@ -341,102 +312,23 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 
 		// read the event time timers
 		int sizeOfEventTimeTimers = stream.readInt();
-		if (sizeOfEventTimeTimers > 0) {
-			Set<InternalTimer<K, N>> eventTimers = getEventTimeTimerSetForKeyGroup(keyGroupIdx);
-			for (int i = 0; i < sizeOfEventTimeTimers; i++) {
-				InternalTimer<K, N> timer = timerSerializer.deserialize(stream);
-				eventTimers.add(timer);
-				eventTimeTimersQueue.add(timer);
-			}
+		for (int i = 0; i < sizeOfEventTimeTimers; i++) {
+			eventTimeTimersQueue.add(timerSerializer.deserialize(stream));
 		}
 
 		// read the processing time timers
 		int sizeOfProcessingTimeTimers = stream.readInt();
-		if (sizeOfProcessingTimeTimers > 0) {
-			Set<InternalTimer<K, N>> processingTimers = getProcessingTimeTimerSetForKeyGroup(keyGroupIdx);
-			for (int i = 0; i < sizeOfProcessingTimeTimers; i++) {
-				InternalTimer<K, N> timer = timerSerializer.deserialize(stream);
-				processingTimers.add(timer);
-				processingTimeTimersQueue.add(timer);
-			}
-		}
-	}
-
-	/**
-	 * Retrieve the set of event time timers for the key-group this timer belongs to.
-	 *
-	 * @param timer the timer whose key-group we are searching.
-	 * @return the set of registered timers for the key-group.
-	 */
-	private Set<InternalTimer<K, N>> getEventTimeTimerSetForTimer(InternalTimer<K, N> timer) {
-		checkArgument(localKeyGroupRange != null, "The operator has not been initialized.");
-		int keyGroupIdx = KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), this.totalKeyGroups);
-		return getEventTimeTimerSetForKeyGroup(keyGroupIdx);
-	}
-
-	/**
-	 * Retrieve the set of event time timers for the requested key-group.
-	 *
-	 * @param keyGroupIdx the index of the key group we are interested in.
-	 * @return the set of registered timers for the key-group.
-	 */
-	private Set<InternalTimer<K, N>> getEventTimeTimerSetForKeyGroup(int keyGroupIdx) {
-		int localIdx = getIndexForKeyGroup(keyGroupIdx);
-		Set<InternalTimer<K, N>> timers = eventTimeTimersByKeyGroup[localIdx];
-		if (timers == null) {
-			timers = new HashSet<>();
-			eventTimeTimersByKeyGroup[localIdx] = timers;
-		}
-		return timers;
-	}
-
-	/**
-	 * Retrieve the set of processing time timers for the key-group this timer belongs to.
-	 *
-	 * @param timer the timer whose key-group we are searching.
-	 * @return the set of registered timers for the key-group.
-	 */
-	private Set<InternalTimer<K, N>> getProcessingTimeTimerSetForTimer(InternalTimer<K, N> timer) {
-		checkArgument(localKeyGroupRange != null, "The operator has not been initialized.");
-		int keyGroupIdx = KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), this.totalKeyGroups);
-		return getProcessingTimeTimerSetForKeyGroup(keyGroupIdx);
-	}
-
-	/**
-	 * Retrieve the set of processing time timers for the requested key-group.
-	 *
-	 * @param keyGroupIdx the index of the key group we are interested in.
-	 * @return the set of registered timers for the key-group.
-	 */
-	private Set<InternalTimer<K, N>> getProcessingTimeTimerSetForKeyGroup(int keyGroupIdx) {
-		int localIdx = getIndexForKeyGroup(keyGroupIdx);
-		Set<InternalTimer<K, N>> timers = processingTimeTimersByKeyGroup[localIdx];
-		if (timers == null) {
-			timers = new HashSet<>();
-			processingTimeTimersByKeyGroup[localIdx] = timers;
+		for (int i = 0; i < sizeOfProcessingTimeTimers; i++) {
+			processingTimeTimersQueue.add(timerSerializer.deserialize(stream));
 		}
-		return timers;
-	}
-
-	/**
-	 * Computes the index of the requested key-group in the local datastructures.
-	 * <li/>
-	 * Currently we assume that each task is assigned a continuous range of key-groups,
-	 * e.g. 1,2,3,4, and not 1,3,5. We leverage this to keep the different states by
-	 * key-grouped in arrays instead of maps, where the offset for each key-group is
-	 * the key-group id (an int) minus the id of the first key-group in the local range.
-	 * This is for performance reasons.
-	 */
-	private int getIndexForKeyGroup(int keyGroupIdx) {
-		checkArgument(localKeyGroupRange.contains(keyGroupIdx),
-			"Key Group " + keyGroupIdx + " does not belong to the local range.");
-		return keyGroupIdx - this.localKeyGroupRangeStartIdx;
 	}
 
+	@Override
 	public int numProcessingTimeTimers() {
 		return this.processingTimeTimersQueue.size();
 	}
 
+	@Override
 	public int numEventTimeTimers() {
 		return this.eventTimeTimersQueue.size();
 	}
@@ -463,16 +355,16 @@ public class HeapInternalTimerService<K, N> implements InternalTimerService<N>,
 
 	@VisibleForTesting
 	public int getLocalKeyGroupRangeStartIdx() {
-		return this.localKeyGroupRangeStartIdx;
+		return this.eventTimeTimersQueue.getLocalKeyGroupRangeStartIdx();
 	}
 
 	@VisibleForTesting
 	public Set<InternalTimer<K, N>>[] getEventTimeTimersPerKeyGroup() {
-		return this.eventTimeTimersByKeyGroup;
+		return this.eventTimeTimersQueue.getTimersByKeyGroup();
 	}
 
 	@VisibleForTesting
 	public Set<InternalTimer<K, N>>[] getProcessingTimeTimersPerKeyGroup() {
-		return this.processingTimeTimersByKeyGroup;
+		return this.processingTimeTimersQueue.getTimersByKeyGroup();
 	}
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.PublicEvolving;
+
+/**
+ * Interface for {@link TwoInputStreamOperator two-input operators}, which want to control the
+ * input they read from. A hash join can, for example, read its build side completely before it
+ * starts to read the probe side. The data of the input that is not read stays in the network
+ * stack and back pressures its producers.
+ *
+ * <p>The selection is not strict. Elements of an input that is not selected may still be
+ * delivered to the operator in the following cases:
+ * <ul>
+ *     <li>until the network buffer, which is currently read, is fully consumed, because a new
+ *     selection is only applied between buffers,</li>
+ *     <li>while the checkpoint barriers of an exactly-once checkpoint are aligned, because the
+ *     barriers of all inputs have to be read, and directly after the alignment, when the data
+ *     buffered during the alignment is processed,</li>
+ *     <li>once the selected input is finished.</li>
+ * </ul>
+ */
+@PublicEvolving
+public interface InputSelectable {
+
+	/**
+	 * Returns the input to read the next element from. This is called by the task before it reads
+	 * the next network buffer, i.e. the operator may change the selection after every processed
+	 * element, but the change only takes effect once the current buffer is consumed. This method
+	 * is guaranteed to not be called concurrently with other methods of the operator.
+	 *
+	 * @return The input to read from next.
+	 */
+	InputSelection nextSelection();
+}
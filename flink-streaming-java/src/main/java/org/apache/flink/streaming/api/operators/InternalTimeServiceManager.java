@@ -29,14 +29,20 @@ import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * An entity keeping all the time-related services available to all operators extending the
- * {@link AbstractStreamOperator}. Right now, this is only a
- * {@link HeapInternalTimerService timer services}.
+ * {@link AbstractStreamOperator}. Right now, these are only the
+ * {@link ManagedInternalTimerService timer services}, which are created by the
+ * {@link InternalTimerServiceFactory} of the keyed state backend, if it provides one, and are
+ * {@link HeapInternalTimerService HeapInternalTimerServices} otherwise.
  *
  * <b>NOTE:</b> These services are only available to keyed operators.
  *
@@ -52,13 +58,18 @@ public class InternalTimeServiceManager<K, N> {
 
 	private final ProcessingTimeService processingTimeService;
 
-	private final Map<String, HeapInternalTimerService<K, N>> timerServices;
+	/** The factory for the timer services, or null if the timers are stored on the heap. */
+	@Nullable
+	private final InternalTimerServiceFactory<K> timerServiceFactory;
+
+	private final Map<String, ManagedInternalTimerService<K, N>> timerServices;
 
 	InternalTimeServiceManager(
 			int totalKeyGroups,
 			KeyGroupsList localKeyGroupRange,
 			KeyContext keyContext,
-			ProcessingTimeService processingTimeService) {
+			ProcessingTimeService processingTimeService,
+			@Nullable InternalTimerServiceFactory<K> timerServiceFactory) {
 
 		Preconditions.checkArgument(totalKeyGroups > 0);
 		this.totalKeyGroups = totalKeyGroups;
@@ -66,6 +77,7 @@ public class InternalTimeServiceManager<K, N> {
 
 		this.keyContext = Preconditions.checkNotNull(keyContext);
 		this.processingTimeService = Preconditions.checkNotNull(processingTimeService);
+		this.timerServiceFactory = timerServiceFactory;
 
 		this.timerServices = new HashMap<>();
 	}
@@ -93,18 +105,25 @@ public class InternalTimeServiceManager<K, N> {
 	public InternalTimerService<N> getInternalTimerService(String name, TypeSerializer<K> keySerializer,
 														TypeSerializer<N> namespaceSerializer, Triggerable<K, N> triggerable) {
 
-		HeapInternalTimerService<K, N> timerService = timerServices.get(name);
+		ManagedInternalTimerService<K, N> timerService = getOrCreateTimerService(name);
+		timerService.startTimerService(keySerializer, namespaceSerializer, triggerable);
+		return timerService;
+	}
+
+	private ManagedInternalTimerService<K, N> getOrCreateTimerService(String name) {
+		ManagedInternalTimerService<K, N> timerService = timerServices.get(name);
 		if (timerService == null) {
-			timerService = new HeapInternalTimerService<>(totalKeyGroups,
-				localKeyGroupRange, keyContext, processingTimeService);
+			timerService = timerServiceFactory != null ?
+				timerServiceFactory.createInternalTimerService(
+					name, totalKeyGroups, localKeyGroupRange, keyContext, processingTimeService) :
+				new HeapInternalTimerService<>(totalKeyGroups, localKeyGroupRange, keyContext, processingTimeService);
 			timerServices.put(name, timerService);
 		}
-		timerService.startTimerService(keySerializer, namespaceSerializer, triggerable);
 		return timerService;
 	}
 
 	public void advanceWatermark(Watermark watermark) throws Exception {
-		for (HeapInternalTimerService<?, ?> service : timerServices.values()) {
+		for (ManagedInternalTimerService<?, ?> service : timerServices.values()) {
 			service.advanceWatermark(watermark.getTimestamp());
 		}
 	}
@@ -112,11 +131,19 @@ public class InternalTimeServiceManager<K, N> {
 	//////////////////				Fault Tolerance Methods				///////////////////
 
 	public void snapshotStateForKeyGroup(DataOutputViewStreamWrapper stream, int keyGroupIdx) throws Exception {
-		stream.writeInt(timerServices.size());
+		// the timers of services that store them in the keyed state backend are part of its snapshot
+		List<Map.Entry<String, ManagedInternalTimerService<K, N>>> servicesToSnapshot = new ArrayList<>(timerServices.size());
+		for (Map.Entry<String, ManagedInternalTimerService<K, N>> entry : timerServices.entrySet()) {
+			if (!entry.getValue().isStoredInKeyedStateBackend()) {
+				servicesToSnapshot.add(entry);
+			}
+		}
 
-		for (Map.Entry<String, HeapInternalTimerService<K, N>> entry : timerServices.entrySet()) {
+		stream.writeInt(servicesToSnapshot.size());
+
+		for (Map.Entry<String, ManagedInternalTimerService<K, N>> entry : servicesToSnapshot) {
 			String serviceName = entry.getKey();
-			HeapInternalTimerService<?, ?> timerService = entry.getValue();
+			ManagedInternalTimerService<?, ?> timerService = entry.getValue();
 
 			stream.writeUTF(serviceName);
 			timerService.snapshotTimersForKeyGroup(stream, keyGroupIdx);
@@ -130,15 +157,7 @@ public class InternalTimeServiceManager<K, N> {
 		for (int i = 0; i < noOfTimerServices; i++) {
 			String serviceName = stream.readUTF();
 
-			HeapInternalTimerService<K, N> timerService = timerServices.get(serviceName);
-			if (timerService == null) {
-				timerService = new HeapInternalTimerService<>(
-					totalKeyGroups,
-					localKeyGroupRange,
-					keyContext,
-					processingTimeService);
-				timerServices.put(serviceName, timerService);
-			}
+			ManagedInternalTimerService<K, N> timerService = getOrCreateTimerService(serviceName);
 			timerService.restoreTimersForKeyGroup(stream, keyGroupIdx, userCodeClassLoader);
 		}
 	}
@@ -148,7 +167,7 @@ public class InternalTimeServiceManager<K, N> {
 	@VisibleForTesting
 	public int numProcessingTimeTimers() {
 		int count = 0;
-		for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+		for (ManagedInternalTimerService<?, ?> timerService : timerServices.values()) {
 			count += timerService.numProcessingTimeTimers();
 		}
 		return count;
@@ -157,7 +176,7 @@ public class InternalTimeServiceManager<K, N> {
 	@VisibleForTesting
 	public int numEventTimeTimers() {
 		int count = 0;
-		for (HeapInternalTimerService<?, ?> timerService : timerServices.values()) {
+		for (ManagedInternalTimerService<?, ?> timerService : timerServices.values()) {
 			count += timerService.numEventTimeTimers();
 		}
 		return count;
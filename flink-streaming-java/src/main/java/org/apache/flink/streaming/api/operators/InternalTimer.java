@@ -36,10 +36,17 @@ import java.io.IOException;
  */
 @Internal
 public class InternalTimer<K, N> implements Comparable<InternalTimer<K, N>> {
+
+	/** The index of a timer that is not contained in an {@link InternalTimerHeap}. */
+	static final int NOT_CONTAINED = Integer.MIN_VALUE;
+
 	private final long timestamp;
 	private final K key;
 	private final N namespace;
 
+	/** The position of this timer in the {@link InternalTimerHeap} that contains it. */
+	private int timerHeapIndex = NOT_CONTAINED;
+
 	public InternalTimer(long timestamp, K key, N namespace) {
 		this.timestamp = timestamp;
 		this.key = key;
@@ -58,6 +65,14 @@ public class InternalTimer<K, N> implements Comparable<InternalTimer<K, N>> {
 		return namespace;
 	}
 
+	int getTimerHeapIndex() {
+		return timerHeapIndex;
+	}
+
+	void setTimerHeapIndex(int timerHeapIndex) {
+		this.timerHeapIndex = timerHeapIndex;
+	}
+
 	@Override
 	public int compareTo(InternalTimer<K, N> o) {
 		return Long.compare(this.timestamp, o.timestamp);
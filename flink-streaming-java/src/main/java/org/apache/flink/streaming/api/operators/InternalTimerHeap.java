@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupsList;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A queue of {@link InternalTimer InternalTimers} of one time domain, ordered by their timestamps.
+ *
+ * <p>The queue is a binary min-heap, in which each timer knows its own position. Together with a map per
+ * key-group that finds the queued instance of a timer, this allows removing arbitrary timers in O(log n)
+ * instead of the O(n) of {@link java.util.PriorityQueue#remove(Object)}. The maps per key-group also
+ * deduplicate the timers and give access to the timers of a single key-group for snapshots.
+ *
+ * @param <K> Type of the keys to which timers are scoped.
+ * @param <N> Type of the namespace to which timers are scoped.
+ */
+final class InternalTimerHeap<K, N> implements Iterable<InternalTimer<K, N>> {
+
+	/** The heap array is 1-based, which keeps the index arithmetic simple. */
+	private static final int QUEUE_HEAD_INDEX = 1;
+
+	private static final int INITIAL_CAPACITY = 128;
+
+	/** The timers, ordered as a binary min-heap by their timestamps, starting at {@link #QUEUE_HEAD_INDEX}. */
+	private InternalTimer<K, N>[] queue;
+
+	private int size;
+
+	/** Maps each timer to its queued instance, indexed by the local position of the key-group. */
+	private final Map<InternalTimer<K, N>, InternalTimer<K, N>>[] deduplicationMapsByKeyGroup;
+
+	private final KeyGroupsList localKeyGroupRange;
+
+	private final int totalKeyGroups;
+
+	private final int localKeyGroupRangeStartIdx;
+
+	@SuppressWarnings("unchecked")
+	InternalTimerHeap(int totalKeyGroups, KeyGroupsList localKeyGroupRange) {
+		this.totalKeyGroups = totalKeyGroups;
+		this.localKeyGroupRange = checkNotNull(localKeyGroupRange);
+
+		// find the starting index of the local key-group range
+		int startIdx = Integer.MAX_VALUE;
+		for (Integer keyGroupIdx : localKeyGroupRange) {
+			startIdx = Math.min(keyGroupIdx, startIdx);
+		}
+		this.localKeyGroupRangeStartIdx = startIdx;
+
+		this.queue = new InternalTimer[QUEUE_HEAD_INDEX + INITIAL_CAPACITY];
+		this.deduplicationMapsByKeyGroup = new HashMap[localKeyGroupRange.getNumberOfKeyGroups()];
+	}
+
+	/**
+	 * Adds the given timer, unless an equal timer is already in the queue.
+	 *
+	 * @return true if the timer was added.
+	 */
+	boolean add(InternalTimer<K, N> timer) {
+		if (getDeduplicationMapForTimer(timer).putIfAbsent(timer, timer) != null) {
+			return false;
+		}
+
+		final int index = QUEUE_HEAD_INDEX + size;
+		if (index >= queue.length) {
+			queue = Arrays.copyOf(queue, queue.length * 2);
+		}
+		++size;
+
+		moveToIndex(timer, index);
+		siftUp(index);
+		return true;
+	}
+
+	/**
+	 * Removes the timer that is equal to the given timer, if there is one.
+	 *
+	 * @return true if a timer was removed.
+	 */
+	boolean remove(InternalTimer<K, N> timer) {
+		final Map<InternalTimer<K, N>, InternalTimer<K, N>> deduplicationMap = getDeduplicationMapForTimer(timer);
+		final InternalTimer<K, N> queuedTimer = deduplicationMap.remove(timer);
+		if (queuedTimer == null) {
+			return false;
+		}
+
+		removeAtIndex(queuedTimer.getTimerHeapIndex());
+		return true;
+	}
+
+	/**
+	 * Returns the timer with the smallest timestamp, or null if the queue is empty.
+	 */
+	InternalTimer<K, N> peek() {
+		return size > 0 ? queue[QUEUE_HEAD_INDEX] : null;
+	}
+
+	/**
+	 * Removes and returns the timer with the smallest timestamp, or null if the queue is empty.
+	 */
+	InternalTimer<K, N> poll() {
+		if (size == 0) {
+			return null;
+		}
+
+		final InternalTimer<K, N> head = queue[QUEUE_HEAD_INDEX];
+		getDeduplicationMapForTimer(head).remove(head);
+		removeAtIndex(QUEUE_HEAD_INDEX);
+		return head;
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns the timers of the given key-group, or null if no timer of the key-group was ever added.
+	 */
+	Set<InternalTimer<K, N>> getTimersForKeyGroup(int keyGroupIdx) {
+		final Map<InternalTimer<K, N>, InternalTimer<K, N>> deduplicationMap =
+			deduplicationMapsByKeyGroup[getIndexForKeyGroup(keyGroupIdx)];
+		return deduplicationMap != null ? deduplicationMap.keySet() : null;
+	}
+
+	/**
+	 * Returns the timers of each key-group, indexed by the local position of the key-group. The set of a
+	 * key-group is null if no timer of the key-group was ever added.
+	 */
+	@SuppressWarnings("unchecked")
+	Set<InternalTimer<K, N>>[] getTimersByKeyGroup() {
+		final Set<InternalTimer<K, N>>[] timers = new Set[deduplicationMapsByKeyGroup.length];
+		for (int i = 0; i < timers.length; i++) {
+			if (deduplicationMapsByKeyGroup[i] != null) {
+				timers[i] = deduplicationMapsByKeyGroup[i].keySet();
+			}
+		}
+		return timers;
+	}
+
+	int getLocalKeyGroupRangeStartIdx() {
+		return localKeyGroupRangeStartIdx;
+	}
+
+	/**
+	 * Iterates over the timers in no particular order. The queue must not be modified while iterating.
+	 */
+	@Override
+	public Iterator<InternalTimer<K, N>> iterator() {
+		return new Iterator<InternalTimer<K, N>>() {
+
+			private int index = QUEUE_HEAD_INDEX;
+
+			@Override
+			public boolean hasNext() {
+				return index < QUEUE_HEAD_INDEX + size;
+			}
+
+			@Override
+			public InternalTimer<K, N> next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return queue[index++];
+			}
+		};
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void removeAtIndex(int index) {
+		final int lastIndex = QUEUE_HEAD_INDEX + size - 1;
+		final InternalTimer<K, N> removed = queue[index];
+		removed.setTimerHeapIndex(InternalTimer.NOT_CONTAINED);
+
+		final InternalTimer<K, N> last = queue[lastIndex];
+		queue[lastIndex] = null;
+		--size;
+
+		if (index != lastIndex) {
+			moveToIndex(last, index);
+			if (!siftUp(index)) {
+				siftDown(index);
+			}
+		}
+	}
+
+	/**
+	 * Moves the timer at the given index up, until its parent is not later than itself.
+	 *
+	 * @return true if the timer was moved.
+	 */
+	private boolean siftUp(int index) {
+		final InternalTimer<K, N> timer = queue[index];
+		final long timestamp = timer.getTimestamp();
+		int currentIndex = index;
+
+		int parentIndex = currentIndex >>> 1;
+		while (parentIndex >= QUEUE_HEAD_INDEX && queue[parentIndex].getTimestamp() > timestamp) {
+			moveToIndex(queue[parentIndex], currentIndex);
+			currentIndex = parentIndex;
+			parentIndex = currentIndex >>> 1;
+		}
+
+		moveToIndex(timer, currentIndex);
+		return currentIndex != index;
+	}
+
+	private void siftDown(int index) {
+		final InternalTimer<K, N> timer = queue[index];
+		final long timestamp = timer.getTimestamp();
+		final int lastIndex = QUEUE_HEAD_INDEX + size - 1;
+		int currentIndex = index;
+
+		int childIndex = currentIndex << 1;
+		while (childIndex <= lastIndex) {
+			if (childIndex < lastIndex && queue[childIndex + 1].getTimestamp() < queue[childIndex].getTimestamp()) {
+				++childIndex;
+			}
+
+			if (queue[childIndex].getTimestamp() >= timestamp) {
+				break;
+			}
+
+			moveToIndex(queue[childIndex], currentIndex);
+			currentIndex = childIndex;
+			childIndex = currentIndex << 1;
+		}
+
+		moveToIndex(timer, currentIndex);
+	}
+
+	private void moveToIndex(InternalTimer<K, N> timer, int index) {
+		queue[index] = timer;
+		timer.setTimerHeapIndex(index);
+	}
+
+	private Map<InternalTimer<K, N>, InternalTimer<K, N>> getDeduplicationMapForTimer(InternalTimer<K, N> timer) {
+		final int keyGroupIdx = KeyGroupRangeAssignment.assignToKeyGroup(timer.getKey(), totalKeyGroups);
+		final int localIdx = getIndexForKeyGroup(keyGroupIdx);
+
+		Map<InternalTimer<K, N>, InternalTimer<K, N>> deduplicationMap = deduplicationMapsByKeyGroup[localIdx];
+		if (deduplicationMap == null) {
+			deduplicationMap = new HashMap<>();
+			deduplicationMapsByKeyGroup[localIdx] = deduplicationMap;
+		}
+		return deduplicationMap;
+	}
+
+	/**
+	 * Computes the index of the requested key-group in the local datastructures.
+	 *
+	 * <p>Currently we assume that each task is assigned a continuous range of key-groups,
+	 * e.g. 1,2,3,4, and not 1,3,5. We leverage this to keep the timers by key-group in
+	 * arrays instead of maps, where the offset for each key-group is the key-group id
+	 * minus the id of the first key-group in the local range.
+	 */
+	private int getIndexForKeyGroup(int keyGroupIdx) {
+		checkArgument(localKeyGroupRange.contains(keyGroupIdx),
+			"Key Group " + keyGroupIdx + " does not belong to the local range.");
+		return keyGroupIdx - localKeyGroupRangeStartIdx;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.KeyGroupsList;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
+
+/**
+ * Factory for the timer services of keyed operators. Keyed state backends implement this
+ * interface to store the timers of the operators in the backend, rather than in a
+ * {@link HeapInternalTimerService}.
+ *
+ * @param <K> The type of keys used for the timers.
+ */
+@Internal
+public interface InternalTimerServiceFactory<K> {
+
+	/**
+	 * Creates a new timer service.
+	 *
+	 * @param name The name of the timer service, which is unique within the operator.
+	 * @param totalKeyGroups The total number of key-groups.
+	 * @param localKeyGroupRange The key-groups of the operator.
+	 * @param keyContext The key context that scopes the timers.
+	 * @param processingTimeService The service that triggers processing time timers.
+	 * @param <N> The type of namespace used for the timers.
+	 */
+	<N> ManagedInternalTimerService<K, N> createInternalTimerService(
+		String name,
+		int totalKeyGroups,
+		KeyGroupsList localKeyGroupRange,
+		KeyContext keyContext,
+		ProcessingTimeService processingTimeService);
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+
+import java.io.IOException;
+
+/**
+ * An {@link InternalTimerService} that is managed by the {@link InternalTimeServiceManager} of a
+ * keyed operator, which starts the service, advances its event time, and takes part in its
+ * snapshots.
+ *
+ * @param <K> The type of keys used for the timers.
+ * @param <N> The type of namespace used for the timers.
+ */
+@Internal
+public interface ManagedInternalTimerService<K, N> extends InternalTimerService<N> {
+
+	/**
+	 * Starts the timer service with the serializers for the timers and the {@link Triggerable}
+	 * to invoke when timers fire. This method can be called multiple times, as long as it is
+	 * called with the same serializers.
+	 */
+	void startTimerService(
+		TypeSerializer<K> keySerializer,
+		TypeSerializer<N> namespaceSerializer,
+		Triggerable<K, N> triggerTarget);
+
+	/**
+	 * Advances the event time of the service and fires all event time timers up to the given time.
+	 */
+	void advanceWatermark(long time) throws Exception;
+
+	/**
+	 * Returns whether the timers are stored in the keyed state backend and are thus part of its
+	 * snapshots. The timers of such services are not written by
+	 * {@link #snapshotTimersForKeyGroup(DataOutputViewStreamWrapper, int)}.
+	 */
+	boolean isStoredInKeyedStateBackend();
+
+	/**
+	 * Snapshots the timers (both processing and event time ones) for a given {@code keyGroupIdx}.
+	 */
+	void snapshotTimersForKeyGroup(DataOutputViewStreamWrapper stream, int keyGroupIdx) throws Exception;
+
+	/**
+	 * Restores the timers (both processing and event time ones) for a given {@code keyGroupIdx},
+	 * as written by {@link #snapshotTimersForKeyGroup(DataOutputViewStreamWrapper, int)}.
+	 */
+	void restoreTimersForKeyGroup(
+		DataInputViewStreamWrapper stream,
+		int keyGroupIdx,
+		ClassLoader userCodeClassLoader) throws IOException, ClassNotFoundException;
+
+	int numProcessingTimeTimers();
+
+	int numEventTimeTimers();
+}
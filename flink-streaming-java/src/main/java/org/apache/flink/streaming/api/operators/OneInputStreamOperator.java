@@ -23,6 +23,8 @@ import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import java.util.List;
+
 /**
  * Interface for stream operators with one input. Use
  * {@link org.apache.flink.streaming.api.operators.AbstractStreamOperator} as a base class if
@@ -40,6 +42,24 @@ public interface OneInputStreamOperator<IN, OUT> extends StreamOperator<OUT> {
 	 */
 	void processElement(StreamRecord<IN> element) throws Exception;
 
+	/**
+	 * Processes a run of consecutive elements that arrived at this operator, for example all
+	 * records deserialized from one network buffer. No watermark, latency marker or other message
+	 * arrived in between the elements.
+	 *
+	 * <p>The default implementation sets the key context for and processes each element one after
+	 * the other. Operators may override this with a tight loop over the elements, which then also
+	 * has to set the key context via {@link #setKeyContextElement1(StreamRecord)}. The operator
+	 * may modify both the list and the elements; the caller does not access them afterwards.
+	 * This method is guaranteed to not be called concurrently with other methods of the operator.
+	 */
+	default void processBatch(List<StreamRecord<IN>> elements) throws Exception {
+		for (StreamRecord<IN> element : elements) {
+			setKeyContextElement1(element);
+			processElement(element);
+		}
+	}
+
 	/**
 	 * Processes a {@link Watermark}.
 	 * This method is guaranteed to not be called concurrently with other methods of the operator.
@@ -25,6 +25,8 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.util.Collector;
 import org.apache.flink.util.OutputTag;
 
+import java.util.List;
+
 /**
  * A {@link org.apache.flink.streaming.api.operators.StreamOperator} is supplied with an object
  * of this interface that can be used to emit elements and other messages, such as barriers
@@ -51,5 +53,21 @@ public interface Output<T> extends Collector<T> {
 	 */
 	<X> void collect(OutputTag<X> outputTag, StreamRecord<X> record);
 
+	/**
+	 * Emits a run of consecutive records. Outputs that pass records to a chained operator may hand
+	 * them over as one batch (see {@link OneInputStreamOperator#processBatch(List)}), while the
+	 * default implementation collects the records one after the other.
+	 *
+	 * <p>The list and the records may be modified by the receiver and must not be accessed after
+	 * this call.
+	 *
+	 * @param records The records to collect.
+	 */
+	default void collectBatch(List<T> records) {
+		for (T record : records) {
+			collect(record);
+		}
+	}
+
 	void emitLatencyMarker(LatencyMarker latencyMarker);
 }
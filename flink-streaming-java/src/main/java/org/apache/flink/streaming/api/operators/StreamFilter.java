@@ -21,6 +21,8 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.functions.FilterFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import java.util.List;
+
 /**
  * A {@link StreamOperator} for executing {@link FilterFunction FilterFunctions}.
  */
@@ -40,4 +42,25 @@ public class StreamFilter<IN> extends AbstractUdfStreamOperator<IN, FilterFuncti
 			output.collect(element);
 		}
 	}
+
+	@Override
+	public void processBatch(List<StreamRecord<IN>> elements) throws Exception {
+		// move the retained records to the front of the list and pass them on as one batch
+		final int numElements = elements.size();
+		int numRetained = 0;
+
+		for (int i = 0; i < numElements; i++) {
+			StreamRecord<IN> element = elements.get(i);
+			setKeyContextElement1(element);
+			if (userFunction.filter(element.getValue())) {
+				elements.set(numRetained++, element);
+			}
+		}
+
+		if (numRetained == numElements) {
+			output.collectBatch(elements);
+		} else if (numRetained > 0) {
+			output.collectBatch(elements.subList(0, numRetained));
+		}
+	}
 }
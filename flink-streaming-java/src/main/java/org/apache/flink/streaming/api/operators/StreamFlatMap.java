@@ -21,6 +21,8 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.functions.FlatMapFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import java.util.List;
+
 /**
  * A {@link StreamOperator} for executing {@link FlatMapFunction FlatMapFunctions}.
  */
@@ -49,4 +51,13 @@ public class StreamFlatMap<IN, OUT>
 		collector.setTimestamp(element);
 		userFunction.flatMap(element.getValue(), collector);
 	}
+
+	@Override
+	public void processBatch(List<StreamRecord<IN>> elements) throws Exception {
+		for (StreamRecord<IN> element : elements) {
+			setKeyContextElement1(element);
+			collector.setTimestamp(element);
+			userFunction.flatMap(element.getValue(), collector);
+		}
+	}
 }
@@ -21,6 +21,8 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import java.util.List;
+
 /**
  * A {@link StreamOperator} for executing {@link MapFunction MapFunctions}.
  */
@@ -40,4 +42,15 @@ public class StreamMap<IN, OUT>
 	public void processElement(StreamRecord<IN> element) throws Exception {
 		output.collect(element.replace(userFunction.map(element.getValue())));
 	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processBatch(List<StreamRecord<IN>> elements) throws Exception {
+		// the records are replaced in place, which allows to pass on the batch as a whole
+		for (StreamRecord<IN> element : elements) {
+			setKeyContextElement1(element);
+			element.replace(userFunction.map(element.getValue()));
+		}
+		output.collectBatch((List<StreamRecord<OUT>>) (List<?>) elements);
+	}
 }
@@ -96,6 +96,9 @@ public class AsyncWaitOperator<IN, OUT>
 	/** {@link TypeSerializer} for inputs while making snapshots. */
 	private transient StreamElementSerializer<IN> inStreamElementSerializer;
 
+	/** Whether the input records may be reused by the caller and have to be copied. */
+	private transient boolean isObjectReuseEnabled;
+
 	/** Recovered input stream elements. */
 	private transient ListState<StreamElement> recoveredStreamElements;
 
@@ -138,6 +141,8 @@ public class AsyncWaitOperator<IN, OUT>
 		this.inStreamElementSerializer = new StreamElementSerializer<>(
 			getOperatorConfig().<IN>getTypeSerializerIn1(getUserCodeClassloader()));
 
+		this.isObjectReuseEnabled = getExecutionConfig().isObjectReuseEnabled();
+
 		// create the operators executor for the complete operations of the queue entries
 		this.executor = Executors.newSingleThreadExecutor();
 
@@ -197,7 +202,12 @@ public class AsyncWaitOperator<IN, OUT>
 	}
 
 	@Override
-	public void processElement(StreamRecord<IN> element) throws Exception {
+	public void processElement(StreamRecord<IN> record) throws Exception {
+		// the record is kept until the async result has been emitted
+		final StreamRecord<IN> element = isObjectReuseEnabled
+			? inStreamElementSerializer.copy(record).<IN>asRecord()
+			: record;
+
 		final StreamRecordQueueEntry<OUT> streamRecordBufferEntry = new StreamRecordQueueEntry<>(element);
 
 		if (timeout > 0L) {
@@ -31,15 +31,21 @@ import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.io.network.partition.consumer.UnionInputGate;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.Collection;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * The barrier buffer is {@link CheckpointBarrierHandler} that blocks inputs with barriers until
@@ -63,14 +69,14 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	/** The total number of channels that this buffer handles data from. */
 	private final int totalNumberOfInputChannels;
 
-	/** To utility to write blocked data to a file channel. */
-	private final BufferSpiller bufferSpiller;
+	/** To utility to store the data of blocked channels. */
+	private final BufferBlocker bufferBlocker;
 
 	/**
 	 * The pending blocked buffer/event sequences. Must be consumed before requesting further data
 	 * from the input gate.
 	 */
-	private final ArrayDeque<BufferSpiller.SpilledBufferOrEventSequence> queuedBuffered;
+	private final ArrayDeque<BufferOrEventSequence> queuedBuffered;
 
 	/**
 	 * The maximum number of bytes that may be buffered before an alignment is broken. -1 means
@@ -82,7 +88,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	 * The sequence of buffers/events that has been unblocked and must now be consumed before
 	 * requesting further data from the input gate.
 	 */
-	private BufferSpiller.SpilledBufferOrEventSequence currentBuffered;
+	private BufferOrEventSequence currentBuffered;
 
 	/** Handler that receives the checkpoint notifications. */
 	private StatefulTask toNotifyOnCheckpoint;
@@ -99,7 +105,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	/** The number of already closed channels. */
 	private int numClosedChannels;
 
-	/** The number of bytes in the queued spilled sequences. */
+	/** The number of bytes in the queued blocked sequences. */
 	private long numQueuedBytes;
 
 	/** The timestamp as in {@link System#nanoTime()} at which the last alignment started. */
@@ -111,6 +117,12 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	/** Flag to indicate whether we have drawn all available input. */
 	private boolean endOfStream;
 
+	/** The input gates selected for reading or null to read from all input gates. */
+	private Collection<InputGate> selectedInputGates;
+
+	/** The selection currently set on the input gate, which is lifted while aligning barriers. */
+	private Collection<InputGate> appliedInputGateSelection;
+
 	/**
 	 * Creates a new checkpoint stream aligner.
 	 *
@@ -132,6 +144,8 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	 * When that number is exceeded, it will stop the alignment and notify the task that the
 	 * checkpoint has been cancelled.
 	 *
+	 * <p>All blocked data is spilled to temp files via a {@link BufferSpiller}.
+	 *
 	 * @param inputGate The input gate to draw the buffers and events from.
 	 * @param ioManager The I/O manager that gives access to the temp directories.
 	 * @param maxBufferedBytes The maximum bytes to be buffered before the checkpoint aborts.
@@ -139,6 +153,36 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	 * @throws IOException Thrown, when the spilling to temp files cannot be initialized.
 	 */
 	public BarrierBuffer(InputGate inputGate, IOManager ioManager, long maxBufferedBytes) throws IOException {
+		this(inputGate, new BufferSpiller(ioManager, inputGate.getPageSize()), maxBufferedBytes);
+	}
+
+	/**
+	 * Creates a new checkpoint stream aligner, which keeps up to the given number of bytes of
+	 * blocked data in memory and spills the rest block-compressed to temp files.
+	 *
+	 * @param inputGate The input gate to draw the buffers and events from.
+	 * @param ioManager The I/O manager that gives access to the temp directories.
+	 * @param maxBufferedBytes The maximum bytes to be buffered before the checkpoint aborts.
+	 * @param maxCachedBytes The maximum bytes to be buffered in memory before spilling.
+	 */
+	public BarrierBuffer(InputGate inputGate, IOManager ioManager, long maxBufferedBytes, long maxCachedBytes) {
+		this(inputGate,
+			new CachedBufferBlocker(
+				inputGate.getPageSize(),
+				maxCachedBytes,
+				new CompressedBufferSpiller(ioManager, inputGate.getPageSize())),
+			maxBufferedBytes);
+	}
+
+	/**
+	 * Creates a new checkpoint stream aligner, which stores the data of blocked channels in the
+	 * given buffer blocker.
+	 *
+	 * @param inputGate The input gate to draw the buffers and events from.
+	 * @param bufferBlocker The buffer blocker to store the data of blocked channels in.
+	 * @param maxBufferedBytes The maximum bytes to be buffered before the checkpoint aborts.
+	 */
+	public BarrierBuffer(InputGate inputGate, BufferBlocker bufferBlocker, long maxBufferedBytes) {
 		checkArgument(maxBufferedBytes == -1 || maxBufferedBytes > 0);
 
 		this.inputGate = inputGate;
@@ -146,8 +190,8 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 		this.totalNumberOfInputChannels = inputGate.getNumberOfInputChannels();
 		this.blockedChannels = new boolean[this.totalNumberOfInputChannels];
 
-		this.bufferSpiller = new BufferSpiller(ioManager, inputGate.getPageSize());
-		this.queuedBuffered = new ArrayDeque<BufferSpiller.SpilledBufferOrEventSequence>();
+		this.bufferBlocker = checkNotNull(bufferBlocker);
+		this.queuedBuffered = new ArrayDeque<BufferOrEventSequence>();
 	}
 
 	// ------------------------------------------------------------------------
@@ -160,6 +204,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 			// process buffered BufferOrEvents before grabbing new ones
 			BufferOrEvent next;
 			if (currentBuffered == null) {
+				applyInputGateSelection();
 				next = inputGate.getNextBufferOrEvent();
 			}
 			else {
@@ -173,7 +218,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 			if (next != null) {
 				if (isBlocked(next.getChannelIndex())) {
 					// if the channel is blocked we, we just store the BufferOrEvent
-					bufferSpiller.add(next);
+					bufferBlocker.add(next);
 					checkSizeLimit();
 				}
 				else if (next.isBuffer()) {
@@ -208,6 +253,19 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 		}
 	}
 
+	/**
+	 * Sets the selected input gates on the input gate, unless barriers are being aligned. All
+	 * channels have to be read during an alignment, because the barriers of the channels that
+	 * are not selected would never be received otherwise.
+	 */
+	private void applyInputGateSelection() {
+		final Collection<InputGate> selection = numBarriersReceived == 0 ? selectedInputGates : null;
+		if (selection != appliedInputGateSelection) {
+			appliedInputGateSelection = selection;
+			((UnionInputGate) inputGate).selectInputGates(selection);
+		}
+	}
+
 	private void completeBufferedSequence() throws IOException {
 		LOG.debug("Finished feeding back buffered data");
 
@@ -395,7 +453,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 	}
 
 	private void checkSizeLimit() throws Exception {
-		if (maxBufferedBytes > 0 && (numQueuedBytes + bufferSpiller.getBytesWritten()) > maxBufferedBytes) {
+		if (maxBufferedBytes > 0 && (numQueuedBytes + bufferBlocker.getBytesBlocked()) > maxBufferedBytes) {
 			// exceeded our limit - abort this checkpoint
 			LOG.info("Checkpoint {} aborted because alignment volume limit ({} bytes) exceeded",
 					currentCheckpointId, maxBufferedBytes);
@@ -415,6 +473,12 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 		}
 	}
 
+	@Override
+	public void selectInputGates(@Nullable Collection<InputGate> inputGates) {
+		checkState(inputGate instanceof UnionInputGate, "Input selection requires a union input gate.");
+		this.selectedInputGates = inputGates;
+	}
+
 	@Override
 	public boolean isEmpty() {
 		return currentBuffered == null;
@@ -422,11 +486,11 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 
 	@Override
 	public void cleanup() throws IOException {
-		bufferSpiller.close();
+		bufferBlocker.close();
 		if (currentBuffered != null) {
 			currentBuffered.cleanup();
 		}
-		for (BufferSpiller.SpilledBufferOrEventSequence seq : queuedBuffered) {
+		for (BufferOrEventSequence seq : queuedBuffered) {
 			seq.cleanup();
 		}
 		queuedBuffered.clear();
@@ -487,7 +551,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 
 		if (currentBuffered == null) {
 			// common case: no more buffered data
-			currentBuffered = bufferSpiller.rollOver();
+			currentBuffered = bufferBlocker.rollOverReusingResources();
 			if (currentBuffered != null) {
 				currentBuffered.open();
 			}
@@ -499,7 +563,7 @@ public class BarrierBuffer implements CheckpointBarrierHandler {
 					"Pushing back current alignment buffers and feeding back new alignment data first.");
 
 			// since we did not fully drain the previous sequence, we need to allocate a new buffer for this one
-			BufferSpiller.SpilledBufferOrEventSequence bufferedNow = bufferSpiller.rollOverWithNewBuffer();
+			BufferOrEventSequence bufferedNow = bufferBlocker.rollOverWithoutReusingResources();
 			if (bufferedNow != null) {
 				bufferedNow.open();
 				queuedBuffered.addFirst(currentBuffered);
@@ -27,12 +27,18 @@ import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.io.network.partition.consumer.UnionInputGate;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayDeque;
+import java.util.Collection;
+
+import static org.apache.flink.util.Preconditions.checkState;
 
 /**
  * The BarrierTracker keeps track of what checkpoint barriers have been received from
@@ -118,6 +124,13 @@ public class BarrierTracker implements CheckpointBarrierHandler {
 		}
 	}
 
+	@Override
+	public void selectInputGates(@Nullable Collection<InputGate> inputGates) {
+		// barriers are not aligned, so the selection can be applied to the input gate right away
+		checkState(inputGate instanceof UnionInputGate, "Input selection requires a union input gate.");
+		((UnionInputGate) inputGate).selectInputGates(inputGates);
+	}
+
 	@Override
 	public void cleanup() {
 		pendingCheckpoints.clear();
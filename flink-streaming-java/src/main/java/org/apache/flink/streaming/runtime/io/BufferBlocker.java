@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+
+import java.io.IOException;
+
+/**
+ * The buffer blocker takes the buffers and events from a data stream and holds them until they
+ * are requested as a readable {@link BufferOrEventSequence}. It is used by the
+ * {@link BarrierBuffer} to store the data of blocked channels during a checkpoint alignment.
+ *
+ * <p>After a number of elements have been added, the blocker can "roll over": It presents the
+ * added elements as a readable sequence and starts a new one.
+ */
+@Internal
+public interface BufferBlocker {
+
+	/**
+	 * Adds a buffer or event to the blocked sequence. The blocker takes over the buffer, i.e. it
+	 * is responsible for recycling it.
+	 *
+	 * @param boe The buffer or event to add.
+	 * @throws IOException Thrown, if the buffer or event could not be stored.
+	 */
+	void add(BufferOrEvent boe) throws IOException;
+
+	/**
+	 * Starts a new sequence of blocked buffers and events and returns the current sequence for
+	 * reading. This method returns {@code null}, if nothing was added since the creation of the
+	 * blocker, or the last call to this method.
+	 *
+	 * <p>The sequences returned by this method may share reading resources and can consequently
+	 * not be read concurrently with each other.
+	 *
+	 * @return The readable sequence of blocked buffers and events, or 'null', if nothing was added.
+	 * @throws IOException Thrown, if the readable sequence could not be created.
+	 */
+	BufferOrEventSequence rollOverReusingResources() throws IOException;
+
+	/**
+	 * Starts a new sequence of blocked buffers and events and returns the current sequence for
+	 * reading. This method returns {@code null}, if nothing was added since the creation of the
+	 * blocker, or the last call to this method.
+	 *
+	 * <p>The sequence returned by this method is safe for concurrent consumption with any
+	 * previously returned sequence.
+	 *
+	 * @return The readable sequence of blocked buffers and events, or 'null', if nothing was added.
+	 * @throws IOException Thrown, if the readable sequence could not be created.
+	 */
+	BufferOrEventSequence rollOverWithoutReusingResources() throws IOException;
+
+	/**
+	 * Cleans up all resources of the current sequence.
+	 *
+	 * <p>Does not clean up the sequences returned by the roll over methods.
+	 *
+	 * @throws IOException Thrown, if the resources could not be released.
+	 */
+	void close() throws IOException;
+
+	/**
+	 * Gets the number of bytes blocked in the current sequence.
+	 *
+	 * @return the number of bytes blocked in the current sequence
+	 */
+	long getBytesBlocked();
+}
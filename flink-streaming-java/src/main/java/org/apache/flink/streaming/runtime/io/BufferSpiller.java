@@ -50,7 +50,7 @@ import java.util.concurrent.atomic.AtomicInteger;
  * reading memory (to reduce overhead) and can consequently not be read concurrently.</p>
  */
 @Internal
-public class BufferSpiller {
+public class BufferSpiller implements BufferBlocker {
 
 	/** Size of header in bytes (see add method). */
 	static final int HEADER_SIZE = 9;
@@ -126,6 +126,7 @@ public class BufferSpiller {
 	 * @param boe The buffer or event to add and spill.
 	 * @throws IOException Thrown, if the buffer of event could not be spilled.
 	 */
+	@Override
 	public void add(BufferOrEvent boe) throws IOException {
 		try {
 			ByteBuffer contents;
@@ -189,6 +190,16 @@ public class BufferSpiller {
 		return rollOverInternal(true);
 	}
 
+	@Override
+	public BufferOrEventSequence rollOverReusingResources() throws IOException {
+		return rollOver();
+	}
+
+	@Override
+	public BufferOrEventSequence rollOverWithoutReusingResources() throws IOException {
+		return rollOverWithNewBuffer();
+	}
+
 	private SpilledBufferOrEventSequence rollOverInternal(boolean newBuffer) throws IOException {
 		if (bytesWritten == 0) {
 			return null;
@@ -222,6 +233,7 @@ public class BufferSpiller {
 	 *
 	 * @throws IOException Thrown if channel closing or file deletion fail.
 	 */
+	@Override
 	public void close() throws IOException {
 		currentChannel.close();
 		if (!currentSpillFile.delete()) {
@@ -237,6 +249,11 @@ public class BufferSpiller {
 		return bytesWritten;
 	}
 
+	@Override
+	public long getBytesBlocked() {
+		return getBytesWritten();
+	}
+
 	// ------------------------------------------------------------------------
 	//  For testing
 	// ------------------------------------------------------------------------
@@ -266,7 +283,7 @@ public class BufferSpiller {
 	 * {@link BufferSpiller}. The sequence of buffers and events can be read back using the
 	 * method {@link #getNext()}.
 	 */
-	public static class SpilledBufferOrEventSequence {
+	public static class SpilledBufferOrEventSequence implements BufferOrEventSequence {
 
 		/** Header is "channel index" (4 bytes) + length (4 bytes) + buffer/event (1 byte). */
 		private static final int HEADER_LENGTH = 9;
@@ -311,6 +328,7 @@ public class BufferSpiller {
 		 * This method needs to be called before the first call to {@link #getNext()}. Otherwise
 		 * the results of {@link #getNext()} are not predictable.
 		 */
+		@Override
 		public void open() {
 			if (!opened) {
 				opened = true;
@@ -326,6 +344,7 @@ public class BufferSpiller {
 		 * @return The next BufferOrEvent from the spilled sequence, or {@code null} (end of sequence).
 		 * @throws IOException Thrown, if the reads failed, of if the byte stream is corrupt.
 		 */
+		@Override
 		public BufferOrEvent getNext() throws IOException {
 			if (buffer.remaining() < HEADER_LENGTH) {
 				buffer.compact();
@@ -417,6 +436,7 @@ public class BufferSpiller {
 		 *
 		 * @throws IOException Thrown, if file channel closing or file deletion fail.
 		 */
+		@Override
 		public void cleanup() throws IOException {
 			fileChannel.close();
 			if (!file.delete()) {
@@ -427,7 +447,8 @@ public class BufferSpiller {
 		/**
 		 * Gets the size of this spilled sequence.
 		 */
-		public long size() throws IOException {
+		@Override
+		public long size() {
 			return size;
 		}
 	}
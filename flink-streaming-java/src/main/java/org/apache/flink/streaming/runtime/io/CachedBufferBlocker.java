@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link BufferBlocker} that keeps the buffers and events in memory, as long as they fit into a
+ * bounded pool of memory segments, and hands them to a spilling {@link BufferBlocker} otherwise.
+ *
+ * <p>The contents of added buffers are copied into segments of the pool and the buffers are
+ * recycled right away. This way, the blocked data does not hold on to the network buffers of the
+ * input gate, which would otherwise stall the unblocked channels. The segments return to the pool
+ * once the buffers of the sequences have been consumed and recycled. Segments, which are not
+ * needed by a sequence once the blocker rolls over, are freed, so that the pool only holds memory
+ * while data is blocked.
+ *
+ * <p>Once the pool is exhausted, the remaining buffers and events of the current sequence are
+ * spilled, so that the order of the sequence is retained: the cached elements are followed by
+ * the spilled ones. The spilled part of a sequence is opened together with the sequence, which
+ * allows the spiller to prefetch its data while the cached part is consumed.
+ */
+@Internal
+public class CachedBufferBlocker implements BufferBlocker {
+
+	/** The size of the segments of the pool. */
+	private final int pageSize;
+
+	/** The blocker to hand over the elements, which do not fit into the pool. */
+	private final BufferBlocker spiller;
+
+	/** The pool of memory segments to cache the buffers in. */
+	private final CachePool cachePool;
+
+	/** The cached elements of the current sequence. */
+	private ArrayDeque<BufferOrEvent> currentCached = new ArrayDeque<>();
+
+	/** The number of bytes cached in the current sequence. */
+	private long bytesCached;
+
+	/** Flag indicating whether the current sequence has started spilling. */
+	private boolean isSpilling;
+
+	/**
+	 * Creates a new buffer blocker.
+	 *
+	 * @param pageSize The page size of the added buffers.
+	 * @param maxCachedBytes The maximum number of bytes to cache in memory.
+	 * @param spiller The blocker to hand over the elements to, which exceed the memory.
+	 */
+	public CachedBufferBlocker(int pageSize, long maxCachedBytes, BufferBlocker spiller) {
+		checkArgument(pageSize > 0);
+		checkArgument(maxCachedBytes >= 0);
+
+		this.pageSize = pageSize;
+		this.spiller = checkNotNull(spiller);
+		this.cachePool = new CachePool(pageSize, (int) Math.min(Integer.MAX_VALUE, maxCachedBytes / pageSize));
+	}
+
+	@Override
+	public void add(BufferOrEvent boe) throws IOException {
+		if (!isSpilling) {
+			if (boe.isBuffer()) {
+				MemorySegment segment = cachePool.requestSegment();
+				if (segment != null) {
+					currentCached.add(copy(boe, segment));
+					return;
+				}
+
+				// the pool is exhausted: keep the order by spilling the rest of this sequence
+				isSpilling = true;
+			}
+			else {
+				currentCached.add(boe);
+				bytesCached += BufferSpiller.HEADER_SIZE + EventSerializer.toSerializedEvent(boe.getEvent()).remaining();
+				return;
+			}
+		}
+
+		spiller.add(boe);
+	}
+
+	private BufferOrEvent copy(BufferOrEvent boe, MemorySegment segment) {
+		final Buffer buffer = boe.getBuffer();
+
+		try {
+			final int size = buffer.getSize();
+			checkArgument(size <= pageSize, "Buffer is larger than the page size.");
+
+			buffer.getMemorySegment().copyTo(0, segment, 0, size);
+
+			Buffer cached = new Buffer(segment, cachePool);
+			cached.setSize(size);
+
+			bytesCached += BufferSpiller.HEADER_SIZE + size;
+
+			return new BufferOrEvent(cached, boe.getChannelIndex());
+		}
+		finally {
+			buffer.recycle();
+		}
+	}
+
+	@Override
+	public BufferOrEventSequence rollOverReusingResources() throws IOException {
+		return rollOver(true);
+	}
+
+	@Override
+	public BufferOrEventSequence rollOverWithoutReusingResources() throws IOException {
+		return rollOver(false);
+	}
+
+	private BufferOrEventSequence rollOver(boolean reuseResources) throws IOException {
+		final BufferOrEventSequence spilled = reuseResources
+			? spiller.rollOverReusingResources()
+			: spiller.rollOverWithoutReusingResources();
+
+		// the alignment is over: free the segments, which are no longer needed
+		cachePool.releaseIdleSegments();
+
+		if (currentCached.isEmpty() && spilled == null) {
+			return null;
+		}
+
+		CachedBufferOrEventSequence sequence = new CachedBufferOrEventSequence(currentCached, bytesCached, spilled);
+
+		currentCached = new ArrayDeque<>();
+		bytesCached = 0L;
+		isSpilling = false;
+
+		return sequence;
+	}
+
+	/**
+	 * Releases the elements of the current sequence and the spiller. Segments of the pool, which
+	 * are still in use by the returned sequences, are freed when they are recycled.
+	 *
+	 * <p>Does not clean up the sequences returned by the roll over methods.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			recycleAll(currentCached);
+			bytesCached = 0L;
+			cachePool.destroy();
+		}
+		finally {
+			spiller.close();
+		}
+	}
+
+	@Override
+	public long getBytesBlocked() {
+		return bytesCached + spiller.getBytesBlocked();
+	}
+
+	// ------------------------------------------------------------------------
+	//  For testing
+	// ------------------------------------------------------------------------
+
+	int getNumberOfAvailableSegments() {
+		return cachePool.getNumberOfAvailableSegments();
+	}
+
+	int getNumberOfAllocatedSegments() {
+		return cachePool.getNumberOfAllocatedSegments();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private static void recycleAll(ArrayDeque<BufferOrEvent> cached) {
+		BufferOrEvent boe;
+		while ((boe = cached.poll()) != null) {
+			if (boe.isBuffer()) {
+				boe.getBuffer().recycle();
+			}
+		}
+	}
+
+	/**
+	 * The bounded pool of memory segments to cache buffers in. The segments are allocated lazily
+	 * and freed once the pool becomes idle.
+	 */
+	private static final class CachePool implements BufferRecycler {
+
+		private final int segmentSize;
+
+		private final int maxNumberOfSegments;
+
+		private final ArrayDeque<MemorySegment> availableSegments = new ArrayDeque<>();
+
+		private int numberOfAllocatedSegments;
+
+		/** Flag indicating whether recycled segments are freed instead of being kept for reuse. */
+		private boolean isIdle;
+
+		private boolean isDestroyed;
+
+		CachePool(int segmentSize, int maxNumberOfSegments) {
+			this.segmentSize = segmentSize;
+			this.maxNumberOfSegments = maxNumberOfSegments;
+		}
+
+		/**
+		 * Returns an available segment of the pool or null, if the pool is exhausted.
+		 */
+		synchronized MemorySegment requestSegment() {
+			if (isDestroyed) {
+				return null;
+			}
+
+			isIdle = false;
+
+			MemorySegment segment = availableSegments.poll();
+			if (segment == null && numberOfAllocatedSegments < maxNumberOfSegments) {
+				segment = MemorySegmentFactory.allocateUnpooledSegment(segmentSize);
+				numberOfAllocatedSegments++;
+			}
+			return segment;
+		}
+
+		@Override
+		public synchronized void recycle(MemorySegment segment) {
+			if (isDestroyed) {
+				segment.free();
+			}
+			else if (isIdle) {
+				segment.free();
+				numberOfAllocatedSegments--;
+			}
+			else {
+				availableSegments.add(segment);
+			}
+		}
+
+		/**
+		 * Frees the available segments. Segments, which are recycled afterwards, are freed as
+		 * well, until the next segment is requested.
+		 */
+		synchronized void releaseIdleSegments() {
+			isIdle = true;
+
+			MemorySegment segment;
+			while ((segment = availableSegments.poll()) != null) {
+				segment.free();
+				numberOfAllocatedSegments--;
+			}
+		}
+
+		synchronized void destroy() {
+			isDestroyed = true;
+
+			MemorySegment segment;
+			while ((segment = availableSegments.poll()) != null) {
+				segment.free();
+			}
+		}
+
+		synchronized int getNumberOfAvailableSegments() {
+			return isDestroyed ? 0 : availableSegments.size() + maxNumberOfSegments - numberOfAllocatedSegments;
+		}
+
+		synchronized int getNumberOfAllocatedSegments() {
+			return numberOfAllocatedSegments;
+		}
+	}
+
+	/**
+	 * A sequence of the cached buffers and events, followed by the spilled ones, if any.
+	 */
+	static final class CachedBufferOrEventSequence implements BufferOrEventSequence {
+
+		/** The cached elements, which have not been returned yet. */
+		private final ArrayDeque<BufferOrEvent> cached;
+
+		/** The number of cached bytes. */
+		private final long cachedSize;
+
+		/** The spilled elements following the cached ones, or null, if nothing was spilled. */
+		private final BufferOrEventSequence spilled;
+
+		CachedBufferOrEventSequence(ArrayDeque<BufferOrEvent> cached, long cachedSize, BufferOrEventSequence spilled) {
+			this.cached = cached;
+			this.cachedSize = cachedSize;
+			this.spilled = spilled;
+		}
+
+		@Override
+		public void open() throws IOException {
+			if (spilled != null) {
+				// starts prefetching the spilled data while the cached data is consumed
+				spilled.open();
+			}
+		}
+
+		@Override
+		public BufferOrEvent getNext() throws IOException {
+			BufferOrEvent next = cached.poll();
+			if (next == null && spilled != null) {
+				next = spilled.getNext();
+			}
+			return next;
+		}
+
+		@Override
+		public void cleanup() throws IOException {
+			recycleAll(cached);
+
+			if (spilled != null) {
+				spilled.cleanup();
+			}
+		}
+
+		@Override
+		public long size() {
+			return cachedSize + (spilled != null ? spilled.size() : 0L);
+		}
+	}
+}
@@ -20,9 +20,14 @@ package org.apache.flink.streaming.runtime.io;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
+import org.apache.flink.runtime.io.network.partition.consumer.UnionInputGate;
 import org.apache.flink.runtime.jobgraph.tasks.StatefulTask;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.Collection;
 
 /**
  * The CheckpointBarrierHandler reacts to checkpoint barrier arriving from the input channels.
@@ -48,6 +53,17 @@ public interface CheckpointBarrierHandler {
 	 */
 	BufferOrEvent getNextNonBlocked() throws Exception;
 
+	/**
+	 * Restricts reading new data to the given input gates of the {@link UnionInputGate}, which
+	 * this handler reads from. The handler may still return data of other input gates, if this
+	 * is necessary to complete a checkpoint.
+	 *
+	 * @param inputGates The input gates to read from or {@code null} to read from all input gates.
+	 *
+	 * @throws IllegalStateException Thrown if the handler does not read from a union input gate.
+	 */
+	void selectInputGates(@Nullable Collection<InputGate> inputGates);
+
 	/**
 	 * Registers the task be notified once all checkpoint barriers have been received for a checkpoint.
 	 *
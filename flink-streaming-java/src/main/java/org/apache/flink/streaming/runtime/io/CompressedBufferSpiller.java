@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.event.AbstractEvent;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelReader;
+import org.apache.flink.runtime.io.disk.iomanager.BlockChannelWriter;
+import org.apache.flink.runtime.io.disk.iomanager.ChannelReaderInputView;
+import org.apache.flink.runtime.io.disk.iomanager.ChannelWriterOutputView;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+
+import org.xerial.snappy.Snappy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A {@link BufferBlocker} that spills the buffers and events to block-compressed files of the
+ * {@link IOManager}.
+ *
+ * <p>Added buffers and events are collected in an uncompressed block of a few pages. Full blocks
+ * are compressed with snappy and written asynchronously via a {@link ChannelWriterOutputView}.
+ * Blocks, which do not compress, are written as they are. The sequences read the files back via a
+ * {@link ChannelReaderInputView}, which asynchronously prefetches the next pages while the
+ * current block is consumed.
+ *
+ * <p>The spill file of a sequence is only created once its first block is full, and deleted
+ * when the sequence is cleaned up.
+ *
+ * <p>IMPORTANT: The sequences created by {@link #rollOverReusingResources()} all reuse the same
+ * reading memory (to reduce overhead) and can consequently not be read concurrently.
+ */
+@Internal
+public class CompressedBufferSpiller implements BufferBlocker {
+
+	/** Size of the header of each buffer or event: channel index, length and buffer/event flag. */
+	static final int HEADER_SIZE = BufferSpiller.HEADER_SIZE;
+
+	/** The number of pages, which fit into a compression block. */
+	private static final int PAGES_PER_BLOCK = 4;
+
+	/** The number of memory segments used for writing, such that writing is asynchronous. */
+	private static final int NUM_WRITE_SEGMENTS = 2;
+
+	/** The number of memory segments used for reading, such that reading prefetches. */
+	private static final int NUM_READ_SEGMENTS = 4;
+
+	/** The I/O manager to create the spill files with. */
+	private final IOManager ioManager;
+
+	/** The page size, to create properly sized memory segments for the I/O and the read buffers. */
+	private final int pageSize;
+
+	/** The uncompressed block, which collects the added buffers and events. */
+	private final byte[] block;
+
+	/** A view on the block to write the headers. */
+	private final ByteBuffer blockHeaders;
+
+	/** The buffer to compress the block into. */
+	private final byte[] compressedBlock;
+
+	/** The resources shared by the sequences, which are created reusing resources. */
+	private final ReadResources sharedReadResources;
+
+	/** The memory used for writing. */
+	private List<MemorySegment> writeMemory;
+
+	/** The number of bytes in the current block. */
+	private int blockPosition;
+
+	/** The channel of the current sequence or null, if no block has been written yet. */
+	private FileIOChannel.ID currentChannel;
+
+	/** The writer of the current channel. */
+	private BlockChannelWriter<MemorySegment> currentWriter;
+
+	/** The output view to write the blocks with. */
+	private ChannelWriterOutputView currentOutput;
+
+	/** The number of (uncompressed) bytes added since the last roll over. */
+	private long bytesBlocked;
+
+	/**
+	 * Creates a new compressed buffer spiller, spilling to the I/O manager's temp directories.
+	 *
+	 * @param ioManager The I/O manager to create the spill files with.
+	 * @param pageSize The page size used to re-create spilled buffers.
+	 */
+	public CompressedBufferSpiller(IOManager ioManager, int pageSize) {
+		checkArgument(pageSize > 0);
+
+		this.ioManager = checkNotNull(ioManager);
+		this.pageSize = pageSize;
+
+		this.block = new byte[PAGES_PER_BLOCK * (pageSize + HEADER_SIZE)];
+		this.blockHeaders = ByteBuffer.wrap(block);
+		this.compressedBlock = new byte[Snappy.maxCompressedLength(block.length)];
+		this.sharedReadResources = new ReadResources(pageSize, block.length, compressedBlock.length);
+	}
+
+	@Override
+	public void add(BufferOrEvent boe) throws IOException {
+		try {
+			final int length;
+			if (boe.isBuffer()) {
+				Buffer buffer = boe.getBuffer();
+				length = buffer.getSize();
+				checkArgument(length <= pageSize, "Buffer is larger than the page size.");
+
+				ensureCapacity(length);
+				buffer.getMemorySegment().get(0, block, blockPosition + HEADER_SIZE, length);
+			}
+			else {
+				ByteBuffer event = EventSerializer.toSerializedEvent(boe.getEvent());
+				length = event.remaining();
+				if (length > block.length - HEADER_SIZE) {
+					throw new IOException("Event is too large");
+				}
+
+				ensureCapacity(length);
+				event.get(block, blockPosition + HEADER_SIZE, length);
+			}
+
+			blockHeaders.putInt(blockPosition, boe.getChannelIndex());
+			blockHeaders.putInt(blockPosition + 4, length);
+			blockHeaders.put(blockPosition + 8, (byte) (boe.isBuffer() ? 0 : 1));
+
+			blockPosition += HEADER_SIZE + length;
+			bytesBlocked += HEADER_SIZE + length;
+		}
+		finally {
+			if (boe.isBuffer()) {
+				boe.getBuffer().recycle();
+			}
+		}
+	}
+
+	private void ensureCapacity(int length) throws IOException {
+		if (blockPosition + HEADER_SIZE + length > block.length) {
+			writeBlock();
+		}
+	}
+
+	/**
+	 * Compresses the current block and hands it to the asynchronous writer.
+	 */
+	private void writeBlock() throws IOException {
+		if (blockPosition == 0) {
+			return;
+		}
+
+		if (currentOutput == null) {
+			if (writeMemory == null) {
+				writeMemory = allocateSegments(NUM_WRITE_SEGMENTS, pageSize);
+			}
+
+			currentChannel = ioManager.createChannel();
+			currentWriter = ioManager.createBlockChannelWriter(currentChannel);
+			currentOutput = new ChannelWriterOutputView(currentWriter, writeMemory, pageSize);
+		}
+
+		final int compressedLength = Snappy.compress(block, 0, blockPosition, compressedBlock, 0);
+
+		currentOutput.writeInt(blockPosition);
+		if (compressedLength < blockPosition) {
+			currentOutput.writeInt(compressedLength);
+			currentOutput.write(compressedBlock, 0, compressedLength);
+		}
+		else {
+			// does not compress, the equal length marks the block as uncompressed
+			currentOutput.writeInt(blockPosition);
+			currentOutput.write(block, 0, blockPosition);
+		}
+
+		blockPosition = 0;
+	}
+
+	@Override
+	public BufferOrEventSequence rollOverReusingResources() throws IOException {
+		return rollOver(sharedReadResources);
+	}
+
+	@Override
+	public BufferOrEventSequence rollOverWithoutReusingResources() throws IOException {
+		return rollOver(null);
+	}
+
+	private BufferOrEventSequence rollOver(ReadResources readResources) throws IOException {
+		if (bytesBlocked == 0) {
+			return null;
+		}
+
+		writeBlock();
+
+		final int numBlocks = currentOutput.getBlockCount();
+		writeMemory = currentOutput.close();
+
+		CompressedBufferOrEventSequence sequence = new CompressedBufferOrEventSequence(
+			ioManager, currentChannel, numBlocks, bytesBlocked, pageSize, block.length, readResources);
+
+		currentChannel = null;
+		currentWriter = null;
+		currentOutput = null;
+		bytesBlocked = 0L;
+
+		return sequence;
+	}
+
+	/**
+	 * Cleans up the current spill file, if any.
+	 *
+	 * <p>Does not clean up the sequences generated by the roll over methods.
+	 *
+	 * @throws IOException Thrown if the file could not be closed or deleted.
+	 */
+	@Override
+	public void close() throws IOException {
+		blockPosition = 0;
+		bytesBlocked = 0L;
+
+		if (currentWriter != null) {
+			try {
+				currentWriter.closeAndDelete();
+			}
+			finally {
+				currentChannel = null;
+				currentWriter = null;
+				currentOutput = null;
+			}
+		}
+	}
+
+	@Override
+	public long getBytesBlocked() {
+		return bytesBlocked;
+	}
+
+	// ------------------------------------------------------------------------
+	//  For testing
+	// ------------------------------------------------------------------------
+
+	FileIOChannel.ID getCurrentChannel() {
+		return currentChannel;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utilities
+	// ------------------------------------------------------------------------
+
+	private static List<MemorySegment> allocateSegments(int numSegments, int segmentSize) {
+		List<MemorySegment> segments = new ArrayList<>(numSegments);
+		for (int i = 0; i < numSegments; i++) {
+			segments.add(MemorySegmentFactory.allocateUnpooledSegment(segmentSize));
+		}
+		return segments;
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The memory used for reading a sequence back in.
+	 */
+	private static final class ReadResources {
+
+		/** The memory segments for the prefetching reader. */
+		List<MemorySegment> readMemory;
+
+		/** The buffer for the compressed block. */
+		final byte[] compressedBlock;
+
+		/** The buffer for the uncompressed block. */
+		final byte[] block;
+
+		ReadResources(int pageSize, int blockSize, int maxCompressedBlockSize) {
+			this.readMemory = allocateSegments(NUM_READ_SEGMENTS, pageSize);
+			this.compressedBlock = new byte[maxCompressedBlockSize];
+			this.block = new byte[blockSize];
+		}
+	}
+
+	/**
+	 * This class represents a sequence of spilled buffers and events, created by the
+	 * {@link CompressedBufferSpiller}. The reading prefetches the next pages of the file
+	 * asynchronously, starting with the call to {@link #open()}.
+	 */
+	static final class CompressedBufferOrEventSequence implements BufferOrEventSequence {
+
+		/** The I/O manager to read the file with. */
+		private final IOManager ioManager;
+
+		/** The channel containing the data. */
+		private final FileIOChannel.ID channel;
+
+		/** The number of I/O blocks of the file. */
+		private final int numBlocks;
+
+		/** The number of (uncompressed) bytes of the sequence. */
+		private final long size;
+
+		/** The page size to instantiate properly sized memory segments. */
+		private final int pageSize;
+
+		/** The size of the uncompressed blocks. */
+		private final int blockSize;
+
+		/** The resources to read with, or null, if they are created when the sequence is opened. */
+		private ReadResources readResources;
+
+		/** The reader of the file. Null, if the sequence is not opened. */
+		private BlockChannelReader<MemorySegment> reader;
+
+		/** The input view on the file. Null, if the sequence is not opened. */
+		private ChannelReaderInputView input;
+
+		/** A view on the current uncompressed block. */
+		private ByteBuffer currentBlock;
+
+		/** The number of bytes, which have not been returned yet. */
+		private long bytesRemaining;
+
+		private boolean cleanedUp;
+
+		CompressedBufferOrEventSequence(
+				IOManager ioManager,
+				FileIOChannel.ID channel,
+				int numBlocks,
+				long size,
+				int pageSize,
+				int blockSize,
+				ReadResources readResources) {
+
+			this.ioManager = ioManager;
+			this.channel = channel;
+			this.numBlocks = numBlocks;
+			this.size = size;
+			this.pageSize = pageSize;
+			this.blockSize = blockSize;
+			this.readResources = readResources;
+			this.bytesRemaining = size;
+		}
+
+		@Override
+		public void open() throws IOException {
+			if (reader == null) {
+				if (readResources == null) {
+					readResources = new ReadResources(
+						pageSize, blockSize, Snappy.maxCompressedLength(blockSize));
+				}
+
+				checkState(readResources.readMemory != null,
+					"The reading memory is in use by another sequence.");
+
+				reader = ioManager.createBlockChannelReader(channel);
+				input = new ChannelReaderInputView(reader, readResources.readMemory, numBlocks, false);
+				readResources.readMemory = null;
+			}
+		}
+
+		@Override
+		public BufferOrEvent getNext() throws IOException {
+			if (bytesRemaining == 0) {
+				return null;
+			}
+
+			if (currentBlock == null || !currentBlock.hasRemaining()) {
+				readBlock();
+			}
+
+			final int channel = currentBlock.getInt();
+			final int length = currentBlock.getInt();
+			final boolean isBuffer = currentBlock.get() == 0;
+
+			if (length > currentBlock.remaining()) {
+				throw new IOException("Found incomplete buffer or event");
+			}
+
+			bytesRemaining -= HEADER_SIZE + length;
+
+			if (isBuffer) {
+				if (length > pageSize) {
+					throw new IOException(String.format(
+							"Spilled buffer (%d bytes) is larger than page size of (%d bytes)", length, pageSize));
+				}
+
+				MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(pageSize);
+				segment.put(0, currentBlock.array(), currentBlock.position(), length);
+				currentBlock.position(currentBlock.position() + length);
+
+				Buffer buffer = new Buffer(segment, FreeingBufferRecycler.INSTANCE);
+				buffer.setSize(length);
+
+				return new BufferOrEvent(buffer, channel);
+			}
+			else {
+				int oldLimit = currentBlock.limit();
+				int end = currentBlock.position() + length;
+				currentBlock.limit(end);
+				AbstractEvent event = EventSerializer.fromSerializedEvent(currentBlock, getClass().getClassLoader());
+				currentBlock.limit(oldLimit);
+				currentBlock.position(end);
+
+				return new BufferOrEvent(event, channel);
+			}
+		}
+
+		private void readBlock() throws IOException {
+			if (input == null) {
+				throw new IllegalStateException("Sequence has not been opened.");
+			}
+
+			final int uncompressedLength = input.readInt();
+			final int storedLength = input.readInt();
+
+			if (uncompressedLength > blockSize || storedLength > uncompressedLength) {
+				throw new IOException("Corrupt spill file: invalid block length.");
+			}
+
+			final byte[] uncompressed = readResources.block;
+			if (storedLength == uncompressedLength) {
+				input.readFully(uncompressed, 0, uncompressedLength);
+			}
+			else {
+				input.readFully(readResources.compressedBlock, 0, storedLength);
+				Snappy.uncompress(readResources.compressedBlock, 0, storedLength, uncompressed, 0);
+			}
+
+			currentBlock = ByteBuffer.wrap(uncompressed, 0, uncompressedLength);
+		}
+
+		/**
+		 * Cleans up all file resources held by this spilled sequence.
+		 *
+		 * @throws IOException Thrown, if the file could not be closed or deleted.
+		 */
+		@Override
+		public void cleanup() throws IOException {
+			if (cleanedUp) {
+				return;
+			}
+			cleanedUp = true;
+
+			if (input != null) {
+				readResources.readMemory = input.close();
+				reader.deleteChannel();
+			}
+			else {
+				File file = channel.getPathFile();
+				if (!file.delete() && file.exists()) {
+					throw new IOException("Cannot remove temp file for stream alignment writer");
+				}
+			}
+		}
+
+		@Override
+		public long size() {
+			return size;
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The timer, which is shared by all {@link StreamRecordWriter} instances of the process to flush
+ * channels with pending data after their buffer timeout.
+ *
+ * <p>Flushes are scheduled per channel once data becomes pending, so the timer only wakes up
+ * for channels which actually need to be flushed. The flushes themselves never block (see
+ * {@link StreamRecordWriter}), which allows a single daemon thread to serve all tasks.
+ *
+ * <p>The timer is reference counted: Writers with a buffer timeout {@link #retain() retain} it
+ * when they are created and {@link #release() release} it when they are closed. The timer
+ * thread is started with the first reference and shut down with the last one.
+ */
+@Internal
+final class OutputFlushTimer {
+
+	/** The name of the timer thread. */
+	private static final String THREAD_NAME = "OutputFlusher";
+
+	/** Lock that guards the executor and the reference count. */
+	private static final Object LOCK = new Object();
+
+	/** The shared executor, or null if there are no references. */
+	private static ScheduledThreadPoolExecutor executor;
+
+	/** The number of writers that currently use the timer. */
+	private static int numReferences;
+
+	private OutputFlushTimer() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Acquires a reference to the timer, starting the timer thread if this is the first one.
+	 */
+	static void retain() {
+		synchronized (LOCK) {
+			if (numReferences == 0) {
+				checkState(executor == null);
+				executor = new ScheduledThreadPoolExecutor(1, new ExecutorThreadFactory(THREAD_NAME));
+			}
+			++numReferences;
+		}
+	}
+
+	/**
+	 * Releases a reference to the timer, shutting down the timer thread if this is the last one.
+	 * Pending flushes are dropped, because they belong to closed writers.
+	 */
+	static void release() {
+		synchronized (LOCK) {
+			checkState(numReferences > 0, "The output flush timer has no references.");
+
+			if (--numReferences == 0) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * Schedules the given flush. The flush is dropped if the timer has been shut down, which only
+	 * happens once all writers have been closed.
+	 *
+	 * @param flush The flush to run.
+	 * @param delayMillis The delay in milliseconds.
+	 */
+	static void schedule(Runnable flush, long delayMillis) {
+		synchronized (LOCK) {
+			if (executor != null) {
+				executor.schedule(flush, delayMillis, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	@VisibleForTesting
+	static boolean isRunning() {
+		synchronized (LOCK) {
+			return executor != null;
+		}
+	}
+
+	@VisibleForTesting
+	static int getNumberOfReferences() {
+		synchronized (LOCK) {
+			return numReferences;
+		}
+	}
+}
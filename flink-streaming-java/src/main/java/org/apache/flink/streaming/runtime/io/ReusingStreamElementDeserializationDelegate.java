@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.plugable.DeserializationDelegate;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkElementIndex;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link DeserializationDelegate} for {@link StreamElement StreamElements}, which deserializes
+ * records into a fixed number of reused {@link StreamRecord} instances and values. This is used on
+ * the input path of stream tasks if object reuse is enabled.
+ *
+ * <p>Each reused record is identified by a slot, which has to be selected via
+ * {@link #setSlot(int)} before the next element is read. Records, which are processed at the same
+ * time (e.g. a batch of records), must be read into distinct slots. Operators may replace the value
+ * of a reused record (see {@link StreamRecord#replace(Object)}), which is why the delegate keeps
+ * the last value deserialized into each slot and restores it before deserializing the next record.
+ *
+ * @param <T> The type of the record values.
+ */
+final class ReusingStreamElementDeserializationDelegate<T> implements DeserializationDelegate<StreamElement> {
+
+	private final StreamElementSerializer<T> serializer;
+
+	/** The reused records, one per slot. */
+	private final StreamRecord<T>[] records;
+
+	/** The last value deserialized into each slot. */
+	private final Object[] values;
+
+	/** The slot the next record is deserialized into. */
+	private int slot;
+
+	private StreamElement instance;
+
+	@SuppressWarnings("unchecked")
+	ReusingStreamElementDeserializationDelegate(StreamElementSerializer<T> serializer, int numSlots) {
+		checkArgument(numSlots > 0);
+
+		this.serializer = checkNotNull(serializer);
+		this.records = new StreamRecord[numSlots];
+		this.values = new Object[numSlots];
+
+		for (int i = 0; i < numSlots; i++) {
+			records[i] = new StreamRecord<>(null);
+		}
+	}
+
+	/**
+	 * Selects the reused record the next record is deserialized into.
+	 */
+	void setSlot(int slot) {
+		checkElementIndex(slot, records.length);
+		this.slot = slot;
+	}
+
+	@Override
+	public void setInstance(StreamElement instance) {
+		throw new UnsupportedOperationException("The reused instances are selected via setSlot().");
+	}
+
+	@Override
+	public StreamElement getInstance() {
+		return instance;
+	}
+
+	@Override
+	public void write(DataOutputView out) throws IOException {
+		throw new IllegalStateException("Serialization method called on DeserializationDelegate.");
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void read(DataInputView in) throws IOException {
+		final StreamRecord<T> reuse = records[slot];
+		reuse.replace((T) values[slot]);
+
+		instance = serializer.deserialize(reuse, in);
+
+		if (instance == reuse) {
+			values[slot] = reuse.getValue();
+		}
+	}
+}
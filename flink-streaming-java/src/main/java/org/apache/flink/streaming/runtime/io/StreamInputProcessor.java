@@ -53,7 +53,10 @@ import org.apache.flink.streaming.runtime.streamstatus.StreamStatusMaintainer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
+import java.util.ArrayList;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -69,6 +72,17 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * on the given lock object. This ensures that we don't call methods on a
  * {@link OneInputStreamOperator} concurrently with the timer callback or other things.
  *
+ * <p>Consecutive records deserialized from one buffer are handed to the operator as one batch
+ * (see {@link OneInputStreamOperator#processBatch(java.util.List)}), which saves the per-record
+ * lock acquisition and allows chained operators to process the records in tight loops. The batch
+ * is processed before any other element of the buffer and before the next buffer is requested,
+ * so that watermarks and checkpoint barriers always follow all records preceding them.
+ *
+ * <p>If object reuse is enabled, records are deserialized into reused {@link StreamRecord} and
+ * value instances. Operators must then not hold on to the records or values after processing them.
+ * Since keyed state backends and timer services may keep references to the keys of records, object
+ * reuse must not be enabled for keyed inputs.
+ *
  * @param <IN> The type of the record that can be read with this record reader.
  */
 @Internal
@@ -76,12 +90,19 @@ public class StreamInputProcessor<IN> {
 
 	private static final Logger LOG = LoggerFactory.getLogger(StreamInputProcessor.class);
 
+	/** The maximum number of records handed to the operator at once. */
+	private static final int MAX_BATCH_SIZE = 512;
+
 	private final RecordDeserializer<DeserializationDelegate<StreamElement>>[] recordDeserializers;
 
 	private RecordDeserializer<DeserializationDelegate<StreamElement>> currentRecordDeserializer;
 
 	private final DeserializationDelegate<StreamElement> deserializationDelegate;
 
+	/** The delegate if records are deserialized into reused objects, otherwise null. */
+	@Nullable
+	private final ReusingStreamElementDeserializationDelegate<IN> reusingDeserializationDelegate;
+
 	private final CheckpointBarrierHandler barrierHandler;
 
 	private final Object lock;
@@ -111,6 +132,9 @@ public class StreamInputProcessor<IN> {
 
 	private boolean isFinished;
 
+	/** The records deserialized from the current buffer, which have not been processed yet. */
+	private final ArrayList<StreamRecord<IN>> recordBatch = new ArrayList<>(MAX_BATCH_SIZE);
+
 	@SuppressWarnings("unchecked")
 	public StreamInputProcessor(
 			InputGate[] inputGates,
@@ -121,7 +145,8 @@ public class StreamInputProcessor<IN> {
 			IOManager ioManager,
 			Configuration taskManagerConfig,
 			StreamStatusMaintainer streamStatusMaintainer,
-			OneInputStreamOperator<IN, ?> streamOperator) throws IOException {
+			OneInputStreamOperator<IN, ?> streamOperator,
+			boolean objectReuse) throws IOException {
 
 		InputGate inputGate = InputGateUtil.createInputGate(inputGates);
 
@@ -132,7 +157,15 @@ public class StreamInputProcessor<IN> {
 						TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_BYTES_LIMIT.key()
 						+ " must be positive or -1 (infinite)");
 			}
-			this.barrierHandler = new BarrierBuffer(inputGate, ioManager, maxAlign);
+			long alignMemory = taskManagerConfig.getLong(TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_MEMORY);
+			if (alignMemory < 0) {
+				throw new IllegalConfigurationException(
+						TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_MEMORY.key()
+						+ " must not be negative");
+			}
+			this.barrierHandler = alignMemory == 0
+				? new BarrierBuffer(inputGate, ioManager, maxAlign)
+				: new BarrierBuffer(inputGate, ioManager, maxAlign, alignMemory);
 		}
 		else if (checkpointMode == CheckpointingMode.AT_LEAST_ONCE) {
 			this.barrierHandler = new BarrierTracker(inputGate);
@@ -148,7 +181,14 @@ public class StreamInputProcessor<IN> {
 		this.lock = checkNotNull(lock);
 
 		StreamElementSerializer<IN> ser = new StreamElementSerializer<>(inputSerializer);
-		this.deserializationDelegate = new NonReusingDeserializationDelegate<>(ser);
+		if (objectReuse) {
+			// each record of a batch needs its own instance
+			this.reusingDeserializationDelegate = new ReusingStreamElementDeserializationDelegate<>(ser, MAX_BATCH_SIZE);
+			this.deserializationDelegate = reusingDeserializationDelegate;
+		} else {
+			this.reusingDeserializationDelegate = null;
+			this.deserializationDelegate = new NonReusingDeserializationDelegate<>(ser);
+		}
 
 		// Initialize one deserializer per input channel
 		this.recordDeserializers = new SpillingAdaptiveSpanningRecordDeserializer[inputGate.getNumberOfInputChannels()];
@@ -185,6 +225,10 @@ public class StreamInputProcessor<IN> {
 
 		while (true) {
 			if (currentRecordDeserializer != null) {
+				if (reusingDeserializationDelegate != null) {
+					reusingDeserializationDelegate.setSlot(recordBatch.size());
+				}
+
 				DeserializationResult result = currentRecordDeserializer.getNextRecord(deserializationDelegate);
 
 				if (result.isBufferConsumed()) {
@@ -195,6 +239,19 @@ public class StreamInputProcessor<IN> {
 				if (result.isFullRecord()) {
 					StreamElement recordOrMark = deserializationDelegate.getInstance();
 
+					if (recordOrMark.isRecord()) {
+						recordBatch.add(recordOrMark.<IN>asRecord());
+						if (recordBatch.size() < MAX_BATCH_SIZE) {
+							continue;
+						}
+
+						processRecordBatch();
+						return true;
+					}
+
+					// the records before the element have to be processed first
+					processRecordBatch();
+
 					if (recordOrMark.isWatermark()) {
 						// handle watermark
 						statusWatermarkValve.inputWatermark(recordOrMark.asWatermark(), currentChannel);
@@ -209,19 +266,15 @@ public class StreamInputProcessor<IN> {
 							streamOperator.processLatencyMarker(recordOrMark.asLatencyMarker());
 						}
 						continue;
-					} else {
-						// now we can do the actual processing
-						StreamRecord<IN> record = recordOrMark.asRecord();
-						synchronized (lock) {
-							numRecordsIn.inc();
-							streamOperator.setKeyContextElement1(record);
-							streamOperator.processElement(record);
-						}
-						return true;
 					}
 				}
 			}
 
+			if (!recordBatch.isEmpty()) {
+				processRecordBatch();
+				return true;
+			}
+
 			final BufferOrEvent bufferOrEvent = barrierHandler.getNextNonBlocked();
 			if (bufferOrEvent != null) {
 				if (bufferOrEvent.isBuffer()) {
@@ -247,6 +300,21 @@ public class StreamInputProcessor<IN> {
 		}
 	}
 
+	private void processRecordBatch() throws Exception {
+		if (recordBatch.isEmpty()) {
+			return;
+		}
+
+		try {
+			synchronized (lock) {
+				numRecordsIn.inc(recordBatch.size());
+				streamOperator.processBatch(recordBatch);
+			}
+		} finally {
+			recordBatch.clear();
+		}
+	}
+
 	/**
 	 * Sets the metric group for this StreamInputProcessor.
 	 *
@@ -278,6 +346,8 @@ public class StreamInputProcessor<IN> {
 			deserializer.clear();
 		}
 
+		recordBatch.clear();
+
 		// cleanup the barrier handler resources
 		barrierHandler.cleanup();
 	}
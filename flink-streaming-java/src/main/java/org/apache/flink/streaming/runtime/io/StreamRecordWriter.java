@@ -23,31 +23,42 @@ import org.apache.flink.runtime.io.network.api.writer.ChannelSelector;
 import org.apache.flink.runtime.io.network.api.writer.RecordWriter;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.io.IOException;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 
 /**
- * This record writer keeps data in buffers at most for a certain timeout. It spawns a separate thread
- * that flushes the outputs in a defined interval, to make sure data does not linger in the buffers for too long.
+ * This record writer keeps data in buffers at most for a certain timeout. Once a channel holds
+ * pending data, a flush of that channel is scheduled on the {@link OutputFlushTimer}, which is
+ * shared by all writers, to make sure data does not linger in the buffers for too long.
  *
  * @param <T> The type of elements written.
  */
 @Internal
 public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWriter<T> {
 
-	/** Default name for teh output flush thread, if no name with a task reference is given. */
-	private static final String DEFAULT_OUTPUT_FLUSH_THREAD_NAME = "OutputFlusher";
+	private static final Logger LOG = LoggerFactory.getLogger(StreamRecordWriter.class);
+
+	/** Default name of the writer's task, if no task name is given. */
+	private static final String DEFAULT_TASK_NAME = "unknown task";
 
+	/** The name of the writer's task, which is reported together with flush failures. */
+	private final String taskName;
 
-	/** The thread that periodically flushes the output, to give an upper latency bound. */
-	private final OutputFlusher outputFlusher;
+	/** The timeout after which pending data is flushed, or -1 if there is none. */
+	private final long timeout;
 
 	/** Flag indicating whether the output should be flushed after every element. */
 	private final boolean flushAlways;
 
-	/** The exception encountered in the flushing thread. */
-	private Throwable flusherException;
+	/** Flag indicating whether the writer has been closed and no more flushes should happen. */
+	private volatile boolean isClosed;
+
+	/** The exception encountered while flushing on the timer. */
+	private volatile Throwable flusherException;
 
 	public StreamRecordWriter(ResultPartitionWriter writer, ChannelSelector<T> channelSelector, long timeout) {
 		this(writer, channelSelector, timeout, null);
@@ -60,21 +71,12 @@ public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWrit
 
 		checkArgument(timeout >= -1);
 
-		if (timeout == -1) {
-			flushAlways = false;
-			outputFlusher = null;
-		}
-		else if (timeout == 0) {
-			flushAlways = true;
-			outputFlusher = null;
-		}
-		else {
-			flushAlways = false;
-			String threadName = taskName == null ?
-								DEFAULT_OUTPUT_FLUSH_THREAD_NAME : "Output Timeout Flusher - " + taskName;
+		this.taskName = taskName == null ? DEFAULT_TASK_NAME : taskName;
+		this.timeout = timeout > 0 ? timeout : -1;
+		this.flushAlways = timeout == 0;
 
-			outputFlusher = new OutputFlusher(threadName, timeout);
-			outputFlusher.start();
+		if (this.timeout > 0) {
+			OutputFlushTimer.retain();
 		}
 	}
 
@@ -105,24 +107,61 @@ public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWrit
 		}
 	}
 
+	@Override
+	protected void notifyDataPending(int targetChannel) {
+		if (timeout > 0 && !isClosed) {
+			scheduleFlush(targetChannel);
+		}
+	}
+
+	private void scheduleFlush(final int targetChannel) {
+		OutputFlushTimer.schedule(new Runnable() {
+			@Override
+			public void run() {
+				flushOnTimeout(targetChannel);
+			}
+		}, timeout);
+	}
+
+	private void flushOnTimeout(int targetChannel) {
+		if (isClosed || flusherException != null) {
+			return;
+		}
+
+		try {
+			// If the channel is currently being written to, the writer may be blocked waiting
+			// for a buffer. Instead of blocking the shared timer, try again later.
+			if (!tryFlush(targetChannel)) {
+				scheduleFlush(targetChannel);
+			}
+		}
+		catch (Throwable t) {
+			LOG.error("Flushing the outputs of {} on timeout failed.", taskName, t);
+
+			// any errors here should be recognized by the writer
+			notifyFlusherException(t);
+		}
+	}
+
 	/**
-	 * Closes the writer. This stops the flushing thread (if there is one).
+	 * Closes the writer. No more flushes happen on timeout afterwards, and the writer releases
+	 * its reference to the {@link OutputFlushTimer}.
 	 */
 	public void close() {
-		// make sure we terminate the thread in any case
-		if (outputFlusher != null) {
-			outputFlusher.terminate();
-			try {
-				outputFlusher.join();
-			}
-			catch (InterruptedException e) {
-				// ignore on close
+		synchronized (this) {
+			if (isClosed) {
+				return;
 			}
+			isClosed = true;
+		}
+
+		if (timeout > 0) {
+			OutputFlushTimer.release();
 		}
 	}
 
 	/**
-	 * Notifies the writer that the output flusher thread encountered an exception.
+	 * Notifies the writer that flushing on timeout encountered an exception.
 	 *
 	 * @param t The exception to report.
 	 */
@@ -134,57 +173,7 @@ public class StreamRecordWriter<T extends IOReadableWritable> extends RecordWrit
 
 	private void checkErroneous() throws IOException {
 		if (flusherException != null) {
-			throw new IOException("An exception happened while flushing the outputs", flusherException);
-		}
-	}
-
-	// ------------------------------------------------------------------------
-
-	/**
-	 * A dedicated thread that periodically flushes the output buffers, to set upper latency bounds.
-	 *
-	 * <p>The thread is daemonic, because it is only a utility thread.
-	 */
-	private class OutputFlusher extends Thread {
-
-		private final long timeout;
-
-		private volatile boolean running = true;
-
-		OutputFlusher(String name, long timeout) {
-			super(name);
-			setDaemon(true);
-			this.timeout = timeout;
-		}
-
-		public void terminate() {
-			running = false;
-			interrupt();
-		}
-
-		@Override
-		public void run() {
-			try {
-				while (running) {
-					try {
-						Thread.sleep(timeout);
-					}
-					catch (InterruptedException e) {
-						// propagate this if we are still running, because it should not happen
-						// in that case
-						if (running) {
-							throw new Exception(e);
-						}
-					}
-
-					// any errors here should let the thread come to a halt and be
-					// recognized by the writer
-					flush();
-				}
-			}
-			catch (Throwable t) {
-				notifyFlusherException(t);
-			}
+			throw new IOException("An exception happened while flushing the outputs of " + taskName, flusherException);
 		}
 	}
 }
@@ -41,6 +41,8 @@ import org.apache.flink.runtime.metrics.groups.TaskIOMetricGroup;
 import org.apache.flink.runtime.plugable.DeserializationDelegate;
 import org.apache.flink.runtime.plugable.NonReusingDeserializationDelegate;
 import org.apache.flink.streaming.api.CheckpointingMode;
+import org.apache.flink.streaming.api.operators.InputSelectable;
+import org.apache.flink.streaming.api.operators.InputSelection;
 import org.apache.flink.streaming.api.operators.TwoInputStreamOperator;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
@@ -70,6 +72,14 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * on the given lock object. This ensures that we don't call methods on a
  * {@link TwoInputStreamOperator} concurrently with the timer callback or other things.
  *
+ * <p>If the operator is {@link InputSelectable}, the processor asks it for the input to read
+ * before reading the next buffer. Only the input gates of the selected input are read then. A
+ * new selection takes effect once the current buffer is fully consumed, so that no records are
+ * held back behind a checkpoint barrier that the barrier handler reads while it aligns.
+ *
+ * <p>If object reuse is enabled for an input, its records are deserialized into a reused
+ * {@link StreamRecord} and value instance (see {@link StreamInputProcessor}).
+ *
  * @param <IN1> The type of the records that arrive on the first input
  * @param <IN2> The type of the records that arrive on the second input
  */
@@ -118,6 +128,16 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 
 	private final TwoInputStreamOperator<IN1, IN2, ?> streamOperator;
 
+	// ---------------- Input Selection ------------------
+
+	/** The operator as {@link InputSelectable}, or null if it does not select its inputs. */
+	private final InputSelectable inputSelectable;
+
+	private final Collection<InputGate> inputGates1;
+	private final Collection<InputGate> inputGates2;
+
+	private InputSelection currentSelection = InputSelection.ALL;
+
 	// ---------------- Metrics ------------------
 
 	private long lastEmittedWatermark1;
@@ -139,7 +159,9 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 			IOManager ioManager,
 			Configuration taskManagerConfig,
 			StreamStatusMaintainer streamStatusMaintainer,
-			TwoInputStreamOperator<IN1, IN2, ?> streamOperator) throws IOException {
+			TwoInputStreamOperator<IN1, IN2, ?> streamOperator,
+			boolean objectReuse1,
+			boolean objectReuse2) throws IOException {
 
 		final InputGate inputGate = InputGateUtil.createInputGate(inputGates1, inputGates2);
 
@@ -150,7 +172,15 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 						TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_BYTES_LIMIT.key()
 								+ " must be positive or -1 (infinite)");
 			}
-			this.barrierHandler = new BarrierBuffer(inputGate, ioManager, maxAlign);
+			long alignMemory = taskManagerConfig.getLong(TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_MEMORY);
+			if (alignMemory < 0) {
+				throw new IllegalConfigurationException(
+						TaskManagerOptions.TASK_CHECKPOINT_ALIGNMENT_MEMORY.key()
+						+ " must not be negative");
+			}
+			this.barrierHandler = alignMemory == 0
+				? new BarrierBuffer(inputGate, ioManager, maxAlign)
+				: new BarrierBuffer(inputGate, ioManager, maxAlign, alignMemory);
 		}
 		else if (checkpointMode == CheckpointingMode.AT_LEAST_ONCE) {
 			this.barrierHandler = new BarrierTracker(inputGate);
@@ -166,10 +196,14 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		this.lock = checkNotNull(lock);
 
 		StreamElementSerializer<IN1> ser1 = new StreamElementSerializer<>(inputSerializer1);
-		this.deserializationDelegate1 = new NonReusingDeserializationDelegate<>(ser1);
+		this.deserializationDelegate1 = objectReuse1
+			? new ReusingStreamElementDeserializationDelegate<>(ser1, 1)
+			: new NonReusingDeserializationDelegate<>(ser1);
 
 		StreamElementSerializer<IN2> ser2 = new StreamElementSerializer<>(inputSerializer2);
-		this.deserializationDelegate2 = new NonReusingDeserializationDelegate<>(ser2);
+		this.deserializationDelegate2 = objectReuse2
+			? new ReusingStreamElementDeserializationDelegate<>(ser2, 1)
+			: new NonReusingDeserializationDelegate<>(ser2);
 
 		// Initialize one deserializer per input channel
 		this.recordDeserializers = new SpillingAdaptiveSpanningRecordDeserializer[inputGate.getNumberOfInputChannels()];
@@ -197,6 +231,10 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		this.streamStatusMaintainer = checkNotNull(streamStatusMaintainer);
 		this.streamOperator = checkNotNull(streamOperator);
 
+		this.inputGates1 = inputGates1;
+		this.inputGates2 = inputGates2;
+		this.inputSelectable = streamOperator instanceof InputSelectable ? (InputSelectable) streamOperator : null;
+
 		this.statusWatermarkValve1 = new StatusWatermarkValve(numInputChannels1, new ForwardingValveOutputHandler1(streamOperator, lock));
 		this.statusWatermarkValve2 = new StatusWatermarkValve(numInputChannels2, new ForwardingValveOutputHandler2(streamOperator, lock));
 
@@ -286,6 +324,10 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 				}
 			}
 
+			if (inputSelectable != null) {
+				updateInputSelection();
+			}
+
 			final BufferOrEvent bufferOrEvent = barrierHandler.getNextNonBlocked();
 			if (bufferOrEvent != null) {
 
@@ -312,6 +354,33 @@ public class StreamTwoInputProcessor<IN1, IN2> {
 		}
 	}
 
+	/**
+	 * Asks the operator for the input to read next and restricts the barrier handler to the input
+	 * gates of that input. This must only be called between buffers: the remaining records of a
+	 * partially consumed buffer could otherwise end up behind a checkpoint barrier of their
+	 * channel, which the barrier handler reads regardless of the selection while it aligns.
+	 */
+	private void updateInputSelection() {
+		final InputSelection selection;
+		synchronized (lock) {
+			selection = inputSelectable.nextSelection();
+		}
+
+		if (selection == currentSelection) {
+			return;
+		}
+
+		currentSelection = checkNotNull(selection);
+
+		if (selection == InputSelection.FIRST) {
+			barrierHandler.selectInputGates(inputGates1);
+		} else if (selection == InputSelection.SECOND) {
+			barrierHandler.selectInputGates(inputGates2);
+		} else {
+			barrierHandler.selectInputGates(null);
+		}
+	}
+
 	/**
 	 * Sets the metric group for this StreamTwoInputProcessor.
 	 *
@@ -223,20 +223,24 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 		int tag = source.readByte();
 		if (tag == TAG_REC_WITH_TIMESTAMP) {
 			long timestamp = source.readLong();
-			T value = typeSerializer.deserialize(source);
 			StreamRecord<T> reuseRecord = reuse.asRecord();
+			T value = deserializeValue(reuseRecord.getValue(), source);
 			reuseRecord.replace(value, timestamp);
 			return reuseRecord;
 		}
 		else if (tag == TAG_REC_WITHOUT_TIMESTAMP) {
-			T value = typeSerializer.deserialize(source);
 			StreamRecord<T> reuseRecord = reuse.asRecord();
+			T value = deserializeValue(reuseRecord.getValue(), source);
 			reuseRecord.replace(value);
+			reuseRecord.eraseTimestamp();
 			return reuseRecord;
 		}
 		else if (tag == TAG_WATERMARK) {
 			return new Watermark(source.readLong());
 		}
+		else if (tag == TAG_STREAM_STATUS) {
+			return new StreamStatus(source.readInt());
+		}
 		else if (tag == TAG_LATENCY_MARKER) {
 			return new LatencyMarker(source.readLong(), source.readInt(), source.readInt());
 		}
@@ -245,6 +249,10 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 		}
 	}
 
+	private T deserializeValue(T reuse, DataInputView source) throws IOException {
+		return reuse == null ? typeSerializer.deserialize(source) : typeSerializer.deserialize(reuse, source);
+	}
+
 	// ------------------------------------------------------------------------
 	//  Utilities
 	// ------------------------------------------------------------------------
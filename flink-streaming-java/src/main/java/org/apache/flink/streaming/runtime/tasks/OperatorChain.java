@@ -404,7 +404,7 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 		}
 
 		StreamRecordWriter<SerializationDelegate<StreamRecord<T>>> output =
-				new StreamRecordWriter<>(bufferWriter, outputPartitioner, upStreamConfig.getBufferTimeout());
+				new StreamRecordWriter<>(bufferWriter, outputPartitioner, upStreamConfig.getBufferTimeout(), taskName);
 		output.setMetricGroup(taskEnvironment.getMetricGroup().getIOMetricGroup());
 
 		return new RecordWriterOutput<>(output, outSerializer, sideOutputTag, this);
@@ -468,6 +468,22 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			pushToOperator(record);
 		}
 
+		@Override
+		public void collectBatch(List<StreamRecord<T>> records) {
+			if (this.outputTag != null) {
+				// we are only responsible for emitting to the main input
+				return;
+			}
+
+			try {
+				numRecordsIn.inc(records.size());
+				operator.processBatch(records);
+			}
+			catch (Exception e) {
+				throw new ExceptionInChainedOperatorException(e);
+			}
+		}
+
 		protected <X> void pushToOperator(StreamRecord<X> record) {
 			try {
 				// we know that the given outputTag matches our OutputTag so the record
@@ -521,6 +537,12 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 
 		private final TypeSerializer<T> serializer;
 
+		/**
+		 * Whether the values are immutable. Only the records are copied then, which protects them
+		 * from being modified by the receiving operator, but not the values.
+		 */
+		private final boolean isImmutableType;
+
 		public CopyingChainingOutput(
 				OneInputStreamOperator<T, ?> operator,
 				TypeSerializer<T> serializer,
@@ -528,6 +550,7 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 				StreamStatusProvider streamStatusProvider) {
 			super(operator, streamStatusProvider, outputTag);
 			this.serializer = serializer;
+			this.isImmutableType = serializer.isImmutableType();
 		}
 
 		@Override
@@ -551,6 +574,28 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			pushToOperator(record);
 		}
 
+		@Override
+		public void collectBatch(List<StreamRecord<T>> records) {
+			if (this.outputTag != null) {
+				// we are only responsible for emitting to the main input
+				return;
+			}
+
+			try {
+				// the list may be modified, so we replace the records by their copies
+				for (int i = 0; i < records.size(); i++) {
+					StreamRecord<T> record = records.get(i);
+					records.set(i, record.copy(copyValue(record.getValue())));
+				}
+
+				numRecordsIn.inc(records.size());
+				operator.processBatch(records);
+			}
+			catch (Exception e) {
+				throw new ExceptionInChainedOperatorException(e);
+			}
+		}
+
 		@Override
 		protected <X> void pushToOperator(StreamRecord<X> record) {
 			try {
@@ -560,7 +605,7 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 				StreamRecord<T> castRecord = (StreamRecord<T>) record;
 
 				numRecordsIn.inc();
-				StreamRecord<T> copy = castRecord.copy(serializer.copy(castRecord.getValue()));
+				StreamRecord<T> copy = castRecord.copy(copyValue(castRecord.getValue()));
 				operator.setKeyContextElement1(copy);
 				operator.processElement(copy);
 			} catch (ClassCastException e) {
@@ -580,6 +625,10 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			}
 
 		}
+
+		private T copyValue(T value) {
+			return isImmutableType ? value : serializer.copy(value);
+		}
 	}
 
 	private static class BroadcastingOutputCollector<T> implements Output<StreamRecord<T>> {
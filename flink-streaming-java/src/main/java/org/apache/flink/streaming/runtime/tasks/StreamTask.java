@@ -22,6 +22,7 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.TaskInfo;
 import org.apache.flink.api.common.accumulators.Accumulator;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CoreOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FileSystemSafetyNet;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
@@ -45,6 +46,7 @@ import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStateBackend;
 import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.TaskLocalStateStore;
 import org.apache.flink.runtime.taskmanager.DispatcherThreadFactory;
 import org.apache.flink.streaming.api.TimeCharacteristic;
 import org.apache.flink.streaming.api.graph.StreamConfig;
@@ -144,6 +146,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 	/** Our state backend. We use this to create checkpoint streams and a keyed state backend. */
 	private StateBackend stateBackend;
 
+	/** The local copies of the checkpointed state, or null if local recovery is disabled. */
+	private TaskLocalStateStore taskLocalStateStore;
+
 	/** Keyed state backend for the head operator, if it is keyed. There can only ever be one. */
 	private AbstractKeyedStateBackend<?> keyedStateBackend;
 
@@ -232,6 +237,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 			stateBackend = createStateBackend();
 
+			if (getEnvironment().getTaskManagerInfo().getConfiguration().getBoolean(CoreOptions.LOCAL_RECOVERY)) {
+				taskLocalStateStore = TaskLocalStateStore.forTask(getEnvironment());
+			}
+
 			accumulatorMap = getEnvironment().getAccumulatorRegistry().getUserMap();
 
 			// if the clock is not already set, then assign a default TimeServiceProvider
@@ -314,6 +323,11 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 			// still let the computation fail
 			tryDisposeAllOperators();
 			disposed = true;
+
+			// the finished task is never restored, so its local state copies are not needed anymore
+			if (taskLocalStateStore != null) {
+				taskLocalStateStore.dispose();
+			}
 		}
 		finally {
 			// clean up everything we initialized
@@ -532,6 +546,16 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		return operatorChain.getStreamOutputs();
 	}
 
+	/**
+	 * Checks whether the records of the given input may be deserialized into reused objects. This
+	 * requires object reuse to be enabled and the input to not be keyed, since keyed state backends
+	 * and timer services may keep references to the keys extracted from the records.
+	 */
+	boolean isObjectReuseEnabledForInput(int input) {
+		return getExecutionConfig().isObjectReuseEnabled()
+			&& configuration.getStatePartitioner(input, getUserCodeClassLoader()) == null;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Checkpoint and Restore
 	// ------------------------------------------------------------------------
@@ -664,6 +688,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 						operator.notifyOfCompletedCheckpoint(checkpointId);
 					}
 				}
+
+				if (taskLocalStateStore != null) {
+					taskLocalStateStore.confirmCheckpoint(checkpointId);
+				}
 			}
 			else {
 				LOG.debug("Ignoring notification of complete checkpoint for not-running task {}", getName());
@@ -690,6 +718,10 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		boolean restored = null != taskStateSnapshot;
 
 		if (restored) {
+			if (taskLocalStateStore != null) {
+				taskStateSnapshot = taskLocalStateStore.retrieveLocalState(taskStateSnapshot);
+			}
+
 			initializeOperators(true);
 			taskStateSnapshot = null; // free for GC
 		} else {
@@ -770,7 +802,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				keySerializer,
 				numberOfKeyGroups,
 				keyGroupRange,
-				getEnvironment().getTaskKvStateRegistry());
+				getEnvironment().getTaskKvStateRegistry(),
+				headOperator.getMetricGroup());
 
 		// let keyed state backend participate in the operator lifecycle, i.e. make it responsive to cancelation
 		cancelables.registerCloseable(keyedStateBackend);
@@ -803,6 +836,18 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 				createOperatorIdentifier(operator, configuration.getVertexID()));
 	}
 
+	/**
+	 * Creates the stream factory for the checkpointed keyed and operator state of the given
+	 * operator. With local recovery, its streams also write a local copy of the state.
+	 */
+	public CheckpointStreamFactory createStateCheckpointStreamFactory(StreamOperator<?> operator) throws IOException {
+		CheckpointStreamFactory streamFactory = createCheckpointStreamFactory(operator);
+
+		// checkpoints also write a local copy of the state, savepoints do not
+		return taskLocalStateStore != null ?
+			taskLocalStateStore.createDuplicatingStreamFactory(streamFactory) : streamFactory;
+	}
+
 	public CheckpointStreamFactory createSavepointStreamFactory(StreamOperator<?> operator, String targetLocation) throws IOException {
 		return stateBackend.createSavepointStreamFactory(
 			getEnvironment().getJobID(),
@@ -927,6 +972,11 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 
 					TaskStateSnapshot acknowledgedState = hasState ? taskOperatorSubtaskStates : null;
 
+					// the local copies must be tracked before the checkpoint can complete
+					if (owner.taskLocalStateStore != null && acknowledgedState != null) {
+						owner.taskLocalStateStore.reportCheckpoint(checkpointMetaData.getCheckpointId(), acknowledgedState);
+					}
+
 					// we signal stateless tasks by reporting null, so that there are no attempts to assign empty state
 					// to stateless tasks on restore. This enables simple job modifications that only concern
 					// stateless without the need to assign them uids to match their (always empty) states.
@@ -39,6 +39,8 @@ import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static org.mockito.Mockito.doReturn;
@@ -103,14 +105,15 @@ public class StreamTestSingleInputGate<T> extends TestSingleInputGate {
 							true);
 						return new BufferAndAvailability(EventSerializer.toBuffer(EndOfPartitionEvent.INSTANCE), false);
 					} else if (input != null && input.isStreamRecord()) {
-						Object inputElement = input.getStreamRecord();
 						final Buffer buffer = new Buffer(
 							MemorySegmentFactory.allocateUnpooledSegment(bufferSize),
 							mock(BufferRecycler.class));
 
 						recordSerializer.setNextBuffer(buffer);
-						delegate.setInstance(inputElement);
-						recordSerializer.addRecord(delegate);
+						for (Object inputElement : input.getStreamRecords()) {
+							delegate.setInstance(inputElement);
+							recordSerializer.addRecord(delegate);
+						}
 
 						// Call getCurrentBuffer to ensure size is set
 						return new BufferAndAvailability(recordSerializer.getCurrentBuffer(), false);
@@ -141,6 +144,18 @@ public class StreamTestSingleInputGate<T> extends TestSingleInputGate {
 		inputGate.notifyChannelNonEmpty(inputChannels[channel].getInputChannel());
 	}
 
+	/**
+	 * Offers the elements on the channel in a single buffer. The elements must fit into the
+	 * buffer.
+	 */
+	public void sendElements(List<?> elements, int channel) {
+		synchronized (inputQueues[channel]) {
+			inputQueues[channel].add(InputValue.elements(elements));
+			inputQueues[channel].notifyAll();
+		}
+		inputGate.notifyChannelNonEmpty(inputChannels[channel].getInputChannel());
+	}
+
 	public void sendEvent(AbstractEvent event, int channel) {
 		synchronized (inputQueues[channel]) {
 			inputQueues[channel].add(InputValue.event(event));
@@ -193,7 +208,11 @@ public class StreamTestSingleInputGate<T> extends TestSingleInputGate {
 		}
 
 		public static <X> InputValue<X> element(Object element) {
-			return new InputValue<X>(element, false, false, true);
+			return new InputValue<X>(Collections.singletonList(element), false, false, true);
+		}
+
+		public static <X> InputValue<X> elements(List<?> elements) {
+			return new InputValue<X>(elements, false, false, true);
 		}
 
 		public static <X> InputValue<X> streamEnd() {
@@ -204,8 +223,8 @@ public class StreamTestSingleInputGate<T> extends TestSingleInputGate {
 			return new InputValue<X>(event, false, true, false);
 		}
 
-		public Object getStreamRecord() {
-			return elementOrEvent;
+		public List<?> getStreamRecords() {
+			return (List<?>) elementOrEvent;
 		}
 
 		public AbstractEvent getEvent() {
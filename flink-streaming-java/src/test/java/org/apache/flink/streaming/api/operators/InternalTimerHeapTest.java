@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators;
+
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link InternalTimerHeap}.
+ */
+public class InternalTimerHeapTest extends TestLogger {
+
+	private static final int MAX_PARALLELISM = 128;
+
+	private static final KeyGroupRange KEY_GROUP_RANGE = new KeyGroupRange(0, MAX_PARALLELISM - 1);
+
+	@Test
+	public void testDeduplicatesTimers() {
+		InternalTimerHeap<Integer, String> heap = new InternalTimerHeap<>(MAX_PARALLELISM, KEY_GROUP_RANGE);
+
+		assertTrue(heap.add(new InternalTimer<>(10L, 1, "ns")));
+		assertFalse(heap.add(new InternalTimer<>(10L, 1, "ns")));
+		assertTrue(heap.add(new InternalTimer<>(10L, 2, "ns")));
+		assertTrue(heap.add(new InternalTimer<>(10L, 1, "other")));
+		assertEquals(3, heap.size());
+
+		assertTrue(heap.remove(new InternalTimer<>(10L, 1, "ns")));
+		assertFalse(heap.remove(new InternalTimer<>(10L, 1, "ns")));
+		assertEquals(2, heap.size());
+	}
+
+	@Test
+	public void testPollsAndRemovesInTimestampOrder() {
+		InternalTimerHeap<Integer, String> heap = new InternalTimerHeap<>(MAX_PARALLELISM, KEY_GROUP_RANGE);
+
+		// the reference orders by timestamp and then by key, which identifies a timer in this test
+		TreeSet<InternalTimer<Integer, String>> reference = new TreeSet<>((a, b) -> {
+			int cmp = Long.compare(a.getTimestamp(), b.getTimestamp());
+			return cmp != 0 ? cmp : Integer.compare(a.getKey(), b.getKey());
+		});
+
+		Random random = new Random(42L);
+		for (int i = 0; i < 100_000; i++) {
+			InternalTimer<Integer, String> timer = new InternalTimer<>(random.nextInt(1000), random.nextInt(100), "ns");
+
+			switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(reference.add(timer), heap.add(timer));
+					break;
+				case 1:
+					assertEquals(reference.remove(timer), heap.remove(timer));
+					break;
+				default:
+					InternalTimer<Integer, String> polled = heap.poll();
+					if (polled == null) {
+						assertTrue(reference.isEmpty());
+					} else {
+						assertEquals(reference.first().getTimestamp(), polled.getTimestamp());
+						assertTrue(reference.remove(polled));
+					}
+			}
+
+			assertEquals(reference.size(), heap.size());
+			if (!reference.isEmpty()) {
+				assertEquals(reference.first().getTimestamp(), heap.peek().getTimestamp());
+			}
+		}
+
+		while (!heap.isEmpty()) {
+			assertEquals(reference.pollFirst().getTimestamp(), heap.poll().getTimestamp());
+		}
+		assertTrue(reference.isEmpty());
+		assertNull(heap.peek());
+		assertNull(heap.poll());
+	}
+
+	@Test
+	public void testTimersByKeyGroup() {
+		KeyGroupRange keyGroupRange = new KeyGroupRange(10, 19);
+		InternalTimerHeap<Integer, String> heap = new InternalTimerHeap<>(MAX_PARALLELISM, keyGroupRange);
+
+		Set<InternalTimer<Integer, String>> expected = new HashSet<>();
+		for (int key = 0; expected.size() < 100; key++) {
+			int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, MAX_PARALLELISM);
+			if (keyGroup == 12) {
+				InternalTimer<Integer, String> timer = new InternalTimer<>(key, key, "ns");
+				expected.add(timer);
+				heap.add(timer);
+			} else if (keyGroupRange.contains(keyGroup)) {
+				heap.add(new InternalTimer<>(key, key, "ns"));
+			}
+		}
+
+		assertEquals(expected, heap.getTimersForKeyGroup(12));
+
+		Set<InternalTimer<Integer, String>> iterated = new HashSet<>();
+		for (InternalTimer<Integer, String> timer : heap) {
+			iterated.add(timer);
+		}
+		assertEquals(heap.size(), iterated.size());
+		assertTrue(iterated.containsAll(expected));
+
+		// polled timers leave their key-group
+		while (!heap.isEmpty()) {
+			expected.remove(heap.poll());
+			assertEquals(expected, heap.getTimersForKeyGroup(12));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsTimersOfOtherKeyGroups() {
+		InternalTimerHeap<Integer, String> heap = new InternalTimerHeap<>(MAX_PARALLELISM, new KeyGroupRange(0, 0));
+
+		int key = 0;
+		while (KeyGroupRangeAssignment.assignToKeyGroup(key, MAX_PARALLELISM) == 0) {
+			key++;
+		}
+		heap.add(new InternalTimer<>(0L, key, "ns"));
+	}
+}
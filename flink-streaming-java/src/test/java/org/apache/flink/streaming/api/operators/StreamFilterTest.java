@@ -28,6 +28,7 @@ import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
@@ -79,6 +80,45 @@ public class StreamFilterTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testFilterBatch() throws Exception {
+		StreamFilter<Integer> operator = new StreamFilter<Integer>(new MyFilter());
+
+		OneInputStreamOperatorTestHarness<Integer, Integer> testHarness = new OneInputStreamOperatorTestHarness<Integer, Integer>(operator);
+
+		long initialTime = 0L;
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<Object>();
+
+		testHarness.open();
+
+		testHarness.processBatch(Arrays.asList(
+			new StreamRecord<Integer>(1, initialTime + 1),
+			new StreamRecord<Integer>(2, initialTime + 2)));
+		testHarness.processWatermark(new Watermark(initialTime + 2));
+		// none of the records is retained
+		testHarness.processBatch(Arrays.asList(
+			new StreamRecord<Integer>(3, initialTime + 3),
+			new StreamRecord<Integer>(5, initialTime + 5)));
+		// all of the records are retained
+		testHarness.processBatch(Arrays.asList(
+			new StreamRecord<Integer>(4, initialTime + 4),
+			new StreamRecord<Integer>(6, initialTime + 6)));
+		testHarness.processBatch(Arrays.asList(
+			new StreamRecord<Integer>(7, initialTime + 7),
+			new StreamRecord<Integer>(8, initialTime + 8),
+			new StreamRecord<Integer>(9, initialTime + 9),
+			new StreamRecord<Integer>(10, initialTime + 10)));
+
+		expectedOutput.add(new StreamRecord<Integer>(2, initialTime + 2));
+		expectedOutput.add(new Watermark(initialTime + 2));
+		expectedOutput.add(new StreamRecord<Integer>(4, initialTime + 4));
+		expectedOutput.add(new StreamRecord<Integer>(6, initialTime + 6));
+		expectedOutput.add(new StreamRecord<Integer>(8, initialTime + 8));
+		expectedOutput.add(new StreamRecord<Integer>(10, initialTime + 10));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 		StreamFilter<String> operator = new StreamFilter<String>(new TestOpenCloseFilterFunction());
@@ -28,6 +28,8 @@ import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
@@ -74,6 +76,31 @@ public class StreamMapTest {
 		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
 	}
 
+	@Test
+	public void testMapBatch() throws Exception {
+		StreamMap<Integer, String> operator = new StreamMap<Integer, String>(new Map());
+
+		OneInputStreamOperatorTestHarness<Integer, String> testHarness = new OneInputStreamOperatorTestHarness<Integer, String>(operator);
+
+		long initialTime = 0L;
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<Object>();
+
+		testHarness.open();
+
+		testHarness.processBatch(Arrays.asList(
+			new StreamRecord<Integer>(1, initialTime + 1),
+			new StreamRecord<Integer>(2, initialTime + 2)));
+		testHarness.processWatermark(new Watermark(initialTime + 2));
+		testHarness.processBatch(Collections.singletonList(new StreamRecord<Integer>(3, initialTime + 3)));
+
+		expectedOutput.add(new StreamRecord<String>("+2", initialTime + 1));
+		expectedOutput.add(new StreamRecord<String>("+3", initialTime + 2));
+		expectedOutput.add(new Watermark(initialTime + 2));
+		expectedOutput.add(new StreamRecord<String>("+4", initialTime + 3));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
 	@Test
 	public void testOpenClose() throws Exception {
 		StreamMap<String, String> operator = new StreamMap<String, String>(new TestOpenCloseMapFunction());
@@ -692,6 +692,7 @@ public class AsyncWaitOperatorTest extends TestLogger {
 		when(containingTask.getEnvironment()).thenReturn(environment);
 		when(containingTask.getCheckpointLock()).thenReturn(lock);
 		when(containingTask.getProcessingTimeService()).thenReturn(new TestProcessingTimeService());
+		when(containingTask.getExecutionConfig()).thenReturn(new ExecutionConfig());
 
 		StreamConfig streamConfig = mock(StreamConfig.class);
 		doReturn(IntSerializer.INSTANCE).when(streamConfig).getTypeSerializerIn1(any(ClassLoader.class));
@@ -805,6 +806,7 @@ public class AsyncWaitOperatorTest extends TestLogger {
 		when(containingTask.getEnvironment()).thenReturn(environment);
 		when(containingTask.getCheckpointLock()).thenReturn(lock);
 		when(containingTask.getProcessingTimeService()).thenReturn(processingTimeService);
+		when(containingTask.getExecutionConfig()).thenReturn(new ExecutionConfig());
 
 		StreamConfig streamConfig = mock(StreamConfig.class);
 		doReturn(IntSerializer.INSTANCE).when(streamConfig).getTypeSerializerIn1(any(ClassLoader.class));
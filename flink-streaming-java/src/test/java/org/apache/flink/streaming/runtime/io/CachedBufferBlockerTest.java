@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CachedBufferBlocker}.
+ */
+public class CachedBufferBlockerTest {
+
+	private static final int PAGE_SIZE = 4096;
+
+	private static final int NUM_CACHED_PAGES = 4;
+
+	private static IOManager ioManager;
+
+	private CompressedBufferSpiller spiller;
+
+	private CachedBufferBlocker blocker;
+
+	// ------------------------------------------------------------------------
+	//  Setup / Cleanup
+	// ------------------------------------------------------------------------
+
+	@BeforeClass
+	public static void setupIOManager() {
+		ioManager = new IOManagerAsync();
+	}
+
+	@AfterClass
+	public static void shutdownIOManager() {
+		ioManager.shutdown();
+	}
+
+	@Before
+	public void createBlocker() {
+		spiller = new CompressedBufferSpiller(ioManager, PAGE_SIZE);
+		blocker = new CachedBufferBlocker(PAGE_SIZE, NUM_CACHED_PAGES * PAGE_SIZE, spiller);
+	}
+
+	@After
+	public void cleanupBlocker() throws Exception {
+		blocker.close();
+		checkNoTempFilesRemain();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Tests
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testRollOverEmptySequences() throws Exception {
+		assertNull(blocker.rollOverReusingResources());
+		assertNull(blocker.rollOverWithoutReusingResources());
+	}
+
+	/**
+	 * Tests that blocked data, which fits into the memory, is neither spilled nor holds on to the
+	 * added buffers, and that the memory is returned once the buffers are recycled.
+	 */
+	@Test
+	public void testCacheInMemory() throws Exception {
+		List<BufferOrEvent> added = new ArrayList<>();
+		for (int i = 0; i < NUM_CACHED_PAGES; i++) {
+			BufferOrEvent boe = createBuffer(i + 1, i);
+			added.add(boe);
+			blocker.add(boe);
+
+			assertTrue(boe.getBuffer().isRecycled());
+		}
+
+		BufferOrEvent event = new BufferOrEvent(new TestEvent(7L, new byte[] {1, 2}), 3);
+		blocker.add(event);
+
+		assertEquals(0L, spiller.getBytesBlocked());
+		assertNull(spiller.getCurrentChannel());
+		assertEquals(0, blocker.getNumberOfAvailableSegments());
+
+		long bytesBlocked = blocker.getBytesBlocked();
+		BufferOrEventSequence sequence = blocker.rollOverReusingResources();
+		assertEquals(bytesBlocked, sequence.size());
+		assertEquals(0L, blocker.getBytesBlocked());
+
+		sequence.open();
+		for (int i = 0; i < NUM_CACHED_PAGES; i++) {
+			BufferOrEvent next = sequence.getNext();
+			validateBuffer(next, i + 1, i);
+			next.getBuffer().recycle();
+		}
+		assertEquals(event.getEvent(), sequence.getNext().getEvent());
+		assertNull(sequence.getNext());
+
+		sequence.cleanup();
+
+		assertEquals(NUM_CACHED_PAGES, blocker.getNumberOfAvailableSegments());
+	}
+
+	/**
+	 * Tests that the data exceeding the memory is spilled and that the sequence returns the
+	 * cached and spilled data in the order it has been added.
+	 */
+	@Test
+	public void testSpillWhenMemoryIsExhausted() throws Exception {
+		final int numBuffers = 3 * NUM_CACHED_PAGES;
+
+		for (int i = 0; i < numBuffers; i++) {
+			blocker.add(createBuffer(PAGE_SIZE, i));
+			if (i % 5 == 0) {
+				blocker.add(new BufferOrEvent(new TestEvent(i, new byte[0]), i));
+			}
+		}
+
+		assertTrue(spiller.getBytesBlocked() > 0);
+		assertEquals(0, blocker.getNumberOfAvailableSegments());
+
+		BufferOrEventSequence sequence = blocker.rollOverReusingResources();
+		sequence.open();
+
+		for (int i = 0; i < numBuffers; i++) {
+			BufferOrEvent next = sequence.getNext();
+			validateBuffer(next, PAGE_SIZE, i);
+			next.getBuffer().recycle();
+
+			if (i % 5 == 0) {
+				assertEquals(new TestEvent(i, new byte[0]), sequence.getNext().getEvent());
+			}
+		}
+		assertNull(sequence.getNext());
+
+		sequence.cleanup();
+
+		assertEquals(NUM_CACHED_PAGES, blocker.getNumberOfAvailableSegments());
+	}
+
+	/**
+	 * Tests that the memory is bounded across sequences: while the cached buffers of a previous
+	 * sequence are pending, a new sequence is spilled.
+	 */
+	@Test
+	public void testMemorySharedBetweenSequences() throws Exception {
+		for (int i = 0; i < NUM_CACHED_PAGES; i++) {
+			blocker.add(createBuffer(10, i));
+		}
+		BufferOrEventSequence first = blocker.rollOverReusingResources();
+
+		blocker.add(createBuffer(20, 0));
+		assertTrue(spiller.getBytesBlocked() > 0);
+		BufferOrEventSequence second = blocker.rollOverWithoutReusingResources();
+
+		second.open();
+		validateBuffer(second.getNext(), 20, 0);
+		assertNull(second.getNext());
+		second.cleanup();
+
+		// cleaning up the pending sequence returns its memory
+		first.cleanup();
+		assertEquals(NUM_CACHED_PAGES, blocker.getNumberOfAvailableSegments());
+	}
+
+	/**
+	 * Tests that the memory is freed once the cached sequences have been consumed, and that it is
+	 * allocated again for the next sequence.
+	 */
+	@Test
+	public void testReleaseIdleMemoryAfterRollOver() throws Exception {
+		for (int i = 0; i < NUM_CACHED_PAGES; i++) {
+			blocker.add(createBuffer(10, i));
+		}
+		assertEquals(NUM_CACHED_PAGES, blocker.getNumberOfAllocatedSegments());
+
+		BufferOrEventSequence sequence = blocker.rollOverReusingResources();
+		sequence.open();
+		BufferOrEvent next = sequence.getNext();
+		validateBuffer(next, 10, 0);
+		next.getBuffer().recycle();
+		assertEquals(NUM_CACHED_PAGES - 1, blocker.getNumberOfAllocatedSegments());
+
+		sequence.cleanup();
+		assertEquals(0, blocker.getNumberOfAllocatedSegments());
+		assertEquals(NUM_CACHED_PAGES, blocker.getNumberOfAvailableSegments());
+
+		// the next sequence is cached again
+		blocker.add(createBuffer(20, 0));
+		assertEquals(1, blocker.getNumberOfAllocatedSegments());
+		assertEquals(0L, spiller.getBytesBlocked());
+
+		// segments recycled while a sequence is blocked are kept for reuse
+		BufferOrEventSequence second = blocker.rollOverWithoutReusingResources();
+		blocker.add(createBuffer(30, 0));
+		second.cleanup();
+		assertEquals(2, blocker.getNumberOfAllocatedSegments());
+
+		blocker.rollOverReusingResources().cleanup();
+		assertEquals(0, blocker.getNumberOfAllocatedSegments());
+	}
+
+	/**
+	 * Tests that closing the blocker releases the data of the current sequence.
+	 */
+	@Test
+	public void testCloseWithPendingData() throws Exception {
+		for (int i = 0; i < 3 * NUM_CACHED_PAGES; i++) {
+			blocker.add(createBuffer(PAGE_SIZE, i));
+		}
+		assertNotNull(spiller.getCurrentChannel());
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utils
+	// ------------------------------------------------------------------------
+
+	private static BufferOrEvent createBuffer(int size, int channelIndex) {
+		MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(PAGE_SIZE);
+		for (int i = 0; i < size; i++) {
+			segment.put(i, (byte) (i + channelIndex));
+		}
+
+		Buffer buffer = new Buffer(segment, FreeingBufferRecycler.INSTANCE);
+		buffer.setSize(size);
+		return new BufferOrEvent(buffer, channelIndex);
+	}
+
+	private static void validateBuffer(BufferOrEvent boe, int expectedSize, int expectedChannelIndex) {
+		assertNotNull(boe);
+		assertEquals("wrong channel index", expectedChannelIndex, boe.getChannelIndex());
+		assertTrue("is not buffer", boe.isBuffer());
+
+		Buffer buffer = boe.getBuffer();
+		assertEquals("wrong buffer size", expectedSize, buffer.getSize());
+		assertFalse(buffer.isRecycled());
+
+		MemorySegment segment = buffer.getMemorySegment();
+		for (int i = 0; i < expectedSize; i++) {
+			byte expected = (byte) (i + expectedChannelIndex);
+			if (expected != segment.get(i)) {
+				fail(String.format(
+						"wrong buffer contents at position %s : expected=%d , found=%d", i, expected, segment.get(i)));
+			}
+		}
+	}
+
+	private static void checkNoTempFilesRemain() {
+		// validate that all temp files have been removed
+		for (File dir : ioManager.getSpillingDirectories()) {
+			for (String file : dir.list()) {
+				if (file != null && !(file.equals(".") || file.equals(".."))) {
+					fail("blocker did not clean up temp files. remaining file: " + file);
+				}
+			}
+		}
+	}
+}
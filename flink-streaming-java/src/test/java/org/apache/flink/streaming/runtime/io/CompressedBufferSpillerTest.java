@@ -0,0 +1,333 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.disk.iomanager.FileIOChannel;
+import org.apache.flink.runtime.io.disk.iomanager.IOManager;
+import org.apache.flink.runtime.io.disk.iomanager.IOManagerAsync;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferOrEvent;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for {@link CompressedBufferSpiller}.
+ */
+public class CompressedBufferSpillerTest {
+
+	private static final int PAGE_SIZE = 4096;
+
+	private static IOManager ioManager;
+
+	private CompressedBufferSpiller spiller;
+
+	// ------------------------------------------------------------------------
+	//  Setup / Cleanup
+	// ------------------------------------------------------------------------
+
+	@BeforeClass
+	public static void setupIOManager() {
+		ioManager = new IOManagerAsync();
+	}
+
+	@AfterClass
+	public static void shutdownIOManager() {
+		ioManager.shutdown();
+	}
+
+	@Before
+	public void createSpiller() {
+		spiller = new CompressedBufferSpiller(ioManager, PAGE_SIZE);
+	}
+
+	@After
+	public void cleanupSpiller() throws Exception {
+		spiller.close();
+		assertNull(spiller.getCurrentChannel());
+
+		checkNoTempFilesRemain();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Tests
+	// ------------------------------------------------------------------------
+
+	@Test
+	public void testRollOverEmptySequences() throws Exception {
+		assertNull(spiller.rollOverReusingResources());
+		assertNull(spiller.rollOverWithoutReusingResources());
+		assertNull(spiller.rollOverReusingResources());
+	}
+
+	/**
+	 * Tests that buffers and events, which do not fill a single compression block, are read back
+	 * without having created a file before the roll over.
+	 */
+	@Test
+	public void testSpillAndRollOverSingleBlock() throws Exception {
+		BufferOrEvent event = new BufferOrEvent(new TestEvent(42L, new byte[] {1, 2, 3}), 1);
+
+		spiller.add(createBuffer(100, 0, false));
+		spiller.add(event);
+		spiller.add(createBuffer(PAGE_SIZE, 2, true));
+
+		assertNull(spiller.getCurrentChannel());
+		int eventSize = EventSerializer.toSerializedEvent(event.getEvent()).remaining();
+		assertEquals(3 * CompressedBufferSpiller.HEADER_SIZE + 100 + PAGE_SIZE + eventSize, spiller.getBytesBlocked());
+
+		BufferOrEventSequence sequence = spiller.rollOverReusingResources();
+		assertNotNull(sequence);
+		assertEquals(0L, spiller.getBytesBlocked());
+
+		sequence.open();
+		validateBuffer(sequence.getNext(), 100, 0, false);
+		assertEquals(event.getEvent(), sequence.getNext().getEvent());
+		validateBuffer(sequence.getNext(), PAGE_SIZE, 2, true);
+		assertNull(sequence.getNext());
+
+		sequence.cleanup();
+	}
+
+	/**
+	 * Tests multiple rounds of spilling and reading back random sequences of compressible and
+	 * incompressible buffers and events.
+	 */
+	@Test
+	public void testSpillAndRollOverRandom() throws Exception {
+		final Random rnd = new Random();
+
+		for (int round = 0; round < 5; round++) {
+			final long seed = rnd.nextLong();
+			final int numElements = rnd.nextInt(3000) + 1;
+
+			addRandomSequence(new Random(seed), numElements);
+
+			BufferOrEventSequence sequence = spiller.rollOverReusingResources();
+			sequence.open();
+			validateRandomSequence(sequence, new Random(seed), numElements);
+			sequence.cleanup();
+		}
+	}
+
+	/**
+	 * Tests that a sequence created without reusing resources can be read concurrently with a
+	 * sequence created reusing resources.
+	 */
+	@Test
+	public void testReadSequencesConcurrently() throws Exception {
+		final long seed1 = 1L;
+		final long seed2 = 2L;
+
+		addRandomSequence(new Random(seed1), 1000);
+		BufferOrEventSequence sequence1 = spiller.rollOverReusingResources();
+
+		addRandomSequence(new Random(seed2), 1500);
+		BufferOrEventSequence sequence2 = spiller.rollOverWithoutReusingResources();
+
+		sequence1.open();
+		sequence2.open();
+
+		Random rnd1 = new Random(seed1);
+		Random rnd2 = new Random(seed2);
+		for (int i = 0; i < 1500; i++) {
+			if (i < 1000) {
+				validateRandomElement(sequence1.getNext(), rnd1);
+			}
+			validateRandomElement(sequence2.getNext(), rnd2);
+		}
+
+		assertNull(sequence1.getNext());
+		assertNull(sequence2.getNext());
+
+		sequence1.cleanup();
+		sequence2.cleanup();
+	}
+
+	/**
+	 * Tests that compressible data takes less space in the spill file than it takes in memory.
+	 */
+	@Test
+	public void testSpilledDataIsCompressed() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			spiller.add(createBuffer(PAGE_SIZE, i % 3, false));
+		}
+
+		FileIOChannel.ID channel = spiller.getCurrentChannel();
+		assertNotNull(channel);
+		long bytesBlocked = spiller.getBytesBlocked();
+
+		BufferOrEventSequence sequence = spiller.rollOverReusingResources();
+
+		File file = channel.getPathFile();
+		assertTrue(file.exists());
+		assertTrue(file.length() < bytesBlocked / 4);
+
+		sequence.open();
+		for (int i = 0; i < 100; i++) {
+			validateBuffer(sequence.getNext(), PAGE_SIZE, i % 3, false);
+		}
+		assertNull(sequence.getNext());
+
+		sequence.cleanup();
+		assertFalse(file.exists());
+	}
+
+	/**
+	 * Tests that the file of a sequence is deleted, even if the sequence has never been opened.
+	 */
+	@Test
+	public void testCleanupUnopenedSequence() throws Exception {
+		addRandomSequence(new Random(), 500);
+
+		BufferOrEventSequence sequence = spiller.rollOverWithoutReusingResources();
+		sequence.cleanup();
+	}
+
+	/**
+	 * Tests that closing the spiller deletes the file of the current sequence.
+	 */
+	@Test
+	public void testCloseWithPendingData() throws Exception {
+		addRandomSequence(new Random(), 500);
+		assertNotNull(spiller.getCurrentChannel());
+	}
+
+	// ------------------------------------------------------------------------
+	//  Utils
+	// ------------------------------------------------------------------------
+
+	private void addRandomSequence(Random rnd, int numElements) throws Exception {
+		for (int i = 0; i < numElements; i++) {
+			spiller.add(createRandomElement(rnd));
+		}
+	}
+
+	private static void validateRandomSequence(BufferOrEventSequence sequence, Random rnd, int numElements) throws Exception {
+		for (int i = 0; i < numElements; i++) {
+			validateRandomElement(sequence.getNext(), rnd);
+		}
+		assertNull(sequence.getNext());
+	}
+
+	private static BufferOrEvent createRandomElement(Random rnd) {
+		int channel = rnd.nextInt(100);
+
+		if (rnd.nextDouble() < 0.05d) {
+			byte[] data = new byte[rnd.nextInt(1000)];
+			rnd.nextBytes(data);
+			return new BufferOrEvent(new TestEvent(rnd.nextLong(), data), channel);
+		}
+		else {
+			return createBuffer(rnd.nextInt(PAGE_SIZE) + 1, channel, rnd.nextBoolean());
+		}
+	}
+
+	private static void validateRandomElement(BufferOrEvent present, Random rnd) {
+		BufferOrEvent expected = createRandomElement(rnd);
+
+		assertNotNull(present);
+		if (expected.isBuffer()) {
+			validateBuffer(present, expected.getBuffer().getSize(), expected.getChannelIndex(),
+				expected.getBuffer().getMemorySegment().get(0) != 0);
+			present.getBuffer().recycle();
+		}
+		else {
+			assertFalse(present.isBuffer());
+			assertEquals(expected.getChannelIndex(), present.getChannelIndex());
+			assertEquals(expected.getEvent(), present.getEvent());
+		}
+	}
+
+	/**
+	 * Creates a buffer with either compressible contents (all bytes are their index) or with
+	 * incompressible contents (a random sequence seeded with the buffer size).
+	 */
+	private static BufferOrEvent createBuffer(int size, int channelIndex, boolean incompressible) {
+		MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(PAGE_SIZE);
+		segment.put(0, contents(size, incompressible));
+
+		Buffer buffer = new Buffer(segment, FreeingBufferRecycler.INSTANCE);
+		buffer.setSize(size);
+		return new BufferOrEvent(buffer, channelIndex);
+	}
+
+	private static byte[] contents(int size, boolean incompressible) {
+		byte[] contents = new byte[size];
+		if (incompressible) {
+			new Random(size).nextBytes(contents);
+			// the first byte distinguishes the contents in the validation
+			contents[0] = 1;
+		}
+		else {
+			for (int i = 0; i < size; i++) {
+				contents[i] = (byte) i;
+			}
+		}
+		return contents;
+	}
+
+	private static void validateBuffer(BufferOrEvent boe, int expectedSize, int expectedChannelIndex, boolean incompressible) {
+		assertNotNull(boe);
+		assertEquals("wrong channel index", expectedChannelIndex, boe.getChannelIndex());
+		assertTrue("is not buffer", boe.isBuffer());
+
+		Buffer buffer = boe.getBuffer();
+		assertEquals("wrong buffer size", expectedSize, buffer.getSize());
+
+		byte[] expected = contents(expectedSize, incompressible);
+		byte[] present = new byte[expectedSize];
+		buffer.getMemorySegment().get(0, present);
+
+		for (int i = 0; i < expectedSize; i++) {
+			if (expected[i] != present[i]) {
+				fail(String.format(
+						"wrong buffer contents at position %s : expected=%d , found=%d", i, expected[i], present[i]));
+			}
+		}
+	}
+
+	private static void checkNoTempFilesRemain() {
+		// validate that all temp files have been removed
+		for (File dir : ioManager.getSpillingDirectories()) {
+			for (String file : dir.list()) {
+				if (file != null && !(file.equals(".") || file.equals(".."))) {
+					fail("spiller did not clean up temp files. remaining file: " + file);
+				}
+			}
+		}
+	}
+}
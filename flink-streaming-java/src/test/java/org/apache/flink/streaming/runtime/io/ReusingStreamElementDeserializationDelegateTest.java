@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io;
+
+import org.apache.flink.api.common.typeutils.base.IntValueSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElement;
+import org.apache.flink.streaming.runtime.streamrecord.StreamElementSerializer;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.types.IntValue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for {@link ReusingStreamElementDeserializationDelegate}.
+ */
+public class ReusingStreamElementDeserializationDelegateTest {
+
+	private final StreamElementSerializer<IntValue> serializer =
+		new StreamElementSerializer<>(IntValueSerializer.INSTANCE);
+
+	@Test
+	public void testSlots() throws Exception {
+		ReusingStreamElementDeserializationDelegate<IntValue> delegate =
+			new ReusingStreamElementDeserializationDelegate<>(serializer, 2);
+
+		delegate.setSlot(0);
+		StreamRecord<IntValue> first = read(delegate, new StreamRecord<>(new IntValue(1), 1L)).asRecord();
+		IntValue firstValue = first.getValue();
+
+		delegate.setSlot(1);
+		StreamRecord<IntValue> second = read(delegate, new StreamRecord<>(new IntValue(2), 2L)).asRecord();
+
+		// records of distinct slots do not share any objects
+		assertNotSame(first, second);
+		assertNotSame(firstValue, second.getValue());
+		assertEquals(new StreamRecord<>(new IntValue(1), 1L), first);
+		assertEquals(new StreamRecord<>(new IntValue(2), 2L), second);
+
+		// records of the same slot are deserialized into the same objects
+		delegate.setSlot(0);
+		StreamElement third = read(delegate, new StreamRecord<>(new IntValue(3)));
+		assertSame(first, third);
+		assertSame(firstValue, first.getValue());
+		assertEquals(new StreamRecord<>(new IntValue(3)), third);
+
+		// other elements do not affect the reused records
+		assertEquals(new Watermark(4L), read(delegate, new Watermark(4L)));
+		assertEquals(new StreamRecord<>(new IntValue(3)), first);
+	}
+
+	@Test
+	public void testReplacedValueIsRestored() throws Exception {
+		ReusingStreamElementDeserializationDelegate<IntValue> delegate =
+			new ReusingStreamElementDeserializationDelegate<>(serializer, 1);
+
+		StreamRecord<IntValue> record = read(delegate, new StreamRecord<>(new IntValue(1))).asRecord();
+		IntValue value = record.getValue();
+
+		// an operator, like a map, replaces the value of the record with a value of another type
+		record.replace("one");
+
+		StreamElement next = read(delegate, new StreamRecord<>(new IntValue(2), 2L));
+		assertSame(record, next);
+		assertSame(value, record.getValue());
+		assertEquals(new StreamRecord<>(new IntValue(2), 2L), next);
+	}
+
+	private StreamElement read(
+			ReusingStreamElementDeserializationDelegate<IntValue> delegate,
+			StreamElement element) throws IOException {
+
+		DataOutputSerializer output = new DataOutputSerializer(32);
+		serializer.serialize(element, output);
+
+		delegate.read(new DataInputDeserializer(output.getByteArray(), 0, output.length()));
+		return delegate.getInstance();
+	}
+}
@@ -34,10 +34,16 @@ import org.mockito.stubbing.Answer;
 
 import java.io.IOException;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -46,7 +52,7 @@ import static org.mockito.Mockito.when;
 public class StreamRecordWriterTest {
 
 	/**
-	 * Verifies that exceptions during flush from the output flush thread are
+	 * Verifies that exceptions during flush from the output flush timer are
 	 * recognized in the writer.
 	 */
 	@Test
@@ -57,7 +63,7 @@ public class StreamRecordWriterTest {
 
 			// test writer that flushes every 5ms and fails after 3 flushes
 			testWriter = new FailingWriter<LongValue>(mockResultPartitionWriter,
-					new RoundRobinChannelSelector<LongValue>(), 5, 3);
+					new RoundRobinChannelSelector<LongValue>(), 5, 3, "Test Task");
 
 			try {
 				long deadline = System.currentTimeMillis() + 20000; // in max 20 seconds (conservative)
@@ -70,6 +76,7 @@ public class StreamRecordWriterTest {
 				fail("This should have failed with an exception");
 			}
 			catch (IOException e) {
+				assertTrue(e.getMessage().contains("Test Task"));
 				assertNotNull(e.getCause());
 				assertTrue(e.getCause().getMessage().contains("Test Exception"));
 			}
@@ -85,6 +92,69 @@ public class StreamRecordWriterTest {
 		}
 	}
 
+	/**
+	 * Verifies that only channels with pending data are flushed on timeout, once per pending
+	 * buffer.
+	 */
+	@Test
+	public void testFlushOnlyPendingChannels() throws Exception {
+		ResultPartitionWriter mockResultPartitionWriter = getMockWriter(5);
+
+		StreamRecordWriter<LongValue> writer = new StreamRecordWriter<>(mockResultPartitionWriter,
+				new RoundRobinChannelSelector<LongValue>(), 5);
+
+		try {
+			// one record to a single channel
+			writer.emit(new LongValue(1L));
+
+			verify(mockResultPartitionWriter, timeout(10000)).writeBuffer(any(Buffer.class), anyInt());
+
+			// no further flushes without new data
+			Thread.sleep(50);
+			verify(mockResultPartitionWriter, times(1)).writeBuffer(any(Buffer.class), anyInt());
+
+			// new data is flushed again
+			writer.emit(new LongValue(2L));
+
+			verify(mockResultPartitionWriter, timeout(10000).times(2)).writeBuffer(any(Buffer.class), anyInt());
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Verifies that the output flush timer runs only while writers with a timeout are open and
+	 * that closing a writer twice releases the timer only once.
+	 */
+	@Test
+	public void testFlushTimerShutDownWithLastWriter() throws Exception {
+		ResultPartitionWriter mockResultPartitionWriter = getMockWriter(2);
+
+		// writers of other tests in the same JVM may still hold references
+		final int initialReferences = OutputFlushTimer.getNumberOfReferences();
+
+		StreamRecordWriter<LongValue> first = new StreamRecordWriter<>(mockResultPartitionWriter,
+				new RoundRobinChannelSelector<LongValue>(), 5, "Test Task");
+		StreamRecordWriter<LongValue> second = new StreamRecordWriter<>(mockResultPartitionWriter,
+				new RoundRobinChannelSelector<LongValue>(), 5, "Test Task");
+		StreamRecordWriter<LongValue> noTimeout = new StreamRecordWriter<>(mockResultPartitionWriter,
+				new RoundRobinChannelSelector<LongValue>(), 0, "Test Task");
+
+		assertEquals(initialReferences + 2, OutputFlushTimer.getNumberOfReferences());
+		assertTrue(OutputFlushTimer.isRunning());
+
+		first.close();
+		first.close();
+		noTimeout.close();
+		assertEquals(initialReferences + 1, OutputFlushTimer.getNumberOfReferences());
+		assertTrue(OutputFlushTimer.isRunning());
+
+		second.close();
+		assertEquals(initialReferences, OutputFlushTimer.getNumberOfReferences());
+		assertEquals(initialReferences > 0, OutputFlushTimer.isRunning());
+	}
+
 	private static ResultPartitionWriter getMockWriter(int numPartitions) throws Exception {
 		BufferProvider mockProvider = mock(BufferProvider.class);
 		when(mockProvider.requestBufferBlocking()).thenAnswer(new Answer<Buffer>() {
@@ -110,17 +180,17 @@ public class StreamRecordWriterTest {
 		private int flushesBeforeException;
 
 		private FailingWriter(ResultPartitionWriter writer, ChannelSelector<T> channelSelector,
-								long timeout, int flushesBeforeException) {
-			super(writer, channelSelector, timeout);
+								long timeout, int flushesBeforeException, String taskName) {
+			super(writer, channelSelector, timeout, taskName);
 			this.flushesBeforeException = flushesBeforeException;
 		}
 
 		@Override
-		public void flush() throws IOException {
+		protected boolean tryFlush(int targetChannel) throws IOException {
 			if (flushesBeforeException-- <= 0) {
 				throw new IOException("Test Exception");
 			}
-			super.flush();
+			return super.tryFlush(targetChannel);
 		}
 	}
 }
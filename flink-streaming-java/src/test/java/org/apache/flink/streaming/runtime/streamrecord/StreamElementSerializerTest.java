@@ -19,11 +19,14 @@
 package org.apache.flink.streaming.runtime.streamrecord;
 
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntValueSerializer;
 import org.apache.flink.api.common.typeutils.base.LongSerializer;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.core.memory.DataInputDeserializer;
 import org.apache.flink.core.memory.DataOutputSerializer;
 import org.apache.flink.streaming.api.watermark.Watermark;
+import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
+import org.apache.flink.types.IntValue;
 
 import org.junit.Test;
 
@@ -32,6 +35,7 @@ import java.io.IOException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -91,6 +95,42 @@ public class StreamElementSerializerTest {
 		assertEquals(negativeWatermark, serializeAndDeserialize(negativeWatermark, serializer));
 	}
 
+	@Test
+	public void testDeserializationWithReuse() throws Exception {
+		final StreamElementSerializer<IntValue> serializer =
+				new StreamElementSerializer<IntValue>(IntValueSerializer.INSTANCE);
+
+		// the first record is deserialized into a new value
+		StreamRecord<IntValue> reuse = new StreamRecord<>(null);
+		StreamElement withTimestamp = deserializeWithReuse(new StreamRecord<>(new IntValue(1), 77L), reuse, serializer);
+		assertSame(reuse, withTimestamp);
+		assertEquals(new StreamRecord<>(new IntValue(1), 77L), withTimestamp);
+
+		// the following records are deserialized into the value of the reused record
+		IntValue value = reuse.getValue();
+		StreamElement withoutTimestamp = deserializeWithReuse(new StreamRecord<>(new IntValue(2)), reuse, serializer);
+		assertSame(reuse, withoutTimestamp);
+		assertSame(value, reuse.getValue());
+		assertEquals(new StreamRecord<>(new IntValue(2)), withoutTimestamp);
+		assertFalse(reuse.hasTimestamp());
+
+		assertEquals(new Watermark(13), deserializeWithReuse(new Watermark(13), reuse, serializer));
+		assertEquals(StreamStatus.IDLE, deserializeWithReuse(StreamStatus.IDLE, reuse, serializer));
+		assertEquals(new LatencyMarker(1L, 2, 3), deserializeWithReuse(new LatencyMarker(1L, 2, 3), reuse, serializer));
+	}
+
+	private static <T> StreamElement deserializeWithReuse(
+			StreamElement element,
+			StreamElement reuse,
+			StreamElementSerializer<T> serializer) throws IOException {
+
+		DataOutputSerializer output = new DataOutputSerializer(32);
+		serializer.serialize(element, output);
+
+		DataInputDeserializer input = new DataInputDeserializer(output.getByteArray(), 0, output.length());
+		return serializer.deserialize(reuse, input);
+	}
+
 	@SuppressWarnings("unchecked")
 	private static <T, X extends StreamElement> X serializeAndDeserialize(
 			X record,
@@ -23,9 +23,13 @@ import org.apache.flink.api.common.functions.RichMapFunction;
 import org.apache.flink.api.common.state.ListState;
 import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.IntValueSerializer;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.api.java.typeutils.ValueTypeInfo;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
@@ -46,6 +50,7 @@ import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.runtime.streamstatus.StreamStatus;
 import org.apache.flink.streaming.util.TestHarnessUtil;
+import org.apache.flink.types.IntValue;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.TestLogger;
 
@@ -56,6 +61,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -66,6 +72,7 @@ import scala.concurrent.duration.Deadline;
 import scala.concurrent.duration.FiniteDuration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -541,6 +548,101 @@ public class OneInputStreamTaskTest extends TestLogger {
 		TestingStreamOperator.numberRestoreCalls = 0;
 	}
 
+	/**
+	 * This test verifies that the records of a non-keyed input are deserialized into reused
+	 * objects if object reuse is enabled, while the records of a keyed input are not.
+	 */
+	@Test
+	public void testObjectReuse() throws Exception {
+		assertEquals(1, runObjectReuseTest(false));
+		assertEquals(3, runObjectReuseTest(true));
+	}
+
+	/**
+	 * Runs three records through a task with object reuse enabled and returns the number of
+	 * distinct value instances seen by the operator.
+	 */
+	private static int runObjectReuseTest(boolean keyed) throws Exception {
+		final OneInputStreamTask<IntValue, IntValue> testTask = new OneInputStreamTask<>();
+		final OneInputStreamTaskTestHarness<IntValue, IntValue> testHarness = new OneInputStreamTaskTestHarness<>(
+			testTask, ValueTypeInfo.INT_VALUE_TYPE_INFO, ValueTypeInfo.INT_VALUE_TYPE_INFO);
+		testHarness.setupOutputForSingletonOperatorChain();
+		testHarness.getExecutionConfig().enableObjectReuse();
+
+		if (keyed) {
+			testHarness.configureForKeyedStream(new IdentityKeySelector<IntValue>(), ValueTypeInfo.INT_VALUE_TYPE_INFO);
+		}
+
+		StreamConfig streamConfig = testHarness.getStreamConfig();
+		streamConfig.setStreamOperator(new ValueInstanceCountingOperator());
+		streamConfig.setOperatorID(new OperatorID());
+
+		testHarness.invoke();
+		testHarness.waitForTaskRunning();
+
+		testHarness.processElement(new StreamRecord<>(new IntValue(1), 1L), 0, 0);
+		testHarness.processElement(new StreamRecord<>(new IntValue(2)), 0, 0);
+		testHarness.processElement(new StreamRecord<>(new IntValue(3), 3L), 0, 0);
+
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+		expectedOutput.add(new StreamRecord<>(new IntValue(1), 1L));
+		expectedOutput.add(new StreamRecord<>(new IntValue(2)));
+		expectedOutput.add(new StreamRecord<>(new IntValue(3), 3L));
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+
+		return ValueInstanceCountingOperator.numDistinctValues;
+	}
+
+	/**
+	 * This test verifies that chained operators share the values of immutable types if object
+	 * reuse is disabled, while the values of mutable types are copied.
+	 */
+	@Test
+	public void testChainedCopyOfImmutableTypes() throws Exception {
+		assertTrue(runChainedValueCopyTest(
+			BasicTypeInfo.STRING_TYPE_INFO, StringSerializer.INSTANCE, "Hello"));
+		assertFalse(runChainedValueCopyTest(
+			ValueTypeInfo.INT_VALUE_TYPE_INFO, IntValueSerializer.INSTANCE, new IntValue(42)));
+	}
+
+	/**
+	 * Runs a record through a chain of two operators and returns whether both operators have seen
+	 * the same value instance.
+	 */
+	private static <T> boolean runChainedValueCopyTest(
+			TypeInformation<T> typeInfo,
+			TypeSerializer<T> serializer,
+			T value) throws Exception {
+
+		final OneInputStreamTask<T, T> testTask = new OneInputStreamTask<>();
+		final OneInputStreamTaskTestHarness<T, T> testHarness =
+			new OneInputStreamTaskTestHarness<>(testTask, 1, 1, typeInfo, typeInfo);
+
+		ValueRecordingOperator<T> headOperator = new ValueRecordingOperator<>();
+		ValueRecordingOperator<T> tailOperator = new ValueRecordingOperator<>();
+
+		testHarness.setupOperatorChain(new OperatorID(42L, 42L), headOperator)
+			.chain(new OperatorID(4711L, 42L), tailOperator, serializer)
+			.finish();
+
+		ValueRecordingOperator.VALUES.clear();
+
+		testHarness.invoke();
+		testHarness.waitForTaskRunning();
+
+		testHarness.processElement(new StreamRecord<>(value));
+
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+
+		assertEquals(2, ValueRecordingOperator.VALUES.size());
+		return ValueRecordingOperator.VALUES.get(0) == ValueRecordingOperator.VALUES.get(1);
+	}
+
 	@Test
 	public void testQuiesceTimerServiceAfterOpClose() throws Exception {
 
@@ -613,6 +715,7 @@ public class OneInputStreamTaskTest extends TestLogger {
 			StreamConfig chainedConfig = new StreamConfig(new Configuration());
 			chainedConfig.setStreamOperator(chainedOperator);
 			chainedConfig.setOperatorID(new OperatorID(0L, chainedIndex));
+			chainedConfig.setTypeSerializerIn1(IntSerializer.INSTANCE);
 			chainedTaskConfigs.put(chainedIndex, chainedConfig);
 
 			StreamEdge outputEdge = new StreamEdge(
@@ -657,6 +760,56 @@ public class OneInputStreamTaskTest extends TestLogger {
 		}
 	}
 
+	/**
+	 * Forwards its input and counts the distinct value instances it has seen.
+	 */
+	private static class ValueInstanceCountingOperator
+		extends AbstractStreamOperator<IntValue>
+		implements OneInputStreamOperator<IntValue, IntValue> {
+
+		private static final long serialVersionUID = 1L;
+
+		static volatile int numDistinctValues;
+
+		private transient Set<IntValue> values;
+
+		@Override
+		public void open() throws Exception {
+			super.open();
+			values = Collections.newSetFromMap(new IdentityHashMap<>());
+		}
+
+		@Override
+		public void processElement(StreamRecord<IntValue> element) throws Exception {
+			values.add(element.getValue());
+			output.collect(element);
+		}
+
+		@Override
+		public void close() throws Exception {
+			numDistinctValues = values.size();
+			super.close();
+		}
+	}
+
+	/**
+	 * Forwards its input and records the value instances it has seen.
+	 */
+	private static class ValueRecordingOperator<T>
+		extends AbstractStreamOperator<T>
+		implements OneInputStreamOperator<T, T> {
+
+		private static final long serialVersionUID = 1L;
+
+		static final List<Object> VALUES = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public void processElement(StreamRecord<T> element) throws Exception {
+			VALUES.add(element.getValue());
+			output.collect(element);
+		}
+	}
+
 	private static class TestingStreamOperator<IN, OUT>
 		extends AbstractStreamOperator<OUT>
 		implements OneInputStreamOperator<IN, OUT> {
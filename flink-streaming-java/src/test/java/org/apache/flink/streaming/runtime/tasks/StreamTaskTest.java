@@ -27,6 +27,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.CoreOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.testutils.OneShotLatch;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.blob.BlobCacheService;
 import org.apache.flink.runtime.blob.PermanentBlobCache;
 import org.apache.flink.runtime.blob.TransientBlobCache;
@@ -1022,7 +1023,8 @@ public class StreamTaskTest extends TestLogger {
 						Mockito.any(TypeSerializer.class),
 						Mockito.any(int.class),
 						Mockito.any(KeyGroupRange.class),
-						Mockito.any(TaskKvStateRegistry.class)))
+						Mockito.any(TaskKvStateRegistry.class),
+						Mockito.any(MetricGroup.class)))
 					.thenAnswer(new Answer<AbstractKeyedStateBackend>() {
 						@Override
 						public AbstractKeyedStateBackend answer(InvocationOnMock invocationOnMock) throws Throwable {
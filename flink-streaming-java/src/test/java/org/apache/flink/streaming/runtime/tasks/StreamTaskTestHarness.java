@@ -311,6 +311,13 @@ public class StreamTaskTestHarness<OUT> {
 		inputGates[inputGate].sendElement(element, channel);
 	}
 
+	/**
+	 * Sends the elements in a single buffer to the specified channel on the specified input gate.
+	 */
+	public void processElements(List<?> elements, int inputGate, int channel) {
+		inputGates[inputGate].sendElements(elements, channel);
+	}
+
 	/**
 	 * Sends the event to input gate 0 on channel 0.
 	 */
@@ -27,6 +27,8 @@ import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.streaming.api.functions.co.CoMapFunction;
 import org.apache.flink.streaming.api.functions.co.RichCoMapFunction;
 import org.apache.flink.streaming.api.graph.StreamConfig;
+import org.apache.flink.streaming.api.operators.InputSelectable;
+import org.apache.flink.streaming.api.operators.InputSelection;
 import org.apache.flink.streaming.api.operators.co.CoStreamMap;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
@@ -36,6 +38,7 @@ import org.apache.flink.streaming.util.TestHarnessUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
@@ -363,6 +366,90 @@ public class TwoInputStreamTaskTest {
 				testHarness.getOutput());
 	}
 
+	/**
+	 * This test verifies that an {@link InputSelectable} operator only receives the elements of
+	 * the input it selected, while the elements of the other input are held back.
+	 */
+	@Test
+	public void testInputSelection() throws Exception {
+		final TwoInputStreamTask<String, Integer, String> coMapTask = new TwoInputStreamTask<String, Integer, String>();
+		final TwoInputStreamTaskTestHarness<String, Integer, String> testHarness = new TwoInputStreamTaskTestHarness<String, Integer, String>(coMapTask, BasicTypeInfo.STRING_TYPE_INFO, BasicTypeInfo.INT_TYPE_INFO, BasicTypeInfo.STRING_TYPE_INFO);
+		testHarness.setupOutputForSingletonOperatorChain();
+
+		StreamConfig streamConfig = testHarness.getStreamConfig();
+		streamConfig.setStreamOperator(new SecondInputFirstCoStreamMap(2));
+		streamConfig.setOperatorID(new OperatorID());
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<Object>();
+		long initialTime = 0L;
+
+		testHarness.invoke();
+		testHarness.waitForTaskRunning();
+
+		// the first input is not read until two elements of the second input have been processed
+		testHarness.processElement(new StreamRecord<String>("Hello", initialTime), 0, 0);
+		testHarness.processElement(new StreamRecord<String>("Ciao", initialTime), 0, 0);
+		testHarness.processElement(new StreamRecord<Integer>(11, initialTime), 1, 0);
+		testHarness.processElement(new StreamRecord<Integer>(42, initialTime), 1, 0);
+		testHarness.processElement(new StreamRecord<Integer>(1337, initialTime), 1, 0);
+
+		expectedOutput.add(new StreamRecord<String>("11", initialTime));
+		expectedOutput.add(new StreamRecord<String>("42", initialTime));
+		expectedOutput.add(new StreamRecord<String>("Hello", initialTime));
+		expectedOutput.add(new StreamRecord<String>("Ciao", initialTime));
+
+		// the second input is read once the selected first input is finished
+		expectedOutput.add(new StreamRecord<String>("1337", initialTime));
+
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
+	/**
+	 * This test verifies that the operator processes all elements of an input, which precede a
+	 * checkpoint barrier, before the checkpoint is taken, even if the operator deselects the
+	 * input in the middle of a buffer.
+	 */
+	@Test
+	public void testCheckpointBarrierOnDeselectedInput() throws Exception {
+		final TwoInputStreamTask<String, Integer, String> coMapTask = new TwoInputStreamTask<String, Integer, String>();
+		final TwoInputStreamTaskTestHarness<String, Integer, String> testHarness = new TwoInputStreamTaskTestHarness<String, Integer, String>(coMapTask, BasicTypeInfo.STRING_TYPE_INFO, BasicTypeInfo.INT_TYPE_INFO, BasicTypeInfo.STRING_TYPE_INFO);
+		testHarness.setupOutputForSingletonOperatorChain();
+
+		StreamConfig streamConfig = testHarness.getStreamConfig();
+		streamConfig.setStreamOperator(new FirstInputFirstCoStreamMap(1));
+		streamConfig.setOperatorID(new OperatorID());
+
+		ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<Object>();
+		long initialTime = 0L;
+
+		testHarness.invoke();
+		testHarness.waitForTaskRunning();
+
+		// the operator switches to the second input after the first element of the buffer
+		testHarness.processElements(Arrays.asList(
+				new StreamRecord<String>("Hello", initialTime),
+				new StreamRecord<String>("Ciao", initialTime),
+				new StreamRecord<String>("Hola", initialTime)), 0, 0);
+		testHarness.processEvent(new CheckpointBarrier(0, 0, CheckpointOptions.forCheckpoint()), 0, 0);
+		testHarness.processElement(new StreamRecord<Integer>(11, initialTime), 1, 0);
+		testHarness.processEvent(new CheckpointBarrier(0, 0, CheckpointOptions.forCheckpoint()), 1, 0);
+
+		expectedOutput.add(new StreamRecord<String>("Hello", initialTime));
+		expectedOutput.add(new StreamRecord<String>("Ciao", initialTime));
+		expectedOutput.add(new StreamRecord<String>("Hola", initialTime));
+		expectedOutput.add(new StreamRecord<String>("11", initialTime));
+		expectedOutput.add(new CheckpointBarrier(0, 0, CheckpointOptions.forCheckpoint()));
+
+		testHarness.waitForInputProcessing();
+		testHarness.endInput();
+		testHarness.waitForTaskCompletion();
+
+		TestHarnessUtil.assertOutputEquals("Output was not correct.", expectedOutput, testHarness.getOutput());
+	}
+
 	// This must only be used in one test, otherwise the static fields will be changed
 	// by several tests concurrently
 	private static class TestOpenCloseMapFunction extends RichCoMapFunction<String, Integer, String> {
@@ -420,5 +507,68 @@ public class TwoInputStreamTaskTest {
 			return value.toString();
 		}
 	}
-}
 
+	/**
+	 * Reads the given number of elements from the first input before it switches to the second
+	 * input.
+	 */
+	private static class FirstInputFirstCoStreamMap extends CoStreamMap<String, Integer, String> implements InputSelectable {
+		private static final long serialVersionUID = 1L;
+
+		private final int numFirstElements;
+
+		private int numProcessedFirstElements;
+
+		FirstInputFirstCoStreamMap(int numFirstElements) {
+			super(new IdentityMap());
+			this.numFirstElements = numFirstElements;
+		}
+
+		@Override
+		public void processElement1(StreamRecord<String> element) throws Exception {
+			numProcessedFirstElements++;
+			super.processElement1(element);
+		}
+
+		@Override
+		public InputSelection nextSelection() {
+			return numProcessedFirstElements < numFirstElements ? InputSelection.FIRST : InputSelection.SECOND;
+		}
+	}
+
+	/**
+	 * Reads the given number of elements from the second input before it switches to the first
+	 * input.
+	 */
+	private static class SecondInputFirstCoStreamMap extends CoStreamMap<String, Integer, String> implements InputSelectable {
+		private static final long serialVersionUID = 1L;
+
+		private final int numSecondElements;
+
+		private int numProcessedSecondElements;
+
+		SecondInputFirstCoStreamMap(int numSecondElements) {
+			super(new IdentityMap());
+			this.numSecondElements = numSecondElements;
+		}
+
+		@Override
+		public void processElement1(StreamRecord<String> element) throws Exception {
+			if (numProcessedSecondElements < numSecondElements) {
+				Assert.fail("Read the first input although the second input was selected.");
+			}
+			super.processElement1(element);
+		}
+
+		@Override
+		public void processElement2(StreamRecord<Integer> element) throws Exception {
+			numProcessedSecondElements++;
+			super.processElement2(element);
+		}
+
+		@Override
+		public InputSelection nextSelection() {
+			return numProcessedSecondElements < numSecondElements ? InputSelection.SECOND : InputSelection.FIRST;
+		}
+	}
+}
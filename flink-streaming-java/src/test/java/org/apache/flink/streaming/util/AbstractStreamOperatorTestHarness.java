@@ -196,14 +196,16 @@ public class AbstractStreamOperatorTestHarness<OUT> implements AutoCloseable {
 		}).when(mockTask).handleAsyncException(any(String.class), any(Throwable.class));
 
 		try {
-			doAnswer(new Answer<CheckpointStreamFactory>() {
+			Answer<CheckpointStreamFactory> streamFactoryAnswer = new Answer<CheckpointStreamFactory>() {
 				@Override
 				public CheckpointStreamFactory answer(InvocationOnMock invocationOnMock) throws Throwable {
 
 					final StreamOperator<?> operator = (StreamOperator<?>) invocationOnMock.getArguments()[0];
 					return stateBackend.createStreamFactory(new JobID(), operator.getClass().getSimpleName());
 				}
-			}).when(mockTask).createCheckpointStreamFactory(any(StreamOperator.class));
+			};
+			doAnswer(streamFactoryAnswer).when(mockTask).createCheckpointStreamFactory(any(StreamOperator.class));
+			doAnswer(streamFactoryAnswer).when(mockTask).createStateCheckpointStreamFactory(any(StreamOperator.class));
 		} catch (Exception e) {
 			throw new RuntimeException(e.getMessage(), e);
 		}
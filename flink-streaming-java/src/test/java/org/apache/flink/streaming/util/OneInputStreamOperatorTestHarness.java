@@ -25,6 +25,7 @@ import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.util.Preconditions;
 
+import java.util.ArrayList;
 import java.util.Collection;
 
 /**
@@ -107,6 +108,11 @@ public class OneInputStreamOperatorTestHarness<IN, OUT>
 		}
 	}
 
+	public void processBatch(Collection<StreamRecord<IN>> elements) throws Exception {
+		// the operator may modify the batch
+		oneInputOperator.processBatch(new ArrayList<>(elements));
+	}
+
 	public void processWatermark(long watermark) throws Exception {
 		processWatermark(new Watermark(watermark));
 	}